@@ -0,0 +1,88 @@
+package com.dtech.algo.screener;
+
+import com.dtech.algo.screener.kotlinrunner.ScreenerEntryPoints;
+import com.dtech.algo.screener.kotlinrunner.ScriptOutputCapture;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-invocation overhead of calling a screener's {@code screener(ctx, cb)}.
+ * <ul>
+ *   <li>{@code executorHopReflective} - the previous KotlinScriptExecutor.invokeMethod path
+ *   (submit to a worker pool, block on the future, reflective dispatch)</li>
+ *   <li>{@code reflective} - reflective dispatch on the caller's thread</li>
+ *   <li>{@code typed} - the bound {@link ScreenerScript}, as ScreenerUOW calls it now</li>
+ *   <li>{@code typedWithCapture} - the same with a thread-bound stdout capture open</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ScreenerInvocationBenchmark {
+
+    public static class Entry {
+        public ScreenerOutput screener(ScreenerContext ctx, SignalCallback cb) {
+            return ScreenerOutput.builder().passed(ctx.getNowIndex() >= 0).build();
+        }
+    }
+
+    private static final SignalCallback NOOP = new SignalCallback() {
+        @Override
+        public void onEntry(ScreenerContext ctx, String... tags) { }
+
+        @Override
+        public void onExit(ScreenerContext ctx, String... tags) { }
+    };
+
+    private ExecutorService pool;
+    private Entry entry;
+    private Method method;
+    private ScreenerScript typed;
+    private ScreenerContext ctx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = Executors.newFixedThreadPool(4);
+        entry = new Entry();
+        method = Entry.class.getMethod("screener", ScreenerContext.class, SignalCallback.class);
+        typed = ScreenerEntryPoints.bind(entry);
+        ctx = ScreenerContext.builder().symbol("BENCH").timeframe("OneHour").nowIndex(0).params(Map.of()).build();
+        ScriptOutputCapture.install();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Object executorHopReflective() throws Exception {
+        return pool.submit(() -> method.invoke(entry, ctx, NOOP)).get();
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return method.invoke(entry, ctx, NOOP);
+    }
+
+    @Benchmark
+    public ScreenerOutput typed() {
+        return typed.evaluate(ctx, NOOP);
+    }
+
+    @Benchmark
+    public ScreenerOutput typedWithCapture() {
+        ScriptOutputCapture.begin();
+        try {
+            return typed.evaluate(ctx, NOOP);
+        } finally {
+            ScriptOutputCapture.end();
+        }
+    }
+}
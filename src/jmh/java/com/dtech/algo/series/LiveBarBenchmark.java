@@ -0,0 +1,86 @@
+package com.dtech.algo.series;
+
+import org.openjdk.jmh.annotations.*;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.DecimalNum;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks/sec for a tick that lands inside the forming bar.
+ * <ul>
+ *   <li>{@code reflectionBaseBar} - the previous LatestBarSeriesProvider.updateBarValues path
+ *   (addPrice plus reflective volume update on a BaseBar)</li>
+ *   <li>{@code liveBar} - ExtendedBarSeries.updateLiveBar on a {@link LiveBar}</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class LiveBarBenchmark {
+
+    private static final Instant END_TIME = Instant.parse("2024-06-12T04:31:00Z");
+    private static final long END_EPOCH_SECOND = END_TIME.getEpochSecond();
+
+    private BarSeries baseSeries;
+    private ExtendedBarSeries liveSeries;
+    private double price;
+    private double high;
+    private double low;
+    private double cumulativeVolume;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        baseSeries = new BaseBarSeriesBuilder().withName("base").build();
+        baseSeries.addBar(new BaseBar(Duration.ofMinutes(1), END_TIME, DecimalNum.valueOf(100), DecimalNum.valueOf(100),
+                DecimalNum.valueOf(100), DecimalNum.valueOf(100), DecimalNum.valueOf(0), DecimalNum.valueOf(0), 0));
+
+        liveSeries = ExtendedBarSeries.builder()
+                .delegate(new BaseBarSeriesBuilder().withName("live").build())
+                .interval(Interval.OneMinute)
+                .instrument("BENCH")
+                .build();
+        liveSeries.updateLiveBar(END_EPOCH_SECOND, 100, 100, 100, 100, 0);
+
+        price = 100;
+        high = 100;
+        low = 100;
+        cumulativeVolume = 0;
+    }
+
+    private double nextPrice() {
+        price += (cumulativeVolume % 7 == 0) ? 0.05 : -0.05;
+        cumulativeVolume += 10;
+        return price;
+    }
+
+    @Benchmark
+    public Object reflectionBaseBar() throws Exception {
+        double tickPrice = nextPrice();
+        BaseBar bar = (BaseBar) baseSeries.getBar(baseSeries.getEndIndex());
+        bar.addPrice(DecimalNum.valueOf(tickPrice));
+
+        Field volumeField = BaseBar.class.getDeclaredField("volume");
+        volumeField.setAccessible(true);
+        Object currentVolume = volumeField.get(bar);
+        Method plus = currentVolume.getClass().getMethod("plus", currentVolume.getClass().getInterfaces()[0]);
+        Object result = plus.invoke(currentVolume, DecimalNum.valueOf(cumulativeVolume));
+        volumeField.set(bar, result);
+        return bar;
+    }
+
+    @Benchmark
+    public Object liveBar() {
+        double tickPrice = nextPrice();
+        high = Math.max(high, tickPrice);
+        low = Math.min(low, tickPrice);
+        return liveSeries.updateLiveBar(END_EPOCH_SECOND, 100, high, low, tickPrice, cumulativeVolume);
+    }
+}
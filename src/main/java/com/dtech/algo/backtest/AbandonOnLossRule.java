@@ -0,0 +1,65 @@
+package com.dtech.algo.backtest;
+
+import org.ta4j.core.Position;
+import org.ta4j.core.Rule;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.rules.AbstractRule;
+
+import java.util.List;
+
+/**
+ * Entry rule wrapper that gives up on a backtest once its closed positions have lost too much.
+ * <p>
+ * The entry rule is consulted on every bar the strategy is flat, with the live trading record, so the
+ * compounded gross return of the positions closed so far is checked there. When it falls below the floor,
+ * {@link Abandoned} is thrown out of the run; nothing the remaining bars do can make the variant competitive.
+ * One instance serves one run.
+ */
+class AbandonOnLossRule extends AbstractRule {
+
+  /**
+   * Thrown out of the backtest run when the variant is abandoned.
+   */
+  static final class Abandoned extends RuntimeException {
+    private final int positions;
+
+    private Abandoned(int positions, double equity) {
+      super("compounded return " + equity + " after " + positions + " positions", null, false, false);
+      this.positions = positions;
+    }
+
+    int getPositions() {
+      return positions;
+    }
+  }
+
+  private final Rule delegate;
+  private final double floor;
+  private int counted;
+  private double equity = 1.0;
+
+  /**
+   * @param delegate The strategy's entry rule
+   * @param maxLoss  Fraction of the starting equity that may be lost, e.g. 0.4; 1 or more never abandons
+   */
+  AbandonOnLossRule(Rule delegate, double maxLoss) {
+    this.delegate = delegate;
+    this.floor = 1.0 - maxLoss;
+  }
+
+  @Override
+  public boolean isSatisfied(int index, TradingRecord tradingRecord) {
+    if (tradingRecord != null && floor > 0) {
+      List<Position> positions = tradingRecord.getPositions();
+      if (positions.size() > counted) {
+        for (; counted < positions.size(); counted++) {
+          equity *= positions.get(counted).getGrossReturn().doubleValue();
+        }
+        if (equity < floor) {
+          throw new Abandoned(counted, equity);
+        }
+      }
+    }
+    return delegate.isSatisfied(index, tradingRecord);
+  }
+}
@@ -8,23 +8,16 @@ import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
 import com.dtech.algo.strategy.config.BarSeriesConfig;
 import com.dtech.algo.strategy.config.StrategyConfig;
 import lombok.RequiredArgsConstructor;
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.AnalysisCriterion;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.Position;
 import org.ta4j.core.Trade.TradeType;
 import org.ta4j.core.TradingRecord;
 import org.ta4j.core.backtest.BarSeriesManager;
-import org.ta4j.core.criteria.AbstractAnalysisCriterion;
 import org.ta4j.core.num.DecimalNum;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @RequiredArgsConstructor
 @Component
@@ -32,9 +25,11 @@ public class BackTestingHandlerJson {
 
   private final BarSeriesLoader barSeriesLoader;
   private final StrategyBuilderIfc strategyBuilder;
+  private final CriterionRegistry criterionRegistry;
 
 
   public BacktestResult execute(BacktestInput backtestInput) throws StrategyException {
+    List<String> metrics = criterionRegistry.resolve(backtestInput.getMetrics());
     List<BarSeriesConfig> barSeriesConfigs = backtestInput.getBarSeriesConfigs();
 //    barSeriesConfigs.forEach(barSeriesLoader::loadBarSeries);
     BarSeriesConfig barSeriesConfig =
@@ -43,14 +38,15 @@ public class BackTestingHandlerJson {
     StrategyConfig strategyConfig = backtestInput.getStrategyConfig();
     TradeStrategy tradeStrategy = strategyBuilder.buildStrategy(strategyConfig);
     TradeType orderType = strategyConfig.getDirection().isBuy()? TradeType.BUY : TradeType.SELL;
-    return runBacktestOnTa4jStrategy(barSeriesToTrade, tradeStrategy, orderType);
+    return runBacktestOnTa4jStrategy(barSeriesToTrade, tradeStrategy, orderType, metrics);
   }
 
-  private BacktestResult runBacktestOnTa4jStrategy(BarSeries barSeries, TradeStrategy strategy, TradeType orderType) {
+  private BacktestResult runBacktestOnTa4jStrategy(BarSeries barSeries, TradeStrategy strategy, TradeType orderType,
+                                                   List<String> metrics) {
     TradingRecord tradingRecord = new BarSeriesManager(barSeries)
         .run(strategy, orderType, DecimalNum.valueOf(1));
     List<Position> trades = tradingRecord.getPositions();
-    return new BacktestResult(backtest(barSeries, tradingRecord), trades);
+    return new BacktestResult(backtest(barSeries, tradingRecord, metrics), trades);
   }
 
 //  private Position mapTradeRecord(Position trade, BarSeries barSeries) {
@@ -72,66 +68,9 @@ public class BackTestingHandlerJson {
 //        .build();
 //  }
 
-  public static Set<Class<? extends AbstractAnalysisCriterion>> getClassesFromPackage(String packageName) {
-    Reflections reflections = new Reflections(packageName, new SubTypesScanner(false));
-    return reflections.getSubTypesOf(AbstractAnalysisCriterion.class);
+  private Map<String, Double> backtest(BarSeries series, TradingRecord tradingRecord, List<String> metrics) {
+    // the record is complete at this point and only read, so the criteria can run side by side
+    return criterionRegistry.evaluate(metrics, series, tradingRecord, true);
   }
 
-  private Map<String, Double> backtest(BarSeries series, TradingRecord tradingRecord) {
-    //FIXME Criterion should have a method to get name. This map population is pathetic.
-    Map<String, Double> backtestresultsMap = new LinkedHashMap<>();
-
-    Set<Class<? extends AbstractAnalysisCriterion>> criterias = getClassesFromPackage("org.ta4j.core.criteria.pnl");
-    criterias.addAll(getClassesFromPackage("org.ta4j.core.criteria"));
-    criterias.forEach(criteria -> {
-      try {
-        AbstractAnalysisCriterion constructor = criteria.getDeclaredConstructor().newInstance();
-        if (constructor != null) {
-          backtestresultsMap.put(criteria.getSimpleName(),
-                  calculateCriterion(constructor, series, tradingRecord));
-        }
-      } catch (InstantiationException e) {
-        e.printStackTrace();
-      } catch (IllegalAccessException e) {
-        e.printStackTrace();
-      } catch (InvocationTargetException e) {
-        e.printStackTrace();
-      } catch (NoSuchMethodException e) {
-        e.printStackTrace();
-      }
-    });
-//
-//
-//
-//    backtestresultsMap.put("AverageProfitableTrades",
-//        calculateCriterion(new AverageLossCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("AverageProfit",
-//        calculateCriterion(new AverageProfitCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("BuyAndHold",
-//        calculateCriterion(new BuyAndHoldReturnCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("LinearTransactionCost",
-//        calculateCriterion(new LinearTransactionCostCriterion(5000, 0.005), series, tradingRecord));
-//    backtestresultsMap.put("MaximumDrawdown",
-//        calculateCriterion(new MaximumDrawdownCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("NumberOfBars",
-//        calculateCriterion(new NumberOfBarsCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("NumberOfTrades",
-//        calculateCriterion(new NumberOfPositionsCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("RewardRiskRatio",
-//        calculateCriterion(new ReturnOverMaxDrawdownCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("TotalProfit",
-//        calculateCriterion(new GrossProfitCriterion(), series, tradingRecord));
-//    backtestresultsMap.put("ProfitLoss",
-//        calculateCriterion(new ProfitLossCriterion(), series, tradingRecord));
-    return backtestresultsMap;
-  }
-
-
-  private Double calculateCriterion(AnalysisCriterion criterion, BarSeries series,
-      TradingRecord tradingRecord) {
-    System.out.println("-- " + criterion.getClass().getSimpleName() + " --");
-    return criterion.calculate(series, tradingRecord).doubleValue();
-  }
-
-
 }
@@ -15,5 +15,7 @@ public class BacktestInput {
     private List<BarSeriesConfig> barSeriesConfigs;
     private String barSeriesName;
     private StrategyConfig strategyConfig;
+    // criteria to report, by name (e.g. NetProfitCriterion or netProfit); all of them when empty
+    private List<String> metrics;
 
 }
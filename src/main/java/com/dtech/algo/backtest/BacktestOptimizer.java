@@ -0,0 +1,406 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.exception.StrategyException;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.strategy.TradeStrategy;
+import com.dtech.algo.strategy.builder.StrategyBuilderIfc;
+import com.dtech.algo.strategy.builder.cache.BarSeriesCache;
+import com.dtech.algo.strategy.builder.cache.ConstantsCache;
+import com.dtech.algo.strategy.builder.cache.IndicatorCache;
+import com.dtech.algo.strategy.builder.cache.RuleCache;
+import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.algo.strategy.config.StrategyConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.Trade.TradeType;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.backtest.BarSeriesManager;
+import org.ta4j.core.num.DecimalNum;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parameter sweeps over a backtest: every combination of the strategy's constants (see {@link ParameterGrid}) is
+ * backtested on a fork-join pool and the variants are ranked by one criterion.
+ * <p>
+ * The traded series is loaded once per sweep and bound read-only on each worker; indicators, rules and
+ * constants are thread-local build state and are reset around every variant. A variant is abandoned once its
+ * closed positions have lost more than the configured fraction ({@link AbandonOnLossRule}), and variants with
+ * too few positions are not scored.
+ * <p>
+ * The input and each finished variant are appended to a checkpoint under the job id, so {@link #resume(String)}
+ * continues a cancelled, failed or interrupted sweep, also after a restart, without re-running finished variants.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class BacktestOptimizer {
+
+  // variants a fork-join leaf runs before checking for cancellation
+  private static final int CHUNK = 8;
+  private static final int DEFAULT_TOP = 50;
+
+  private final BarSeriesLoader barSeriesLoader;
+  private final StrategyBuilderIfc strategyBuilder;
+  private final CriterionRegistry criterionRegistry;
+  private final BarSeriesCache barSeriesCache;
+  private final ConstantsCache constantsCache;
+  private final IndicatorCache indicatorCache;
+  private final RuleCache ruleCache;
+  private final ObjectMapper objectMapper;
+
+  @Value("${backtest.optimize.parallelism:0}")
+  private int parallelism;
+
+  @Value("${backtest.optimize.max-variants:50000}")
+  private int maxVariants;
+
+  @Value("${backtest.optimize.min-trades:1}")
+  private int defaultMinTrades;
+
+  @Value("${backtest.optimize.abandon-loss:0.5}")
+  private double defaultAbandonLoss;
+
+  @Value("${backtest.optimize.checkpoint-directory:optimize-jobs}")
+  private String checkpointDirectory;
+
+  private final Map<String, OptimizationJob> jobs = new ConcurrentHashMap<>();
+  private ForkJoinPool pool;
+
+  private record Sweep(OptimizationJob job, StrategyConfig strategy, String seriesName, IntervalBarSeries series,
+                       TradeType orderType, List<String> metrics, int minTrades, double abandonLoss) {
+  }
+
+  @PostConstruct
+  public void start() {
+    int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    pool = new ForkJoinPool(size, p -> {
+      ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+      t.setName("backtest-optimize-" + t.getPoolIndex());
+      return t;
+    }, null, false);
+  }
+
+  @PreDestroy
+  public void stop() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Start a sweep.
+   *
+   * @return Status of the new job; poll {@link #status(String, Integer)} with its id for results
+   */
+  public OptimizationJob.Status submit(OptimizationInput input) throws StrategyException, IOException {
+    OptimizationJob job = newJob(UUID.randomUUID().toString(), input);
+    Path dir = Files.createDirectories(Path.of(checkpointDirectory));
+    objectMapper.writeValue(inputFile(dir, job.getId()).toFile(), input);
+    jobs.put(job.getId(), job);
+    run(job);
+    return job.status(top(input, null));
+  }
+
+  /**
+   * Continue a sweep that is not running, from memory or from its checkpoint.
+   *
+   * @return Status of the job, or null if there is no such job
+   */
+  public OptimizationJob.Status resume(String id) throws StrategyException, IOException {
+    OptimizationJob job = jobs.get(id);
+    if (job == null) {
+      job = load(id);
+      if (job == null) {
+        return null;
+      }
+    }
+    run(job);
+    return job.status(top(job.getInput(), null));
+  }
+
+  /**
+   * Stop a sweep after the variants in progress; it can be resumed later.
+   *
+   * @return Status of the job, or null if there is no such job
+   */
+  public OptimizationJob.Status cancel(String id) {
+    OptimizationJob job = jobs.get(id);
+    if (job == null) {
+      return null;
+    }
+    job.cancel();
+    return job.status(top(job.getInput(), null));
+  }
+
+  /**
+   * @param top Rows in the ranked table; the job's own setting when null
+   * @return Status of the job, or null if it is not known to this instance
+   */
+  public OptimizationJob.Status status(String id, Integer top) {
+    OptimizationJob job = jobs.get(id);
+    return job == null ? null : job.status(top(job.getInput(), top));
+  }
+
+  private OptimizationJob newJob(String id, OptimizationInput input) throws StrategyException {
+    BacktestInput backtest = input.getBacktest();
+    if (backtest == null || backtest.getStrategyConfig() == null) {
+      throw new StrategyException("Optimization needs a backtest with a strategy config");
+    }
+    if (input.getObjective() == null) {
+      throw new StrategyException("Optimization needs an objective");
+    }
+    ParameterGrid grid = ParameterGrid.of(backtest.getStrategyConfig().getConstants(), maxVariants);
+    String objective = criterionRegistry.resolve(List.of(input.getObjective())).get(0);
+    boolean maximize = criterionRegistry.create(objective).betterThan(DecimalNum.valueOf(1), DecimalNum.valueOf(0));
+    return new OptimizationJob(id, input, grid, objective, maximize);
+  }
+
+  // one run at a time per job, claimed by OptimizationJob.restart(); the series is loaded first so load errors
+  // reach the caller, and without a lock so a slow load does not hold up other jobs
+  private void run(OptimizationJob job) throws StrategyException {
+    if (job.getState() == OptimizationJob.State.RUNNING) {
+      return;
+    }
+    OptimizationInput input = job.getInput();
+    BacktestInput backtest = input.getBacktest();
+    BarSeriesConfig seriesConfig = backtest.getBarSeriesConfigs().stream()
+        .filter(config -> config.getName().equals(backtest.getBarSeriesName()))
+        .findFirst()
+        .orElseThrow(() -> new StrategyException("No bar series named " + backtest.getBarSeriesName()));
+    IntervalBarSeries series = barSeriesLoader.loadBarSeries(seriesConfig);
+
+    List<String> metrics = new ArrayList<>();
+    metrics.add(job.getObjective());
+    if (backtest.getMetrics() != null && !backtest.getMetrics().isEmpty()) {
+      for (String metric : criterionRegistry.resolve(backtest.getMetrics())) {
+        if (!metrics.contains(metric)) {
+          metrics.add(metric);
+        }
+      }
+    }
+    StrategyConfig strategy = backtest.getStrategyConfig();
+    TradeType orderType = strategy.getDirection().isBuy() ? TradeType.BUY : TradeType.SELL;
+    Sweep sweep = new Sweep(job, strategy, seriesConfig.getName(), series, orderType, metrics,
+        input.getMinTrades() != null ? input.getMinTrades() : defaultMinTrades,
+        input.getAbandonLoss() != null ? input.getAbandonLoss() : defaultAbandonLoss);
+
+    if (!job.restart()) {
+      return;
+    }
+    Thread.ofVirtual().name("backtest-optimize-" + job.getId()).start(() -> {
+      long start = System.nanoTime();
+      try (Checkpoint checkpoint = new Checkpoint(rowsFile(Path.of(checkpointDirectory), job.getId()))) {
+        pool.invoke(new SweepTask(sweep, checkpoint, 0, job.getGrid().size()));
+        job.finish();
+      } catch (Exception e) {
+        log.warn("Optimization {} failed: {}", job.getId(), e.getMessage(), e);
+        job.fail(e.getMessage());
+      }
+      OptimizationJob.Status status = job.status(0);
+      log.info("Optimization {} {}: {} of {} variants, {} scored, {} abandoned, {} with too few trades, {} failed "
+              + "in {} ms", job.getId(), status.state(), status.completed(), status.totalVariants(), status.scored(),
+          status.abandoned(), status.tooFewTrades(), status.failed(), (System.nanoTime() - start) / 1_000_000);
+    });
+  }
+
+  private final class SweepTask extends RecursiveAction {
+    private final Sweep sweep;
+    private final Checkpoint checkpoint;
+    private final int from;
+    private final int to;
+
+    private SweepTask(Sweep sweep, Checkpoint checkpoint, int from, int to) {
+      this.sweep = sweep;
+      this.checkpoint = checkpoint;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= CHUNK) {
+        OptimizationJob job = sweep.job();
+        for (int variant = from; variant < to && !job.isCancelRequested(); variant++) {
+          if (!job.isDone(variant)) {
+            OptimizationJob.Row row = runVariant(sweep, variant);
+            if (job.record(row)) {
+              checkpoint.append(row);
+            }
+          }
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new SweepTask(sweep, checkpoint, from, mid), new SweepTask(sweep, checkpoint, mid, to));
+    }
+  }
+
+  private OptimizationJob.Row runVariant(Sweep sweep, int variant) {
+    OptimizationJob job = sweep.job();
+    Map<String, String> constants = job.getGrid().variant(variant);
+    try {
+      resetBuildState();
+      barSeriesCache.put(sweep.seriesName(), sweep.series());
+      TradeStrategy strategy = strategyBuilder.buildStrategy(withConstants(sweep.strategy(), constants));
+      AbandonOnLossRule entry = new AbandonOnLossRule(strategy.getEntryRule(), sweep.abandonLoss());
+      TradingRecord tradingRecord = new BarSeriesManager(sweep.series())
+          .run(new BaseStrategy(entry, strategy.getExitRule()), sweep.orderType(), DecimalNum.valueOf(1));
+      int trades = tradingRecord.getPositionCount();
+      if (trades < sweep.minTrades()) {
+        return new OptimizationJob.Row(variant, OptimizationJob.Outcome.TOO_FEW_TRADES, constants, null, trades,
+            null, null);
+      }
+      // the pool already runs one variant per core, so the criteria of a variant run serially
+      Map<String, Double> metrics = criterionRegistry.evaluate(sweep.metrics(), sweep.series(), tradingRecord, false);
+      Double objective = metrics.get(job.getObjective());
+      if (objective == null) {
+        return new OptimizationJob.Row(variant, OptimizationJob.Outcome.FAILED, constants, null, trades, metrics,
+            "Objective could not be calculated");
+      }
+      return new OptimizationJob.Row(variant, OptimizationJob.Outcome.SCORED, constants, objective, trades, metrics,
+          null);
+    } catch (AbandonOnLossRule.Abandoned e) {
+      return new OptimizationJob.Row(variant, OptimizationJob.Outcome.ABANDONED, constants, null, e.getPositions(),
+          null, e.getMessage());
+    } catch (StrategyException | RuntimeException e) {
+      return new OptimizationJob.Row(variant, OptimizationJob.Outcome.FAILED, constants, null, 0, null,
+          e.getMessage());
+    } finally {
+      resetBuildState();
+      barSeriesCache.reset();
+    }
+  }
+
+  // indicators and rules are cached by key per thread; a variant must not pick up those of the previous one
+  private void resetBuildState() {
+    constantsCache.reset();
+    indicatorCache.reset();
+    ruleCache.reset();
+  }
+
+  private static StrategyConfig withConstants(StrategyConfig config, Map<String, String> constants) {
+    return StrategyConfig.builder()
+        .strategyName(config.getStrategyName())
+        .direction(config.getDirection())
+        .constants(constants)
+        .indicators(config.getIndicators())
+        .rules(config.getRules())
+        .entry(config.getEntry())
+        .exit(config.getExit())
+        .build();
+  }
+
+  private OptimizationJob load(String id) throws StrategyException, IOException {
+    try {
+      UUID.fromString(id);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    Path dir = Path.of(checkpointDirectory);
+    Path inputFile = inputFile(dir, id);
+    if (!Files.exists(inputFile)) {
+      return null;
+    }
+    OptimizationJob job = newJob(id, objectMapper.readValue(inputFile.toFile(), OptimizationInput.class));
+    Path rowsFile = rowsFile(dir, id);
+    if (Files.exists(rowsFile)) {
+      try (BufferedReader reader = Files.newBufferedReader(rowsFile, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          try {
+            OptimizationJob.Row row = objectMapper.readValue(line, OptimizationJob.Row.class);
+            if (row.variant() >= 0 && row.variant() < job.getGrid().size()) {
+              job.record(row);
+            }
+          } catch (IOException e) {
+            // the last line may be torn if the process stopped mid-write; that variant simply runs again
+            log.debug("Skipping unreadable checkpoint line of optimization {}", id);
+          }
+        }
+      }
+    }
+    OptimizationJob existing = jobs.putIfAbsent(id, job);
+    return existing != null ? existing : job;
+  }
+
+  private static int top(OptimizationInput input, Integer requested) {
+    if (requested != null) {
+      return requested;
+    }
+    return input.getTop() != null ? input.getTop() : DEFAULT_TOP;
+  }
+
+  private static Path inputFile(Path dir, String id) {
+    return dir.resolve(id + ".json");
+  }
+
+  private static Path rowsFile(Path dir, String id) {
+    return dir.resolve(id + ".rows");
+  }
+
+  /**
+   * Finished variants of a job, one JSON line each, appended as they complete.
+   */
+  private final class Checkpoint implements Closeable {
+    private final BufferedWriter writer;
+
+    private Checkpoint(Path file) throws IOException {
+      Files.createDirectories(file.getParent());
+      boolean torn = endsMidLine(file);
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      if (torn) {
+        // end the torn line, or the first row appended would be glued to it and lost as well
+        writer.newLine();
+      }
+    }
+
+    private static boolean endsMidLine(Path file) throws IOException {
+      if (!Files.exists(file) || Files.size(file) == 0) {
+        return false;
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+        raf.seek(raf.length() - 1);
+        return raf.read() != '\n';
+      }
+    }
+
+    synchronized void append(OptimizationJob.Row row) {
+      try {
+        writer.write(objectMapper.writeValueAsString(row));
+        writer.newLine();
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      writer.close();
+    }
+  }
+}
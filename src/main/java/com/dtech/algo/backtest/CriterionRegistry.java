@@ -0,0 +1,146 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.exception.StrategyException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.reflections.Reflections;
+import org.reflections.scanners.SubTypesScanner;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.AnalysisCriterion;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.criteria.AbstractAnalysisCriterion;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Analysis criteria of ta4j that a backtest can report, by simple class name.
+ * <p>
+ * The classpath is scanned once at startup and the no-argument constructor of every concrete criterion is kept,
+ * so a backtest only instantiates the criteria it asks for. Criteria that need arguments are not listed.
+ */
+@Service
+@Log4j2
+public class CriterionRegistry {
+
+  private final Map<String, Constructor<? extends AnalysisCriterion>> constructors = new TreeMap<>();
+  // lower-case name, with and without the Criterion suffix, to the registered name
+  private final Map<String, String> aliases = new HashMap<>();
+
+  public static Set<Class<? extends AbstractAnalysisCriterion>> getClassesFromPackage(String packageName) {
+    Reflections reflections = new Reflections(packageName, new SubTypesScanner(false));
+    return reflections.getSubTypesOf(AbstractAnalysisCriterion.class);
+  }
+
+  @PostConstruct
+  public void initialize() {
+    // the prefix scan covers sub-packages such as criteria.pnl
+    for (Class<? extends AbstractAnalysisCriterion> criterion : getClassesFromPackage("org.ta4j.core.criteria")) {
+      if (Modifier.isAbstract(criterion.getModifiers()) || !Modifier.isPublic(criterion.getModifiers())) {
+        continue;
+      }
+      try {
+        add(criterion.getSimpleName(), criterion.getConstructor());
+      } catch (NoSuchMethodException e) {
+        log.debug("Skipping criterion {}: no public no-argument constructor", criterion.getSimpleName());
+      }
+    }
+    log.info("Criterion registry: {} criteria", constructors.size());
+  }
+
+  /**
+   * @return Names of all registered criteria, sorted
+   */
+  public Collection<String> getAllObjectNames() {
+    return constructors.keySet();
+  }
+
+  /**
+   * Map requested metric names to registered names. A name matches case-insensitively, with or without the
+   * {@code Criterion} suffix.
+   *
+   * @param names Requested metrics; all criteria when null or empty
+   * @throws StrategyException If a name matches no criterion
+   */
+  public List<String> resolve(Collection<String> names) throws StrategyException {
+    if (names == null || names.isEmpty()) {
+      return new ArrayList<>(constructors.keySet());
+    }
+    List<String> resolved = new ArrayList<>(names.size());
+    for (String name : names) {
+      String registered = name == null ? null : aliases.get(name.trim().toLowerCase(Locale.ROOT));
+      if (registered == null) {
+        throw new StrategyException("Unknown metric: " + name);
+      }
+      if (!resolved.contains(registered)) {
+        resolved.add(registered);
+      }
+    }
+    return resolved;
+  }
+
+  /**
+   * @param name Registered name, see {@link #resolve(Collection)}
+   * @return A new instance of the criterion
+   */
+  public AnalysisCriterion create(String name) {
+    Constructor<? extends AnalysisCriterion> constructor = constructors.get(name);
+    if (constructor == null) {
+      throw new IllegalArgumentException("Unknown criterion: " + name);
+    }
+    try {
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot instantiate criterion " + name, e);
+    }
+  }
+
+  /**
+   * Evaluate criteria on a finished trading record, in parallel across the common fork-join pool. The series and
+   * the record are only read, so the criteria can share them.
+   *
+   * @param names    Registered names
+   * @param parallel Whether to evaluate on several cores; pass false when the caller already runs in parallel
+   * @return Values by name, in the order of {@code names}; criteria that fail are left out
+   */
+  public Map<String, Double> evaluate(List<String> names, BarSeries series, TradingRecord tradingRecord,
+                                      boolean parallel) {
+    Double[] values = new Double[names.size()];
+    IntStream indexes = IntStream.range(0, names.size());
+    (parallel ? indexes.parallel() : indexes).forEach(i -> {
+      String name = names.get(i);
+      try {
+        values[i] = create(name).calculate(series, tradingRecord).doubleValue();
+      } catch (RuntimeException e) {
+        log.warn("Criterion {} failed: {}", name, e.getMessage());
+      }
+    });
+    Map<String, Double> results = new LinkedHashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        results.put(names.get(i), values[i]);
+      }
+    }
+    return results;
+  }
+
+  void add(String name, Constructor<? extends AnalysisCriterion> constructor) {
+    constructors.put(name, constructor);
+    String lower = name.toLowerCase(Locale.ROOT);
+    aliases.put(lower, name);
+    if (lower.endsWith("criterion")) {
+      aliases.putIfAbsent(lower.substring(0, lower.length() - "criterion".length()), name);
+    }
+  }
+}
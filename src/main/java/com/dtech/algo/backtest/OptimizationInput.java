@@ -0,0 +1,22 @@
+package com.dtech.algo.backtest;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OptimizationInput {
+
+    // strategy constants may hold lists ("9|12|21") and ranges ("20:80:5"), see ParameterGrid
+    private BacktestInput backtest;
+    // criterion to rank variants by, e.g. NetProfitCriterion or netProfit
+    private String objective;
+    // variants with fewer closed positions are not ranked; backtest.optimize.min-trades when null
+    private Integer minTrades;
+    // stop a variant once its compounded loss exceeds this fraction (0.4 = 40%); backtest.optimize.abandon-loss when null
+    private Double abandonLoss;
+    // rows in the ranked table; 50 when null
+    private Integer top;
+
+}
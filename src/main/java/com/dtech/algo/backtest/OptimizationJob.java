@@ -0,0 +1,151 @@
+package com.dtech.algo.backtest;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Progress and results of one parameter sweep run by {@link BacktestOptimizer}.
+ * <p>
+ * Every variant gets one {@link Row}, whatever its outcome; a variant without a row has not run yet, which is
+ * what lets a cancelled or interrupted sweep resume where it stopped.
+ */
+public class OptimizationJob {
+
+  public enum State { PENDING, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+  public enum Outcome { SCORED, ABANDONED, TOO_FEW_TRADES, FAILED }
+
+  /**
+   * Result of one variant. {@code objective} and {@code metrics} are only set when it was scored.
+   */
+  public record Row(int variant, Outcome outcome, Map<String, String> constants, Double objective, int trades,
+                    Map<String, Double> metrics, String error) {
+  }
+
+  public record Status(String id, State state, String objective, boolean maximize, List<String> parameters,
+                       int totalVariants, int completed, int scored, int abandoned, int tooFewTrades, int failed,
+                       Instant startedAt, Instant finishedAt, String lastError, List<Row> top) {
+  }
+
+  @Getter
+  private final String id;
+  @Getter
+  private final OptimizationInput input;
+  @Getter
+  private final ParameterGrid grid;
+  @Getter
+  private final String objective;
+  @Getter
+  private final boolean maximize;
+
+  private final AtomicReferenceArray<Row> rows;
+  private final AtomicInteger completed = new AtomicInteger();
+  private final AtomicInteger scored = new AtomicInteger();
+  private final AtomicInteger abandoned = new AtomicInteger();
+  private final AtomicInteger tooFewTrades = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private volatile State state = State.PENDING;
+  private volatile boolean cancelRequested;
+  private volatile Instant startedAt;
+  private volatile Instant finishedAt;
+  private volatile String lastError;
+
+  OptimizationJob(String id, OptimizationInput input, ParameterGrid grid, String objective, boolean maximize) {
+    this.id = id;
+    this.input = input;
+    this.grid = grid;
+    this.objective = objective;
+    this.maximize = maximize;
+    this.rows = new AtomicReferenceArray<>(grid.size());
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  boolean isDone(int variant) {
+    return rows.get(variant) != null;
+  }
+
+  boolean isCancelRequested() {
+    return cancelRequested;
+  }
+
+  /**
+   * Store the result of a variant.
+   *
+   * @return false if the variant already had a result
+   */
+  boolean record(Row row) {
+    if (!rows.compareAndSet(row.variant(), null, row)) {
+      return false;
+    }
+    completed.incrementAndGet();
+    switch (row.outcome()) {
+      case SCORED -> scored.incrementAndGet();
+      case ABANDONED -> abandoned.incrementAndGet();
+      case TOO_FEW_TRADES -> tooFewTrades.incrementAndGet();
+      case FAILED -> {
+        failed.incrementAndGet();
+        lastError = row.error();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Mark the job running, unless it already is.
+   *
+   * @return false if a run of the job is in progress
+   */
+  synchronized boolean restart() {
+    if (state == State.RUNNING) {
+      return false;
+    }
+    cancelRequested = false;
+    finishedAt = null;
+    startedAt = Instant.now();
+    state = State.RUNNING;
+    return true;
+  }
+
+  void cancel() {
+    cancelRequested = true;
+  }
+
+  void finish() {
+    state = cancelRequested ? State.CANCELLED : State.COMPLETED;
+    finishedAt = Instant.now();
+  }
+
+  void fail(String error) {
+    lastError = error;
+    state = State.FAILED;
+    finishedAt = Instant.now();
+  }
+
+  /**
+   * @param top Number of ranked rows to include
+   */
+  public Status status(int top) {
+    Comparator<Row> byObjective = Comparator.comparingDouble(Row::objective);
+    Comparator<Row> ranking = (maximize ? byObjective.reversed() : byObjective).thenComparingInt(Row::variant);
+    List<Row> scoredRows = new ArrayList<>();
+    for (int i = 0; i < rows.length(); i++) {
+      Row row = rows.get(i);
+      if (row != null && row.outcome() == Outcome.SCORED && !row.objective().isNaN()) {
+        scoredRows.add(row);
+      }
+    }
+    List<Row> ranked = scoredRows.stream().sorted(ranking).limit(Math.max(0, top)).toList();
+    return new Status(id, state, objective, maximize, grid.varyingNames(), grid.size(), completed.get(),
+        scored.get(), abandoned.get(), tooFewTrades.get(), failed.get(), startedAt, finishedAt, lastError, ranked);
+  }
+}
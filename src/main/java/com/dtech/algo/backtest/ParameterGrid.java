@@ -0,0 +1,132 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.exception.StrategyException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Strategy constants expanded into a grid of variants.
+ * <p>
+ * A constant is either a fixed value ({@code "14"}), a list of values ({@code "9|12|21"}) or an inclusive range
+ * {@code start:end:step} ({@code "20:80:5"}, {@code "0.5:2:0.25"}). Variants are the cartesian product of all
+ * constants and are never materialised: {@link #variant(int)} decodes an index, with constants taken in name
+ * order and the last one varying fastest, so the same constants always give the same numbering.
+ */
+public final class ParameterGrid {
+
+  private static final Pattern RANGE = Pattern.compile("-?\\d+(\\.\\d+)?:-?\\d+(\\.\\d+)?:\\d+(\\.\\d+)?");
+
+  private final String[] names;
+  private final String[][] values;
+  private final int size;
+
+  private ParameterGrid(String[] names, String[][] values, int size) {
+    this.names = names;
+    this.values = values;
+    this.size = size;
+  }
+
+  /**
+   * @param constants   Constants of a strategy config, possibly with lists and ranges
+   * @param maxVariants Largest grid accepted
+   * @throws StrategyException If a range is malformed or the grid has more than {@code maxVariants} variants
+   */
+  public static ParameterGrid of(Map<String, String> constants, int maxVariants) throws StrategyException {
+    Map<String, String> sorted = new TreeMap<>(constants == null ? Map.of() : constants);
+    String[] names = sorted.keySet().toArray(String[]::new);
+    String[][] values = new String[names.length][];
+    long size = 1;
+    for (int i = 0; i < names.length; i++) {
+      values[i] = expand(names[i], sorted.get(names[i]), maxVariants);
+      size *= values[i].length;
+      if (size > maxVariants) {
+        throw new StrategyException("Parameter grid has more than " + maxVariants + " variants");
+      }
+    }
+    return new ParameterGrid(names, values, (int) size);
+  }
+
+  /**
+   * @return Number of variants
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return Constants of variant {@code index}, in name order
+   */
+  public Map<String, String> variant(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    String[] picked = new String[names.length];
+    int rest = index;
+    for (int i = names.length - 1; i >= 0; i--) {
+      picked[i] = values[i][rest % values[i].length];
+      rest /= values[i].length;
+    }
+    Map<String, String> constants = new LinkedHashMap<>();
+    for (int i = 0; i < names.length; i++) {
+      constants.put(names[i], picked[i]);
+    }
+    return constants;
+  }
+
+  /**
+   * @return Names of the constants that take more than one value
+   */
+  public List<String> varyingNames() {
+    List<String> varying = new ArrayList<>();
+    for (int i = 0; i < names.length; i++) {
+      if (values[i].length > 1) {
+        varying.add(names[i]);
+      }
+    }
+    return varying;
+  }
+
+  private static String[] expand(String name, String value, int maxVariants) throws StrategyException {
+    if (value == null) {
+      throw new StrategyException("Constant " + name + " has no value");
+    }
+    String trimmed = value.trim();
+    if (trimmed.contains("|")) {
+      String[] list = Arrays.stream(trimmed.split("\\|")).map(String::trim).filter(s -> !s.isEmpty())
+          .distinct().toArray(String[]::new);
+      if (list.length == 0) {
+        throw new StrategyException("Constant " + name + " has an empty list");
+      }
+      return list;
+    }
+    if (!RANGE.matcher(trimmed).matches()) {
+      return new String[]{trimmed};
+    }
+    String[] parts = trimmed.split(":");
+    BigDecimal start = new BigDecimal(parts[0]);
+    BigDecimal end = new BigDecimal(parts[1]);
+    BigDecimal step = new BigDecimal(parts[2]);
+    if (step.signum() <= 0 || end.compareTo(start) < 0) {
+      throw new StrategyException("Constant " + name + " has an empty range " + trimmed);
+    }
+    BigDecimal count = end.subtract(start).divideToIntegralValue(step).add(BigDecimal.ONE);
+    if (count.compareTo(BigDecimal.valueOf(maxVariants)) > 0) {
+      throw new StrategyException("Constant " + name + " has more than " + maxVariants + " values");
+    }
+    String[] range = new String[count.intValue()];
+    BigDecimal current = start;
+    for (int i = 0; i < range.length; i++) {
+      // plain and without trailing zeros, so integer constants stay parseable by Integer.valueOf
+      range[i] = current.stripTrailingZeros().toPlainString();
+      current = current.add(step);
+    }
+    return range;
+  }
+}
@@ -2,12 +2,21 @@ package com.dtech.algo.controller;
 
 import com.dtech.algo.backtest.BackTestingHandlerJson;
 import com.dtech.algo.backtest.BacktestInput;
+import com.dtech.algo.backtest.BacktestOptimizer;
 import com.dtech.algo.backtest.BacktestResult;
+import com.dtech.algo.backtest.OptimizationInput;
+import com.dtech.algo.backtest.OptimizationJob;
 import com.dtech.algo.exception.StrategyException;
+import java.io.IOException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -15,10 +24,40 @@ import org.springframework.web.bind.annotation.RestController;
 public class BacktestController {
 
     private final BackTestingHandlerJson backTestingHandlerJson;
+    private final BacktestOptimizer backtestOptimizer;
 
     @PostMapping("/backtest")
     public BacktestResult runBacktest(@RequestBody BacktestInput backtestInput) throws StrategyException {
         return backTestingHandlerJson.execute(backtestInput);
     }
 
+    /**
+     * Start a parameter sweep; constants of the strategy may be lists ("9|12|21") or ranges ("20:80:5").
+     */
+    @PostMapping("/backtest/optimize")
+    public OptimizationJob.Status optimize(@RequestBody OptimizationInput input) throws StrategyException, IOException {
+        return backtestOptimizer.submit(input);
+    }
+
+    @GetMapping("/backtest/optimize/{id}")
+    public ResponseEntity<OptimizationJob.Status> getOptimization(@PathVariable String id,
+                                                                  @RequestParam(required = false) Integer top) {
+        return ofNullable(backtestOptimizer.status(id, top));
+    }
+
+    @PostMapping("/backtest/optimize/{id}/resume")
+    public ResponseEntity<OptimizationJob.Status> resumeOptimization(@PathVariable String id)
+            throws StrategyException, IOException {
+        return ofNullable(backtestOptimizer.resume(id));
+    }
+
+    @DeleteMapping("/backtest/optimize/{id}")
+    public ResponseEntity<OptimizationJob.Status> cancelOptimization(@PathVariable String id) {
+        return ofNullable(backtestOptimizer.cancel(id));
+    }
+
+    private static ResponseEntity<OptimizationJob.Status> ofNullable(OptimizationJob.Status status) {
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
 }
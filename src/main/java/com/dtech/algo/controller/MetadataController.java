@@ -3,6 +3,7 @@ package com.dtech.algo.controller;
 import com.dtech.algo.backtest.BackTestingHandlerJson;
 import com.dtech.algo.backtest.BacktestInput;
 import com.dtech.algo.backtest.BacktestResult;
+import com.dtech.algo.backtest.CriterionRegistry;
 import com.dtech.algo.exception.StrategyException;
 import com.dtech.algo.indicators.IndicatorInfo;
 import com.dtech.algo.indicators.IndicatorRegistry;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -25,6 +27,7 @@ public class MetadataController {
 
     private final IndicatorRegistry indicatorRegistry;
     private final RuleRegistry ruleRegistry;
+    private final CriterionRegistry criterionRegistry;
 
     @GetMapping("/meta/indicator-detail")
     public Map<String, IndicatorInfo> getIndicatorDetails() throws StrategyException {
@@ -38,4 +41,9 @@ public class MetadataController {
                 .collect(Collectors.toMap(name -> name, name -> ruleRegistry.getObjectInfo(name)));
     }
 
+    @GetMapping("/meta/criteria")
+    public Collection<String> getCriteria() {
+        return criterionRegistry.getAllObjectNames();
+    }
+
 }
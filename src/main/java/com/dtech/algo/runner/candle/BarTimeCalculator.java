@@ -15,6 +15,10 @@ import java.time.temporal.ChronoUnit;
 @Log4j2
 public class BarTimeCalculator {
 
+    static final long SECONDS_PER_DAY = 24 * 60 * 60;
+    static final long MARKET_OPEN_SECOND = 9 * 60 * 60 + 15 * 60;
+    static final long MARKET_CLOSE_SECOND = 15 * 60 * 60 + 30 * 60;
+
     /**
      * Calculates the end time of a bar based on tick timestamp and interval.
      * This implementation follows market standard bar time boundaries.
@@ -101,4 +105,36 @@ public class BarTimeCalculator {
                 return marketClose; // Default to daily
         }
     }
+
+    /**
+     * Allocation-free variant of {@link #calculateBarEndTime(ZonedDateTime, Interval)} for the tick hot path.
+     * Works on seconds relative to the start of the tick's trading day in the application zone, so the caller
+     * only has to resolve the day boundaries once per day.
+     *
+     * @param secondOfDay Seconds elapsed since local midnight of the tick's day
+     * @param dayOfWeek   ISO day of week of the tick's day, 1 (Monday) to 7 (Sunday)
+     * @param interval    The interval of the bar series
+     * @return The bar end time as seconds from the same local midnight (may exceed one day)
+     */
+    public long calculateBarEndOffset(long secondOfDay, int dayOfWeek, Interval interval) {
+        if (secondOfDay < MARKET_OPEN_SECOND) {
+            secondOfDay = MARKET_OPEN_SECOND;
+        } else if (secondOfDay > MARKET_CLOSE_SECOND) {
+            return SECONDS_PER_DAY + MARKET_OPEN_SECOND;
+        }
+
+        switch (interval) {
+            case Day:
+                return MARKET_CLOSE_SECOND;
+
+            case Week:
+                int daysToFriday = (dayOfWeek <= 5) ? (5 - dayOfWeek) : (5 + 7 - dayOfWeek);
+                return MARKET_CLOSE_SECOND + daysToFriday * SECONDS_PER_DAY;
+
+            default:
+                // Minute and hour buckets all divide a day evenly, so flooring on the offset is enough
+                long size = interval.getOffset();
+                return (secondOfDay / size) * size + size;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.dtech.algo.runner.candle;
 
+import com.dtech.algo.runner.candle.journal.TickJournal;
 import com.dtech.kitecon.config.KiteConnectConfig;
 import com.dtech.kitecon.controller.BarSeriesHelper;
 import com.dtech.kitecon.data.Instrument;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,16 +34,13 @@ public class KiteTickerService implements OnTicks, OnConnect,
 
     private final BarSeriesHelper barSeriesHelper;
     private final KiteConnectConfig kiteConnectConfig;
+    private final TickPipeline tickPipeline;
+    private final TickJournal tickJournal;
 
     private KiteTicker kiteTicker;
     private final AtomicBoolean connected = new AtomicBoolean(false);
     private final AtomicInteger reconnectAttempts = new AtomicInteger(0);
     private final AtomicInteger ticksReceived = new AtomicInteger(0);
-    private final AtomicInteger ticksProcessed = new AtomicInteger(0);
-
-    // Thread pool for processing ticks to avoid blocking the WebSocket thread
-    private final ExecutorService tickProcessorPool = 
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
     // In-memory cache of currently subscribed instruments
     private final ConcurrentMap<Long, Instrument> subscribedInstruments = new ConcurrentHashMap<>();
@@ -172,6 +171,7 @@ public class KiteTickerService implements OnTicks, OnConnect,
                 long token = instrument.getInstrumentToken();
                 tokens.add(token);
                 subscribedInstruments.remove(token);
+                barSeriesHelper.unregisterInstrument(token);
             }
 
             if (connected.get() && !tokens.isEmpty()) {
@@ -242,8 +242,18 @@ public class KiteTickerService implements OnTicks, OnConnect,
         }
 
         // Log statistics
-        log.info("KiteTicker stats - Subscribed instruments: {}, Ticks received: {}, Ticks processed: {}",
-                subscribedInstruments.size(), ticksReceived.get(), ticksProcessed.get());
+        TickPipelineStats stats = tickPipeline.getStats();
+        log.info("KiteTicker stats - Subscribed instruments: {}, Ticks received: {}, Ticks processed: {}, " +
+                        "Failed: {}, Queue depth: {}, Dropped: {}, Coalesced: {}, Max lag: {} ms",
+                subscribedInstruments.size(), ticksReceived.get(), stats.processed(), stats.failed(),
+                stats.queueDepth(), stats.dropped(), stats.coalesced(), stats.maxLagMillis());
+    }
+
+    /**
+     * Queue depth and lag of the tick pipeline
+     */
+    public TickPipelineStats getPipelineStats() {
+        return tickPipeline.getStats();
     }
 
     /**
@@ -252,7 +262,7 @@ public class KiteTickerService implements OnTicks, OnConnect,
     @Scheduled(cron = "0 0 0 * * ?") // Reset at midnight every day
     public void resetCounters() {
         ticksReceived.set(0);
-        ticksProcessed.set(0);
+        tickPipeline.resetCounters();
         log.info("Reset tick counters");
     }
 
@@ -263,15 +273,6 @@ public class KiteTickerService implements OnTicks, OnConnect,
     public void shutdown() {
         log.info("Shutting down KiteTickerService");
         disconnect();
-        tickProcessorPool.shutdown();
-        try {
-            if (!tickProcessorPool.awaitTermination(5, TimeUnit.SECONDS)) {
-                tickProcessorPool.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            tickProcessorPool.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
         log.info("KiteTickerService shutdown complete");
     }
 
@@ -279,7 +280,8 @@ public class KiteTickerService implements OnTicks, OnConnect,
 
     /**
      * Called when ticks are received from the WebSocket
-     * Delegates to BarSeriesHelper for business logic processing
+     * Converts them and publishes them to the {@link TickPipeline}, which shards them by instrument token
+     * onto single-writer threads so each instrument's ticks are applied in order
      */
     @Override
     public void onTicks(ArrayList<Tick> ticks) {
@@ -291,30 +293,13 @@ public class KiteTickerService implements OnTicks, OnConnect,
         ticksReceived.addAndGet(count);
         log.debug("Received {} ticks from KiteTicker", count);
 
-        // Submit tick processing to the thread pool to avoid blocking the WebSocket thread
-        tickProcessorPool.submit(() -> {
-            try {
-                List<DataTick> dataTicks = new ArrayList<>(count);
-
-                // Convert Kite ticks to our internal DataTick format
-                for (Tick kiteTick : ticks) {
-                    DataTick dataTick = convertTickToDataTick(kiteTick);
-                    if (dataTick != null) {
-                        dataTicks.add(dataTick);
-                    }
-                }
-
-                // Process all ticks in bulk
-                int processed = barSeriesHelper.processTicks(dataTicks);
-                ticksProcessed.addAndGet(processed);
-
-                if (processed < dataTicks.size()) {
-                    log.warn("Only processed {} out of {} ticks", processed, dataTicks.size());
-                }
-            } catch (Exception e) {
-                log.error("Error processing ticks", e);
+        for (Tick kiteTick : ticks) {
+            DataTick dataTick = convertTickToDataTick(kiteTick);
+            if (dataTick != null) {
+                tickJournal.append(dataTick);
+                tickPipeline.publish(dataTick);
             }
-        });
+        }
     }
 
     /**
@@ -322,14 +307,30 @@ public class KiteTickerService implements OnTicks, OnConnect,
      */
     private DataTick convertTickToDataTick(Tick kiteTick) {
         try {
-            // This is a simplified conversion, you'd need to map all relevant fields
             DataTick dataTick = new DataTick();
+            dataTick.setMode(kiteTick.getMode());
+            dataTick.setTradable(kiteTick.isTradable());
             dataTick.setInstrumentToken(kiteTick.getInstrumentToken());
-//            dataTick.setLastPrice(kiteTick.getLastTradedPrice());
-//            dataTick.setVolume(kiteTick.getVolumeTradedToday());
-//            dataTick.setTimestamp(kiteTick.getLastTradedTime());
-
-            // Additional fields would be mapped here
+            dataTick.setLastTradedPrice(kiteTick.getLastTradedPrice());
+            dataTick.setHighPrice(kiteTick.getHighPrice());
+            dataTick.setLowPrice(kiteTick.getLowPrice());
+            dataTick.setOpenPrice(kiteTick.getOpenPrice());
+            dataTick.setClosePrice(kiteTick.getClosePrice());
+            dataTick.setChange(kiteTick.getChange());
+            dataTick.setLastTradedQuantity(kiteTick.getLastTradedQuantity());
+            dataTick.setAverageTradePrice(kiteTick.getAverageTradePrice());
+            dataTick.setVolumeTradedToday(kiteTick.getVolumeTradedToday());
+            dataTick.setTotalBuyQuantity(kiteTick.getTotalBuyQuantity());
+            dataTick.setTotalSellQuantity(kiteTick.getTotalSellQuantity());
+            dataTick.setLastTradedTime(kiteTick.getLastTradedTime());
+            dataTick.setOi(kiteTick.getOi());
+            dataTick.setOiDayHigh(kiteTick.getOpenInterestDayHigh());
+            dataTick.setOiDayLow(kiteTick.getOpenInterestDayLow());
+            dataTick.setDepth(kiteTick.getMarketDepth());
+
+            // Index and LTP-mode ticks carry no exchange timestamp; fall back to the last trade, then to arrival
+            Date timestamp = kiteTick.getTickTimestamp() != null ? kiteTick.getTickTimestamp() : kiteTick.getLastTradedTime();
+            dataTick.setTickTimestamp(timestamp != null ? timestamp : new Date());
 
             return dataTick;
         } catch (Exception e) {
@@ -0,0 +1,394 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.algo.exception.StrategyException;
+import com.dtech.algo.series.ColumnarBarSeries;
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.LiveBar;
+import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of loaded bar series, keyed by {@link SeriesKey}.
+ * <p>
+ * Unpinned series are bounded both by count and by an estimated memory budget, and are refreshed in the
+ * background once they are older than the refresh interval. A refresh only reads the candles from the last
+ * cached bar on, so its cost follows the new data, not the look-back. It appends them to a copy of the cached
+ * series that then replaces the cache entry in one write; threads holding the previous instance never see it
+ * change under them. Series of instruments with a live subscription are pinned: they are never evicted nor refreshed,
+ * because ticks keep them current.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class SeriesCache {
+
+    // Rough heap cost of one DecimalNum based BaseBar (bar + seven BigDecimal backed nums)
+    private static final long BYTES_PER_BAR = 512;
+
+    private final BarSeriesLoader loader;
+
+    @Value("${series.cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${series.cache.max-memory-mb:2048}")
+    private long maxMemoryMb;
+
+    @Value("${series.cache.refresh-after-minutes:5}")
+    private long refreshAfterMinutes;
+
+    @Value("${series.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    private LoadingCache<SeriesKey, IntervalBarSeries> cache;
+    private ExecutorService refreshExecutor;
+
+    private final Map<SeriesKey, IntervalBarSeries> pinned = new ConcurrentHashMap<>();
+    private final Set<String> pinnedInstruments = ConcurrentHashMap.newKeySet();
+    private final Map<SeriesKey, BarSeriesConfig> configs = new ConcurrentHashMap<>();
+    private final AtomicLong pinnedHits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIds = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), r -> {
+            Thread t = new Thread(r, "series-refresh-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long budgetKb = Math.max(1, maxMemoryMb) * 1024;
+        // Every entry weighs at least budget/maxEntries, so the weight bound also caps the entry count
+        int minWeightKb = (int) Math.max(1, budgetKb / Math.max(1, maxEntries));
+        // A single segment, otherwise Guava splits the weight budget per segment and the bounds become approximate
+        CacheBuilder<SeriesKey, IntervalBarSeries> builder = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(budgetKb)
+                .weigher((SeriesKey key, IntervalBarSeries series) -> (int) Math.max(minWeightKb, estimateKb(series)))
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        configs.remove(notification.getKey());
+                    }
+                })
+                .recordStats();
+        // 0 turns refreshing off; cached series then only change through ticks of pinned instruments
+        if (refreshAfterMinutes > 0) {
+            builder.refreshAfterWrite(refreshAfterMinutes, TimeUnit.MINUTES);
+        }
+        cache = builder.build(new SeriesLoader());
+        log.info("Series cache: {} entries / {} MB, refresh after {} min", maxEntries, maxMemoryMb, refreshAfterMinutes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the series for a config, loading it from the source loader on a miss.
+     * Concurrent misses for the same key wait for a single load.
+     *
+     * @param config The requested series; its date range is only used when the series has to be loaded
+     * @return The shared series instance
+     */
+    public IntervalBarSeries get(BarSeriesConfig config) throws StrategyException {
+        SeriesKey key = SeriesKey.of(config);
+        IntervalBarSeries series = pinned.get(key);
+        if (series != null) {
+            pinnedHits.incrementAndGet();
+            return series;
+        }
+
+        configs.computeIfAbsent(key, k -> copy(config));
+        try {
+            series = cache.get(key);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw loadFailure("bar series " + key, e);
+        }
+        return pinIfSubscribed(key, series);
+    }
+
+    /**
+     * Get the series for several configs; all misses are loaded together with one
+     * {@link BarSeriesLoader#reloadAllBarSeries} call instead of one load per series.
+     *
+     * @param configs The requested series; their date ranges are only used when a series has to be loaded
+     * @return The shared series instances, in the order of {@code configs}
+     */
+    public List<IntervalBarSeries> getAll(List<BarSeriesConfig> configs) throws StrategyException {
+        IntervalBarSeries[] result = new IntervalBarSeries[configs.size()];
+        Map<SeriesKey, List<Integer>> wanted = new LinkedHashMap<>();
+        for (int i = 0; i < configs.size(); i++) {
+            BarSeriesConfig config = configs.get(i);
+            SeriesKey key = SeriesKey.of(config);
+            IntervalBarSeries series = pinned.get(key);
+            if (series != null) {
+                pinnedHits.incrementAndGet();
+                result[i] = series;
+                continue;
+            }
+            this.configs.computeIfAbsent(key, k -> copy(config));
+            wanted.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        if (!wanted.isEmpty()) {
+            Map<SeriesKey, IntervalBarSeries> loaded;
+            try {
+                loaded = cache.getAll(wanted.keySet());
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                throw loadFailure(wanted.size() + " bar series", e);
+            }
+            for (Map.Entry<SeriesKey, List<Integer>> entry : wanted.entrySet()) {
+                IntervalBarSeries series = pinIfSubscribed(entry.getKey(), loaded.get(entry.getKey()));
+                for (int i : entry.getValue()) {
+                    result[i] = series;
+                }
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private IntervalBarSeries pinIfSubscribed(SeriesKey key, IntervalBarSeries series) {
+        if (pinnedInstruments.contains(key.instrument())) {
+            IntervalBarSeries existing = pinned.putIfAbsent(key, series);
+            cache.invalidate(key);
+            return existing != null ? existing : series;
+        }
+        return series;
+    }
+
+    private static StrategyException loadFailure(String what, Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof StrategyException strategyException) {
+            return strategyException;
+        }
+        return new StrategyException("Error loading " + what, cause);
+    }
+
+    /**
+     * Keep every series of an instrument resident and stop refreshing them from the database.
+     *
+     * @param instrument Trading symbol of the subscribed instrument
+     */
+    public void pin(String instrument) {
+        pinnedInstruments.add(instrument);
+        for (Map.Entry<SeriesKey, IntervalBarSeries> entry : cache.asMap().entrySet()) {
+            if (entry.getKey().instrument().equals(instrument)) {
+                pinned.putIfAbsent(entry.getKey(), entry.getValue());
+                cache.invalidate(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Return an instrument's series to normal eviction and refresh.
+     *
+     * @param instrument Trading symbol of the instrument
+     */
+    public void unpin(String instrument) {
+        pinnedInstruments.remove(instrument);
+        pinned.entrySet().removeIf(entry -> {
+            if (entry.getKey().instrument().equals(instrument)) {
+                cache.put(entry.getKey(), entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public SeriesCacheStats getStats() {
+        CacheStats s = cache.stats();
+        long estimatedKb = 0;
+        for (IntervalBarSeries series : cache.asMap().values()) {
+            estimatedKb += estimateKb(series);
+        }
+        for (IntervalBarSeries series : pinned.values()) {
+            estimatedKb += estimateKb(series);
+        }
+        long hits = s.hitCount() + pinnedHits.get();
+        long requests = hits + s.missCount();
+        return new SeriesCacheStats(
+                cache.size(),
+                pinned.size(),
+                estimatedKb,
+                s.hitCount(),
+                pinnedHits.get(),
+                s.missCount(),
+                requests == 0 ? 1.0 : (double) hits / requests,
+                s.loadSuccessCount(),
+                s.loadExceptionCount(),
+                s.averageLoadPenalty() / 1_000_000.0,
+                refreshes.get(),
+                s.evictionCount());
+    }
+
+    @Scheduled(fixedRate = 300000)
+    public void logStats() {
+        log.info("Series cache stats: {}", getStats());
+    }
+
+    private static long estimateKb(IntervalBarSeries series) {
+        if (series instanceof ColumnarBarSeries columnar) {
+            return columnar.estimatedBytes() / 1024;
+        }
+        return series.getBarCount() * BYTES_PER_BAR / 1024;
+    }
+
+    private static BarSeriesConfig copy(BarSeriesConfig config) {
+        try {
+            return config.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Bring a cached series up to date by reading only the candles from its last bar on. The last bar is read
+     * again and replaced, since it may have been stored while still forming; everything after it is appended.
+     * The candles go into a copy of {@code series}, which is never modified. An empty series has nothing to
+     * continue from and is loaded again in full.
+     *
+     * @return A new series holding the cached bars plus the new candles, or the full reload when it was empty
+     */
+    IntervalBarSeries refresh(BarSeriesConfig config, IntervalBarSeries series) throws StrategyException {
+        if (series.getBarCount() == 0) {
+            return loader.reloadBarSeries(rollForward(config));
+        }
+        BarSeriesConfig tail = copy(config);
+        tail.setStartDate(series.getLastBar().getEndTime());
+        tail.setEndDate(Instant.now());
+        IntervalBarSeries fresh = loader.reloadBarSeries(tail);
+        IntervalBarSeries refreshed = copyOf(series);
+        for (int i = fresh.getBeginIndex(); i <= fresh.getEndIndex(); i++) {
+            Bar bar = fresh.getBar(i);
+            Instant lastEnd = refreshed.getLastBar().getEndTime();
+            if (bar.getEndTime().isAfter(lastEnd)) {
+                refreshed.addBar(bar);
+            } else if (bar.getEndTime().equals(lastEnd)) {
+                refreshed.addBar(bar, true);
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * A private copy of a non-empty series for a refresh to append to. Bars are immutable and shared with the
+     * original; a live bar left over from a subscription is frozen.
+     */
+    private static IntervalBarSeries copyOf(IntervalBarSeries series) {
+        IntervalBarSeries copy;
+        if (series instanceof ColumnarBarSeries columnar) {
+            copy = (ColumnarBarSeries) columnar.getSubSeries(columnar.getBeginIndex(), columnar.getEndIndex() + 1);
+        } else {
+            BarSeries bars = new BaseBarSeriesBuilder().withName(series.getName()).build();
+            for (int i = series.getBeginIndex(); i <= series.getEndIndex(); i++) {
+                Bar bar = series.getBar(i);
+                bars.addBar(bar instanceof LiveBar live ? live.freeze() : bar);
+            }
+            copy = ExtendedBarSeries.builder()
+                    .delegate(bars)
+                    .interval(series.getInterval())
+                    .seriesType(series.getSeriesType())
+                    .instrument(series.getInstrument())
+                    .build();
+        }
+        if (series.getMaximumBarCount() != Integer.MAX_VALUE) {
+            copy.setMaximumBarCount(series.getMaximumBarCount());
+        }
+        return copy;
+    }
+
+    // Keep the originally requested look-back, but end it now
+    private static BarSeriesConfig rollForward(BarSeriesConfig config) {
+        BarSeriesConfig refreshed = copy(config);
+        if (config.getStartDate() != null && config.getEndDate() != null) {
+            Instant now = Instant.now();
+            refreshed.setStartDate(now.minus(Duration.between(config.getStartDate(), config.getEndDate())));
+            refreshed.setEndDate(now);
+        }
+        return refreshed;
+    }
+
+    private final class SeriesLoader extends CacheLoader<SeriesKey, IntervalBarSeries> {
+
+        @Override
+        public IntervalBarSeries load(SeriesKey key) throws Exception {
+            BarSeriesConfig config = configs.get(key);
+            if (config == null) {
+                throw new StrategyException("No bar series config known for " + key);
+            }
+            // Straight from the source: live series are updated in place by ticks and must not be the
+            // snapshot other threads get from the shared BarSeriesCache
+            return loader.reloadBarSeries(config);
+        }
+
+        @Override
+        public Map<SeriesKey, IntervalBarSeries> loadAll(Iterable<? extends SeriesKey> keys) throws Exception {
+            List<SeriesKey> missing = new ArrayList<>();
+            List<BarSeriesConfig> missingConfigs = new ArrayList<>();
+            for (SeriesKey key : keys) {
+                BarSeriesConfig config = configs.get(key);
+                if (config == null) {
+                    throw new StrategyException("No bar series config known for " + key);
+                }
+                missing.add(key);
+                missingConfigs.add(config);
+            }
+            List<IntervalBarSeries> series = loader.reloadAllBarSeries(missingConfigs);
+            Map<SeriesKey, IntervalBarSeries> loaded = new HashMap<>(missing.size() * 2);
+            for (int i = 0; i < missing.size(); i++) {
+                loaded.put(missing.get(i), series.get(i));
+            }
+            return loaded;
+        }
+
+        @Override
+        public ListenableFuture<IntervalBarSeries> reload(SeriesKey key, IntervalBarSeries oldValue) {
+            BarSeriesConfig config = configs.get(key);
+            if (config == null || pinnedInstruments.contains(key.instrument())) {
+                return Futures.immediateFuture(oldValue);
+            }
+            ListenableFutureTask<IntervalBarSeries> task = ListenableFutureTask.create(() -> {
+                refreshes.incrementAndGet();
+                return refresh(config, oldValue);
+            });
+            refreshExecutor.execute(task);
+            return task;
+        }
+    }
+}
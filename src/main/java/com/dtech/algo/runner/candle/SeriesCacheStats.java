@@ -0,0 +1,20 @@
+package com.dtech.algo.runner.candle;
+
+/**
+ * Snapshot of the {@link SeriesCache} counters.
+ */
+public record SeriesCacheStats(
+        long cachedSeries,
+        long pinnedSeries,
+        long estimatedKb,
+        long hits,
+        long pinnedHits,
+        long misses,
+        double hitRate,
+        long loads,
+        long loadFailures,
+        double averageLoadMillis,
+        long refreshes,
+        long evictions
+) {
+}
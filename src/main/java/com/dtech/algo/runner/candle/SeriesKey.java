@@ -0,0 +1,16 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.SeriesType;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+
+/**
+ * Identity of a cached bar series: the same instrument, series type and interval always share one series,
+ * whatever date range the caller asked for.
+ */
+public record SeriesKey(String instrument, SeriesType seriesType, Interval interval) {
+
+    public static SeriesKey of(BarSeriesConfig config) {
+        return new SeriesKey(config.getInstrument(), config.getSeriesType(), config.getInterval());
+    }
+}
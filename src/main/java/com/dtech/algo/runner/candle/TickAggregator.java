@@ -0,0 +1,322 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.algo.exception.StrategyException;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.algo.time.ZoneIdHolder;
+import com.dtech.kitecon.service.DatabaseBatchUpdateService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.Bar;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Aggregates live ticks into bars for every subscribed interval of an instrument in a single pass.
+ * <p>
+ * Bar boundaries are computed from a per-instrument day start with plain arithmetic, the in-progress bar of
+ * every interval is kept in preallocated primitive arrays per instrument token, and the series of each interval
+ * is resolved once per token. A tick that lands inside the current bars only updates those arrays and the
+ * forming bar of each series in place, so readers see it right away. When a bar closes it is frozen into the
+ * backing {@link IntervalBarSeries} and the series is queued for persistence.
+ * <p>
+ * The Spring bean is the live aggregator. Tick replay builds its own instance over private series with a
+ * no-op close hook, so replayed ticks neither touch the live series nor reach the database.
+ */
+@Component
+@Log4j2
+public class TickAggregator {
+
+    private static final Interval[] INTERVALS = Interval.values();
+
+    private final BarSeriesLoader barSeriesProvider;
+    private final Consumer<BarSeriesConfig> onBarClosed;
+    private final BarTimeCalculator barTimeCalculator;
+
+    // Copy-on-write registry: sorted tokens with the matching books, swapped atomically on (un)registration.
+    // Registration happens on subscribe, lookups happen on every tick, so reads must stay lock- and box-free.
+    private final Object registryLock = new Object();
+    private volatile Registry registry = new Registry(new long[0], new OpenBars[0]);
+
+    /**
+     * The live aggregator: bars go into the shared series and closed bars are queued for persistence.
+     */
+    @Autowired
+    public TickAggregator(LatestBarSeriesProvider barSeriesProvider,
+                          DatabaseBatchUpdateService databaseBatchUpdateService,
+                          BarTimeCalculator barTimeCalculator) {
+        this(barSeriesProvider, databaseBatchUpdateService::addToQueue, barTimeCalculator);
+    }
+
+    /**
+     * @param barSeriesProvider Resolves the series a config's bars go into, once per token and interval
+     * @param onBarClosed       Called with the config of a series whenever one of its bars closes
+     */
+    public TickAggregator(BarSeriesLoader barSeriesProvider, Consumer<BarSeriesConfig> onBarClosed,
+                          BarTimeCalculator barTimeCalculator) {
+        this.barSeriesProvider = barSeriesProvider;
+        this.onBarClosed = onBarClosed;
+        this.barTimeCalculator = barTimeCalculator;
+    }
+
+    /**
+     * @param instrumentToken The instrument token from Kite
+     * @return true if the token already has an open-bar book
+     */
+    public boolean isRegistered(long instrumentToken) {
+        return registry.find(instrumentToken) != null;
+    }
+
+    /**
+     * Register an instrument for aggregation.
+     *
+     * @param instrumentToken The instrument token from Kite
+     * @param configs         Bar series configs indexed by {@link Interval#ordinal()}; null entries are not aggregated
+     */
+    public void register(long instrumentToken, BarSeriesConfig[] configs) {
+        if (configs.length != INTERVALS.length) {
+            throw new IllegalArgumentException("Expected one config slot per interval, got " + configs.length);
+        }
+        synchronized (registryLock) {
+            Registry current = registry;
+            int idx = Arrays.binarySearch(current.tokens, instrumentToken);
+            if (idx >= 0) {
+                return;
+            }
+            int insertAt = -idx - 1;
+            int n = current.tokens.length;
+            long[] tokens = new long[n + 1];
+            OpenBars[] books = new OpenBars[n + 1];
+            System.arraycopy(current.tokens, 0, tokens, 0, insertAt);
+            System.arraycopy(current.books, 0, books, 0, insertAt);
+            tokens[insertAt] = instrumentToken;
+            books[insertAt] = new OpenBars(configs.clone());
+            System.arraycopy(current.tokens, insertAt, tokens, insertAt + 1, n - insertAt);
+            System.arraycopy(current.books, insertAt, books, insertAt + 1, n - insertAt);
+            registry = new Registry(tokens, books);
+        }
+        log.info("Registered instrument token {} for tick aggregation", instrumentToken);
+    }
+
+    /**
+     * Stop aggregating an instrument. The open bars of that instrument are discarded.
+     *
+     * @param instrumentToken The instrument token from Kite
+     */
+    public void unregister(long instrumentToken) {
+        synchronized (registryLock) {
+            Registry current = registry;
+            int idx = Arrays.binarySearch(current.tokens, instrumentToken);
+            if (idx < 0) {
+                return;
+            }
+            int n = current.tokens.length;
+            long[] tokens = new long[n - 1];
+            OpenBars[] books = new OpenBars[n - 1];
+            System.arraycopy(current.tokens, 0, tokens, 0, idx);
+            System.arraycopy(current.books, 0, books, 0, idx);
+            System.arraycopy(current.tokens, idx + 1, tokens, idx, n - idx - 1);
+            System.arraycopy(current.books, idx + 1, books, idx, n - idx - 1);
+            registry = new Registry(tokens, books);
+        }
+    }
+
+    /**
+     * Drop every registered instrument along with its open bars.
+     */
+    public void clear() {
+        synchronized (registryLock) {
+            registry = new Registry(new long[0], new OpenBars[0]);
+        }
+    }
+
+    /**
+     * Fold a tick into the forming bar of every subscribed interval of its instrument.
+     * <p>
+     * The open bar of each interval is kept in preallocated primitive arrays and published to the series on
+     * every tick ({@link IntervalBarSeries#updateLiveBar}) as epoch seconds and doubles, so readers of the series
+     * always see the current bar and a tick inside the forming bars allocates nothing. A bar is frozen and
+     * appended only when a tick opens the next one, and the series is then queued for persistence.
+     *
+     * @param tick The market data tick
+     * @return true if the instrument is registered and the tick was applied
+     */
+    public boolean onTick(DataTick tick) {
+        OpenBars book = registry.find(tick.getInstrumentToken());
+        if (book == null) {
+            return false;
+        }
+
+        long tickMillis = tick.getTickTimestamp() != null ? tick.getTickTimestamp().getTime() : System.currentTimeMillis();
+        long tickSecond = Math.floorDiv(tickMillis, 1000L);
+        double price = tick.getLastTradedPrice();
+
+        synchronized (book) {
+            if (tickSecond < book.dayStart || tickSecond >= book.nextDayStart) {
+                book.rollDay(tickSecond);
+            }
+            double volume = book.volumeDelta(tick.getVolumeTradedToday());
+            long secondOfDay = tickSecond - book.dayStart;
+
+            for (int i = 0; i < INTERVALS.length; i++) {
+                if (book.configs[i] == null) {
+                    continue;
+                }
+                long barEnd = book.dayStart + barTimeCalculator.calculateBarEndOffset(secondOfDay, book.dayOfWeek, INTERVALS[i]);
+                IntervalBarSeries series = seriesOf(book, i, barEnd);
+                if (series == null) {
+                    continue;
+                }
+                long currentEnd = book.endEpoch[i];
+
+                if (currentEnd != 0 && barEnd <= currentEnd) {
+                    // Same bar (late ticks are folded into the current bar, as before)
+                    if (price > book.high[i]) {
+                        book.high[i] = price;
+                    }
+                    if (price < book.low[i]) {
+                        book.low[i] = price;
+                    }
+                    book.close[i] = price;
+                    book.volume[i] += volume;
+                } else {
+                    book.open(i, barEnd, price, volume, series);
+                }
+                publish(book, i, series);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Push the open bar of a slot into its series; queues the series for persistence when this closed a bar.
+     */
+    private void publish(OpenBars book, int i, IntervalBarSeries series) {
+        try {
+            Bar completed = series.updateLiveBar(book.endEpoch[i], book.open[i], book.high[i], book.low[i],
+                    book.close[i], book.volume[i]);
+            if (completed != null) {
+                log.debug("Completed bar detected for instrument: {}, interval: {}, time: {}",
+                        book.configs[i].getInstrument(), INTERVALS[i], completed.getEndTime());
+                onBarClosed.accept(book.configs[i]);
+            }
+        } catch (Exception e) {
+            log.error("Error updating live bar for config: {}", book.configs[i].getName(), e);
+        }
+    }
+
+    /**
+     * The series of a slot, loaded the first time the slot sees a tick. A failed load is retried with the
+     * next bar rather than on every tick of the same bar.
+     */
+    private IntervalBarSeries seriesOf(OpenBars book, int i, long barEnd) {
+        IntervalBarSeries series = book.series[i];
+        if (series != null || book.failedEnd[i] == barEnd) {
+            return series;
+        }
+        BarSeriesConfig config = book.configs[i];
+        try {
+            series = barSeriesProvider.loadBarSeries(config);
+        } catch (StrategyException e) {
+            log.error("Error loading bar series for config: {}", config.getName(), e);
+        }
+        if (series == null) {
+            log.warn("Failed to load bar series for config: {}", config.getName());
+            book.failedEnd[i] = barEnd;
+            return null;
+        }
+        book.series[i] = series;
+        return series;
+    }
+
+    private static final class Registry {
+        private final long[] tokens;
+        private final OpenBars[] books;
+
+        private Registry(long[] tokens, OpenBars[] books) {
+            this.tokens = tokens;
+            this.books = books;
+        }
+
+        private OpenBars find(long token) {
+            int idx = Arrays.binarySearch(tokens, token);
+            return idx >= 0 ? books[idx] : null;
+        }
+    }
+
+    /**
+     * Open-bar state of one instrument, one slot per {@link Interval} ordinal. Guarded by its own monitor;
+     * an {@code endEpoch} of 0 means the slot has no open bar yet, a {@code failedEnd} of 0 means the slot's
+     * series has not failed to load.
+     */
+    private static final class OpenBars {
+        private final BarSeriesConfig[] configs;
+        private final IntervalBarSeries[] series = new IntervalBarSeries[INTERVALS.length];
+        private final long[] failedEnd = new long[INTERVALS.length];
+        private final double[] open = new double[INTERVALS.length];
+        private final double[] high = new double[INTERVALS.length];
+        private final double[] low = new double[INTERVALS.length];
+        private final double[] close = new double[INTERVALS.length];
+        private final double[] volume = new double[INTERVALS.length];
+        private final long[] endEpoch = new long[INTERVALS.length];
+
+        private long dayStart = Long.MAX_VALUE;
+        private long nextDayStart = Long.MIN_VALUE;
+        private int dayOfWeek;
+        private double lastCumulativeVolume = -1;
+
+        private OpenBars(BarSeriesConfig[] configs) {
+            this.configs = configs;
+        }
+
+        /**
+         * Start the bar ending at {@code barEnd}. If the series already holds a bar with that end (loaded from
+         * the database while it was still forming) the open bar continues from it. Runs once per bar.
+         */
+        private void open(int i, long barEnd, double price, double volume, IntervalBarSeries series) {
+            endEpoch[i] = barEnd;
+            open[i] = price;
+            high[i] = price;
+            low[i] = price;
+            close[i] = price;
+            this.volume[i] = volume;
+            if (series.getBarCount() == 0) {
+                return;
+            }
+            Bar last = series.getLastBar();
+            if (last.getEndTime().getEpochSecond() == barEnd) {
+                open[i] = last.getOpenPrice().doubleValue();
+                high[i] = Math.max(price, last.getHighPrice().doubleValue());
+                low[i] = Math.min(price, last.getLowPrice().doubleValue());
+                this.volume[i] += last.getVolume().doubleValue();
+            }
+        }
+
+        private void rollDay(long epochSecond) {
+            ZoneId zone = ZoneIdHolder.get();
+            LocalDate date = Instant.ofEpochSecond(epochSecond).atZone(zone).toLocalDate();
+            dayStart = date.atStartOfDay(zone).toEpochSecond();
+            nextDayStart = date.plusDays(1).atStartOfDay(zone).toEpochSecond();
+            dayOfWeek = date.getDayOfWeek().getValue();
+            lastCumulativeVolume = -1;
+        }
+
+        /**
+         * Kite reports the cumulative volume traded today; a bar only owns the increase since the previous tick.
+         */
+        private double volumeDelta(double cumulativeVolume) {
+            double delta = lastCumulativeVolume >= 0 && cumulativeVolume >= lastCumulativeVolume
+                    ? cumulativeVolume - lastCumulativeVolume
+                    : 0;
+            lastCumulativeVolume = cumulativeVolume;
+            return delta;
+        }
+    }
+}
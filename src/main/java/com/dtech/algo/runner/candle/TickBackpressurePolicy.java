@@ -0,0 +1,13 @@
+package com.dtech.algo.runner.candle;
+
+/**
+ * What the tick pipeline does when a shard's ring buffer is full.
+ */
+public enum TickBackpressurePolicy {
+    /** Block the websocket thread until the consumer frees a slot. */
+    BLOCK,
+    /** Discard the oldest queued tick of the shard to make room. */
+    DROP_OLDEST,
+    /** Keep only the latest pending tick per instrument token until the shard catches up. */
+    COALESCE
+}
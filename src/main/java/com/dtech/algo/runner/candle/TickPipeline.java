@@ -0,0 +1,249 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.kitecon.controller.BarSeriesHelper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands ticks from the KiteTicker websocket thread to bar processing.
+ * <p>
+ * Ticks are sharded by instrument token onto N single-writer consumer threads, each fed by its own bounded
+ * {@link TickRingBuffer}. All ticks of an instrument therefore reach its bar series from one thread and in
+ * arrival order, so the series need no locking. When a shard falls behind, the configured
+ * {@link TickBackpressurePolicy} decides between blocking the websocket, dropping the oldest tick or
+ * coalescing to the latest tick per token; in every case memory stays bounded.
+ * <p>
+ * Coalesced ticks wait outside the ring. The consumer hands them on every few ring polls, as soon as every tick
+ * of their token queued ahead of them has left the ring, so a token cannot starve while the ring stays busy.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TickPipeline {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final BarSeriesHelper barSeriesHelper;
+
+    @Value("${ticks.pipeline.shards:0}")
+    private int shardCount;
+
+    @Value("${ticks.pipeline.capacity:8192}")
+    private int capacity;
+
+    @Value("${ticks.pipeline.backpressure:COALESCE}")
+    private TickBackpressurePolicy backpressurePolicy;
+
+    @Value("${ticks.pipeline.coalesce-drain-interval:64}")
+    private int coalesceDrainInterval;
+
+    private Shard[] shards;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        int n = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[n];
+        running = true;
+        for (int i = 0; i < n; i++) {
+            shards[i] = new Shard(i, new TickRingBuffer(capacity));
+            Thread thread = new Thread(shards[i]::run, "tick-shard-" + i);
+            thread.setDaemon(true);
+            shards[i].thread = thread;
+            thread.start();
+        }
+        log.info("Tick pipeline started with {} shards of {} slots, backpressure {}",
+                n, shards[0].ring.capacity(), backpressurePolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Tick pipeline stopped");
+    }
+
+    /**
+     * Publish a tick. Must only be called from the websocket thread (single producer).
+     *
+     * @param tick The market data tick
+     */
+    public void publish(DataTick tick) {
+        Shard shard = shards[shardOf(tick.getInstrumentToken())];
+        shard.published.incrementAndGet();
+
+        switch (backpressurePolicy) {
+            case BLOCK:
+                while (!shard.ring.offer(tick)) {
+                    if (!running) {
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!shard.ring.offer(tick)) {
+                    if (shard.ring.dropOldest()) {
+                        shard.dropped.incrementAndGet();
+                    }
+                }
+                break;
+            case COALESCE:
+                // Once a token overflowed, keep replacing its pending tick until the consumer picked it up,
+                // otherwise a newer tick could overtake it through the ring
+                Pending queued = shard.pending.isEmpty() ? null : shard.pending.get(tick.getInstrumentToken());
+                if (queued == null && shard.ring.offer(tick)) {
+                    break;
+                }
+                // the token's older ticks all sit below the ring's current write sequence
+                long after = queued != null ? queued.after() : shard.ring.writeSequence();
+                if (shard.pending.put(tick.getInstrumentToken(), new Pending(tick, after)) != null) {
+                    shard.coalesced.incrementAndGet();
+                }
+                break;
+        }
+    }
+
+    private int shardOf(long instrumentToken) {
+        long h = instrumentToken * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % shards.length);
+    }
+
+    /**
+     * @return Per-shard queue depth, throughput and lag figures
+     */
+    public TickPipelineStats getStats() {
+        List<TickPipelineStats.ShardStats> shardStats = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            shardStats.add(new TickPipelineStats.ShardStats(
+                    shard.index,
+                    shard.ring.size() + shard.pending.size(),
+                    shard.ring.capacity(),
+                    shard.published.get(),
+                    shard.processed.get(),
+                    shard.failed.get(),
+                    shard.dropped.get(),
+                    shard.coalesced.get(),
+                    shard.lastLagMillis,
+                    shard.maxLagMillis.get()));
+        }
+        return TickPipelineStats.of(backpressurePolicy, shardStats);
+    }
+
+    /**
+     * Reset the cumulative counters of every shard
+     */
+    public void resetCounters() {
+        for (Shard shard : shards) {
+            shard.published.set(0);
+            shard.processed.set(0);
+            shard.failed.set(0);
+            shard.dropped.set(0);
+            shard.coalesced.set(0);
+            shard.maxLagMillis.set(0);
+        }
+    }
+
+    /**
+     * The latest overflow tick of a token, processable once the ring's read sequence reached {@code after}.
+     */
+    private record Pending(DataTick tick, long after) {
+    }
+
+    private final class Shard {
+        private final int index;
+        private final TickRingBuffer ring;
+        private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+        private Thread thread;
+
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+        private volatile long lastLagMillis;
+
+        private Shard(int index, TickRingBuffer ring) {
+            this.index = index;
+            this.ring = ring;
+        }
+
+        private void run() {
+            int polls = 0;
+            while (running) {
+                DataTick tick = ring.poll();
+                if (tick != null) {
+                    process(tick);
+                    if (++polls >= coalesceDrainInterval && !pending.isEmpty()) {
+                        polls = 0;
+                        drainPending();
+                    }
+                    continue;
+                }
+                polls = 0;
+                if (!pending.isEmpty()) {
+                    drainPending();
+                    continue;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        /**
+         * Process the coalesced ticks whose token has no older tick left in the ring.
+         */
+        private void drainPending() {
+            long consumed = ring.readSequence();
+            for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+                Pending latest = entry.getValue();
+                if (latest.after() <= consumed && pending.remove(entry.getKey(), latest)) {
+                    process(latest.tick());
+                }
+            }
+        }
+
+        private void process(DataTick tick) {
+            try {
+                if (barSeriesHelper.processTick(tick)) {
+                    processed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("Error processing tick for instrument token: {}", tick.getInstrumentToken(), e);
+            }
+            if (tick.getTickTimestamp() != null) {
+                long lag = System.currentTimeMillis() - tick.getTickTimestamp().getTime();
+                lastLagMillis = lag;
+                if (lag > maxLagMillis.get()) {
+                    maxLagMillis.set(lag);
+                }
+            }
+        }
+    }
+}
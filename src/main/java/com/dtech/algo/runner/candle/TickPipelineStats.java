@@ -0,0 +1,48 @@
+package com.dtech.algo.runner.candle;
+
+import java.util.List;
+
+/**
+ * Snapshot of the tick pipeline's queue depth and lag, exposed on the KiteTicker health check and over REST.
+ */
+public record TickPipelineStats(
+        TickBackpressurePolicy backpressurePolicy,
+        int queueDepth,
+        long published,
+        long processed,
+        long failed,
+        long dropped,
+        long coalesced,
+        long maxLagMillis,
+        List<ShardStats> shards
+) {
+
+    public record ShardStats(
+            int shard,
+            int queueDepth,
+            int capacity,
+            long published,
+            long processed,
+            long failed,
+            long dropped,
+            long coalesced,
+            long lastLagMillis,
+            long maxLagMillis
+    ) {
+    }
+
+    static TickPipelineStats of(TickBackpressurePolicy policy, List<ShardStats> shards) {
+        int depth = 0;
+        long published = 0, processed = 0, failed = 0, dropped = 0, coalesced = 0, maxLag = 0;
+        for (ShardStats s : shards) {
+            depth += s.queueDepth();
+            published += s.published();
+            processed += s.processed();
+            failed += s.failed();
+            dropped += s.dropped();
+            coalesced += s.coalesced();
+            maxLag = Math.max(maxLag, s.maxLagMillis());
+        }
+        return new TickPipelineStats(policy, depth, published, processed, failed, dropped, coalesced, maxLag, shards);
+    }
+}
@@ -0,0 +1,107 @@
+package com.dtech.algo.runner.candle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, preallocated ring of ticks with a single producer (the websocket thread) and a single consumer
+ * (the shard's writer thread).
+ * <p>
+ * The producer publishes a slot by advancing {@code tail}; the consumer claims a slot by CAS on {@code head}.
+ * The CAS lets the producer discard the oldest entry ({@link #dropOldest()}) without a lock: if both race
+ * for the same slot exactly one of them wins, and the consumer simply retries with the next slot.
+ * <p>
+ * A claimed slot is cleared so the ring does not keep up to {@code capacity} stale ticks reachable. The clear is
+ * a CAS against the tick that was claimed: once {@code head} moved on, the producer may already have reused the
+ * slot, and its new tick must survive.
+ */
+final class TickRingBuffer {
+
+    private final AtomicReferenceArray<DataTick> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    TickRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Producer only.
+     *
+     * @return false if the ring is full
+     */
+    boolean offer(DataTick tick) {
+        long t = tail.get();
+        if (t - head.get() >= slots.length()) {
+            return false;
+        }
+        slots.lazySet((int) (t & mask), tick);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @return the oldest tick, or null if the ring is empty
+     */
+    DataTick poll() {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return null;
+            }
+            int slot = (int) (h & mask);
+            DataTick tick = slots.get(slot);
+            if (head.compareAndSet(h, h + 1)) {
+                slots.compareAndSet(slot, tick, null);
+                return tick;
+            }
+        }
+    }
+
+    /**
+     * Producer only. Discards the oldest queued tick.
+     *
+     * @return true if a tick was discarded, false if the consumer emptied the ring in the meantime
+     */
+    boolean dropOldest() {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return false;
+            }
+            int slot = (int) (h & mask);
+            DataTick tick = slots.get(slot);
+            if (head.compareAndSet(h, h + 1)) {
+                slots.compareAndSet(slot, tick, null);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Number of ticks ever published to the ring
+     */
+    long writeSequence() {
+        return tail.get();
+    }
+
+    /**
+     * @return Number of ticks ever taken off the ring, by the consumer or by {@link #dropOldest()}
+     */
+    long readSequence() {
+        return head.get();
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,150 @@
+package com.dtech.algo.runner.candle.journal;
+
+import com.dtech.algo.runner.candle.DataTick;
+import com.dtech.algo.time.ZoneIdHolder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Append-only binary journal of every live tick, one memory-mapped file per trading day
+ * ({@code ticks-yyyy-MM-dd.bin}). Records are length-prefixed (see {@link TickJournalCodec}); the length is
+ * written last, so a record torn by a crash is simply not visible to readers.
+ * <p>
+ * The journal is written from the websocket thread, which is its only writer.
+ */
+@Component
+@Slf4j
+public class TickJournal {
+
+    private static final long MAP_CHUNK_BYTES = 64L << 20;
+
+    @Value("${ticks.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ticks.journal.directory:./ticks}")
+    private String directory;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private LocalDate day;
+    private long nextDayStartMillis = Long.MIN_VALUE;
+
+    private long appended;
+    private long failures;
+
+    /**
+     * Append a tick to today's journal. Failures are logged and counted, never thrown back to the feed.
+     *
+     * @param tick The converted tick
+     */
+    public synchronized void append(DataTick tick) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (channel == null || now >= nextDayStartMillis) {
+                roll(now);
+            }
+            int length = TickJournalCodec.payloadSize(tick);
+            ensureCapacity(4 + length);
+
+            int start = buffer.position();
+            buffer.position(start + 4);
+            TickJournalCodec.encode(tick, buffer);
+            buffer.putInt(start, length);
+            appended++;
+        } catch (IOException | RuntimeException e) {
+            if (failures++ % 10_000 == 0) {
+                log.error("Error appending tick to journal (failures so far: {})", failures, e);
+            }
+        }
+    }
+
+    /**
+     * @param day The trading day
+     * @return Path of that day's journal file
+     */
+    public Path fileFor(LocalDate day) {
+        return Paths.get(directory, "ticks-" + day + ".bin");
+    }
+
+    public synchronized long getAppended() {
+        return appended;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    private void roll(long nowMillis) throws IOException {
+        close();
+        ZoneId zone = ZoneIdHolder.get();
+        day = Instant.ofEpochMilli(nowMillis).atZone(zone).toLocalDate();
+        nextDayStartMillis = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        Path file = fileFor(day);
+        Files.createDirectories(file.getParent());
+        long end = TickJournalCodec.HEADER_BYTES;
+        boolean exists = Files.exists(file) && Files.size(file) >= TickJournalCodec.HEADER_BYTES;
+        if (exists) {
+            // Restart on the same day: continue after the last complete record
+            try (TickJournalReader reader = new TickJournalReader(file)) {
+                while (reader.next() != null) {
+                    // scan
+                }
+                end = reader.position();
+            }
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(exists ? end : 0);
+        if (!exists) {
+            buffer.putInt(TickJournalCodec.FILE_MAGIC);
+            buffer.putInt(TickJournalCodec.VERSION);
+        }
+        log.info("Tick journal opened at {} (offset {})", file, bufferStart + buffer.position());
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        // keep 4 spare bytes so the next (still zero) length slot is always inside the mapped file
+        if (buffer.remaining() < bytes + 4) {
+            buffer.force();
+            map(bufferStart + buffer.position());
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        bufferStart = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, MAP_CHUNK_BYTES);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error closing tick journal for {}", day, e);
+        }
+        channel = null;
+        buffer = null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.dtech.algo.runner.candle.journal;
+
+import com.dtech.algo.runner.candle.DataTick;
+import com.zerodhatech.models.Depth;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary layout of one journaled tick. A record on disk is {@code [int length][payload]}; the payload is:
+ * <pre>
+ *   long   instrumentToken
+ *   long   tickTimestamp (epoch millis, -1 if absent)
+ *   long   lastTradedTime (epoch millis, -1 if absent)
+ *   byte   mode (see {@link #MODES}, -1 if unknown)
+ *   byte   flags (bit 0 tradable, bit 1 depth present)
+ *   double x 14  ltp, high, low, open, close, change, ltq, atp, volume, buyQty, sellQty, oi, oiDayHigh, oiDayLow
+ *   [depth] byte buyLevels, (double price, int quantity, int orders) x buyLevels, then the same for sell
+ * </pre>
+ */
+final class TickJournalCodec {
+
+    static final int FILE_MAGIC = 0x4B544A31; // "KTJ1"
+    static final int HEADER_BYTES = 8;        // magic + version
+    static final int VERSION = 1;
+
+    private static final String[] MODES = {"ltp", "quote", "full"};
+    private static final int FIXED_BYTES = 8 + 8 + 8 + 1 + 1 + 14 * 8;
+    private static final int DEPTH_LEVEL_BYTES = 8 + 4 + 4;
+    private static final int FLAG_TRADABLE = 1;
+    private static final int FLAG_DEPTH = 2;
+
+    private TickJournalCodec() {
+    }
+
+    static int payloadSize(DataTick tick) {
+        int size = FIXED_BYTES;
+        if (tick.getDepth() != null) {
+            size += 2 + DEPTH_LEVEL_BYTES * (levels(tick.getDepth(), "buy") + levels(tick.getDepth(), "sell"));
+        }
+        return size;
+    }
+
+    static void encode(DataTick tick, ByteBuffer out) {
+        out.putLong(tick.getInstrumentToken());
+        out.putLong(tick.getTickTimestamp() != null ? tick.getTickTimestamp().getTime() : -1L);
+        out.putLong(tick.getLastTradedTime() != null ? tick.getLastTradedTime().getTime() : -1L);
+        out.put(modeCode(tick.getMode()));
+        int flags = (tick.isTradable() ? FLAG_TRADABLE : 0) | (tick.getDepth() != null ? FLAG_DEPTH : 0);
+        out.put((byte) flags);
+        out.putDouble(tick.getLastTradedPrice());
+        out.putDouble(tick.getHighPrice());
+        out.putDouble(tick.getLowPrice());
+        out.putDouble(tick.getOpenPrice());
+        out.putDouble(tick.getClosePrice());
+        out.putDouble(tick.getChange());
+        out.putDouble(tick.getLastTradedQuantity());
+        out.putDouble(tick.getAverageTradePrice());
+        out.putDouble(tick.getVolumeTradedToday());
+        out.putDouble(tick.getTotalBuyQuantity());
+        out.putDouble(tick.getTotalSellQuantity());
+        out.putDouble(tick.getOi());
+        out.putDouble(tick.getOiDayHigh());
+        out.putDouble(tick.getOiDayLow());
+        if (tick.getDepth() != null) {
+            encodeDepth(tick.getDepth().get("buy"), out);
+            encodeDepth(tick.getDepth().get("sell"), out);
+        }
+    }
+
+    static DataTick decode(ByteBuffer in) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(in.getLong());
+        long timestamp = in.getLong();
+        tick.setTickTimestamp(timestamp >= 0 ? new Date(timestamp) : null);
+        long lastTraded = in.getLong();
+        tick.setLastTradedTime(lastTraded >= 0 ? new Date(lastTraded) : null);
+        byte mode = in.get();
+        tick.setMode(mode >= 0 && mode < MODES.length ? MODES[mode] : null);
+        int flags = in.get();
+        tick.setTradable((flags & FLAG_TRADABLE) != 0);
+        tick.setLastTradedPrice(in.getDouble());
+        tick.setHighPrice(in.getDouble());
+        tick.setLowPrice(in.getDouble());
+        tick.setOpenPrice(in.getDouble());
+        tick.setClosePrice(in.getDouble());
+        tick.setChange(in.getDouble());
+        tick.setLastTradedQuantity(in.getDouble());
+        tick.setAverageTradePrice(in.getDouble());
+        tick.setVolumeTradedToday(in.getDouble());
+        tick.setTotalBuyQuantity(in.getDouble());
+        tick.setTotalSellQuantity(in.getDouble());
+        tick.setOi(in.getDouble());
+        tick.setOiDayHigh(in.getDouble());
+        tick.setOiDayLow(in.getDouble());
+        if ((flags & FLAG_DEPTH) != 0) {
+            Map<String, ArrayList<Depth>> depth = new HashMap<>(4);
+            depth.put("buy", decodeDepth(in));
+            depth.put("sell", decodeDepth(in));
+            tick.setDepth(depth);
+        }
+        return tick;
+    }
+
+    private static int levels(Map<String, ArrayList<Depth>> depth, String side) {
+        List<Depth> entries = depth.get(side);
+        return entries == null ? 0 : Math.min(entries.size(), Byte.MAX_VALUE);
+    }
+
+    private static void encodeDepth(List<Depth> entries, ByteBuffer out) {
+        int count = entries == null ? 0 : Math.min(entries.size(), Byte.MAX_VALUE);
+        out.put((byte) count);
+        for (int i = 0; i < count; i++) {
+            Depth level = entries.get(i);
+            out.putDouble(level.getPrice());
+            out.putInt(level.getQuantity());
+            out.putInt(level.getOrders());
+        }
+    }
+
+    private static ArrayList<Depth> decodeDepth(ByteBuffer in) {
+        int count = in.get();
+        ArrayList<Depth> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Depth level = new Depth();
+            level.setPrice(in.getDouble());
+            level.setQuantity(in.getInt());
+            level.setOrders(in.getInt());
+            entries.add(level);
+        }
+        return entries;
+    }
+
+    private static byte modeCode(String mode) {
+        for (int i = 0; i < MODES.length; i++) {
+            if (MODES[i].equals(mode)) {
+                return (byte) i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.dtech.algo.runner.candle.journal;
+
+import com.dtech.algo.runner.candle.DataTick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader over a day's tick journal written by {@link TickJournal}.
+ * The file is mapped in windows, so journals larger than 2 GB can be read without loading them on heap.
+ */
+public class TickJournalReader implements Closeable {
+
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    public TickJournalReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        if (size < TickJournalCodec.HEADER_BYTES) {
+            channel.close();
+            throw new IOException("Not a tick journal (too short): " + file);
+        }
+        ensureWindow(0, TickJournalCodec.HEADER_BYTES);
+        int magic = window.getInt(0);
+        int version = window.getInt(4);
+        if (magic != TickJournalCodec.FILE_MAGIC || version != TickJournalCodec.VERSION) {
+            channel.close();
+            throw new IOException("Not a tick journal (magic " + Integer.toHexString(magic) + ", version " + version + "): " + file);
+        }
+        this.position = TickJournalCodec.HEADER_BYTES;
+    }
+
+    /**
+     * @return The next tick, or null at the end of the journal
+     */
+    public DataTick next() throws IOException {
+        if (position + 4 > size) {
+            return null;
+        }
+        ensureWindow(position, 4);
+        int length = window.getInt((int) (position - windowStart));
+        // A zero length marks the preallocated, not yet written tail of the file
+        if (length <= 0 || position + 4 + length > size) {
+            return null;
+        }
+        ensureWindow(position, 4 + length);
+        window.position((int) (position - windowStart) + 4);
+        DataTick tick = TickJournalCodec.decode(window);
+        position += 4 + length;
+        return tick;
+    }
+
+    /**
+     * @return File offset just past the last complete record read so far
+     */
+    public long position() {
+        return position;
+    }
+
+    private void ensureWindow(long offset, int needed) throws IOException {
+        if (window != null && offset >= windowStart && offset + needed <= windowStart + window.capacity()) {
+            return;
+        }
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_BYTES, size - offset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package com.dtech.algo.runner.candle.journal;
+
+import com.dtech.algo.runner.candle.BarTimeCalculator;
+import com.dtech.algo.runner.candle.DataTick;
+import com.dtech.algo.runner.candle.TickAggregator;
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.kitecon.controller.BarSeriesHelper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.BaseBarSeriesBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays a day's tick journal through {@link BarSeriesHelper#processTicks(List, TickAggregator)}, i.e. the same
+ * aggregation code live ticks take, optionally paced to a multiple of the original wall-clock speed.
+ * Used to reproduce production incidents and to load-test bar aggregation without a Kite connection.
+ * <p>
+ * Every replay gets its own {@link TickAggregator} over empty private series that are dropped when it ends,
+ * so a replay neither disturbs the live bar series nor persists anything, and is safe while the ticker runs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TickReplayService {
+
+    public static final double MAX_SPEED = 100.0;
+    private static final int MAX_BATCH = 1_000;
+
+    private final BarSeriesHelper barSeriesHelper;
+    private final TickJournal tickJournal;
+    private final BarTimeCalculator barTimeCalculator;
+
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tick-replay");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicReference<ReplayStatus> status = new AtomicReference<>();
+
+    public record ReplayStatus(LocalDate day, double speed, boolean running, long ticksRead, long ticksProcessed,
+                               long barsClosed, long elapsedMillis, String error) {
+    }
+
+    /**
+     * Start replaying a day's journal in the background. Only one replay runs at a time.
+     *
+     * @param day   The trading day to replay
+     * @param speed Multiple of wall-clock speed, capped at {@link #MAX_SPEED}
+     * @return Future completing with the final status
+     */
+    public CompletableFuture<ReplayStatus> replayAsync(LocalDate day, double speed) {
+        double pace = pace(speed);
+        claim(day, pace);
+        return CompletableFuture.supplyAsync(() -> run(day, pace), replayExecutor);
+    }
+
+    /**
+     * @return Progress of the running replay, or the result of the last one
+     */
+    public ReplayStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Replay a day's journal on the calling thread.
+     *
+     * @param day   The trading day to replay
+     * @param speed Multiple of wall-clock speed, capped at {@link #MAX_SPEED}
+     * @return The final status
+     */
+    public ReplayStatus replay(LocalDate day, double speed) {
+        double pace = pace(speed);
+        claim(day, pace);
+        return run(day, pace);
+    }
+
+    private static double pace(double speed) {
+        return speed <= 0 ? 1.0 : Math.min(speed, MAX_SPEED);
+    }
+
+    /**
+     * Mark a replay as running, unless one already is
+     */
+    private void claim(LocalDate day, double pace) {
+        ReplayStatus starting = new ReplayStatus(day, pace, true, 0, 0, 0, 0, null);
+        while (true) {
+            ReplayStatus current = status.get();
+            if (current != null && current.running()) {
+                throw new IllegalStateException("A replay of " + current.day() + " is already running");
+            }
+            if (status.compareAndSet(current, starting)) {
+                return;
+            }
+        }
+    }
+
+    private ReplayStatus run(LocalDate day, double pace) {
+        Path file = tickJournal.fileFor(day);
+        long startWall = System.currentTimeMillis();
+        long read = 0;
+        long processed = 0;
+
+        if (!Files.exists(file)) {
+            return finish(new ReplayStatus(day, pace, false, 0, 0, 0, 0, "No journal at " + file));
+        }
+
+        Map<String, IntervalBarSeries> replaySeries = new HashMap<>();
+        AtomicLong barsClosed = new AtomicLong();
+        TickAggregator aggregator = new TickAggregator(
+                config -> replaySeries.computeIfAbsent(config.getName(), name -> emptySeries(config)),
+                config -> barsClosed.incrementAndGet(),
+                barTimeCalculator);
+
+        log.info("Replaying tick journal {} at {}x", file, pace);
+        try (TickJournalReader reader = new TickJournalReader(file)) {
+            List<DataTick> batch = new ArrayList<>(MAX_BATCH);
+            long firstTickMillis = -1;
+            DataTick tick;
+            while ((tick = reader.next()) != null) {
+                read++;
+                if (tick.getTickTimestamp() != null) {
+                    long tickMillis = tick.getTickTimestamp().getTime();
+                    if (firstTickMillis < 0) {
+                        firstTickMillis = tickMillis;
+                    }
+                    long dueAt = startWall + (long) ((tickMillis - firstTickMillis) / pace);
+                    long wait = dueAt - System.currentTimeMillis();
+                    if (wait > 0) {
+                        processed += flush(batch, aggregator);
+                        Thread.sleep(wait);
+                    }
+                }
+                batch.add(tick);
+                if (batch.size() >= MAX_BATCH) {
+                    processed += flush(batch, aggregator);
+                }
+                if ((read & 0xFFFF) == 0) {
+                    status.set(new ReplayStatus(day, pace, true, read, processed, barsClosed.get(),
+                            System.currentTimeMillis() - startWall, null));
+                }
+            }
+            processed += flush(batch, aggregator);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return finish(new ReplayStatus(day, pace, false, read, processed, barsClosed.get(),
+                    System.currentTimeMillis() - startWall, "Interrupted"));
+        } catch (IOException | RuntimeException e) {
+            log.error("Error replaying tick journal {}", file, e);
+            return finish(new ReplayStatus(day, pace, false, read, processed, barsClosed.get(),
+                    System.currentTimeMillis() - startWall, e.getMessage()));
+        }
+
+        long elapsed = System.currentTimeMillis() - startWall;
+        log.info("Replayed {} ticks ({} processed, {} bars closed) from {} in {} ms",
+                read, processed, barsClosed.get(), file, elapsed);
+        return finish(new ReplayStatus(day, pace, false, read, processed, barsClosed.get(), elapsed, null));
+    }
+
+    private static IntervalBarSeries emptySeries(BarSeriesConfig config) {
+        return ExtendedBarSeries.builder()
+                .interval(config.getInterval())
+                .seriesType(config.getSeriesType())
+                .delegate(new BaseBarSeriesBuilder().withName(config.getName()).build())
+                .instrument(config.getInstrument())
+                .build();
+    }
+
+    private int flush(List<DataTick> batch, TickAggregator aggregator) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int processed = barSeriesHelper.processTicks(batch, aggregator);
+        batch.clear();
+        return processed;
+    }
+
+    private ReplayStatus finish(ReplayStatus result) {
+        status.set(result);
+        return result;
+    }
+}
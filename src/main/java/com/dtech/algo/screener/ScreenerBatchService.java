@@ -0,0 +1,306 @@
+package com.dtech.algo.screener;
+
+import com.dtech.algo.screener.db.ScreenerEntity;
+import com.dtech.algo.screener.db.ScreenerRepository;
+import com.dtech.algo.screener.db.ScreenerRunBulkWriter;
+import com.dtech.algo.screener.db.ScreenerRunEntity;
+import com.dtech.algo.screener.db.ScreenerRunRepository;
+import com.dtech.algo.screener.domain.Screener;
+import com.dtech.algo.screener.dsl.CrossSection;
+import com.dtech.algo.screener.enums.SchedulingStatus;
+import com.dtech.algo.screener.enums.Verdict;
+import com.dtech.algo.screener.enums.WorkflowStep;
+import com.dtech.algo.screener.kotlinrunner.CompiledScriptCache;
+import com.dtech.algo.screener.kotlinrunner.KotlinScriptExecutor;
+import com.dtech.algo.screener.runtime.IndicatorMemoPool;
+import com.dtech.algo.screener.runtime.ScreenerRunQueue;
+import com.dtech.kitecon.repository.IndexSymbolRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates one screener over a whole universe (e.g. an index) in one pass, instead of one
+ * {@link ScreenerService#run} per symbol.
+ * <p>
+ * The definition and script are loaded once, the contexts of all symbols are built by
+ * {@link ScreenerContextLoader#loadAll} with bulk LTP and candle queries, and the script is evaluated on a
+ * fixed pool of {@code screener.batch.threads}. Contexts share a {@link CrossSection}: when the script records
+ * metrics, every symbol is evaluated a second time with the metrics ranked, so {@code rank()} and
+ * {@code percentile()} see the whole universe. The indicator memo makes the second pass cheap.
+ * <p>
+ * Results are written with multi-row inserts as finished runs. Passing symbols of a screener whose workflow
+ * continues after the script get a run of their own that takes the batch's script output straight to the later
+ * steps ({@link ScreenerService#continueRun}), so they act on the verdict reached with the universe ranked rather
+ * than on a second evaluation without it. Those runs execute on virtual threads, at most
+ * {@code screener.runner.max-per-screener} of one batch at a time, and finish after the batch has returned.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScreenerBatchService {
+
+    /**
+     * Result of one symbol; {@code error} is set when it could not be loaded or evaluated.
+     */
+    public record SymbolResult(String symbol, boolean passed, Verdict verdict, Map<String, Object> debug, String error) {
+    }
+
+    public record BatchReport(long screenerId, String timeframe, int universe, int evaluated, int passed, int failed,
+                              boolean crossSectional, long loadMillis, long evaluateMillis, List<SymbolResult> results) {
+    }
+
+    // the later workflow steps only log signals, and they run from the batch's output after the evaluation
+    private static final SignalCallback NOOP = new SignalCallback() {
+        @Override
+        public void onEntry(ScreenerContext ctx, String... tags) { }
+
+        @Override
+        public void onExit(ScreenerContext ctx, String... tags) { }
+    };
+
+    private final ScreenerRepository screenerRepository;
+    private final ObjectMapper objectMapper;
+    private final CompiledScriptCache compiledScriptCache;
+    private final ScreenerContextLoader loader;
+    private final KotlinScriptExecutor kotlinScriptExecutor;
+    private final IndicatorMemoPool indicatorMemoPool;
+    private final IndexSymbolRepository indexSymbolRepository;
+    private final ScreenerRunBulkWriter screenerRunBulkWriter;
+    private final ScreenerRunRepository screenerRunRepository;
+    private final ScreenerRunQueue screenerRunQueue;
+    private final ScreenerService screenerService;
+
+    @Value("${screener.batch.threads:0}")
+    private int threads;
+
+    @Value("${screener.runner.max-per-screener:4}")
+    private int maxPerScreener;
+
+    private ExecutorService pool;
+    private ExecutorService continuations;
+
+    /**
+     * A passing symbol whose workflow continues after the script.
+     */
+    private record HandOff(ScreenerContext ctx, ScreenerOutput output) {
+    }
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIds = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, "screener-batch-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        continuations = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("screener-batch-run-", 1).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+        continuations.shutdownNow();
+    }
+
+    /**
+     * Run the screener over the members of an index.
+     */
+    public BatchReport runIndex(long screenerId, String indexName, @Nullable String timeframe, int nowIndex) throws InterruptedException {
+        List<String> symbols = indexSymbolRepository.findAllSymbolsByIndexName(indexName);
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("No symbols found for index " + indexName);
+        }
+        return run(screenerId, symbols, timeframe, nowIndex);
+    }
+
+    /**
+     * Run the screener over the given symbols, or its subscribed symbols when none are given.
+     */
+    public BatchReport run(long screenerId, @Nullable Collection<String> symbols, @Nullable String timeframe, int nowIndex)
+            throws InterruptedException {
+        ScreenerEntity entity = screenerRepository.findById(screenerId)
+                .orElseThrow(() -> new IllegalArgumentException("Screener not found: " + screenerId));
+        ScreenerScript script = compiledScriptCache.get(entity.getScript()).screener();
+        if (script == null) {
+            throw new IllegalArgumentException("Script of screener " + screenerId + " does not define screener(ctx, cb)");
+        }
+        Screener screener = Screener.fromEntity(entity, objectMapper);
+        Map<String, SeriesSpec> mapping = Optional.ofNullable(screener.getMapping())
+                .orElseThrow(() -> new IllegalArgumentException("Screener mapping is missing for id=" + screenerId));
+        String tf = timeframe != null && !timeframe.isBlank() ? timeframe : screener.getTimeframe();
+        Collection<String> universe = new LinkedHashSet<>(symbols != null && !symbols.isEmpty()
+                ? symbols : Optional.ofNullable(screener.getSymbols()).orElse(List.of()));
+        if (universe.isEmpty()) {
+            throw new IllegalArgumentException("No symbols to screen for screener " + screenerId);
+        }
+
+        long start = System.nanoTime();
+        ScreenerContextLoader.Batch batch = loader.loadAll(universe, mapping, nowIndex, tf);
+        CrossSection crossSection = new CrossSection();
+        List<ScreenerContext> contexts = new ArrayList<>(batch.contexts().size());
+        for (ScreenerContext ctx : batch.contexts().values()) {
+            contexts.add(ctx.toBuilder()
+                    .screener(screener)
+                    .indicatorMemo(indicatorMemoPool.newMemo())
+                    .crossSection(crossSection)
+                    .build());
+        }
+        long loaded = System.nanoTime();
+
+        List<Object> outcomes = evaluateAll(script, contexts);
+        boolean crossSectional = !crossSection.isEmpty();
+        crossSection.freeze();
+        if (crossSectional) {
+            outcomes = evaluateAll(script, contexts);
+        }
+        long evaluated = System.nanoTime();
+
+        boolean continues = Optional.ofNullable(screener.getWorkflow()).orElse(List.of(WorkflowStep.SCRIPT)).stream()
+                .anyMatch(step -> step != WorkflowStep.SCRIPT);
+        Map<String, SymbolResult> results = new LinkedHashMap<>();
+        List<HandOff> handOffs = new ArrayList<>();
+        batch.errors().forEach((symbol, error) -> results.put(symbol, new SymbolResult(symbol, false, null, Map.of(), error)));
+        for (int i = 0; i < contexts.size(); i++) {
+            String symbol = contexts.get(i).getSymbol();
+            SymbolResult result = toResult(symbol, outcomes.get(i));
+            results.put(symbol, result);
+            if (continues && result.passed()) {
+                handOffs.add(new HandOff(contexts.get(i), (ScreenerOutput) outcomes.get(i)));
+            }
+        }
+        // slot times are whole minutes, like the scheduler's
+        Instant at = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        screenerRunBulkWriter.recordAll(screenerId, tf, finished(results.values(), continues), at);
+        continueAll(screenerId, tf, handOffs, at);
+
+        int passed = (int) results.values().stream().filter(SymbolResult::passed).count();
+        int failed = (int) results.values().stream().filter(r -> r.error() != null).count();
+        BatchReport report = new BatchReport(screenerId, tf, universe.size(), contexts.size(), passed, failed,
+                crossSectional, (loaded - start) / 1_000_000, (evaluated - loaded) / 1_000_000,
+                List.copyOf(results.values()));
+        log.info("Screener batch {} on {} symbols ({}): {} passed, {} failed, load {} ms, evaluate {} ms{}", screenerId,
+                report.universe(), tf, passed, failed, report.loadMillis(), report.evaluateMillis(),
+                crossSectional ? " (cross-sectional)" : "");
+        return report;
+    }
+
+    /**
+     * @return Per context, its {@link ScreenerOutput} or the exception it failed with
+     */
+    private List<Object> evaluateAll(ScreenerScript script, List<ScreenerContext> contexts) throws InterruptedException {
+        List<Callable<ScreenerOutput>> tasks = new ArrayList<>(contexts.size());
+        for (ScreenerContext ctx : contexts) {
+            tasks.add(() -> kotlinScriptExecutor.evaluate(script, ctx, NOOP));
+        }
+        List<Object> outcomes = new ArrayList<>(contexts.size());
+        for (Future<ScreenerOutput> future : pool.invokeAll(tasks)) {
+            try {
+                outcomes.add(future.get());
+            } catch (ExecutionException e) {
+                outcomes.add(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        return outcomes;
+    }
+
+    private static SymbolResult toResult(String symbol, Object outcome) {
+        if (outcome instanceof Throwable t) {
+            return new SymbolResult(symbol, false, null, Map.of(), String.valueOf(t.getMessage()));
+        }
+        ScreenerOutput output = (ScreenerOutput) outcome;
+        if (output == null) {
+            return new SymbolResult(symbol, false, null, Map.of(), null);
+        }
+        return new SymbolResult(symbol, output.isPassed(), output.getFinalVerdict(),
+                output.getDebug() != null ? output.getDebug() : Map.of(), null);
+    }
+
+    /**
+     * @return The results that are final after the script, i.e. all but the handed-off ones
+     */
+    private static List<ScreenerRunBulkWriter.Outcome> finished(Collection<SymbolResult> results, boolean continues) {
+        List<ScreenerRunBulkWriter.Outcome> finished = new ArrayList<>();
+        for (SymbolResult result : results) {
+            if (!continues || !result.passed()) {
+                finished.add(new ScreenerRunBulkWriter.Outcome(result.symbol(), result.error() == null,
+                        result.error() == null ? result.passed() : null, result.verdict()));
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Create a RUNNING run per hand-off and run the later workflow steps of each in the background. A slot that
+     * is already taken, e.g. by a run the scheduler created for the same minute, is left to that run.
+     */
+    private void continueAll(long screenerId, String timeframe, List<HandOff> handOffs, Instant at) {
+        Semaphore permits = new Semaphore(Math.max(1, maxPerScreener));
+        for (HandOff handOff : handOffs) {
+            String symbol = handOff.ctx().getSymbol();
+            Long runId;
+            try {
+                runId = screenerRunRepository.save(ScreenerRunEntity.builder()
+                        .screenerId(screenerId)
+                        .schedulingStatus(SchedulingStatus.RUNNING)
+                        .symbol(symbol)
+                        .timeframe(timeframe)
+                        .executeAt(at)
+                        .currentState("running")
+                        .build()).getId();
+            } catch (DataIntegrityViolationException e) {
+                log.info("Screener {} already has a run for {} ({}) at {}, not continuing it from the batch",
+                        screenerId, symbol, timeframe, at);
+                continue;
+            }
+            continuations.execute(() -> continueRun(handOff, runId, permits));
+        }
+    }
+
+    private void continueRun(HandOff handOff, Long runId, Semaphore permits) {
+        boolean success = false;
+        try {
+            permits.acquire();
+            try {
+                screenerService.continueRun(handOff.ctx(), handOff.output(), runId);
+                success = true;
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Failed ScreenerRun id=" + runId + " continued from a batch: " + e.getMessage(), e);
+        } finally {
+            try {
+                screenerRunQueue.finish(runId, success ? SchedulingStatus.COMPLETE : SchedulingStatus.FAILED);
+            } catch (Exception e) {
+                log.error("Error updating ScreenerRun status for id=" + runId, e);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.dtech.algo.screener;
 
 import com.dtech.algo.screener.domain.Screener;
+import com.dtech.algo.screener.dsl.CrossSection;
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.series.IntervalBarSeries;
 import lombok.Builder;
 import lombok.Value;
@@ -27,6 +29,13 @@ public class ScreenerContext {
     // Business Screener model (parsed from entity)
     Screener screener;
 
+    // Indicators built by the DSL for this context; kept by toBuilder() copies
+    @Builder.Default
+    IndicatorMemo indicatorMemo = new IndicatorMemo();
+
+    // Metrics of all symbols of a batch run, for rank/percentile in the DSL; null outside batch runs
+    CrossSection crossSection;
+
     public BarSeries getSeries(String alias) {
         return aliases != null ? aliases.get(alias) : null;
     }
@@ -4,16 +4,21 @@ import com.dtech.algo.runner.candle.LatestBarSeriesProvider;
 import com.dtech.algo.series.IntervalBarSeries;
 import com.dtech.kitecon.controller.BarSeriesHelper;
 import com.dtech.algo.screener.enums.SeriesEnum;
+import com.dtech.kitecon.data.InstrumentLtp;
 import com.dtech.kitecon.repository.InstrumentLtpRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.BaseBarSeries;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,6 +85,68 @@ public class ScreenerContextLoader {
             aliases.put(alias, series);
         }
 
+        return newContext(baseSymbol, mapping, aliases, nowIndex, timeframe);
+    }
+
+    /**
+     * Contexts of a whole universe, and why the symbols without one could not be loaded.
+     */
+    public record Batch(Map<String, ScreenerContext> contexts, Map<String, String> errors) {
+    }
+
+    /**
+     * Build the contexts of many base symbols for the same mapping. LTPs are read with one query and the series
+     * of all symbols are fetched per interval in bulk; a symbol that cannot be resolved is reported in
+     * {@link Batch#errors()} instead of failing the others.
+     */
+    public Batch loadAll(Collection<String> baseSymbols, Map<String, SeriesSpec> mapping, int nowIndex, String timeframe) {
+        Objects.requireNonNull(mapping, "mapping must not be null");
+        Map<String, Double> ltps = new HashMap<>();
+        for (InstrumentLtp ltp : instrumentLtpRepository.findAllById(baseSymbols)) {
+            ltps.put(ltp.getTradingSymbol(), ltp.getLtp());
+        }
+
+        Map<String, String> errors = new LinkedHashMap<>();
+        Map<String, Map<String, String>> instrumentsBySymbol = new LinkedHashMap<>();
+        Map<String, Set<String>> instrumentsByInterval = new HashMap<>();
+        for (String baseSymbol : baseSymbols) {
+            if (!ltps.containsKey(baseSymbol)) {
+                errors.put(baseSymbol, "No LTP found for " + baseSymbol);
+                continue;
+            }
+            try {
+                Map<String, String> instruments = new HashMap<>();
+                for (Map.Entry<String, SeriesSpec> e : mapping.entrySet()) {
+                    String interval = e.getValue().interval().trim();
+                    String instrument = instrumentResolver.resolveInstrument(baseSymbol, e.getValue().reference(), ltps.get(baseSymbol));
+                    instruments.put(e.getKey(), instrument);
+                    instrumentsByInterval.computeIfAbsent(interval, k -> new LinkedHashSet<>()).add(instrument);
+                }
+                instrumentsBySymbol.put(baseSymbol, instruments);
+            } catch (RuntimeException ex) {
+                errors.put(baseSymbol, String.valueOf(ex.getMessage()));
+            }
+        }
+
+        Map<String, Map<String, IntervalBarSeries>> seriesByInterval = new HashMap<>();
+        for (Map.Entry<String, Set<String>> e : instrumentsByInterval.entrySet()) {
+            seriesByInterval.put(e.getKey(), barSeriesProvider.getIntervalBarSeries(e.getValue(), e.getKey()));
+        }
+
+        Map<String, ScreenerContext> contexts = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> e : instrumentsBySymbol.entrySet()) {
+            Map<String, IntervalBarSeries> aliases = new HashMap<>();
+            for (Map.Entry<String, String> alias : e.getValue().entrySet()) {
+                String interval = mapping.get(alias.getKey()).interval().trim();
+                aliases.put(alias.getKey(), seriesByInterval.get(interval).get(alias.getValue()));
+            }
+            contexts.put(e.getKey(), newContext(e.getKey(), mapping, aliases, nowIndex, timeframe));
+        }
+        return new Batch(contexts, errors);
+    }
+
+    private static ScreenerContext newContext(String baseSymbol, Map<String, SeriesSpec> mapping,
+                                              Map<String, IntervalBarSeries> aliases, int nowIndex, String timeframe) {
         Map<String, Object> params = new HashMap<>();
         params.put("mapping", mapping);
 
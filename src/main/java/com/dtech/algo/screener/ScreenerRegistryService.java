@@ -1,5 +1,6 @@
 package com.dtech.algo.screener;
 
+import com.dtech.algo.screener.kotlinrunner.CompiledScriptCache;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -7,9 +8,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
@@ -22,6 +20,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ScreenerRegistryService {
 
+    private final CompiledScriptCache compiledScriptCache;
+
     @Value("${screener.directory:screener}")
     private String screenerDir;
 
@@ -29,9 +29,6 @@ public class ScreenerRegistryService {
     private final Map<String, ScreenerScript> registry = new ConcurrentHashMap<>();
     private final Map<Long, ScreenerScript> registryById = new ConcurrentHashMap<>();
 
-    // Cached Kotlin JSR-223 engine (initialized once at startup)
-    private javax.script.ScriptEngine kotlinEngine;
-
     @PostConstruct
     public void loadScripts() {
         Path dir = Paths.get(screenerDir);
@@ -49,14 +46,7 @@ public class ScreenerRegistryService {
             log.info("No .kscr.kts scripts found under {}", dir.toAbsolutePath());
         }
 
-        // Initialize Kotlin JSR-223 engine once with the thread context ClassLoader (works with Boot/DevTools)
-        initEngineIfRequired();
-        if (this.kotlinEngine == null) {
-            log.warn("Kotlin JSR-223 engine not found on classpath. Skipping all .kscr.kts scripts under {}", dir.toAbsolutePath());
-            log.info("Screener registry initialized. Compiled: 0, total registered: {}", registry.size());
-            return;
-        }
-
+        // Unchanged scripts are loaded from the compiled-script cache instead of being recompiled
         int compiled = 0;
         for (Path p : scripts) {
             String name = deriveName(p);
@@ -98,10 +88,6 @@ public class ScreenerRegistryService {
         if(!force && registryById.containsKey(id)) {
             return;
         }
-        initEngineIfRequired();
-        if (this.kotlinEngine == null) {
-            throw new IllegalStateException("Kotlin JSR-223 engine not available on classpath.");
-        }
         try {
             ScreenerScript compiled = compileKotlinScriptFromString(code);
             if (compiled != null) {
@@ -116,25 +102,18 @@ public class ScreenerRegistryService {
 
     /**
      * Validate a screener script without registering it.
-     * Uses a fresh Kotlin engine instance to avoid any shared-state collisions.
+     * A valid script stays in the compiled-script cache, so saving and running it next does not compile again.
      *
      * @throws IllegalArgumentException if compilation fails
      */
     public void validateScript(String code) {
         try {
-            getNewEngine(ClassLoader.getSystemClassLoader()).eval(code);
+            compiledScriptCache.get(code);
         } catch (Exception e) {
             throw new IllegalArgumentException("Compilation error: " + e.getMessage(), e);
         }
     }
 
-    private void logEngineParams() {
-        System.out.println("Engine CL: " + kotlinEngine.getClass().getClassLoader());
-        System.out.println("Intrinsics CL: " + kotlin.jvm.internal.Intrinsics.class.getClassLoader());
-        System.out.println("This class CL: " + getClass().getClassLoader());
-        System.out.println("TCCL: " + Thread.currentThread().getContextClassLoader());
-    }
-
     /**
      * Renames a top-level function named 'screener' to the given unique name.
      * This is a lightweight text transform designed for typical scripts of the form:
@@ -147,18 +126,6 @@ public class ScreenerRegistryService {
         return src.replaceFirst("(?m)\\bfun\\s+screener\\s*\\(", "fun " + uniqueName + "(");
     }
 
-    private void initEngineIfRequired() {
-        if (this.kotlinEngine == null) {
-            ClassLoader tccl = ClassLoader.getSystemClassLoader();
-            this.kotlinEngine = getNewEngine(tccl);
-        }
-    }
-
-    private ScriptEngine getNewEngine(ClassLoader tccl) {
-        ScriptEngineManager manager = new ScriptEngineManager(tccl);
-        return manager.getEngineByName("kotlin");
-    }
-
     private List<Path> discoverScripts(Path dir) {
         try {
             if (!Files.exists(dir)) return List.of();
@@ -183,111 +150,47 @@ public class ScreenerRegistryService {
     }
 
     /**
-     * Compile a Kotlin script via JSR-223 from a file. The script must define:
+     * Compile a Kotlin script from a file. The script must define:
      *   fun screener(ctx: com.dtech.algo.screener.ScreenerContext, cb: com.dtech.algo.screener.SignalCallback)
      */
     private ScreenerScript compileKotlinScriptFromFile(Path scriptPath) throws Exception {
-        if (this.kotlinEngine == null) {
-            // Engine unavailability already logged at load time
-            return null;
-        }
         String code = Files.readString(scriptPath, StandardCharsets.UTF_8);
-        this.kotlinEngine.eval(code);
-        if (!(this.kotlinEngine instanceof Invocable inv)) {
-            log.warn("Kotlin engine is not Invocable. Skipping script: {}", scriptPath);
-            return null;
-        }
-        return (ctx, callback) -> {
-            try {
-                Object ret = inv.invokeFunction("screener", ctx, callback);
-                if (ret instanceof ScreenerOutput so) {
-                    return so;
-                }
-                return toOutput(ret);
-            } catch (NoSuchMethodException e) {
-                log.error("Script {} missing function 'screener(ctx, cb)'.", scriptPath.getFileName());
-                return ScreenerOutput.builder()
-                        .passed(false)
-                        .debug(Map.of("error", "Missing function screener(ctx, cb)"))
-                        .build();
-            } catch (Throwable t) {
-                log.error("Error executing script {}: {}", scriptPath.getFileName(), t.getMessage(), t);
-                return getErrorOutput(t);
-            }
-        };
+        return toScreenerScript(compiledScriptCache.get(code), scriptPath.getFileName().toString());
     }
 
     private static ScreenerOutput getErrorOutput(Throwable t) {
         return ScreenerOutput.builder()
                 .passed(false)
-                .debug(Map.of("error", t.getMessage()))
+                .debug(Map.of("error", String.valueOf(t.getMessage())))
                 .build();
     }
 
     /**
-     * Compile a Kotlin script from raw string using the same engine.
+     * Compile a Kotlin script from raw string.
      */
-    private ScreenerScript compileKotlinScriptFromString(String code) throws Exception {
-        this.kotlinEngine.eval(code);
-        if (!(this.kotlinEngine instanceof Invocable inv)) {
-            log.warn("Kotlin engine is not Invocable. Skipping code registration.");
-            return null;
-        }
-        return (ctx, callback) -> {
-            try {
-                Object ret = inv.invokeFunction("screener", ctx, callback);
-                return toOutput(ret);
-            } catch (NoSuchMethodException e) {
-                log.error("Registered script missing function 'screener(ctx, cb)'.");
-                return getErrorOutput(e);
-            } catch (Throwable t) {
-                log.error("Error executing registered script: {}", t.getMessage(), t);
-                return getErrorOutput(t);
-            }
-        };
-    }
-
-    private boolean asBool(Object v) {
-        if (v instanceof Boolean b) return b;
-        if (v instanceof Number n) return n.doubleValue() != 0.0;
-        if (v instanceof String s) return Boolean.parseBoolean(s);
-        return false;
-        }
-
-    private Double asDouble(Object v) {
-        if (v instanceof Number n) return n.doubleValue();
-        if (v instanceof String s) {
-            try { return Double.parseDouble(s); } catch (Exception ignore) {}
-        }
-        return null;
+    private ScreenerScript compileKotlinScriptFromString(String code) {
+        return toScreenerScript(compiledScriptCache.get(code), "registered script");
     }
 
     /**
-     * Convert various return types from scripts into ScreenerOutput.
-     * Supports: ScreenerOutput, Boolean, Map with "passed" flag; falls back to passed=false.
+     * Wraps the script's typed entry point so execution errors become a failed output.
      */
-    @SuppressWarnings("unchecked")
-    private ScreenerOutput toOutput(Object ret) {
-        if (ret instanceof ScreenerOutput so) return so;
-        if (ret instanceof Boolean b) {
-            return ScreenerOutput.builder().passed(b).build();
+    private ScreenerScript toScreenerScript(CompiledScriptCache.LoadedScript loaded, String label) {
+        ScreenerScript screener = loaded.screener();
+        if (screener == null) {
+            log.error("Script {} missing function 'screener(ctx, cb)'.", label);
+            return (ctx, callback) -> ScreenerOutput.builder()
+                    .passed(false)
+                    .debug(Map.of("error", "Missing function screener(ctx, cb)"))
+                    .build();
         }
-        if (ret instanceof Map<?, ?> m) {
-            boolean passed = asBool(((Map<?, ?>) m).get("passed"));
-            Map<String, Object> debug;
+        return (ctx, callback) -> {
             try {
-                debug = (Map<String, Object>) m;
-            } catch (Exception ignore) {
-                debug = Map.of();
+                return screener.evaluate(ctx, callback);
+            } catch (Throwable t) {
+                log.error("Error executing script {}: {}", label, t.getMessage(), t);
+                return getErrorOutput(t);
             }
-            return ScreenerOutput.builder()
-                    .passed(passed)
-                    .debug(debug)
-                    .build();
-        }
-        return ScreenerOutput.builder()
-                .passed(false)
-                .debug(Map.of("info", "Unsupported or null return type: " + (ret == null ? "null" : ret.getClass().getName())))
-                .build();
+        };
     }
 }
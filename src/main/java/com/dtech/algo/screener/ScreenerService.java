@@ -4,6 +4,7 @@ import com.dtech.algo.screener.db.ScreenerEntity;
 import com.dtech.algo.screener.db.ScreenerRepository;
 import com.dtech.algo.screener.domain.Screener;
 import com.dtech.algo.screener.enums.WorkflowStep;
+import com.dtech.algo.screener.kotlinrunner.CompiledScriptCache;
 import com.dtech.algo.screener.kotlinrunner.KotlinScriptExecutor;
 import com.dtech.algo.service.ChartAnalysisService;
 import com.dtech.algo.service.OpenAIScreenService;
@@ -11,12 +12,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -31,19 +36,48 @@ public class ScreenerService {
     private final KotlinScriptExecutor kotlinScriptExecutor;
     private final com.dtech.algo.screener.runtime.ScreenerRunLogService runLogService;
     private final ChartAnalysisService chartAnalysisService;
-    private final KotlinScriptExecutor registry;
-    private final Map<Long, Object> codeMap = new HashMap<>();
+    private final CompiledScriptCache compiledScriptCache;
+    private final com.dtech.algo.screener.runtime.IndicatorMemoPool indicatorMemoPool;
+
+    /**
+     * Loads the scripts of all active screeners into the compiled-script cache in the background, so the first
+     * scheduled batch after a deploy does not wait on compiles. Unchanged scripts load from the on-disk cache;
+     * jars of any other script are pruned from it afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadScripts() {
+        Thread.ofVirtual().name("screener-preload").start(() -> {
+            Instant start = Instant.now();
+            Set<String> active = new HashSet<>();
+            int loaded = 0;
+            for (ScreenerEntity entity : screenerRepository.findByDeletedFalse()) {
+                if (entity.getScript() == null || entity.getScript().isBlank()) continue;
+                active.add(compiledScriptCache.keyOf(entity.getScript()));
+                try {
+                    compiledScriptCache.get(entity.getScript());
+                    loaded++;
+                } catch (Exception e) {
+                    log.warn("Failed to preload script of screener {}: {}", entity.getId(), e.getMessage());
+                }
+            }
+            log.info("Preloaded {} screener scripts", loaded);
+            compiledScriptCache.prune(active, start);
+        });
+    }
+
     /**
      * Run the screener identified by ID for a given underlying symbol.
      */
     public void run(long screenerId, String symbol, int nowIndex, @Nullable String timeframe, @Nullable SignalCallback callback, @Nullable Long screenerRunId) throws Exception {
         // Load entity and convert to domain
-        Object script = codeMap.get(screenerId);
         ScreenerEntity entity = screenerRepository.findById(screenerId)
                 .orElseThrow(() -> new IllegalArgumentException("Screener not found: " + screenerId));
-        if(entity.getDirty() || script == null) {
-            script = registry.evalReturnObject(entity.getScript(),  null);
-            codeMap.put(screenerId, script);
+        // keyed by script text, so an edited script is compiled afresh without consulting the dirty flag
+        ScreenerScript script = compiledScriptCache.get(entity.getScript()).screener();
+        if (script == null) {
+            throw new IllegalArgumentException("Script of screener " + screenerId + " does not define screener(ctx, cb)");
+        }
+        if (Boolean.TRUE.equals(entity.getDirty())) {
             entity.setDirty(false);
             screenerRepository.save(entity);
         }
@@ -66,8 +100,32 @@ public class ScreenerService {
         ScreenerContext ctx = baseCtx.toBuilder()
                 .screener(screener)
                 .params(params)
+                .indicatorMemo(indicatorMemoPool.newMemo())
                 .build();
 
+        UnitOfWork head = new ScreenerUOW(kotlinScriptExecutor, workflowTail(screener), runLogService, script);
+        head.run(ctx);
+    }
+
+    /**
+     * Run the workflow steps after SCRIPT for an output the script already produced, logging to the given run.
+     * Batch runs use it for passing symbols, so the later steps see the verdict the script reached with the
+     * whole universe ranked instead of evaluating the script again without it.
+     *
+     * @param ctx Context the script was evaluated with, carrying the domain screener
+     */
+    public ScreenerOutput continueRun(ScreenerContext ctx, ScreenerOutput scriptOutput, long screenerRunId) {
+        var params = new java.util.HashMap<String, Object>(ctx.getParams() == null ? java.util.Map.of() : ctx.getParams());
+        params.put("screenerRunId", screenerRunId);
+        ScreenerContext runCtx = ctx.toBuilder().params(params).build();
+        ScreenerUOW head = new ScreenerUOW(kotlinScriptExecutor, workflowTail(ctx.getScreener()), runLogService, null);
+        return head.proceed(runCtx, scriptOutput);
+    }
+
+    /**
+     * @return The chain of steps after SCRIPT, or null when the script is the last step
+     */
+    private UnitOfWork workflowTail(Screener screener) {
         // Build callback chain flags via domain
         boolean hasOpenAI = Optional.ofNullable(screener.getWorkflow())
                 .orElse(List.of(WorkflowStep.SCRIPT))
@@ -89,9 +147,7 @@ public class ScreenerService {
             tail = new OpenAIUOW(screener.getPromptJson(), null, runLogService, chartAnalysisService);
         }
 
-        UnitOfWork chain = hasOpenAI ? tail : null;
-        UnitOfWork head = new ScreenerUOW(kotlinScriptExecutor, entity.getScript(), chain, runLogService, script);
-        head.run(ctx);
+        return hasOpenAI ? tail : null;
     }
 
     private OpenAIUOW getOpenAIUOW(Screener screener, UnitOfWork next) {
@@ -1,5 +1,6 @@
 package com.dtech.algo.screener;
 
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.screener.enums.WorkflowStep;
 import com.dtech.algo.screener.kotlinrunner.KotlinScriptExecutor;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -11,23 +12,29 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ScreenerUOW implements UnitOfWork {
 
-    private final KotlinScriptExecutor registry;
-    private final String code;
+    private final KotlinScriptExecutor executor;
     private final UnitOfWork next;
     private final com.dtech.algo.screener.runtime.ScreenerRunLogService runLogService;
-    private final Object entry;
+    private final ScreenerScript script;
 
     @Override
     public ScreenerOutput run(ScreenerContext ctx) {
         SignalCallback cb = next != null ? next : NOOP;
-        ScreenerOutput output = getScreenerOutput(ctx, cb);
+        return proceed(ctx, getScreenerOutput(ctx, cb));
+    }
 
+    /**
+     * Log the output of the script and run the later steps with it, as {@link #run} does after evaluating.
+     * Used directly when the script was evaluated elsewhere, e.g. by a batch that ranked the whole universe.
+     */
+    public ScreenerOutput proceed(ScreenerContext ctx, ScreenerOutput output) {
         Long runId = getRunId(ctx);
         // Log SCRIPT step output
         Map<String, Object> input = Map.of(
                 "symbol", ctx.getSymbol(),
                 "timeframe", ctx.getTimeframe(),
-                "nowIndex", ctx.getNowIndex()
+                "nowIndex", ctx.getNowIndex(),
+                "indicatorMemo", IndicatorMemo.of(ctx).stats()
         );
         runLogService.logStep(runId, WorkflowStep.SCRIPT, input, output, output != null && output.isPassed(), null);
 
@@ -54,12 +61,12 @@ public class ScreenerUOW implements UnitOfWork {
 
     private ScreenerOutput getScreenerOutput(ScreenerContext ctx, SignalCallback cb) {
         try {
-            return registry.invokeMethod(entry, "screener", ctx, cb);
-        } catch (Exception e) {
-            // Log failure as a step with error
+            return executor.evaluate(script, ctx, cb);
+        } catch (Throwable e) {
+            // Log failure as a step with error; errors thrown by scripts (e.g. StackOverflowError) included
             Long runId = getRunId(ctx);
             runLogService.logStep(runId, WorkflowStep.SCRIPT, Map.of("error", "execution-error"), Map.of("exception", e.toString()), false, e.getMessage());
-            throw new RuntimeException(e);
+            throw e;
         }
     }
 
@@ -0,0 +1,170 @@
+package com.dtech.algo.screener.db;
+
+import com.dtech.algo.screener.enums.SchedulingStatus;
+import com.dtech.algo.screener.enums.Verdict;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Schedules screener runs with multi-row {@code INSERT IGNORE} on the
+ * {@code (screener_id, symbol, timeframe, execute_at)} unique key: slots that already exist, including ones
+ * another instance scheduled concurrently, are skipped by the database instead of checked one by one.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ScreenerRunBulkWriter {
+
+    /**
+     * One run to schedule.
+     */
+    public record Slot(long screenerId, String symbol, String timeframe) {
+    }
+
+    private static final String INSERT = "INSERT IGNORE INTO screener_run "
+            + "(screener_id, scheduling_status, symbol, timeframe, execute_at, current_state, created_at, updated_at) VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?,?)";
+
+    /**
+     * A run evaluated in place by a batch, recorded as already finished.
+     */
+    public record Outcome(String symbol, boolean success, Boolean passed, Verdict verdict) {
+    }
+
+    private static final String RECORD = "INSERT INTO screener_run "
+            + "(screener_id, scheduling_status, symbol, timeframe, execute_at, current_state, final_passed, final_verdict, "
+            + "created_at, updated_at) VALUES ";
+    private static final String RECORD_ROW = "(?,?,?,?,?,?,?,?,?,?)";
+    /**
+     * A slot that already finished takes the batch's outcome; one still SCHEDULED or RUNNING is left to the
+     * runner. The status is assigned last, as MySQL evaluates the assignments in order and the earlier ones must
+     * see the row's current status.
+     */
+    private static final String FINISHED = "screener_run.scheduling_status IN ('" + SchedulingStatus.COMPLETE.name()
+            + "', '" + SchedulingStatus.FAILED.name() + "')";
+    private static final String RECORD_UPDATE = " AS new ON DUPLICATE KEY UPDATE "
+            + "current_state = IF(" + FINISHED + ", new.current_state, screener_run.current_state), "
+            + "final_passed = IF(" + FINISHED + ", new.final_passed, screener_run.final_passed), "
+            + "final_verdict = IF(" + FINISHED + ", new.final_verdict, screener_run.final_verdict), "
+            + "updated_at = IF(" + FINISHED + ", new.updated_at, screener_run.updated_at), "
+            + "scheduling_status = IF(" + FINISHED + ", new.scheduling_status, screener_run.scheduling_status)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${screener.scheduler.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Insert a SCHEDULED run for each slot at {@code executeAt}.
+     *
+     * @return Number of runs created; slots already scheduled are not counted
+     */
+    public int scheduleAll(Collection<Slot> slots, Instant executeAt) {
+        if (slots.isEmpty()) {
+            return 0;
+        }
+        List<Slot> all = List.copyOf(slots);
+        int size = Math.max(1, batchSize);
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int created = 0;
+            for (int from = 0; from < all.size(); from += size) {
+                created += insertBatch(connection, all.subList(from, Math.min(all.size(), from + size)), executeAt);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Record the finished runs of a batch with multi-row inserts; a slot that already finished takes the batch's
+     * status and verdict, while one the scheduler or runner still holds as SCHEDULED or RUNNING is left alone.
+     *
+     * @return Number of affected rows as reported by the driver
+     */
+    public int recordAll(long screenerId, String timeframe, Collection<Outcome> outcomes, Instant executeAt) {
+        if (outcomes.isEmpty()) {
+            return 0;
+        }
+        List<Outcome> all = List.copyOf(outcomes);
+        int size = Math.max(1, batchSize);
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int affected = 0;
+            for (int from = 0; from < all.size(); from += size) {
+                affected += recordBatch(connection, screenerId, timeframe,
+                        all.subList(from, Math.min(all.size(), from + size)), executeAt);
+            }
+            return affected;
+        });
+    }
+
+    private int recordBatch(Connection connection, long screenerId, String timeframe, List<Outcome> batch,
+                            Instant executeAt) throws SQLException {
+        String sql = statement(RECORD, RECORD_ROW, batch.size()) + RECORD_UPDATE;
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp at = Timestamp.from(executeAt);
+        Timestamp now = Timestamp.from(Instant.now());
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int p = 1;
+            for (Outcome outcome : batch) {
+                SchedulingStatus status = outcome.success() ? SchedulingStatus.COMPLETE : SchedulingStatus.FAILED;
+                ps.setLong(p++, screenerId);
+                ps.setString(p++, status.name());
+                ps.setString(p++, outcome.symbol());
+                ps.setString(p++, timeframe);
+                ps.setTimestamp(p++, at, utc);
+                ps.setString(p++, status.name().toLowerCase());
+                ps.setObject(p++, outcome.passed(), Types.BOOLEAN);
+                ps.setString(p++, outcome.verdict() != null ? outcome.verdict().name() : null);
+                ps.setTimestamp(p++, now, utc);
+                ps.setTimestamp(p++, now, utc);
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    private static String statement(String insert, String row, int rows) {
+        StringBuilder sql = new StringBuilder(insert.length() + rows * (row.length() + 1));
+        sql.append(insert);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+    private int insertBatch(Connection connection, List<Slot> batch, Instant executeAt) throws SQLException {
+        String sql = statement(INSERT, ROW, batch.size());
+        // same binding Hibernate uses for Instant columns (UTC)
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp at = Timestamp.from(executeAt);
+        Timestamp now = Timestamp.from(Instant.now());
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int p = 1;
+            for (Slot slot : batch) {
+                ps.setLong(p++, slot.screenerId());
+                ps.setString(p++, SchedulingStatus.SCHEDULED.name());
+                ps.setString(p++, slot.symbol());
+                ps.setString(p++, slot.timeframe());
+                ps.setTimestamp(p++, at, utc);
+                ps.setString(p++, "scheduled");
+                ps.setTimestamp(p++, now, utc);
+                ps.setTimestamp(p++, now, utc);
+            }
+            return ps.executeUpdate();
+        }
+    }
+}
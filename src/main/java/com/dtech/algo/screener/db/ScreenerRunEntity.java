@@ -12,6 +12,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "screener_run",
+        uniqueConstraints = @UniqueConstraint(name = "uk_screener_run_slot",
+                columnNames = {"screener_id", "symbol", "timeframe", "execute_at"}),
         indexes = {
                 @Index(name = "idx_screener_run_screener_id", columnList = "screener_id"),
                 @Index(name = "idx_screener_run_symbol", columnList = "symbol"),
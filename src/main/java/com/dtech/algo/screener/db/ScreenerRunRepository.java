@@ -1,9 +1,13 @@
 package com.dtech.algo.screener.db;
 import com.dtech.algo.screener.enums.SchedulingStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,7 +20,15 @@ public interface ScreenerRunRepository extends JpaRepository<ScreenerRunEntity,
     List<ScreenerRunEntity> findTop200BySchedulingStatusAndExecuteAtLessThanEqualOrderByExecuteAtAsc(
             SchedulingStatus status, Instant now);
 
-    // Avoid duplicates for the same screener/symbol/timeframe/executeAt
-    boolean existsByScreenerIdAndSymbolAndTimeframeAndExecuteAt(
-            Long screenerId, String symbol, String timeframe, Instant executeAt);
+    // Due runs locked for the calling transaction; rows locked by another instance are skipped, not waited on
+    @Query(value = "SELECT * FROM screener_run WHERE scheduling_status = 'SCHEDULED' AND execute_at <= :now "
+            + "ORDER BY execute_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ScreenerRunEntity> lockDueRuns(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Status transition that leaves the other columns (final verdict etc.) alone
+    @Modifying
+    @Query("UPDATE ScreenerRunEntity r SET r.schedulingStatus = :status, r.currentState = :state, r.updatedAt = :now "
+            + "WHERE r.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") SchedulingStatus status,
+                     @Param("state") String state, @Param("now") Instant now);
 }
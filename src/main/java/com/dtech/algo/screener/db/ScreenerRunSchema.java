@@ -0,0 +1,66 @@
+package com.dtech.algo.screener.db;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure {@code screener_run} carries the {@code uk_screener_run_slot} unique key that
+ * {@link ScreenerRunBulkWriter} relies on. {@code ddl-auto=update} only logs an error when an existing table
+ * already holds duplicate slots, so on startup duplicates are removed (the oldest run of each slot is kept,
+ * together with its units of work) and the key is added explicitly. Until the key is in place the scheduler
+ * does not schedule, since {@code INSERT IGNORE} would not deduplicate anything.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScreenerRunSchema {
+
+    static final String SLOT_KEY = "uk_screener_run_slot";
+
+    private static final String KEY_EXISTS = "SELECT COUNT(*) FROM information_schema.statistics "
+            + "WHERE table_schema = DATABASE() AND table_name = 'screener_run' AND index_name = ?";
+    private static final String DUPLICATE_JOIN = "JOIN screener_run keep ON keep.screener_id = r.screener_id "
+            + "AND keep.symbol = r.symbol AND keep.timeframe = r.timeframe AND keep.execute_at = r.execute_at "
+            + "AND keep.id < r.id";
+    private static final String DELETE_DUPLICATE_UOWS = "DELETE u FROM screener_uow u "
+            + "JOIN screener_run r ON u.screener_run_id = r.id " + DUPLICATE_JOIN;
+    private static final String DELETE_DUPLICATE_RUNS = "DELETE r FROM screener_run r " + DUPLICATE_JOIN;
+    private static final String ADD_KEY = "ALTER TABLE screener_run ADD CONSTRAINT " + SLOT_KEY
+            + " UNIQUE (screener_id, symbol, timeframe, execute_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean slotKeyPresent;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSlotKey() {
+        try {
+            if (!hasSlotKey()) {
+                int uows = jdbcTemplate.update(DELETE_DUPLICATE_UOWS);
+                int runs = jdbcTemplate.update(DELETE_DUPLICATE_RUNS);
+                jdbcTemplate.execute(ADD_KEY);
+                log.info("Added {} to screener_run after removing {} duplicate runs ({} units of work)",
+                        SLOT_KEY, runs, uows);
+            }
+            slotKeyPresent = hasSlotKey();
+        } catch (Exception e) {
+            log.error("Failed to ensure {} on screener_run; scheduling stays disabled: {}", SLOT_KEY, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Whether the startup check found (or added) the slot key
+     */
+    public boolean isSlotKeyPresent() {
+        return slotKeyPresent;
+    }
+
+    private boolean hasSlotKey() {
+        Integer count = jdbcTemplate.queryForObject(KEY_EXISTS, Integer.class, SLOT_KEY);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.dtech.algo.screener.db;
+
+import com.dtech.algo.screener.enums.WorkflowStep;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Writes run-log steps with one multi-row {@code INSERT} per batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ScreenerUowBulkWriter {
+
+    /**
+     * One screener_uow row.
+     */
+    public record Row(long runId, WorkflowStep step, String inputJson, String outputJson, Boolean success,
+                      String errorMessage, Instant createdAt) {
+    }
+
+    /**
+     * Length of the {@code error_message} column; longer messages have to be cut before they are written.
+     */
+    public static final int ERROR_MESSAGE_LENGTH = 8192;
+
+    private static final String INSERT = "INSERT INTO screener_uow "
+            + "(screener_run_id, step_type, input_json, output_json, success, error_message, created_at) VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return Number of rows inserted
+     */
+    public int insertAll(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + rows.size() * (ROW.length() + 1));
+        sql.append(INSERT);
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW);
+        }
+        // same binding Hibernate uses for Instant columns (UTC)
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (Row row : rows) {
+                    ps.setLong(p++, row.runId());
+                    ps.setString(p++, row.step().name());
+                    ps.setString(p++, row.inputJson());
+                    ps.setString(p++, row.outputJson());
+                    if (row.success() == null) {
+                        ps.setNull(p++, Types.BOOLEAN);
+                    } else {
+                        ps.setBoolean(p++, row.success());
+                    }
+                    ps.setString(p++, row.errorMessage());
+                    ps.setTimestamp(p++, Timestamp.from(row.createdAt()), utc);
+                }
+                return ps.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.dtech.algo.screener.dsl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values of named metrics across the symbols of one batch run, so a script can rank a symbol against its universe.
+ * <p>
+ * While collecting, every evaluation records its metrics ({@link KDsl#metric}). {@link #freeze()} then sorts
+ * each metric once, and {@link #rank}/{@link #percentile} answer by binary search during the second evaluation.
+ * Until then, and in contexts without a cross-section, rank is 0 and percentile NaN.
+ */
+public final class CrossSection {
+
+    private final Map<String, Map<String, Double>> values = new ConcurrentHashMap<>();
+    private volatile Map<String, double[]> sorted;
+
+    public boolean isCollecting() {
+        return sorted == null;
+    }
+
+    /**
+     * @return Whether any metric was recorded, i.e. whether a ranking evaluation is needed at all
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Record the value of a metric for a symbol; NaN values and values recorded after {@link #freeze()} are ignored.
+     */
+    public void record(String metric, String symbol, double value) {
+        if (!isCollecting() || Double.isNaN(value)) {
+            return;
+        }
+        values.computeIfAbsent(metric, k -> new ConcurrentHashMap<>()).put(symbol, value);
+    }
+
+    /**
+     * Stop collecting and sort every metric for ranking.
+     */
+    public synchronized void freeze() {
+        if (!isCollecting()) {
+            return;
+        }
+        Map<String, double[]> frozen = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> e : values.entrySet()) {
+            double[] all = e.getValue().values().stream().mapToDouble(Double::doubleValue).toArray();
+            Arrays.sort(all);
+            frozen.put(e.getKey(), all);
+        }
+        sorted = frozen;
+    }
+
+    /**
+     * @return The recorded value, or NaN
+     */
+    public double value(String metric, String symbol) {
+        Map<String, Double> bySymbol = values.get(metric);
+        Double value = bySymbol != null ? bySymbol.get(symbol) : null;
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * @return 1 for the highest value of the metric, ties sharing the better rank; 0 if unknown or still collecting
+     */
+    public int rank(String metric, String symbol) {
+        double[] all = sortedValues(metric);
+        double value = value(metric, symbol);
+        if (all == null || Double.isNaN(value)) {
+            return 0;
+        }
+        return all.length - firstAbove(all, value) + 1;
+    }
+
+    /**
+     * @return Share of the other symbols with a lower value, from 0 (lowest) to 100 (highest); NaN if unknown
+     */
+    public double percentile(String metric, String symbol) {
+        double[] all = sortedValues(metric);
+        double value = value(metric, symbol);
+        if (all == null || Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        if (all.length == 1) {
+            return 100.0;
+        }
+        return 100.0 * firstAtLeast(all, value) / (all.length - 1);
+    }
+
+    /**
+     * @return Number of symbols with a value for the metric
+     */
+    public int size(String metric) {
+        Map<String, Double> bySymbol = values.get(metric);
+        return bySymbol != null ? bySymbol.size() : 0;
+    }
+
+    private double[] sortedValues(String metric) {
+        Map<String, double[]> frozen = sorted;
+        return frozen != null ? frozen.get(metric) : null;
+    }
+
+    private static int firstAtLeast(double[] all, double value) {
+        int lo = 0, hi = all.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (all[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int firstAbove(double[] all, double value) {
+        int lo = 0, hi = all.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (all[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
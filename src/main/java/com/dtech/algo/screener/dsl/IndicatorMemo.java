@@ -0,0 +1,151 @@
+package com.dtech.algo.screener.dsl;
+
+import com.dtech.algo.screener.ScreenerContext;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Memo of the indicators a screener context asks the DSL for, so {@code rsi(14)} used in three conditions is
+ * built and warmed up once.
+ * <p>
+ * Two levels: the {@link KDsl.SeriesExpr}s of this context, keyed by (alias, indicator, params), and the ta4j
+ * indicators behind them, keyed by (series, indicator, params) in a store that may be shared with other contexts
+ * (see {@code IndicatorMemoPool}). An indicator is bound to the series object it was built on, so the series part
+ * of the key is that object's identity together with its bar range, last end time and last close: runs handed
+ * the same shared series reuse each other's indicators, while another series object, a new bar or a live update
+ * of the last bar misses. Shared indicators are evaluated under a per-entry lock, as ta4j's cached indicators are
+ * not thread-safe.
+ */
+public final class IndicatorMemo {
+
+    private final Map<Object, IntToDoubleFunction[]> shared;
+    private final Map<Object, Memoized> exprs = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * A memo private to one context.
+     */
+    public IndicatorMemo() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param shared Indicator store shared with other contexts
+     */
+    public IndicatorMemo(Map<Object, IntToDoubleFunction[]> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * @return The memo of {@code ctx}, or a throwaway one if the context has none
+     */
+    public static IndicatorMemo of(ScreenerContext ctx) {
+        IndicatorMemo memo = ctx.getIndicatorMemo();
+        return memo != null ? memo : new IndicatorMemo();
+    }
+
+    public KDsl.SeriesExpr series(ScreenerContext ctx, String alias, BarSeries series, String indicator, List<?> params,
+                                  Function<BarSeries, IntToDoubleFunction> build) {
+        return seriesGroup(ctx, alias, series, indicator, params, s -> new IntToDoubleFunction[]{build.apply(s)})[0];
+    }
+
+    /**
+     * Indicators with several outputs (e.g. MACD line, signal and histogram) are memoized together.
+     */
+    public KDsl.SeriesExpr[] seriesGroup(ScreenerContext ctx, String alias, BarSeries series, String indicator, List<?> params,
+                                         Function<BarSeries, IntToDoubleFunction[]> build) {
+        List<Object> localKey = List.of(alias, indicator, params);
+        Memoized found = exprs.get(localKey);
+        if (found != null) {
+            hits.increment();
+            return found.exprs();
+        }
+        boolean[] built = new boolean[1];
+        IntToDoubleFunction[] values = shared.computeIfAbsent(List.of(seriesKey(series), indicator, params), k -> {
+            built[0] = true;
+            return guarded(build.apply(series));
+        });
+        (built[0] ? misses : hits).increment();
+        KDsl.SeriesExpr[] created = new KDsl.SeriesExpr[values.length];
+        for (int i = 0; i < values.length; i++) {
+            created[i] = KDsl.SeriesExpr.of(ctx, alias, values[i]);
+        }
+        found = exprs.putIfAbsent(localKey, new Memoized(created, values));
+        return found != null ? found.exprs() : created;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits, misses and hit rate, as reported in the run log
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", h + m == 0 ? 0.0 : Math.round(h * 1000.0 / (h + m)) / 1000.0);
+        return stats;
+    }
+
+    private static IntToDoubleFunction[] guarded(IntToDoubleFunction[] values) {
+        Object lock = new Object();
+        IntToDoubleFunction[] guarded = new IntToDoubleFunction[values.length];
+        for (int i = 0; i < values.length; i++) {
+            IntToDoubleFunction value = values[i];
+            guarded[i] = index -> {
+                synchronized (lock) {
+                    return value.applyAsDouble(index);
+                }
+            };
+        }
+        return guarded;
+    }
+
+    private static Object seriesKey(BarSeries series) {
+        if (series.isEmpty()) {
+            return new SeriesKey(new Identity(series), series.getBeginIndex(), series.getEndIndex(), null, Double.NaN);
+        }
+        Bar last = series.getLastBar();
+        return new SeriesKey(new Identity(series), series.getBeginIndex(), series.getEndIndex(), last.getEndTime(),
+                last.getClosePrice().doubleValue());
+    }
+
+    /**
+     * The expressions of one local key, holding on to the shared indicators behind them so a store with weak
+     * values keeps them while this context is in use.
+     */
+    private record Memoized(KDsl.SeriesExpr[] exprs, IntToDoubleFunction[] values) {
+    }
+
+    private record SeriesKey(Identity series, int beginIndex, int endIndex, Object lastEnd, double lastClose) {
+    }
+
+    private record Identity(Object target) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity other && other.target == target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(target);
+        }
+    }
+}
@@ -66,6 +66,29 @@ public class KDsl {
     public Bands.BandsTriple bbands(int period, double mult) { return bbands(defaultAlias, period, mult); }
     public Bands.BandsTriple bbands(String alias, int period, double mult) { return Bands.bbands(ctx, alias, period, mult); }
 
+    // --- Cross-section (batch runs): record a metric in the first pass, rank against the universe in the second ---
+    public double metric(String name, double value) {
+        CrossSection cs = ctx.getCrossSection();
+        if (cs != null) cs.record(name, ctx.getSymbol(), value);
+        return value;
+    }
+    public double metric(String name, SeriesExpr expr) { return metric(name, expr.now()); }
+
+    public int rank(String name) {
+        CrossSection cs = ctx.getCrossSection();
+        return cs != null ? cs.rank(name, ctx.getSymbol()) : 0;
+    }
+
+    public double percentile(String name) {
+        CrossSection cs = ctx.getCrossSection();
+        return cs != null ? cs.percentile(name, ctx.getSymbol()) : Double.NaN;
+    }
+
+    public int universeSize(String name) {
+        CrossSection cs = ctx.getCrossSection();
+        return cs != null ? cs.size(name) : 0;
+    }
+
     // --- Emission helpers (fire-and-forget) ---
     public void entryIf(boolean condition, String... tags) {
         if (condition && callback != null) {
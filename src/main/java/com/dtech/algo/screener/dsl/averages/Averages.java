@@ -1,28 +1,35 @@
 package com.dtech.algo.screener.dsl.averages;
 
 import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.screener.dsl.KDsl;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.indicators.averages.EMAIndicator;
 import org.ta4j.core.indicators.averages.SMAIndicator;
 import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
 
+import java.util.List;
+
 public final class Averages {
     private Averages() {}
 
     public static KDsl.SeriesExpr sma(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        SMAIndicator ind = new SMAIndicator(close, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> ind.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "sma", List.of(period), s -> {
+            ClosePriceIndicator close = new ClosePriceIndicator(s);
+            SMAIndicator ind = new SMAIndicator(close, period);
+            return i -> ind.getValue(i).doubleValue();
+        });
     }
 
     public static KDsl.SeriesExpr ema(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        EMAIndicator ind = new EMAIndicator(close, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> ind.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "ema", List.of(period), s -> {
+            ClosePriceIndicator close = new ClosePriceIndicator(s);
+            EMAIndicator ind = new EMAIndicator(close, period);
+            return i -> ind.getValue(i).doubleValue();
+        });
     }
 }
@@ -1,6 +1,7 @@
 package com.dtech.algo.screener.dsl.bands;
 
 import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.screener.dsl.KDsl;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.indicators.averages.SMAIndicator;
@@ -11,6 +12,9 @@ import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
 import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
 import org.ta4j.core.num.DecimalNum;
 
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
 public final class Bands {
     private Bands() {}
 
@@ -20,17 +24,20 @@ public final class Bands {
             KDsl.SeriesExpr nan = KDsl.SeriesExpr.nan(ctx);
             return new BandsTriple(nan, nan, nan);
         }
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        SMAIndicator sma = new SMAIndicator(close, period);
-        StandardDeviationIndicator std = new StandardDeviationIndicator(close, period);
-        BollingerBandsMiddleIndicator mid = new BollingerBandsMiddleIndicator(sma);
-        BollingerBandsUpperIndicator up = new BollingerBandsUpperIndicator(mid, std, DecimalNum.valueOf(mult));
-        BollingerBandsLowerIndicator lo = new BollingerBandsLowerIndicator(mid, std, DecimalNum.valueOf(mult));
-
-        KDsl.SeriesExpr midE = KDsl.SeriesExpr.of(ctx, alias, i -> mid.getValue(i).doubleValue());
-        KDsl.SeriesExpr upE = KDsl.SeriesExpr.of(ctx, alias, i -> up.getValue(i).doubleValue());
-        KDsl.SeriesExpr loE = KDsl.SeriesExpr.of(ctx, alias, i -> lo.getValue(i).doubleValue());
-        return new BandsTriple(midE, upE, loE);
+        KDsl.SeriesExpr[] exprs = IndicatorMemo.of(ctx).seriesGroup(ctx, alias, series, "bbands", List.of(period, mult), s -> {
+            ClosePriceIndicator close = new ClosePriceIndicator(s);
+            SMAIndicator sma = new SMAIndicator(close, period);
+            StandardDeviationIndicator std = new StandardDeviationIndicator(close, period);
+            BollingerBandsMiddleIndicator mid = new BollingerBandsMiddleIndicator(sma);
+            BollingerBandsUpperIndicator up = new BollingerBandsUpperIndicator(mid, std, DecimalNum.valueOf(mult));
+            BollingerBandsLowerIndicator lo = new BollingerBandsLowerIndicator(mid, std, DecimalNum.valueOf(mult));
+            return new IntToDoubleFunction[]{
+                    i -> mid.getValue(i).doubleValue(),
+                    i -> up.getValue(i).doubleValue(),
+                    i -> lo.getValue(i).doubleValue()
+            };
+        });
+        return new BandsTriple(exprs[0], exprs[1], exprs[2]);
     }
 
     public static final class BandsTriple {
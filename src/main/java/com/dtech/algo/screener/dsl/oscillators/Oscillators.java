@@ -1,6 +1,7 @@
 package com.dtech.algo.screener.dsl.oscillators;
 
 import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.screener.dsl.KDsl;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.indicators.RSIIndicator;
@@ -8,15 +9,19 @@ import org.ta4j.core.indicators.averages.SMAIndicator;
 import org.ta4j.core.indicators.StochasticOscillatorKIndicator;
 import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
 
+import java.util.List;
+
 public final class Oscillators {
     private Oscillators() {}
 
     public static KDsl.SeriesExpr rsi(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        RSIIndicator ind = new RSIIndicator(close, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> ind.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "rsi", List.of(period), s -> {
+            ClosePriceIndicator close = new ClosePriceIndicator(s);
+            RSIIndicator ind = new RSIIndicator(close, period);
+            return i -> ind.getValue(i).doubleValue();
+        });
     }
 
     /**
@@ -25,11 +30,13 @@ public final class Oscillators {
     public static KDsl.SeriesExpr stochK(ScreenerContext ctx, String alias, int kPeriod, int smoothK) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        StochasticOscillatorKIndicator k = new StochasticOscillatorKIndicator(series, kPeriod);
-        if (smoothK <= 1) {
-            return KDsl.SeriesExpr.of(ctx, alias, i -> k.getValue(i).doubleValue());
-        }
-        SMAIndicator smoothed = new SMAIndicator(k, smoothK);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> smoothed.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "stochK", List.of(kPeriod, smoothK), s -> {
+            StochasticOscillatorKIndicator k = new StochasticOscillatorKIndicator(s, kPeriod);
+            if (smoothK <= 1) {
+                return i -> k.getValue(i).doubleValue();
+            }
+            SMAIndicator smoothed = new SMAIndicator(k, smoothK);
+            return i -> smoothed.getValue(i).doubleValue();
+        });
     }
 }
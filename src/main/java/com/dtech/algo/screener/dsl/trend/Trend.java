@@ -1,6 +1,7 @@
 package com.dtech.algo.screener.dsl.trend;
 
 import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.dsl.IndicatorMemo;
 import com.dtech.algo.screener.dsl.KDsl;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.indicators.MACDIndicator;
@@ -10,6 +11,9 @@ import org.ta4j.core.indicators.adx.PlusDIIndicator;
 import org.ta4j.core.indicators.averages.EMAIndicator;
 import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
 
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
 public final class Trend {
     private Trend() {}
 
@@ -19,34 +23,44 @@ public final class Trend {
             KDsl.SeriesExpr nan = KDsl.SeriesExpr.nan(ctx);
             return new Macd(nan, nan, nan);
         }
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        MACDIndicator macd = new MACDIndicator(close, fast, slow);
-        EMAIndicator sig = new EMAIndicator(macd, signal);
-        KDsl.SeriesExpr macdExpr = KDsl.SeriesExpr.of(ctx, alias, i -> macd.getValue(i).doubleValue());
-        KDsl.SeriesExpr sigExpr = KDsl.SeriesExpr.of(ctx, alias, i -> sig.getValue(i).doubleValue());
-        KDsl.SeriesExpr histExpr = KDsl.SeriesExpr.of(ctx, alias, i -> macd.getValue(i).minus(sig.getValue(i)).doubleValue());
-        return new Macd(macdExpr, sigExpr, histExpr);
+        KDsl.SeriesExpr[] exprs = IndicatorMemo.of(ctx).seriesGroup(ctx, alias, series, "macd", List.of(fast, slow, signal), s -> {
+            ClosePriceIndicator close = new ClosePriceIndicator(s);
+            MACDIndicator macd = new MACDIndicator(close, fast, slow);
+            EMAIndicator sig = new EMAIndicator(macd, signal);
+            return new IntToDoubleFunction[]{
+                    i -> macd.getValue(i).doubleValue(),
+                    i -> sig.getValue(i).doubleValue(),
+                    i -> macd.getValue(i).minus(sig.getValue(i)).doubleValue()
+            };
+        });
+        return new Macd(exprs[0], exprs[1], exprs[2]);
     }
 
     public static KDsl.SeriesExpr adx(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        ADXIndicator adx = new ADXIndicator(series, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> adx.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "adx", List.of(period), s -> {
+            ADXIndicator adx = new ADXIndicator(s, period);
+            return i -> adx.getValue(i).doubleValue();
+        });
     }
 
     public static KDsl.SeriesExpr diPlus(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        PlusDIIndicator di = new PlusDIIndicator(series, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> di.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "diPlus", List.of(period), s -> {
+            PlusDIIndicator di = new PlusDIIndicator(s, period);
+            return i -> di.getValue(i).doubleValue();
+        });
     }
 
     public static KDsl.SeriesExpr diMinus(ScreenerContext ctx, String alias, int period) {
         BarSeries series = ctx.getSeries(alias);
         if (series == null) return KDsl.SeriesExpr.nan(ctx);
-        MinusDIIndicator di = new MinusDIIndicator(series, period);
-        return KDsl.SeriesExpr.of(ctx, alias, i -> di.getValue(i).doubleValue());
+        return IndicatorMemo.of(ctx).series(ctx, alias, series, "diMinus", List.of(period), s -> {
+            MinusDIIndicator di = new MinusDIIndicator(s, period);
+            return i -> di.getValue(i).doubleValue();
+        });
     }
 
     public static final class Macd {
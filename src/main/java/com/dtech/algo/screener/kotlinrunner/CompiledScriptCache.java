@@ -0,0 +1,369 @@
+package com.dtech.algo.screener.kotlinrunner;
+
+import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.ScreenerOutput;
+import com.dtech.algo.screener.ScreenerScript;
+import com.dtech.algo.screener.SignalCallback;
+import com.dtech.algo.screener.dsl.KDsl;
+import com.dtech.algo.screener.script.ScreenerScriptCompiler;
+import com.dtech.algo.screener.script.ScreenerScriptConfig;
+import jakarta.annotation.PostConstruct;
+import com.google.common.cache.CacheBuilder;
+import kotlin.KotlinVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Compiled screener scripts keyed by the SHA-256 of the DSL version and the script text.
+ * <p>
+ * Compiled class files are kept as one jar per key under {@code screener.script-cache.directory}, so after a
+ * restart a script is defined from its jar by a dedicated class loader instead of being recompiled. Each key is
+ * compiled at most once at a time; concurrent callers of the same script wait for that compile. A change to the
+ * script text or to any class of the DSL packages changes the key, so stale entries are never loaded. At most
+ * {@code screener.script-cache.max-entries} scripts stay loaded in memory, least recently used first out; an
+ * evicted script is defined again from its jar on the next use. Jars of scripts that are no longer active, or
+ * that were compiled against an older DSL, stay on disk until {@link #prune} removes them.
+ */
+@Component
+@Slf4j
+public class CompiledScriptCache {
+
+    private static final String RESULT_FIELD = "Screener-Result-Field";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * Script classes the DSL is compiled against outside the DSL packages; their bytecode is part of every key.
+     */
+    private static final Class<?>[] DSL_CLASSES = {
+            ScreenerContext.class, SignalCallback.class, ScreenerOutput.class, ScreenerScriptConfig.class
+    };
+
+    /**
+     * Packages whose classes scripts see, including the indicator families under the DSL package; the bytecode of
+     * every class in them is part of every key.
+     */
+    private static final String[] DSL_PACKAGES = {
+            KDsl.class.getPackageName(), ScreenerScriptConfig.class.getPackageName()
+    };
+
+    /**
+     * An evaluated script.
+     *
+     * @param key      Cache key
+     * @param script   Script instance; top level functions are its methods
+     * @param entry    Value of the script's trailing expression, or the script itself if it has none
+     * @param screener Typed {@code screener(ctx, cb)} of the entry, null if it defines none
+     */
+    public record LoadedScript(String key, Object script, Object entry, ScreenerScript screener) {
+    }
+
+    @Value("${screener.script-cache.directory:script-cache}")
+    private String cacheDir;
+
+    @Value("${screener.script-cache.max-entries:500}")
+    private int maxEntries;
+
+    private ConcurrentMap<String, CompletableFuture<LoadedScript>> scripts;
+    private String dslVersion;
+
+    @PostConstruct
+    public void init() {
+        scripts = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, maxEntries))
+                .<String, CompletableFuture<LoadedScript>>build()
+                .asMap();
+        dslVersion = computeDslVersion();
+        try {
+            Files.createDirectories(Paths.get(cacheDir));
+        } catch (IOException e) {
+            log.warn("Cannot create script cache directory {}: {}", cacheDir, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the evaluated script, loading it from disk or compiling it when it is not in memory yet.
+     *
+     * @throws IllegalArgumentException if the script does not compile
+     */
+    public LoadedScript get(String code) {
+        String key = keyOf(code);
+        CompletableFuture<LoadedScript> created = new CompletableFuture<>();
+        CompletableFuture<LoadedScript> existing = scripts.putIfAbsent(key, created);
+        if (existing == null) {
+            try {
+                created.complete(load(key, code));
+            } catch (RuntimeException | Error e) {
+                // let the next caller retry, e.g. after the script is fixed
+                scripts.remove(key, created);
+                created.completeExceptionally(e);
+            }
+            existing = created;
+        }
+        try {
+            return existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for script " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return SHA-256 hex of the DSL version and the script text
+     */
+    public String keyOf(String code) {
+        MessageDigest digest = sha256();
+        digest.update(dslVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(code.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public int size() {
+        return scripts.size();
+    }
+
+    /**
+     * Delete the jars, and leftover temporary files, of every key not in {@code keep}. Files modified at or after
+     * {@code before} are kept, so a script compiled while the active keys were being collected survives.
+     *
+     * @return Number of files deleted
+     */
+    public int prune(Set<String> keep, Instant before) {
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(Paths.get(cacheDir))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                boolean jar = name.endsWith(JAR_SUFFIX);
+                if (!jar && !name.endsWith(TMP_SUFFIX)) {
+                    continue;
+                }
+                if (jar && keep.contains(name.substring(0, name.length() - JAR_SUFFIX.length()))) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(before) && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Cannot prune compiled script {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Cannot list script cache directory {}: {}", cacheDir, e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Pruned {} compiled scripts no longer in use from {}", deleted, cacheDir);
+        }
+        return deleted;
+    }
+
+    private LoadedScript load(String key, String code) {
+        Path jar = Paths.get(cacheDir, key + JAR_SUFFIX);
+        if (Files.isRegularFile(jar)) {
+            try {
+                long start = System.nanoTime();
+                LoadedScript script = instantiate(key, readJar(jar));
+                log.debug("Loaded compiled script {} from disk in {} ms", key, (System.nanoTime() - start) / 1_000_000);
+                return script;
+            } catch (IOException | LinkageError | ReflectiveOperationException e) {
+                log.warn("Discarding unusable compiled script {}: {}", jar, e.toString());
+            }
+        }
+        long start = System.nanoTime();
+        ScreenerScriptCompiler.Output output = ScreenerScriptCompiler.compile(code, "Screener_" + key.substring(0, 12) + ".kscr.kts");
+        log.info("Compiled screener script {} in {} ms", key, (System.nanoTime() - start) / 1_000_000);
+        try {
+            writeJar(jar, output);
+        } catch (IOException e) {
+            log.warn("Failed to store compiled script {}: {}", jar, e.getMessage());
+        }
+        try {
+            return instantiate(key, output);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to evaluate compiled script " + key, e);
+        }
+    }
+
+    private static LoadedScript instantiate(String key, ScreenerScriptCompiler.Output output) throws ReflectiveOperationException {
+        ScriptClassLoader loader = new ScriptClassLoader(output.getFiles(), ScreenerContext.class.getClassLoader());
+        Class<?> scriptClass = loader.loadClass(output.getScriptClassName());
+        Constructor<?> constructor = scriptClass.getConstructors()[0];
+        // scripts without a base class constructor still take the legacy String[] args
+        Object script = constructor.getParameterCount() == 0
+                ? constructor.newInstance()
+                : constructor.newInstance((Object) new String[0]);
+        Object entry = script;
+        if (output.getResultField() != null) {
+            Field field = scriptClass.getDeclaredField(output.getResultField());
+            field.setAccessible(true);
+            Object result = field.get(script);
+            if (result != null && !(result instanceof kotlin.Unit)) {
+                entry = result;
+            }
+        }
+        return new LoadedScript(key, script, entry, ScreenerEntryPoints.bind(entry));
+    }
+
+    private static void writeJar(Path jar, ScreenerScriptCompiler.Output output) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, output.getScriptClassName());
+        if (output.getResultField() != null) {
+            attributes.putValue(RESULT_FIELD, output.getResultField());
+        }
+        // written aside and moved so a concurrent reader never sees a partial jar
+        Path tmp = Files.createTempFile(jar.getParent(), jar.getFileName().toString(), TMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp); JarOutputStream jos = new JarOutputStream(out, manifest)) {
+                for (Map.Entry<String, byte[]> file : output.getFiles().entrySet()) {
+                    jos.putNextEntry(new JarEntry(file.getKey()));
+                    jos.write(file.getValue());
+                    jos.closeEntry();
+                }
+            }
+            Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static ScreenerScriptCompiler.Output readJar(Path jar) throws IOException {
+        try (InputStream in = Files.newInputStream(jar); JarInputStream jis = new JarInputStream(in)) {
+            Manifest manifest = jis.getManifest();
+            if (manifest == null || manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS) == null) {
+                throw new IOException("missing script class in manifest");
+            }
+            Map<String, byte[]> files = new HashMap<>();
+            JarEntry entry;
+            while ((entry = jis.getNextJarEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    files.put(entry.getName(), jis.readAllBytes());
+                }
+            }
+            Attributes attributes = manifest.getMainAttributes();
+            return new ScreenerScriptCompiler.Output(attributes.getValue(Attributes.Name.MAIN_CLASS),
+                    attributes.getValue(RESULT_FIELD), files);
+        }
+    }
+
+    private static String computeDslVersion() {
+        MessageDigest digest = sha256();
+        digest.update(KotlinVersion.CURRENT.toString().getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, Resource> entry : dslResources().entrySet()) {
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = entry.getValue().getInputStream()) {
+                digest.update(in.readAllBytes());
+            } catch (IOException e) {
+                log.warn("Cannot read DSL class {} for the script cache key: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return The class files of the DSL packages (and their sub-packages) and of {@link #DSL_CLASSES}, by path
+     * relative to the class path root, in path order so the version does not depend on class path scan order
+     */
+    static SortedMap<String, Resource> dslResources() {
+        ClassLoader classLoader = KDsl.class.getClassLoader();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        SortedMap<String, Resource> resources = new TreeMap<>();
+        for (String pkg : DSL_PACKAGES) {
+            String root = pkg.replace('.', '/') + '/';
+            try {
+                for (Resource resource : resolver.getResources("classpath*:" + root + "**/*" + CLASS_SUFFIX)) {
+                    String url = resource.getURL().toString();
+                    // first class path entry wins, as it would when the class is loaded
+                    resources.putIfAbsent(url.substring(url.lastIndexOf(root)), resource);
+                }
+            } catch (IOException e) {
+                log.warn("Cannot scan DSL package {} for the script cache key: {}", pkg, e.getMessage());
+            }
+        }
+        for (Class<?> type : DSL_CLASSES) {
+            String path = type.getName().replace('.', '/') + CLASS_SUFFIX;
+            resources.putIfAbsent(path, new ClassPathResource(path, classLoader));
+        }
+        return resources;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Defines the classes of one compiled script; everything else comes from the application class loader the
+     * DSL lives in.
+     */
+    static final class ScriptClassLoader extends ClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final Map<String, byte[]> files;
+
+        ScriptClassLoader(Map<String, byte[]> files, ClassLoader parent) {
+            super("screener-script", parent);
+            this.files = files;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = files.get(name.replace('.', '/') + CLASS_SUFFIX);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.dtech.algo.screener.kotlinrunner;
+
+import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.ScreenerOutput;
+import com.dtech.algo.screener.ScreenerScript;
+import com.dtech.algo.screener.SignalCallback;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Binds the {@code screener(ctx, cb)} function of a compiled script to {@link ScreenerScript}, so callers
+ * invoke scripts through the typed interface on their own thread.
+ * <p>
+ * An entry that implements {@link ScreenerScript} is used as is. Otherwise the function is bound once as a
+ * method handle on the entry object; calls then go straight to the script method, without reflection lookups
+ * or argument boxing. Return types other than {@link ScreenerOutput} (Boolean, Map) are converted by
+ * {@link #toOutput(Object)}.
+ */
+public final class ScreenerEntryPoints {
+
+    private static final MethodType EVALUATE = MethodType.methodType(ScreenerOutput.class, ScreenerContext.class, SignalCallback.class);
+    private static final MethodType GENERIC = MethodType.methodType(Object.class, ScreenerContext.class, SignalCallback.class);
+
+    private ScreenerEntryPoints() {
+    }
+
+    /**
+     * @return The typed entry point of {@code entry}, or null if it has no {@code screener(ctx, cb)} function
+     */
+    public static ScreenerScript bind(Object entry) {
+        if (entry instanceof ScreenerScript script) {
+            return script;
+        }
+        Method method = findScreenerMethod(entry.getClass());
+        if (method == null) {
+            return null;
+        }
+        MethodHandle bound;
+        try {
+            bound = MethodHandles.publicLookup().unreflect(method).bindTo(entry);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot bind screener(ctx, cb) of " + entry.getClass().getName(), e);
+        }
+        if (ScreenerOutput.class.isAssignableFrom(method.getReturnType())) {
+            MethodHandle typed = bound.asType(EVALUATE);
+            return (ctx, callback) -> {
+                try {
+                    return (ScreenerOutput) typed.invokeExact(ctx, callback);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        }
+        MethodHandle generic = bound.asType(GENERIC);
+        return (ctx, callback) -> {
+            try {
+                return toOutput(generic.invokeExact(ctx, callback));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    private static Method findScreenerMethod(Class<?> type) {
+        for (Method m : type.getMethods()) {
+            Class<?>[] params = m.getParameterTypes();
+            if (m.getName().equals("screener") && params.length == 2
+                    && params[0].isAssignableFrom(ScreenerContext.class)
+                    && params[1].isAssignableFrom(SignalCallback.class)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Convert various return types from scripts into ScreenerOutput.
+     * Supports: ScreenerOutput, Boolean, Map with "passed" flag; falls back to passed=false.
+     */
+    @SuppressWarnings("unchecked")
+    public static ScreenerOutput toOutput(Object ret) {
+        if (ret instanceof ScreenerOutput so) return so;
+        if (ret instanceof Boolean b) {
+            return ScreenerOutput.builder().passed(b).build();
+        }
+        if (ret instanceof Map<?, ?> m) {
+            return ScreenerOutput.builder()
+                    .passed(asBool(m.get("passed")))
+                    .debug((Map<String, Object>) m)
+                    .build();
+        }
+        return ScreenerOutput.builder()
+                .passed(false)
+                .debug(Map.of("info", "Unsupported or null return type: " + (ret == null ? "null" : ret.getClass().getName())))
+                .build();
+    }
+
+    private static boolean asBool(Object v) {
+        if (v instanceof Boolean b) return b;
+        if (v instanceof Number n) return n.doubleValue() != 0.0;
+        if (v instanceof String s) return Boolean.parseBoolean(s);
+        return false;
+    }
+}
@@ -5,11 +5,9 @@ import com.dtech.algo.screener.runtime.ScreenerRunLogService;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.time.Instant;
-import java.util.Map;
 
 /**
- * A Writer that captures script output and forwards it to DB via ScreenerRunLogService.
+ * A Writer that captures script output and forwards it line by line to the run log via ScreenerRunLogService.
  * It also optionally delegates to an underlying writer to preserve console output.
  */
 public final class ScriptLogWriter extends Writer {
@@ -81,19 +79,7 @@ public final class ScriptLogWriter extends Writer {
     private void logLine(String line) {
         if (runLogService == null || runId == null || runId == 0) return;
         try {
-            runLogService.logStep(
-                    runId,
-                    step,
-                    Map.of(
-                            "channel", channel,
-                            "ts", Instant.now().toString()
-                    ),
-                    Map.of(
-                            "msg", line
-                    ),
-                    true,
-                    null
-            );
+            runLogService.logLine(runId, step, channel, line);
         } catch (Throwable ignore) {
             // never break the run on logging failure
         }
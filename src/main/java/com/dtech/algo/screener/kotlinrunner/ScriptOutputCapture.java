@@ -0,0 +1,118 @@
+package com.dtech.algo.screener.kotlinrunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Thread-bound capture of {@code System.out}/{@code System.err}.
+ * <p>
+ * {@link #install()} replaces the process streams once with streams that write into the calling thread's
+ * buffer while a capture is open on it ({@link #begin()} ... {@link #end()}), and to the original stream
+ * otherwise. Scripts run on the caller's thread, so what a script prints lands in the buffer of the run that
+ * executed it, whatever else runs concurrently.
+ */
+public final class ScriptOutputCapture {
+
+    /**
+     * Text printed while a capture was open.
+     */
+    public record Captured(String out, String err) {
+        public boolean isEmpty() {
+            return out.isEmpty() && err.isEmpty();
+        }
+    }
+
+    private static final class Buffers {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        private boolean open;
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<>();
+    private static volatile boolean installed;
+
+    private ScriptOutputCapture() {
+    }
+
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new Router(System.out, false), true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new Router(System.err, true), true, StandardCharsets.UTF_8));
+        installed = true;
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Start capturing this thread's output.
+     */
+    public static void begin() {
+        Buffers buffers = BUFFERS.get();
+        if (buffers == null) {
+            buffers = new Buffers();
+            BUFFERS.set(buffers);
+        }
+        buffers.out.reset();
+        buffers.err.reset();
+        buffers.open = true;
+    }
+
+    /**
+     * Stop capturing this thread's output and return what was printed since {@link #begin()}.
+     */
+    public static Captured end() {
+        Buffers buffers = BUFFERS.get();
+        if (buffers == null || !buffers.open) {
+            return new Captured("", "");
+        }
+        buffers.open = false;
+        Captured captured = new Captured(buffers.out.toString(StandardCharsets.UTF_8), buffers.err.toString(StandardCharsets.UTF_8));
+        buffers.out.reset();
+        buffers.err.reset();
+        return captured;
+    }
+
+    private static final class Router extends OutputStream {
+        private final PrintStream original;
+        private final boolean err;
+
+        private Router(PrintStream original, boolean err) {
+            this.original = original;
+            this.err = err;
+        }
+
+        private OutputStream target() {
+            Buffers buffers = BUFFERS.get();
+            if (buffers == null || !buffers.open) {
+                return original;
+            }
+            return err ? buffers.err : buffers.out;
+        }
+
+        @Override
+        public void write(int b) {
+            try {
+                target().write(b);
+            } catch (IOException ignore) {
+                // PrintStream targets do not throw
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            original.flush();
+        }
+    }
+}
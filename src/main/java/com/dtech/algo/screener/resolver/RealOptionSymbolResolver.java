@@ -2,27 +2,25 @@ package com.dtech.algo.screener.resolver;
 
 import com.dtech.algo.series.InstrumentType;
 import com.dtech.kitecon.data.Instrument;
-import com.dtech.kitecon.repository.InstrumentRepository;
+import com.dtech.kitecon.service.OptionChainIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
- * Real implementation of OptionSymbolResolver that queries the instrument database
- * to find actual CE/PE/FUT instruments based on the underlying symbol.
+ * Real implementation of OptionSymbolResolver that finds actual CE/PE/FUT instruments of the underlying
+ * in the in-memory {@link OptionChainIndex}, from the nearest expiry.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class RealOptionSymbolResolver implements OptionSymbolResolver {
 
-    private final InstrumentRepository instrumentRepository;
+    private static final String NFO_EXCHANGE = "NFO";
+
+    private final OptionChainIndex optionChainIndex;
 
     @Override
     public String resolveOption(String underlying, OptionNomination nomination, Double ltp) {
@@ -34,93 +32,50 @@ public class RealOptionSymbolResolver implements OptionSymbolResolver {
         InstrumentType type = nomination.getType();
         int offset = nomination.getOffset();
 
-        // Query instruments with name = underlying, type = CE or PE, expiry within next month
+        // Nearest expiry within the next month
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneMonthLater = now.plusMonths(1);
-
-        List<Instrument> instruments = instrumentRepository.findAllByNameAndInstrumentTypeAndExpiryBetween(
-                underlying,
-                type.name(),
-                now,
-                oneMonthLater
-        );
+        OptionChainIndex.Chain chain = optionChainIndex.nearestChain(NFO_EXCHANGE, underlying, type, now, now.plusMonths(1));
 
-        if (instruments.isEmpty()) {
+        if (chain == null || chain.size() == 0) {
             log.warn("No {} options found for {} with expiry in next month", type, underlying);
             return underlying + "_" + nomination.toString();
         }
 
-        // Partition: true = strikes < ltp, false = strikes >= ltp
-        Map<Boolean, List<Instrument>> strikesList = instruments.stream()
-                .filter(i -> i.getStrike() != null)
-                .sorted(Comparator.comparing(i -> parseStrike(i.getStrike())))
-                .collect(Collectors.partitioningBy(i -> parseStrike(i.getStrike()) < ltp));
-
-        List<Instrument> strikesBelow = strikesList.get(true);   // strikes < ltp
-        List<Instrument> strikesAbove = strikesList.get(false);  // strikes >= ltp
-
-        List<Instrument> targetList;
+        // Strikes [0, atm) are below ltp, [atm, size) at or above it
+        int atm = chain.firstAtLeast(ltp);
+        // Convert offset to 0-based index
+        int index = Math.abs(offset) - 1;
 
+        boolean above;
         if (type == InstrumentType.CE) {
-            if (offset > 0) {
-                // CE + positive = OTM calls = strikes above LTP, ascending order (closest first)
-                targetList = strikesAbove;
-            } else {
-                // CE + negative = ITM calls = strikes below LTP, descending order (closest first)
-                targetList = strikesBelow.reversed();
-            }
-        } else { // PE
-            if (offset > 0) {
-                // PE + positive = OTM puts = strikes below LTP, descending order (closest first)
-                targetList = strikesBelow.reversed();
-            } else {
-                // PE + negative = ITM puts = strikes above LTP, ascending order (closest first)
-                targetList = strikesAbove;
-            }
+            // CE + positive = OTM calls = strikes above LTP; CE + negative = ITM calls = strikes below LTP
+            above = offset > 0;
+        } else {
+            // PE + positive = OTM puts = strikes below LTP; PE + negative = ITM puts = strikes above LTP
+            above = offset <= 0;
         }
+        // closest first on either side
+        int position = above ? atm + index : atm - 1 - index;
 
-        // Convert offset to 0-based index
-        int index = Math.abs(offset) - 1;
-
-        if (index < 0 || index >= targetList.size()) {
+        if (index < 0 || position < 0 || position >= chain.size()) {
             log.warn("Target index {} out of bounds for {} {} offset {}", index, type, underlying, offset);
             return underlying + "_" + nomination.toString();
         }
 
-        return targetList.get(index).getTradingsymbol();
+        return chain.contracts()[position].getTradingsymbol();
     }
 
     @Override
     public String resolveFuture(String underlying) {
-        // Query instruments with name = underlying, type = FUT, expiry in current month
+        // Nearest future expiring in the current month
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime endOfMonth = now.withDayOfMonth(now.toLocalDate().lengthOfMonth()).withHour(23).withMinute(59);
 
-        List<Instrument> futures = instrumentRepository.findAllByNameAndInstrumentTypeAndExpiryBetween(
-                underlying,
-                "FUT",
-                now,
-                endOfMonth
-        );
-
-        if (futures.isEmpty()) {
+        Instrument future = optionChainIndex.nearestFuture(NFO_EXCHANGE, underlying, now, endOfMonth);
+        if (future == null) {
             log.warn("No futures found for {} with expiry in current month", underlying);
             return underlying + "_FUT";
         }
-
-        // Return the nearest future (first by expiry)
-        return futures.stream()
-                .filter(f -> f.getExpiry() != null)
-                .min(Comparator.comparing(Instrument::getExpiry))
-                .map(Instrument::getTradingsymbol)
-                .orElse(underlying + "_FUT");
-    }
-
-    private double parseStrike(String strike) {
-        try {
-            return Double.parseDouble(strike);
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return future.getTradingsymbol();
     }
 }
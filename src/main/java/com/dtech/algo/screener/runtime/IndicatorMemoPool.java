@@ -0,0 +1,43 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.dsl.IndicatorMemo;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Hands out {@link IndicatorMemo}s that share one indicator store, so screeners evaluating the same symbol in
+ * the same scheduling tick build each indicator once. Indicators are held weakly, so an entry, and the series
+ * it is bound to, is dropped once no running context uses it. The store is also replaced every
+ * {@code screener.indicator-memo.ttl-ms}; memos keep the store they were created with, so a run is never cut
+ * off mid-evaluation and the old store is released when its last run finishes.
+ */
+@Component
+public class IndicatorMemoPool {
+
+    @Value("${screener.indicator-memo.shared:true}")
+    private boolean shared;
+
+    private volatile Map<Object, IntToDoubleFunction[]> store = newStore();
+
+    public IndicatorMemo newMemo() {
+        return shared ? new IndicatorMemo(store) : new IndicatorMemo();
+    }
+
+    @Scheduled(fixedDelayString = "${screener.indicator-memo.ttl-ms:300000}")
+    public void rotate() {
+        store = newStore();
+    }
+
+    private static Map<Object, IntToDoubleFunction[]> newStore() {
+        return CacheBuilder.newBuilder().weakValues().<Object, IntToDoubleFunction[]>build().asMap();
+    }
+
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,284 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.db.ScreenerUowBulkWriter;
+import com.dtech.algo.screener.enums.WorkflowStep;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind sink for the screener run log.
+ * <p>
+ * Callers serialize their payloads and enqueue, so a record reflects the objects as they were when logged; a
+ * single writer thread drains the bounded queue every {@code screener.run-log.flush-interval-ms}, or as soon as
+ * {@code screener.run-log.batch-size} records are waiting, and inserts each batch with one multi-row INSERT. If a
+ * batch is rejected its rows are inserted one by one, so only the offending rows are lost. Printed lines of one
+ * run, step and channel that land in the same batch are coalesced into a single row. What happens when the queue
+ * is full is set by {@code screener.run-log.overflow}, see {@link OverflowPolicy}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RunLogSink {
+
+    public enum OverflowPolicy {
+        /** Wait for the writer to make room. */
+        BLOCK,
+        /** Drop the record being logged. */
+        DROP_NEWEST,
+        /** Drop the oldest queued record to make room. */
+        DROP_OLDEST,
+        /** Write the queue out on the calling thread. */
+        CALLER_RUNS
+    }
+
+    private record Entry(long runId, WorkflowStep step, String inputJson, String outputJson, Boolean success,
+                         String errorMessage, String channel, String line, Instant at) {
+        boolean isLine() {
+            return channel != null;
+        }
+    }
+
+    private record LineKey(long runId, WorkflowStep step, String channel) {
+    }
+
+    private static final class LineGroup {
+        private final Entry first;
+        private final StringBuilder text = new StringBuilder();
+        private int lines;
+
+        private LineGroup(Entry first) {
+            this.first = first;
+        }
+
+        private void add(String line) {
+            if (lines++ > 0) {
+                text.append('\n');
+            }
+            text.append(line);
+        }
+    }
+
+    private final ScreenerUowBulkWriter screenerUowBulkWriter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${screener.run-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${screener.run-log.batch-size:500}")
+    private int batchSize;
+
+    @Value("${screener.run-log.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${screener.run-log.overflow:CALLER_RUNS}")
+    private OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder dropped = new LongAdder();
+    private BlockingQueue<Entry> queue;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("run-log-writer").start(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public void logStep(long runId, WorkflowStep step, Object input, Object output, Boolean success, String errorMessage) {
+        String inputJson;
+        String outputJson;
+        try {
+            inputJson = input == null ? null : objectMapper.writeValueAsString(input);
+            outputJson = output == null ? null : objectMapper.writeValueAsString(output);
+        } catch (JsonProcessingException e) {
+            log.debug("Skipping run log record that cannot be serialized: {}", e.getMessage());
+            return;
+        }
+        enqueue(new Entry(runId, step, inputJson, outputJson, success, truncate(errorMessage), null, null, Instant.now()));
+    }
+
+    public void logLine(long runId, WorkflowStep step, String channel, String line) {
+        enqueue(new Entry(runId, step, null, null, true, null, channel, line, Instant.now()));
+    }
+
+    /**
+     * Write everything queued so far before returning, e.g. before reading the log back.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            List<Entry> batch = new ArrayList<>();
+            while (queue.drainTo(batch, Math.max(1, batchSize)) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void enqueue(Entry entry) {
+        if (queue.offer(entry)) {
+            if (queue.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+            }
+            case DROP_NEWEST -> dropped.increment();
+            case DROP_OLDEST -> {
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+            }
+            case CALLER_RUNS -> {
+                flush();
+                if (!queue.offer(entry)) {
+                    write(List.of(entry));
+                }
+            }
+        }
+    }
+
+    private void writeLoop() {
+        long intervalNanos = Math.max(1, flushIntervalMs) * 1_000_000;
+        while (running) {
+            // woken early by enqueue once a full batch is waiting
+            LockSupport.parkNanos(this, intervalNanos);
+            try {
+                flush();
+                long lost = dropped.sumThenReset();
+                if (lost > 0) {
+                    log.warn("Run log queue full ({}): dropped {} records", overflowPolicy, lost);
+                }
+            } catch (Exception e) {
+                log.error("Run log writer failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        List<ScreenerUowBulkWriter.Row> rows = toRows(batch);
+        try {
+            screenerUowBulkWriter.insertAll(rows);
+            return;
+        } catch (Exception e) {
+            if (rows.size() == 1) {
+                // logging must never fail a run; the row is lost
+                log.warn("Failed to write run log row: {}", e.getMessage());
+                return;
+            }
+            log.warn("Failed to write {} run log rows, retrying one by one: {}", rows.size(), e.getMessage());
+        }
+        int lost = 0;
+        for (ScreenerUowBulkWriter.Row row : rows) {
+            try {
+                screenerUowBulkWriter.insertAll(List.of(row));
+            } catch (Exception e) {
+                lost++;
+                log.debug("Failed to write run log row of run {}: {}", row.runId(), e.getMessage());
+            }
+        }
+        if (lost > 0) {
+            log.warn("Lost {} of {} run log rows", lost, rows.size());
+        }
+    }
+
+    private static String truncate(String errorMessage) {
+        return errorMessage == null || errorMessage.length() <= ScreenerUowBulkWriter.ERROR_MESSAGE_LENGTH
+                ? errorMessage
+                : errorMessage.substring(0, ScreenerUowBulkWriter.ERROR_MESSAGE_LENGTH);
+    }
+
+    private List<ScreenerUowBulkWriter.Row> toRows(List<Entry> batch) {
+        // LineGroup placeholders keep each coalesced row at the position of its first line
+        List<Object> ordered = new ArrayList<>(batch.size());
+        Map<LineKey, LineGroup> groups = new HashMap<>();
+        for (Entry entry : batch) {
+            if (!entry.isLine()) {
+                ordered.add(entry);
+                continue;
+            }
+            LineGroup group = groups.computeIfAbsent(new LineKey(entry.runId(), entry.step(), entry.channel()), k -> {
+                LineGroup created = new LineGroup(entry);
+                ordered.add(created);
+                return created;
+            });
+            group.add(entry.line());
+        }
+        List<ScreenerUowBulkWriter.Row> rows = new ArrayList<>(ordered.size());
+        for (Object o : ordered) {
+            try {
+                rows.add(o instanceof LineGroup group ? lineRow(group) : stepRow((Entry) o));
+            } catch (JsonProcessingException e) {
+                log.debug("Skipping run log record that cannot be serialized: {}", e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    private static ScreenerUowBulkWriter.Row stepRow(Entry e) {
+        return new ScreenerUowBulkWriter.Row(e.runId(), e.step(), e.inputJson(), e.outputJson(), e.success(),
+                e.errorMessage(), e.at());
+    }
+
+    private ScreenerUowBulkWriter.Row lineRow(LineGroup group) throws JsonProcessingException {
+        Entry first = group.first;
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("channel", first.channel());
+        input.put("ts", first.at().toString());
+        input.put("lines", group.lines);
+        return new ScreenerUowBulkWriter.Row(first.runId(), first.step(), objectMapper.writeValueAsString(input),
+                objectMapper.writeValueAsString(Map.of("msg", group.text.toString())), true, null, first.at());
+    }
+}
@@ -1,7 +1,6 @@
 package com.dtech.algo.screener.runtime;
 
 import com.dtech.algo.controller.dto.ChartAnalysisResponse;
-import com.dtech.algo.screener.db.ScreenerRunEntity;
 import com.dtech.algo.screener.db.ScreenerRunRepository;
 import com.dtech.algo.screener.db.ScreenerUowEntity;
 import com.dtech.algo.screener.db.ScreenerUowRepository;
@@ -28,24 +27,22 @@ public class ScreenerRunLogService {
     private final ScreenerRunRepository runRepository;
     private final ObjectMapper objectMapper;
     private final IdentifiedTradeService identifiedTradeService;
+    private final RunLogSink runLogSink;
 
+    /**
+     * Queue a step for the run log; it is serialized and written in the background by {@link RunLogSink}.
+     */
     public void logStep(Long runId, WorkflowStep step, Object input, Object output, Boolean success, String errorMessage) {
         if (runId == null || runId == 0) return;
-        try {
-            String inputJson = input == null ? null : objectMapper.writeValueAsString(input);
-            String outputJson = output == null ? null : objectMapper.writeValueAsString(output);
-            ScreenerUowEntity entity = ScreenerUowEntity.builder()
-                    .screenerRun(ScreenerRunEntity.builder().id(runId).build())
-                    .stepType(step)
-                    .inputJson(inputJson)
-                    .outputJson(outputJson)
-                    .success(success)
-                    .errorMessage(errorMessage)
-                    .build();
-            uowRepository.save(entity);
-        } catch (Exception ignore) {
-            // swallow to not break run on logging failure
-        }
+        runLogSink.logStep(runId, step, input, output, success, errorMessage);
+    }
+
+    /**
+     * Queue one line printed by a script; lines of a run are coalesced into one row per batch.
+     */
+    public void logLine(Long runId, WorkflowStep step, String channel, String line) {
+        if (runId == null || runId == 0) return;
+        runLogSink.logLine(runId, step, channel, line);
     }
 
     public void markFinal(Long runId, WorkflowStep step, Boolean finalPassed, Verdict finalVerdict) {
@@ -58,6 +55,8 @@ public class ScreenerRunLogService {
             if (finalPassed && finalVerdict != null && finalVerdict != Verdict.WAIT) {
                 String entry = null, target = null, stoploss = null;
                 if (step != null) {
+                    // the step output may still be queued
+                    runLogSink.flush();
                     Optional<ScreenerUowEntity> uow = uowRepository.findTopByScreenerRunIdAndStepTypeOrderByCreatedAtDesc(runId, step);
                     if (uow.isPresent()) {
                         String output = uow.get().getOutputJson();
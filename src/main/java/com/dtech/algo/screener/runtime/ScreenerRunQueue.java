@@ -0,0 +1,71 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.db.ScreenerRunEntity;
+import com.dtech.algo.screener.db.ScreenerRunRepository;
+import com.dtech.algo.screener.enums.SchedulingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Database-backed queue of due screener runs, safe to share between app instances: runs are claimed with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED} and flipped to RUNNING in the same transaction, so each run is
+ * handed to exactly one claimer.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScreenerRunQueue {
+
+    // due rows locked per free slot, so runs of saturated screeners do not starve the others
+    private static final int CANDIDATES_PER_SLOT = 4;
+
+    private final ScreenerRunRepository screenerRunRepository;
+
+    /**
+     * Claim up to {@code limit} due runs, oldest first, taking at most {@code capacity(screenerId)} runs of any
+     * one screener. Runs that are not taken stay SCHEDULED for the next claim.
+     *
+     * @return The claimed runs, already marked RUNNING
+     */
+    @Transactional
+    public List<ScreenerRunEntity> claim(int limit, ToIntFunction<Long> capacity) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Instant now = Instant.now();
+        List<ScreenerRunEntity> due = screenerRunRepository.lockDueRuns(now, limit * CANDIDATES_PER_SLOT);
+        List<ScreenerRunEntity> claimed = new ArrayList<>(Math.min(limit, due.size()));
+        Map<Long, Integer> taken = new HashMap<>();
+        for (ScreenerRunEntity run : due) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+            int alreadyTaken = taken.getOrDefault(run.getScreenerId(), 0);
+            if (alreadyTaken >= capacity.applyAsInt(run.getScreenerId())) {
+                continue;
+            }
+            taken.put(run.getScreenerId(), alreadyTaken + 1);
+            claimed.add(run);
+        }
+        if (!claimed.isEmpty()) {
+            screenerRunRepository.updateStatus(claimed.stream().map(ScreenerRunEntity::getId).toList(),
+                    SchedulingStatus.RUNNING, "running", now);
+        }
+        return claimed;
+    }
+
+    /**
+     * Record the outcome of a claimed run with a single update.
+     */
+    @Transactional
+    public void finish(Long runId, SchedulingStatus status) {
+        screenerRunRepository.updateStatus(List.of(runId), status, status.name().toLowerCase(), Instant.now());
+    }
+}
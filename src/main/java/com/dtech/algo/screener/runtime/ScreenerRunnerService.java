@@ -2,76 +2,173 @@ package com.dtech.algo.screener.runtime;
 
 import com.dtech.algo.screener.ScreenerService;
 import com.dtech.algo.screener.db.ScreenerRunEntity;
-import com.dtech.algo.screener.db.ScreenerRunRepository;
 import com.dtech.algo.screener.enums.SchedulingStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Periodically polls ScreenerRun records and executes them via ScreenerService.
+ * Periodically claims due ScreenerRun records and executes them via ScreenerService on virtual threads.
+ * <p>
+ * At most {@code screener.runner.max-concurrency} runs execute at once, and at most
+ * {@code screener.runner.max-per-screener} of any one screener, so one slow screener (e.g. waiting on OpenAI)
+ * cannot hold up the queue. Runs are claimed through {@link ScreenerRunQueue}, so several app instances can
+ * poll the same table.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ScreenerRunnerService {
 
-    private final ScreenerRunRepository screenerRunRepository;
+    /**
+     * Runs finished between two ticks.
+     */
+    public record TickReport(int claimed, long completed, long failed, Duration window, double runsPerSecond,
+                             long avgLatencyMillis, long maxLatencyMillis, long avgQueueDelayMillis, int running) {
+    }
+
+    private final ScreenerRunQueue screenerRunQueue;
     private final ScreenerService screenerService;
 
+    @Value("${screener.runner.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${screener.runner.max-per-screener:4}")
+    private int maxPerScreener;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final Map<Long, AtomicInteger> runningPerScreener = new ConcurrentHashMap<>();
+    private final RunStats stats = new RunStats();
+    private volatile TickReport lastReport;
+    private ExecutorService executor;
+
+    /**
+     * Counters of the current report window. They are drained with {@link LongAdder#sumThenReset()} rather than
+     * swapped for a fresh instance, so a run that finishes while a report is taken is counted in the next window
+     * instead of being recorded into a discarded one.
+     */
+    private static final class RunStats {
+        private volatile long startNanos = System.nanoTime();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder latencyMillis = new LongAdder();
+        private final LongAdder queueDelayMillis = new LongAdder();
+        private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+        private void record(boolean success, long latency, long queueDelay) {
+            (success ? completed : failed).increment();
+            latencyMillis.add(latency);
+            queueDelayMillis.add(queueDelay);
+            maxLatencyMillis.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("screener-run-", 1).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
     /**
-     * Polls for scheduled runs and executes them.
+     * Claims due runs for the free slots, then reports the runs finished since the previous tick.
      *
      * The cadence can be tuned via properties:
      *  - screener.runner.initial-delay (default 5s)
      *  - screener.runner.fixed-delay   (default 15s)
+     *
+     * @return The report of this tick, also kept as {@link #getLastReport()}
      */
     @Scheduled(
             initialDelayString = "${screener.runner.initial-delay:5000}",
             fixedDelayString = "${screener.runner.fixed-delay:15000}"
     )
-    public void tick() {
-        java.time.Instant now = java.time.Instant.now();
-        List<ScreenerRunEntity> scheduledRuns =
-                screenerRunRepository.findTop200BySchedulingStatusAndExecuteAtLessThanEqualOrderByExecuteAtAsc(
-                        SchedulingStatus.SCHEDULED, now);
-
-        if (scheduledRuns.isEmpty()) {
-            return;
+    public TickReport tick() {
+        int free = Math.max(1, maxConcurrency) - running.get();
+        List<ScreenerRunEntity> claimed = free > 0
+                ? screenerRunQueue.claim(free, screenerId -> Math.max(1, maxPerScreener) - runningOf(screenerId).get())
+                : List.of();
+        for (ScreenerRunEntity run : claimed) {
+            running.incrementAndGet();
+            runningOf(run.getScreenerId()).incrementAndGet();
+            executor.execute(() -> execute(run));
         }
+        return report(claimed.size());
+    }
 
-        for (ScreenerRunEntity run : scheduledRuns) {
-            Long runId = run.getId();
+    public TickReport getLastReport() {
+        return lastReport;
+    }
+
+    private void execute(ScreenerRunEntity run) {
+        Long runId = run.getId();
+        long start = System.nanoTime();
+        long queueDelay = Math.max(0, Duration.between(run.getExecuteAt(), Instant.now()).toMillis());
+        boolean success = false;
+        try {
+            // Execute the screener using defaults for nowIndex and timeframe
+            int nowIndex = 0; // default meta indicator, can be adapted later
+            log.info("Starting ScreenerRun id={} screenerId={} symbol={}", runId, run.getScreenerId(), run.getSymbol());
+            screenerService.run(run.getScreenerId(), run.getSymbol(), nowIndex, run.getTimeframe(), null, runId);
+            success = true;
+            log.info("Completed ScreenerRun id={}", runId);
+        } catch (Exception ex) {
+            log.error("Failed ScreenerRun id=" + runId + " with error: " + ex.getMessage(), ex);
+        } finally {
             try {
-                // Mark as RUNNING first to avoid duplicate concurrent execution
-                run.setSchedulingStatus(SchedulingStatus.RUNNING);
-                screenerRunRepository.save(run);
-
-                // Execute the screener using defaults for nowIndex and timeframe
-                long screenerId = run.getScreenerId();
-                String symbol = run.getSymbol();
-                int nowIndex = 0; // default meta indicator, can be adapted later
-                String timeframe = run.getTimeframe(); // use run's scheduled timeframe
-
-                log.info("Starting ScreenerRun id={} screenerId={} symbol={}", runId, screenerId, symbol);
-                screenerService.run(screenerId, symbol, nowIndex, timeframe, null, runId);
-
-                // Mark complete on success
-                run.setSchedulingStatus(SchedulingStatus.COMPLETE);
-                screenerRunRepository.save(run);
-                log.info("Completed ScreenerRun id={}", runId);
-            } catch (Exception ex) {
-                log.error("Failed ScreenerRun id=" + runId + " with error: " + ex.getMessage(), ex);
-                try {
-                    run.setSchedulingStatus(SchedulingStatus.FAILED);
-                    screenerRunRepository.save(run);
-                } catch (Exception e2) {
-                    log.error("Error updating ScreenerRun status to FAILED for id=" + runId, e2);
-                }
+                screenerRunQueue.finish(runId, success ? SchedulingStatus.COMPLETE : SchedulingStatus.FAILED);
+            } catch (Exception e) {
+                log.error("Error updating ScreenerRun status for id=" + runId, e);
             }
+            stats.record(success, (System.nanoTime() - start) / 1_000_000, queueDelay);
+            runningOf(run.getScreenerId()).decrementAndGet();
+            running.decrementAndGet();
+        }
+    }
+
+    private AtomicInteger runningOf(Long screenerId) {
+        return runningPerScreener.computeIfAbsent(screenerId, id -> new AtomicInteger());
+    }
+
+    private TickReport report(int claimed) {
+        long now = System.nanoTime();
+        Duration elapsed = Duration.ofNanos(now - stats.startNanos);
+        stats.startNanos = now;
+        long completed = stats.completed.sumThenReset();
+        long failed = stats.failed.sumThenReset();
+        long latencyMillis = stats.latencyMillis.sumThenReset();
+        long queueDelayMillis = stats.queueDelayMillis.sumThenReset();
+        long maxLatencyMillis = stats.maxLatencyMillis.getAndSet(0);
+        long finished = completed + failed;
+        double perSecond = elapsed.isZero() ? 0 : finished * 1_000_000_000.0 / elapsed.toNanos();
+        TickReport report = new TickReport(claimed, completed, failed, elapsed, perSecond,
+                finished == 0 ? 0 : latencyMillis / finished, maxLatencyMillis,
+                finished == 0 ? 0 : queueDelayMillis / finished, running.get());
+        lastReport = report;
+        if (claimed > 0 || finished > 0) {
+            log.info("ScreenerRunner: claimed {}, completed {}, failed {} in {} s ({} runs/s), latency avg {} ms max {} ms, "
+                            + "queue delay avg {} ms, running {}", claimed, completed, failed, elapsed.toSeconds(),
+                    String.format("%.2f", perSecond), report.avgLatencyMillis(), report.maxLatencyMillis(),
+                    report.avgQueueDelayMillis(), report.running());
         }
+        return report;
     }
 }
@@ -2,33 +2,54 @@ package com.dtech.algo.screener.runtime;
 
 import com.dtech.algo.screener.db.ScreenerEntity;
 import com.dtech.algo.screener.db.ScreenerRepository;
-import com.dtech.algo.screener.db.ScreenerRunEntity;
-import com.dtech.algo.screener.db.ScreenerRunRepository;
-import com.dtech.algo.screener.enums.SchedulingStatus;
+import com.dtech.algo.screener.db.ScreenerRunBulkWriter;
+import com.dtech.algo.screener.db.ScreenerRunSchema;
 import com.dtech.algo.screener.model.RunConfig;
 import com.dtech.algo.screener.model.SchedulingConfig;
 import com.dtech.kitecon.repository.IndexSymbolRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ScreenerSchedulerService {
 
+    private static final String INDEX_PREFIX = "INDEX-";
+
     private final IndexSymbolRepository indexSymbolRepository;
     private final ScreenerRepository screenerRepository;
-    private final ScreenerRunRepository screenerRunRepository;
+    private final ScreenerRunBulkWriter screenerRunBulkWriter;
+    private final ScreenerRunSchema screenerRunSchema;
+
+    @Value("${screener.scheduler.index-members-ttl-minutes:360}")
+    private long indexMembersTtlMinutes;
+
+    private record Memberships(Map<String, List<String>> members, Instant loadedAt) {
+    }
+
+    private volatile Memberships memberships;
 
     /**
      * Goes through active screeners and schedules runs per SchedulingConfig.
      * Default: run hourly. Override with screener.scheduler.hourly-cron.
+     *
+     * The whole pass is at most three queries however large the universe: active screeners, index memberships
+     * (cached for screener.scheduler.index-members-ttl-minutes and shared by every run config), and batched
+     * INSERT IGNOREs of the candidate slots. The slot time is the tick's minute, so instances ticking together
+     * schedule each slot once; nothing is scheduled until {@link ScreenerRunSchema} has the slot key in place.
      */
     @Scheduled(cron = "${screener.scheduler.hourly-cron:0 0 * * * ?}")
     public void tick() {
@@ -36,70 +57,67 @@ public class ScreenerSchedulerService {
         if (screeners.isEmpty()) {
             return;
         }
-        Instant executeAt = Instant.now(); // schedule for immediate execution window
+        if (!screenerRunSchema.isSlotKeyPresent()) {
+            log.warn("ScreenerScheduler: screener_run has no slot key yet, skipping this tick");
+            return;
+        }
+        Instant executeAt = Instant.now().truncatedTo(ChronoUnit.MINUTES); // immediate execution window
+
+        Set<ScreenerRunBulkWriter.Slot> slots = candidateSlots(screeners, loadIndexMembers());
+        int created = screenerRunBulkWriter.scheduleAll(slots, executeAt);
+        if (created > 0) {
+            log.info("ScreenerScheduler: scheduled {} of {} candidate runs at {}", created, slots.size(), executeAt);
+        }
+    }
 
-        int created = 0;
+    /**
+     * @return Distinct (screener, symbol, timeframe) slots of all run configs, index references expanded
+     */
+    Set<ScreenerRunBulkWriter.Slot> candidateSlots(List<ScreenerEntity> screeners, Map<String, List<String>> indexMembers) {
+        Set<ScreenerRunBulkWriter.Slot> slots = new LinkedHashSet<>();
         for (ScreenerEntity s : screeners) {
             SchedulingConfig sc = s.getSchedulingConfig();
             if (sc == null || sc.getRunConfigs() == null || sc.getRunConfigs().isEmpty()) {
                 continue;
             }
-            List<ScreenerRunEntity> batch = new ArrayList<>();
             for (RunConfig rc : sc.getRunConfigs()) {
                 String timeframe = rc.getTimeframe();
                 if (timeframe == null || timeframe.isBlank()) continue;
-                List<String> symbols = getSymbols(rc);
-                if (symbols == null || symbols.isEmpty()) continue;
+                if (rc.getSymbols() == null) continue;
 
-                for (String symbol : symbols) {
+                for (String symbol : getSymbols(rc, indexMembers)) {
                     if (symbol == null || symbol.isBlank()) continue;
-
-                    // Avoid duplicates for the same slot
-                    boolean exists = screenerRunRepository.existsByScreenerIdAndSymbolAndTimeframeAndExecuteAt(
-                            s.getId(), symbol, timeframe, executeAt);
-                    if (exists) continue;
-
-                    ScreenerRunEntity run = ScreenerRunEntity.builder()
-                            .screenerId(s.getId())
-                            .schedulingStatus(SchedulingStatus.SCHEDULED)
-                            .symbol(symbol.trim())
-                            .timeframe(timeframe)
-                            .executeAt(executeAt)
-                            .currentState("scheduled")
-                            .build();
-                    batch.add(run);
+                    slots.add(new ScreenerRunBulkWriter.Slot(s.getId(), symbol.trim(), timeframe));
                 }
             }
-            if (!batch.isEmpty()) {
-                screenerRunRepository.saveAll(batch);
-                created += batch.size();
-            }
-        }
-        if (created > 0) {
-            log.info("ScreenerScheduler: scheduled {} runs at {}", created, executeAt);
         }
+        return slots;
     }
 
-    private List<String> getSymbols(RunConfig rc) {
-        List<String> symbols = rc.getSymbols();
+    private List<String> getSymbols(RunConfig rc, Map<String, List<String>> indexMembers) {
         List<String> result = new ArrayList<>();
-
-        for (String symbol : symbols) {
-            if (symbol != null && symbol.startsWith("INDEX-")) {
-                List<String> indexSymbols = resolveIndex(symbol);
-                if (indexSymbols != null) {
-                    result.addAll(indexSymbols);
-                }
+        for (String symbol : rc.getSymbols()) {
+            if (symbol != null && symbol.startsWith(INDEX_PREFIX)) {
+                String indexName = symbol.substring(INDEX_PREFIX.length()).trim();
+                result.addAll(indexMembers.getOrDefault(indexName, List.of()));
             } else {
                 result.add(symbol);
             }
         }
-
         return result;
     }
 
-    private List<String> resolveIndex(String symbol) {
-        String indexName = symbol.substring("INDEX-".length()).trim();
-        return indexSymbolRepository.findAllSymbolsByIndexName(indexName);
+    private Map<String, List<String>> loadIndexMembers() {
+        Memberships cached = memberships;
+        Instant now = Instant.now();
+        if (cached != null && cached.loadedAt().plus(indexMembersTtlMinutes, ChronoUnit.MINUTES).isAfter(now)) {
+            return cached.members();
+        }
+        Map<String, List<String>> members = new HashMap<>();
+        for (Object[] row : indexSymbolRepository.findAllMemberships()) {
+            members.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        memberships = new Memberships(members, now);
+        return members;
     }
 }
@@ -1,5 +1,6 @@
 package com.dtech.algo.screener.web;
 
+import com.dtech.algo.screener.ScreenerBatchService;
 import com.dtech.algo.screener.SeriesSpec;
 import com.dtech.algo.screener.ScreenerService;
 import com.dtech.algo.screener.db.ScreenerEntity;
@@ -27,6 +28,7 @@ public class ScreenerController {
     private final ScreenerService screenerService;
     private final com.dtech.algo.screener.ScreenerRegistryService screenerRegistryService;
     private final com.dtech.algo.screener.service.ScreenerManagerService screenerManagerService;
+    private final ScreenerBatchService screenerBatchService;
 
     @GetMapping
     public List<ScreenerResponse> list() {
@@ -91,6 +93,21 @@ public class ScreenerController {
         screenerService.run(id, symbol, nowIndex, timeframe, null, 0L);
     }
 
+    /**
+     * Runs the screener over a whole index, the given symbols, or its subscribed symbols in one batch.
+     */
+    @PostMapping("/{id}/batch")
+    public ScreenerBatchService.BatchReport runBatch(@PathVariable long id,
+                                                     @RequestParam(required = false) String index,
+                                                     @RequestParam(required = false) List<String> symbols,
+                                                     @RequestParam(required = false) String timeframe,
+                                                     @RequestParam(defaultValue = "0") int nowIndex) throws Exception {
+        if (index != null && !index.isBlank()) {
+            return screenerBatchService.runIndex(id, index, timeframe, nowIndex);
+        }
+        return screenerBatchService.run(id, symbols, timeframe, nowIndex);
+    }
+
     /**
      * Creates subscriptions for a screener based on its scheduling configuration.
      */
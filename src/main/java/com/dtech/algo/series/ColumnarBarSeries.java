@@ -0,0 +1,506 @@
+package com.dtech.algo.series;
+
+import lombok.Getter;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarBuilder;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.bars.TimeBarBuilderFactory;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.DoubleNumFactory;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.num.NumFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link IntervalBarSeries} stored as parallel primitive columns (open, high, low, close, volume, oi, end time)
+ * instead of one {@link BaseBar} with seven {@code DecimalNum} per candle, roughly 56 bytes per bar against
+ * ~500. Loops that only need prices can read the columns directly through {@link #close(int)} and friends.
+ * <p>
+ * {@link #getBar(int)} returns a view over one row. The views are created on first access and kept per row,
+ * and each view caches its {@link DoubleNum} values until the row changes, so indicator loops going through
+ * {@link Bar} allocate once per bar rather than on every call. Rows that are only read through the primitive
+ * accessors never get a view. Because the series' {@link #numFactory()} is {@link DoubleNumFactory}, indicators
+ * built on it calculate in {@code double}, and must not be combined with {@code DecimalNum} constants.
+ * <p>
+ * Single writer: one thread adds or updates bars, any thread may read. The bar count is published after the
+ * columns are written, so readers never see a row before it is complete.
+ */
+public class ColumnarBarSeries implements IntervalBarSeries {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final Num ZERO = DoubleNum.valueOf(0);
+
+    private final String name;
+    @Getter
+    private final Interval interval;
+    @Getter
+    private final SeriesType seriesType;
+    @Getter
+    private final String instrument;
+    private final Duration timePeriod;
+
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private double[] oi;
+    private long[] endEpochMillis;
+    // per-row Bar views, allocated with the first getBar; a null slot has no view yet
+    private volatile ColumnBar[] views;
+
+    // physical index of logical bar beginIndex; rows before it were dropped by the maximum bar count
+    private int head;
+    private volatile int count;
+    private int removedBarsCount;
+    private int maximumBarCount = Integer.MAX_VALUE;
+
+    // state of the forming bar fed by updateLiveBar
+    private int liveIndex = -1;
+
+    public ColumnarBarSeries(String name, Interval interval, SeriesType seriesType, String instrument) {
+        this(name, interval, seriesType, instrument, DEFAULT_CAPACITY);
+    }
+
+    public ColumnarBarSeries(String name, Interval interval, SeriesType seriesType, String instrument, int capacity) {
+        this.name = name;
+        this.interval = interval;
+        this.seriesType = seriesType;
+        this.instrument = instrument;
+        this.timePeriod = interval != null && interval.getOffset() > 0
+                ? Duration.ofSeconds(interval.getOffset()) : Duration.ofDays(1);
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Append a bar, or replace the last one if it ends at the same time.
+     *
+     * @return Logical index of the written bar
+     */
+    public int add(long endEpochMillis, double open, double high, double low, double close, double volume, double oi) {
+        int n = count;
+        boolean replace = n > 0 && this.endEpochMillis[head + n - 1] == endEpochMillis;
+        int row = replace ? head + n - 1 : reserveRow();
+        ColumnBar[] v = views;
+        if (!replace && v != null && row < v.length) {
+            v[row] = null;
+        }
+        this.open[row] = open;
+        this.high[row] = high;
+        this.low[row] = low;
+        this.close[row] = close;
+        this.volume[row] = volume;
+        this.oi[row] = oi;
+        this.endEpochMillis[row] = endEpochMillis;
+        if (!replace) {
+            count = n + 1;
+            trimToMaximum();
+        }
+        return getEndIndex();
+    }
+
+    public double open(int index) {
+        return open[row(index)];
+    }
+
+    public double high(int index) {
+        return high[row(index)];
+    }
+
+    public double low(int index) {
+        return low[row(index)];
+    }
+
+    public double close(int index) {
+        return close[row(index)];
+    }
+
+    public double volume(int index) {
+        return volume[row(index)];
+    }
+
+    public double openInterest(int index) {
+        return oi[row(index)];
+    }
+
+    public long endEpochMillis(int index) {
+        return endEpochMillis[row(index)];
+    }
+
+    /**
+     * @return Estimated heap used by the columns
+     */
+    public long estimatedBytes() {
+        return (long) open.length * (6 * Double.BYTES + Long.BYTES);
+    }
+
+    @Override
+    public void addBarWithTimeValidation(Instant endTime, Number openPrice, Number highPrice, Number lowPrice,
+                                         Number closePrice, Number volume) {
+        add(endTime.toEpochMilli(), openPrice.doubleValue(), highPrice.doubleValue(), lowPrice.doubleValue(),
+                closePrice.doubleValue(), volume.doubleValue(), 0);
+    }
+
+    /**
+     * Updates older than the last bar are dropped, as in {@link ExtendedBarSeries}. Only a bar that was fed by
+     * this method is reported as completed, a bar loaded from the database is already stored.
+     */
+    @Override
+    public Bar updateLiveBar(long endEpochSecond, double open, double high, double low, double close, double volume) {
+        long end = endEpochSecond * 1000L;
+        int n = count;
+        int lastIndex = n > 0 ? getEndIndex() : -1;
+        long lastEnd = n > 0 ? endEpochMillis[head + n - 1] : Long.MIN_VALUE;
+
+        if (n > 0 && end == lastEnd) {
+            // also takes over a loaded bar that is still forming, so later ticks update it in place
+            int row = head + n - 1;
+            liveIndex = lastIndex;
+            this.open[row] = open;
+            this.high[row] = high;
+            this.low[row] = low;
+            this.close[row] = close;
+            this.volume[row] = volume;
+            return null;
+        }
+        if (end < lastEnd) {
+            return null;
+        }
+
+        Bar completed = n > 0 && liveIndex == lastIndex ? getBar(lastIndex) : null;
+        add(end, open, high, low, close, volume, 0);
+        liveIndex = getEndIndex();
+        return completed;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public NumFactory numFactory() {
+        return DoubleNumFactory.getInstance();
+    }
+
+    @Override
+    public BarBuilder barBuilder() {
+        return new TimeBarBuilderFactory().createBarBuilder(this);
+    }
+
+    @Override
+    public Bar getBar(int i) {
+        int row = row(i);
+        int capacity = open.length;
+        ColumnBar[] v = views;
+        if (v == null || v.length != capacity) {
+            v = viewsFor(capacity);
+        }
+        if (row >= v.length) {
+            return new ColumnBar(i);
+        }
+        ColumnBar view = v[row];
+        if (view == null || view.index != i) {
+            view = new ColumnBar(i);
+            v[row] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public int getBarCount() {
+        return count;
+    }
+
+    @Override
+    public List<Bar> getBarData() {
+        return new AbstractList<>() {
+            @Override
+            public Bar get(int i) {
+                return getBar(getBeginIndex() + i);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public int getBeginIndex() {
+        return count == 0 ? -1 : removedBarsCount;
+    }
+
+    @Override
+    public int getEndIndex() {
+        return count == 0 ? -1 : removedBarsCount + count - 1;
+    }
+
+    @Override
+    public int getMaximumBarCount() {
+        return maximumBarCount;
+    }
+
+    @Override
+    public void setMaximumBarCount(int maximumBarCount) {
+        if (maximumBarCount <= 0) {
+            throw new IllegalArgumentException("Maximum bar count must be strictly positive");
+        }
+        this.maximumBarCount = maximumBarCount;
+        trimToMaximum();
+    }
+
+    @Override
+    public int getRemovedBarsCount() {
+        return removedBarsCount;
+    }
+
+    @Override
+    public void addBar(Bar bar, boolean replace) {
+        long end = bar.getEndTime().toEpochMilli();
+        if (replace && count > 0) {
+            int row = head + count - 1;
+            endEpochMillis[row] = end;
+            ColumnBar[] v = views;
+            if (v != null && row < v.length) {
+                v[row] = null;
+            }
+        } else if (count > 0 && end <= endEpochMillis[head + count - 1]) {
+            throw new IllegalArgumentException("Cannot add a bar with end time " + bar.getEndTime()
+                    + " that is not after the series end time " + Instant.ofEpochMilli(endEpochMillis[head + count - 1]));
+        }
+        add(end, value(bar.getOpenPrice()), value(bar.getHighPrice()), value(bar.getLowPrice()),
+                value(bar.getClosePrice()), value(bar.getVolume()), 0);
+    }
+
+    public void addTrade(Num tradeVolume, Num tradePrice) {
+        addPrice(tradePrice);
+        int row = head + count - 1;
+        volume[row] += tradeVolume.doubleValue();
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        if (count == 0) {
+            throw new IllegalStateException("Cannot add a price to an empty series");
+        }
+        addPrice(head + count - 1, price.doubleValue());
+    }
+
+    private void addPrice(int row, double p) {
+        if (p > high[row]) {
+            high[row] = p;
+        }
+        if (p < low[row]) {
+            low[row] = p;
+        }
+        close[row] = p;
+    }
+
+    @Override
+    public BarSeries getSubSeries(int startIndex, int endIndex) {
+        if (startIndex < 0 || startIndex >= endIndex) {
+            throw new IllegalArgumentException("Invalid sub series range " + startIndex + ".." + endIndex);
+        }
+        int from = Math.max(startIndex, getBeginIndex());
+        int to = Math.min(endIndex, getEndIndex() + 1);
+        ColumnarBarSeries sub = new ColumnarBarSeries(name, interval, seriesType, instrument, Math.max(1, to - from));
+        for (int i = from; i < to; i++) {
+            int row = row(i);
+            sub.add(endEpochMillis[row], open[row], high[row], low[row], close[row], volume[row], oi[row]);
+        }
+        return sub;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarBarSeries{" + name + ", " + interval + ", " + count + " bars}";
+    }
+
+    private int row(int index) {
+        int n = count;
+        if (n == 0) {
+            throw new IndexOutOfBoundsException("Series " + name + " is empty");
+        }
+        // like BaseBarSeries: indexes of removed bars resolve to the first remaining bar
+        int logical = Math.max(0, index - removedBarsCount);
+        if (logical >= n) {
+            throw new IndexOutOfBoundsException("Index " + index + " past the end of series " + name);
+        }
+        return head + logical;
+    }
+
+    private int reserveRow() {
+        int row = head + count;
+        if (row == open.length) {
+            if (head > 0 && head >= open.length / 2) {
+                compact();
+            } else {
+                grow(open.length * 2);
+            }
+            row = head + count;
+        }
+        return row;
+    }
+
+    private void trimToMaximum() {
+        int excess = count - maximumBarCount;
+        if (excess > 0) {
+            head += excess;
+            removedBarsCount += excess;
+            count = maximumBarCount;
+        }
+    }
+
+    private void allocate(int capacity) {
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new double[capacity];
+        oi = new double[capacity];
+        endEpochMillis = new long[capacity];
+    }
+
+    private void grow(int capacity) {
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        oi = Arrays.copyOf(oi, capacity);
+        endEpochMillis = Arrays.copyOf(endEpochMillis, capacity);
+        ColumnBar[] v = views;
+        if (v != null) {
+            views = Arrays.copyOf(v, capacity);
+        }
+    }
+
+    // Copy the live rows to fresh arrays starting at 0; readers holding the old arrays stay consistent
+    private void compact() {
+        int n = count;
+        int capacity = open.length;
+        open = Arrays.copyOfRange(open, head, head + capacity);
+        high = Arrays.copyOfRange(high, head, head + capacity);
+        low = Arrays.copyOfRange(low, head, head + capacity);
+        close = Arrays.copyOfRange(close, head, head + capacity);
+        volume = Arrays.copyOfRange(volume, head, head + capacity);
+        oi = Arrays.copyOfRange(oi, head, head + capacity);
+        endEpochMillis = Arrays.copyOfRange(endEpochMillis, head, head + capacity);
+        ColumnBar[] v = views;
+        if (v != null) {
+            views = Arrays.copyOfRange(v, head, head + capacity);
+        }
+        head = 0;
+        count = n;
+    }
+
+    // Readers may create the first view array; losing that race only costs the views cached in the other one
+    private ColumnBar[] viewsFor(int capacity) {
+        ColumnBar[] v = views;
+        if (v == null || v.length != capacity) {
+            v = v == null ? new ColumnBar[capacity] : Arrays.copyOf(v, capacity);
+            views = v;
+        }
+        return v;
+    }
+
+    private static double value(Num num) {
+        return num == null ? 0 : num.doubleValue();
+    }
+
+    /**
+     * View over one row. Prices are read from the columns on every call, so the view of a forming bar follows its
+     * updates; the {@link Num} of each price is cached and only rebuilt when the column value changed. Races on
+     * the caches are benign: every getter checks the cached value against the column before returning it.
+     * {@link #addPrice(Num)} and {@link #addTrade(Num, Num)} write through to the row, as on a {@link BaseBar}.
+     */
+    private final class ColumnBar extends BaseBar {
+
+        private final int index;
+        private Num openNum;
+        private Num highNum;
+        private Num lowNum;
+        private Num closeNum;
+        private Num volumeNum;
+
+        private ColumnBar(int index) {
+            super(timePeriod, Instant.ofEpochMilli(endEpochMillis(index)), ZERO, ZERO, ZERO, ZERO, ZERO, ZERO, 0);
+            this.index = index;
+        }
+
+        @Override
+        public Num getOpenPrice() {
+            double value = open(index);
+            Num num = openNum;
+            if (num == null || num.doubleValue() != value) {
+                num = DoubleNum.valueOf(value);
+                openNum = num;
+            }
+            return num;
+        }
+
+        @Override
+        public Num getHighPrice() {
+            double value = high(index);
+            Num num = highNum;
+            if (num == null || num.doubleValue() != value) {
+                num = DoubleNum.valueOf(value);
+                highNum = num;
+            }
+            return num;
+        }
+
+        @Override
+        public Num getLowPrice() {
+            double value = low(index);
+            Num num = lowNum;
+            if (num == null || num.doubleValue() != value) {
+                num = DoubleNum.valueOf(value);
+                lowNum = num;
+            }
+            return num;
+        }
+
+        @Override
+        public Num getClosePrice() {
+            double value = close(index);
+            Num num = closeNum;
+            if (num == null || num.doubleValue() != value) {
+                num = DoubleNum.valueOf(value);
+                closeNum = num;
+            }
+            return num;
+        }
+
+        @Override
+        public Num getVolume() {
+            double value = volume(index);
+            Num num = volumeNum;
+            if (num == null || num.doubleValue() != value) {
+                num = DoubleNum.valueOf(value);
+                volumeNum = num;
+            }
+            return num;
+        }
+
+        @Override
+        public void addPrice(Num price) {
+            ColumnarBarSeries.this.addPrice(row(index), price.doubleValue());
+        }
+
+        @Override
+        public void addTrade(Num tradeVolume, Num tradePrice) {
+            int row = row(index);
+            ColumnarBarSeries.this.addPrice(row, tradePrice.doubleValue());
+            volume[row] += tradeVolume.doubleValue();
+        }
+    }
+}
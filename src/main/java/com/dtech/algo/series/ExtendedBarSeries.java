@@ -3,6 +3,7 @@ package com.dtech.algo.series;
 import com.dtech.kitecon.strategy.dataloader.BarsLoader;
 import lombok.*;
 import lombok.experimental.Delegate;
+import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.BaseBar;
 import org.ta4j.core.bars.TimeBarBuilder;
@@ -47,6 +48,45 @@ public class ExtendedBarSeries implements IntervalBarSeries {
 //        }
         this.addBar(bar, replace);
     }
+    /**
+     * Updates older than the last bar are dropped, as in {@link ColumnarBarSeries}; the tick aggregator folds
+     * late ticks into the open bar before publishing it. Only a live bar is ever reported as completed, a bar
+     * loaded from the database is already stored.
+     */
+    @Override
+    public Bar updateLiveBar(long endEpochSecond, double open, double high, double low, double close, double volume) {
+        Bar last = this.getBarCount() > 0 ? getLastBar() : null;
+        if (last instanceof LiveBar live) {
+            long liveEnd = live.getEndEpochSecond();
+            if (endEpochSecond == liveEnd) {
+                live.set(high, low, close, volume);
+                return null;
+            }
+            if (endEpochSecond < liveEnd) {
+                return null;
+            }
+        } else if (last != null) {
+            long lastEnd = last.getEndTime().getEpochSecond();
+            if (endEpochSecond == lastEnd) {
+                // Loaded bar is still forming, take it over so later ticks update it in place
+                this.addBar(new LiveBar(last.getTimePeriod(), last.getEndTime(), open, high, low, close, volume), true);
+                return null;
+            }
+            if (endEpochSecond < lastEnd) {
+                return null;
+            }
+        }
+
+        Bar completed = null;
+        if (last instanceof LiveBar live) {
+            completed = live.freeze();
+            this.addBar(completed, true);
+        }
+        this.addBar(new LiveBar(Duration.ofSeconds(interval.getOffset()), Instant.ofEpochSecond(endEpochSecond),
+                open, high, low, close, volume));
+        return completed;
+    }
+
     private Instant calculateActualEndTime(Instant endTime) {
         int timeMinute = endTime.get(ChronoField.MINUTE_OF_HOUR);
         int timeHour = endTime.get(ChronoField.HOUR_OF_DAY);
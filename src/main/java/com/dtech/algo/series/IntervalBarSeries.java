@@ -1,5 +1,6 @@
 package com.dtech.algo.series;
 
+import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.num.DecimalNum;
 
@@ -13,6 +14,17 @@ public interface IntervalBarSeries extends BarSeries {
   void addBarWithTimeValidation(Instant endTime, Number openPrice, Number highPrice, Number lowPrice,
                                 Number closePrice, Number volume);
 
+  /**
+   * Publish the state of the forming bar that ends at {@code endEpochSecond}, updating it in place.
+   * A later end time closes the forming bar and opens a new one. The bar is passed as epoch seconds and
+   * primitives so that a tick inside the forming bar builds no {@link Instant} or {@code Num}.
+   *
+   * @param endEpochSecond End time of the bar, in epoch seconds
+   * @param volume         Volume traded within the bar so far
+   * @return The bar completed by this update, or null if the update stayed within the forming bar
+   */
+  Bar updateLiveBar(long endEpochSecond, double open, double high, double low, double close, double volume);
+
   // Convenience overload for business logic using ZonedDateTime
   default void addBarWithTimeValidation(ZonedDateTime endTime, Number openPrice, Number highPrice, Number lowPrice,
                                         Number closePrice, Number volume) {
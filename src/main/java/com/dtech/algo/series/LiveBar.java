@@ -0,0 +1,129 @@
+package com.dtech.algo.series;
+
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Mutable bar used as the last (still forming) bar of an {@link ExtendedBarSeries}.
+ * <p>
+ * Open/high/low/close/volume are kept as volatile primitives and overwritten in place with the state the tick
+ * aggregator publishes, so the tick path needs neither reflection nor a {@link Num} per update. Each getter
+ * builds its {@link Num} from a single read of its field, so a reader never gets a value older than the last
+ * update. Once the bar closes it is replaced in the series by the immutable bar returned from {@link #freeze()}.
+ * <p>
+ * A live bar has a single writer (the tick thread of its instrument); readers only ever see a consistent
+ * view per field. The prices passed to the {@link BaseBar} constructor are never read: every accessor,
+ * {@link #equals(Object)} and {@link #toString()} go through the live fields.
+ */
+public class LiveBar extends BaseBar {
+
+    private final long endEpochSecond;
+    private final double open;
+    private volatile double high;
+    private volatile double low;
+    private volatile double close;
+    private volatile double volume;
+
+    public LiveBar(Duration timePeriod, Instant endTime, double open, double high, double low, double close,
+                   double volume) {
+        super(timePeriod, endTime, DecimalNum.valueOf(open), DecimalNum.valueOf(high), DecimalNum.valueOf(low),
+                DecimalNum.valueOf(close), DecimalNum.valueOf(0), DecimalNum.valueOf(0), 0);
+        this.endEpochSecond = endTime.getEpochSecond();
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * Overwrite the bar with the current state of the forming bar.
+     *
+     * @param volume Volume traded within the bar so far
+     */
+    public void set(double high, double low, double close, double volume) {
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * @return The end time of the bar in epoch seconds, for comparisons that should not touch an {@link Instant}
+     */
+    public long getEndEpochSecond() {
+        return endEpochSecond;
+    }
+
+    /**
+     * @return An immutable copy of the bar in its current state
+     */
+    public BaseBar freeze() {
+        return new BaseBar(getTimePeriod(), getEndTime(), DecimalNum.valueOf(open), DecimalNum.valueOf(high),
+                DecimalNum.valueOf(low), DecimalNum.valueOf(close), DecimalNum.valueOf(volume), DecimalNum.valueOf(0), 0);
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        double p = price.doubleValue();
+        set(Math.max(high, p), Math.min(low, p), p, volume);
+    }
+
+    @Override
+    public Num getOpenPrice() {
+        return DecimalNum.valueOf(open);
+    }
+
+    @Override
+    public Num getHighPrice() {
+        return DecimalNum.valueOf(high);
+    }
+
+    @Override
+    public Num getLowPrice() {
+        return DecimalNum.valueOf(low);
+    }
+
+    @Override
+    public Num getClosePrice() {
+        return DecimalNum.valueOf(close);
+    }
+
+    @Override
+    public Num getVolume() {
+        return DecimalNum.valueOf(volume);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LiveBar other)) {
+            return false;
+        }
+        return endEpochSecond == other.endEpochSecond
+                && getTimePeriod().equals(other.getTimePeriod())
+                && Double.compare(open, other.open) == 0
+                && Double.compare(high, other.high) == 0
+                && Double.compare(low, other.low) == 0
+                && Double.compare(close, other.close) == 0
+                && Double.compare(volume, other.volume) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getTimePeriod(), endEpochSecond, open, high, low, close, volume);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{end time: %s, close price: %s, open price: %s, low price: %s, high price: %s, volume: %s}",
+                getEndTime(), close, open, low, high, volume);
+    }
+}
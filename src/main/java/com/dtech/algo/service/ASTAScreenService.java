@@ -6,10 +6,12 @@ import com.dtech.algo.controller.dto.ASTASignalResult;
 import com.dtech.algo.series.IntervalBarSeries;
 import com.dtech.kitecon.controller.BarSeriesHelper;
 import com.dtech.kitecon.service.DataFetchService;
+import com.dtech.kitecon.service.HistoricalFetchJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -20,6 +22,8 @@ import java.util.*;
 @Slf4j
 public class ASTAScreenService {
 
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(5);
+
     private final BarSeriesHelper barSeriesHelper;
     private final ASTASignalService astaSignalService;
     private final SymbolExpansionService symbolExpansionService;
@@ -43,8 +47,17 @@ public class ASTAScreenService {
             List<String> targetSymbols = symbolExpansionService.expandSymbolOrIndex(symbol);
 
             for (String target : targetSymbols) {
-                // Download candle data for all timeframes
-                request.getTimeframeMap().values().forEach(interval -> dataFetchService.downloadCandleData(target, interval, new String[]{"NSE"}));
+                // Download candle data for all timeframes and wait for it before reading the series
+                List<HistoricalFetchJob> jobs = new ArrayList<>();
+                request.getTimeframeMap().values().forEach(interval -> jobs.addAll(dataFetchService.downloadCandleData(target, interval, new String[]{"NSE"})));
+                try {
+                    if (!HistoricalFetchJob.awaitAll(jobs, DOWNLOAD_TIMEOUT)) {
+                        log.warn("Candle download for {} did not finish within {}", target, DOWNLOAD_TIMEOUT);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return ASTAScreenResponse.builder().results(results).build();
+                }
                 Map<TimeframeType, IntervalBarSeries> seriesMap =
                         new EnumMap<>(TimeframeType.class);
 
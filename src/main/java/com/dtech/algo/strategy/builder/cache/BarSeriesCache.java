@@ -1,9 +1,226 @@
 package com.dtech.algo.strategy.builder.cache;
 
+import com.dtech.algo.exception.StrategyException;
 import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.ta4j.core.BarSeries;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Process-wide store of loaded bar series, shared by every thread.
+ * <p>
+ * There is one series per instrument, exchange, type, series type and interval. It covers the widest date range
+ * requested so far and is handed out for any range inside it, so it may hold more bars than a given config asked
+ * for. A request that starts earlier, or ends later than the series was loaded for plus
+ * {@code series.store.max-staleness-minutes}, loads the series again over the union of both ranges. That keeps
+ * configs ending at {@code Instant.now()} on the shared series instead of loading a near-duplicate every call.
+ * <p>
+ * Series are published as snapshots: readers get the current instance without locking, and a writer replaces
+ * the whole instance via {@link #update(BarSeriesConfig, UnaryOperator)} rather than mutating what readers may
+ * hold. Each key has one load in flight at a time; it runs outside any map lock, and concurrent requests for
+ * that key wait for its result. The store is bounded by {@code series.store.max-entries}.
+ * <p>
+ * The name a strategy gives a series ({@link BarSeriesConfig#getName()}) is build scratch state like indicators
+ * and rules, so the name binding stays per thread. A binding made by {@link #getOrLoad} only remembers the key
+ * and resolves it against the store, so threads never keep an evicted series reachable.
+ */
 @Component
-public class BarSeriesCache extends ThreadLocalCache<String, IntervalBarSeries> {
+public class BarSeriesCache {
+
+  @FunctionalInterface
+  public interface SeriesLoader {
+    IntervalBarSeries load(BarSeriesConfig config) throws StrategyException;
+  }
+
+  /**
+   * A loaded series and the date range it was loaded for (null bounds are open).
+   */
+  private record Entry(IntervalBarSeries series, Instant from, Instant to) {
+
+    private boolean covers(BarSeriesConfig config, Duration maxStaleness) {
+      Instant start = config.getStartDate();
+      Instant end = config.getEndDate();
+      boolean startCovered = start == null || from == null || !start.isBefore(from);
+      boolean endCovered = end == null || to == null || !end.isAfter(to.plus(maxStaleness));
+      return startCovered && endCovered;
+    }
+  }
+
+  @Value("${series.store.max-entries:256}")
+  private int maxEntries = 256;
+
+  @Value("${series.store.max-staleness-minutes:5}")
+  private long maxStalenessMinutes = 5;
+
+  private ConcurrentMap<String, CompletableFuture<Entry>> store;
+
+  // explicit bindings (put) hold the series; bindings made by getOrLoad hold the store key
+  private final ThreadLocal<Map<String, IntervalBarSeries>> names = ThreadLocal.withInitial(HashMap::new);
+  private final ThreadLocal<Map<String, String>> keys = ThreadLocal.withInitial(HashMap::new);
+
+  @PostConstruct
+  public void init() {
+    store = CacheBuilder.newBuilder()
+        .maximumSize(Math.max(1, maxEntries))
+        .<String, CompletableFuture<Entry>>build()
+        .asMap();
+  }
+
+  /**
+   * Get the shared series for a config, loading it if no thread has loaded a series covering its range yet,
+   * and bind it to the config's name for the calling thread.
+   *
+   * @param config The requested series
+   * @param loader Loads the series on a miss; runs at most once per key at a time
+   * @return The shared series snapshot
+   */
+  public IntervalBarSeries getOrLoad(BarSeriesConfig config, SeriesLoader loader) throws StrategyException {
+    String key = keyOf(config);
+    Duration maxStaleness = Duration.ofMinutes(maxStalenessMinutes);
+    while (true) {
+      CompletableFuture<Entry> current = store.get(key);
+      if (current == null) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        current = store.putIfAbsent(key, created);
+        if (current == null) {
+          load(key, created, config, loader);
+          current = created;
+        }
+      }
+      Entry entry = await(current);
+      if (entry.covers(config, maxStaleness)) {
+        if (config.getName() != null) {
+          names.get().remove(config.getName());
+          keys.get().put(config.getName(), key);
+        }
+        return entry.series();
+      }
+      // widen to the union of both ranges; a concurrent widening wins and is checked again
+      CompletableFuture<Entry> created = new CompletableFuture<>();
+      if (store.replace(key, current, created)) {
+        load(key, created, widen(config, entry), loader);
+      }
+    }
+  }
+
+  /**
+   * Replace the shared snapshot of a series. The function receives the current snapshot (null if the series
+   * is not loaded) and must return a new instance instead of modifying the one it was given.
+   *
+   * @param config The series to update; its date range is recorded when the series was not loaded
+   * @param writer Produces the next snapshot; runs under the key's lock
+   */
+  public void update(BarSeriesConfig config, UnaryOperator<IntervalBarSeries> writer) {
+    store.compute(keyOf(config), (k, current) -> {
+      Entry entry = current == null ? null : current.getNow(null);
+      IntervalBarSeries next = writer.apply(entry == null ? null : entry.series());
+      if (next == null) {
+        return null;
+      }
+      return CompletableFuture.completedFuture(entry == null
+          ? new Entry(next, config.getStartDate(), config.getEndDate())
+          : new Entry(next, entry.from(), entry.to()));
+    });
+  }
+
+  /**
+   * Drop a series from the shared store, e.g. after its candles were re-downloaded.
+   */
+  public void invalidate(BarSeriesConfig config) {
+    store.remove(keyOf(config));
+  }
+
+  public int size() {
+    return store.size();
+  }
+
+  /**
+   * @return The series the calling thread bound to this name, or null
+   */
+  public IntervalBarSeries get(String name) {
+    IntervalBarSeries series = names.get().get(name);
+    if (series != null) {
+      return series;
+    }
+    String key = keys.get().get(name);
+    CompletableFuture<Entry> loaded = key == null ? null : store.get(key);
+    Entry entry = loaded == null ? null : loaded.getNow(null);
+    return entry == null ? null : entry.series();
+  }
+
+  /**
+   * Bind a series to a name for the calling thread only. The binding keeps the series reachable until
+   * {@link #reset()}.
+   */
+  public void put(String name, IntervalBarSeries series) {
+    keys.get().remove(name);
+    names.get().put(name, series);
+  }
+
+  /**
+   * Forget the calling thread's name bindings. Shared series stay loaded.
+   */
+  public void reset() {
+    names.remove();
+    keys.remove();
+  }
+
+  private void load(String key, CompletableFuture<Entry> created, BarSeriesConfig config, SeriesLoader loader) {
+    try {
+      created.complete(new Entry(loader.load(config), config.getStartDate(), config.getEndDate()));
+    } catch (StrategyException | RuntimeException e) {
+      // let the next caller retry
+      store.remove(key, created);
+      created.completeExceptionally(e);
+    }
+  }
+
+  private static Entry await(CompletableFuture<Entry> future) throws StrategyException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StrategyException("Interrupted waiting for a bar series load", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof StrategyException se) {
+        throw se;
+      }
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static BarSeriesConfig widen(BarSeriesConfig config, Entry entry) throws StrategyException {
+    BarSeriesConfig wider;
+    try {
+      wider = config.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new StrategyException("Cannot copy bar series config " + config.getName(), e);
+    }
+    if (config.getStartDate() != null && entry.from() != null && entry.from().isBefore(config.getStartDate())) {
+      wider.setStartDate(entry.from());
+    }
+    if (config.getEndDate() != null && entry.to() != null && entry.to().isAfter(config.getEndDate())) {
+      wider.setEndDate(entry.to());
+    }
+    return wider;
+  }
+
+  static String keyOf(BarSeriesConfig config) {
+    return config.getInstrument() + '|' + config.getExchange() + '|' + config.getInstrumentType()
+        + '|' + config.getSeriesType() + '|' + config.getInterval();
+  }
 }
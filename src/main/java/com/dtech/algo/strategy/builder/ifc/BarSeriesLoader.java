@@ -4,6 +4,30 @@ import com.dtech.algo.exception.StrategyException;
 import com.dtech.algo.series.IntervalBarSeries;
 import com.dtech.algo.strategy.config.BarSeriesConfig;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface BarSeriesLoader {
   IntervalBarSeries loadBarSeries(BarSeriesConfig barSeriesConfig) throws StrategyException;
+
+  /**
+   * Load the series again from its source, bypassing any cache of the loader itself.
+   */
+  default IntervalBarSeries reloadBarSeries(BarSeriesConfig barSeriesConfig) throws StrategyException {
+    return loadBarSeries(barSeriesConfig);
+  }
+
+  /**
+   * Load several series from the source at once, bypassing any cache of the loader itself. Loaders that can
+   * read many series with fewer queries override this.
+   *
+   * @return The series, in the order of {@code barSeriesConfigs}
+   */
+  default List<IntervalBarSeries> reloadAllBarSeries(List<BarSeriesConfig> barSeriesConfigs) throws StrategyException {
+    List<IntervalBarSeries> series = new ArrayList<>(barSeriesConfigs.size());
+    for (BarSeriesConfig config : barSeriesConfigs) {
+      series.add(reloadBarSeries(config));
+    }
+    return series;
+  }
 }
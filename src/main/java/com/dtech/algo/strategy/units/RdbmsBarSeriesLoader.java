@@ -1,17 +1,20 @@
 package com.dtech.algo.strategy.units;
 
+import com.dtech.algo.exception.StrategyException;
+import com.dtech.algo.series.ColumnarBarSeries;
 import com.dtech.algo.series.Exchange;
 import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.Interval;
 import com.dtech.algo.series.IntervalBarSeries;
 import com.dtech.algo.strategy.builder.cache.BarSeriesCache;
 import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
 import com.dtech.algo.strategy.config.BarSeriesConfig;
-import com.dtech.kitecon.data.Candle;
 import com.dtech.kitecon.data.Instrument;
-import com.dtech.kitecon.repository.CandleRepository;
+import com.dtech.kitecon.repository.CandleStreamReader;
 import com.dtech.kitecon.repository.InstrumentRepository;
 import com.dtech.kitecon.strategy.dataloader.BarsLoader;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 import org.ta4j.core.BarSeries;
@@ -19,56 +22,125 @@ import org.ta4j.core.BaseBarSeriesBuilder;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 @Primary
 public class RdbmsBarSeriesLoader implements BarSeriesLoader {
 
-    private final CandleRepository candleRepository;
+    private final CandleStreamReader candleStreamReader;
     private final InstrumentRepository instrumentRepository;
     private final BarSeriesCache barSeriesCache;
 
+    // Columnar series calculate in DoubleNum, so only enable when strategies don't mix in DecimalNum constants
+    @Value("${series.columnar.enabled:false}")
+    private boolean columnar;
+
+    @Value("${candles.read.bulk-instruments:200}")
+    private int bulkInstruments;
+
     @Override
-    public IntervalBarSeries loadBarSeries(BarSeriesConfig barSeriesConfig) {
-        String key = barSeriesConfig.getName();
-        IntervalBarSeries barSeries = barSeriesCache.get(key);
-        if(barSeries != null) {
-            return barSeries;
-        }
+    public IntervalBarSeries loadBarSeries(BarSeriesConfig barSeriesConfig) throws StrategyException {
+        return barSeriesCache.getOrLoad(barSeriesConfig, this::reloadBarSeries);
+    }
+
+    @Override
+    public IntervalBarSeries reloadBarSeries(BarSeriesConfig barSeriesConfig) {
         Instrument instrument = resolveInstrument(barSeriesConfig);
-        List<Candle> candles = candleRepository.findAllByInstrumentAndTimeframeAndTimestampBetween(
-                instrument, barSeriesConfig.getInterval(),
-                barSeriesConfig.getStartDate(),
-                barSeriesConfig.getEndDate().plus(1, ChronoUnit.DAYS));
-        IntervalBarSeries intervalBarSeries = getBarSeries(instrument, candles, barSeriesConfig);
-        barSeriesCache.put(key, intervalBarSeries);
-        return intervalBarSeries;
+        Instant from = barSeriesConfig.getStartDate();
+        Instant to = barSeriesConfig.getEndDate().plus(1, ChronoUnit.DAYS);
+        Loading loading = newSeries(barSeriesConfig, instrument);
+        candleStreamReader.read(instrument.getInstrumentToken(), barSeriesConfig.getInterval(), from, to, loading.sink());
+        return loading.series();
     }
 
-    protected IntervalBarSeries getBarSeries(Instrument instrument, List<? extends Candle> candles, BarSeriesConfig barSeriesConfig) {
-        candles.sort(Comparator.comparing(Candle::getTimestamp));
+    /**
+     * Loads the series of many instruments with one candle query per interval and chunk of
+     * {@code candles.read.bulk-instruments} instruments, and resolves their instruments with one lookup.
+     */
+    @Override
+    public List<IntervalBarSeries> reloadAllBarSeries(List<BarSeriesConfig> barSeriesConfigs) {
+        Map<String, List<Instrument>> bySymbol = instrumentRepository.findAllByTradingsymbolIn(
+                        barSeriesConfigs.stream().map(BarSeriesConfig::getInstrument).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.groupingBy(Instrument::getTradingsymbol));
+
+        IntervalBarSeries[] result = new IntervalBarSeries[barSeriesConfigs.size()];
+        Map<Interval, List<Integer>> byInterval = new EnumMap<>(Interval.class);
+        for (int i = 0; i < barSeriesConfigs.size(); i++) {
+            byInterval.computeIfAbsent(barSeriesConfigs.get(i).getInterval(), k -> new ArrayList<>()).add(i);
+        }
+        int chunk = Math.max(1, bulkInstruments);
+        for (Map.Entry<Interval, List<Integer>> group : byInterval.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            for (int start = 0; start < indexes.size(); start += chunk) {
+                Map<Long, List<Loading>> byToken = new HashMap<>();
+                Instant from = null;
+                Instant to = null;
+                for (int i : indexes.subList(start, Math.min(indexes.size(), start + chunk))) {
+                    BarSeriesConfig config = barSeriesConfigs.get(i);
+                    Instrument instrument = resolveInstrument(config, bySymbol.getOrDefault(config.getInstrument(), List.of()));
+                    Loading loading = newSeries(config, instrument);
+                    result[i] = loading.series();
+                    byToken.computeIfAbsent(instrument.getInstrumentToken(), k -> new ArrayList<>()).add(loading);
+                    from = from == null || config.getStartDate().isBefore(from) ? config.getStartDate() : from;
+                    to = to == null || config.getEndDate().isAfter(to) ? config.getEndDate() : to;
+                }
+                // one range covers the chunk; each series keeps only the candles of its own range
+                candleStreamReader.readAll(byToken.keySet(), group.getKey(), from, to.plus(1, ChronoUnit.DAYS),
+                        (token, endEpochMillis, open, high, low, close, volume, oi) -> {
+                            for (Loading loading : byToken.get(token)) {
+                                if (endEpochMillis >= loading.fromMillis() && endEpochMillis <= loading.toMillis()) {
+                                    loading.sink().onCandle(endEpochMillis, open, high, low, close, volume, oi);
+                                }
+                            }
+                        });
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private record Loading(IntervalBarSeries series, CandleStreamReader.CandleRowHandler sink, long fromMillis,
+                           long toMillis) {
+    }
+
+    private Loading newSeries(BarSeriesConfig barSeriesConfig, Instrument instrument) {
+        long fromMillis = barSeriesConfig.getStartDate().toEpochMilli();
+        long toMillis = barSeriesConfig.getEndDate().plus(1, ChronoUnit.DAYS).toEpochMilli();
+        if (columnar) {
+            ColumnarBarSeries series = new ColumnarBarSeries(instrument.getTradingsymbol(),
+                    barSeriesConfig.getInterval(), barSeriesConfig.getSeriesType(), barSeriesConfig.getInstrument());
+            return new Loading(series, series::add, fromMillis, toMillis);
+        }
+
         BarSeries series = new BaseBarSeriesBuilder().withName(instrument.getTradingsymbol())
                 .build();
-        candles.forEach(candle -> addBarToSeries(series, candle));
-        return ExtendedBarSeries.builder()
+        IntervalBarSeries extended = ExtendedBarSeries.builder()
                 .interval(barSeriesConfig.getInterval())
                 .seriesType(barSeriesConfig.getSeriesType())
                 .delegate(series)
                 .instrument(barSeriesConfig.getInstrument())
                 .build();
+        return new Loading(extended, (endEpochMillis, open, high, low, close, volume, oi) -> series.addBar(
+                BarsLoader.getBar(open, high, low, close, volume, Instant.ofEpochMilli(endEpochMillis))),
+                fromMillis, toMillis);
     }
 
-    protected void addBarToSeries(BarSeries series, Candle candle) {
-        Instant date = candle.getTimestamp();
-        double open = candle.getOpen();
-        double high = candle.getHigh();
-        double low = candle.getLow();
-        double close = candle.getClose();
-        double volume = candle.getVolume();
-        series.addBar(BarsLoader.getBar(open, high, low, close, volume, date));
+    private Instrument resolveInstrument(BarSeriesConfig barSeriesConfig, List<Instrument> exactMatches) {
+        for (Instrument instrument : exactMatches) {
+            if (barSeriesConfig.getExchange().name().equals(instrument.getExchange())
+                    && barSeriesConfig.getInstrumentType().name().equals(instrument.getInstrumentType())) {
+                return instrument;
+            }
+        }
+        return resolveInstrument(barSeriesConfig);
     }
 
     public Instrument resolveInstrument(BarSeriesConfig barSeriesConfig) {
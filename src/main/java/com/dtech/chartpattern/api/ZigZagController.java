@@ -4,17 +4,21 @@ import com.dtech.chartpattern.api.dto.ZigZagRequests;
 import com.dtech.chartpattern.api.dto.ZigZagResponses;
 import com.dtech.chartpattern.config.ChartPatternProperties;
 import com.dtech.chartpattern.view.ChartPlotService;
+import com.dtech.chartpattern.zigzag.ZigZagIndexJob;
+import com.dtech.chartpattern.zigzag.ZigZagIndexService;
 import com.dtech.chartpattern.zigzag.ZigZagParams;
 import com.dtech.chartpattern.zigzag.ZigZagPoint;
 import com.dtech.chartpattern.zigzag.ZigZagService;
 import com.dtech.kitecon.data.Instrument;
 import com.dtech.algo.series.Interval;
 import com.dtech.kitecon.repository.InstrumentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -23,10 +27,15 @@ import java.util.*;
 @RequiredArgsConstructor
 public class ZigZagController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final long STREAM_POLL_MILLIS = 15_000;
+
     private final InstrumentRepository instrumentRepository;
     private final ZigZagService zigZagService;
     private final ChartPatternProperties properties;
     private final ChartPlotService chartPlotService;
+    private final ZigZagIndexService zigZagIndexService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/stock")
     public ResponseEntity<List<ZigZagResponses.StockResult>> computeForStock(@RequestBody ZigZagRequests.StockRequest req) {
@@ -53,13 +62,16 @@ public class ZigZagController {
         return ResponseEntity.ok(out);
     }
 
+    /**
+     * Start computing every member of an index. Returns 202 with the job id at once; poll
+     * {@code GET /index/jobs/{id}} or stream {@code GET /index/jobs/{id}/stream} for results.
+     */
     @PostMapping("/index")
     public ResponseEntity<ZigZagResponses.IndexResult> computeForIndex(@RequestBody ZigZagRequests.IndexRequest req) {
         Objects.requireNonNull(req.getIndexName(), "indexName is required");
         Objects.requireNonNull(req.getTimeframes(), "timeframes are required");
 
-        List<String> symbols = properties.getIndexes().getOrDefault(req.getIndexName(), Collections.emptyList());
-        if (symbols.isEmpty()) {
+        if (zigZagIndexService.getMembers(req.getIndexName()).isEmpty()) {
             return ResponseEntity.badRequest().body(
                     ZigZagResponses.IndexResult.builder()
                             .indexName(req.getIndexName())
@@ -68,29 +80,75 @@ public class ZigZagController {
             );
         }
 
-        List<ZigZagResponses.StockResult> results = new ArrayList<>();
-        for (String symbol : symbols) {
-            Instrument instrument = instrumentRepository.findByTradingsymbolAndExchangeIn(symbol, new String[]{"NSE"});
-            if (instrument == null) continue;
-
-            for (String tfName : req.getTimeframes()) {
-                Interval interval = Interval.valueOf(tfName);
-                ZigZagParams params = zigZagService.resolveParams(symbol, interval);
-                List<ZigZagPoint> pivots = zigZagService.detectAndPersist(symbol, instrument, interval, req.isPersist());
-                results.add(ZigZagResponses.StockResult.builder()
-                        .tradingSymbol(symbol)
-                        .timeframe(interval.name())
-                        .params(params)
-                        .pivots(pivots)
-                        .build());
-            }
+        List<Interval> intervals = req.getTimeframes().stream().map(Interval::valueOf).toList();
+        ZigZagIndexJob job = zigZagIndexService.submit(req.getIndexName(), intervals, req.isPersist());
+        return ResponseEntity.accepted().body(ZigZagResponses.IndexResult.builder()
+                .indexName(req.getIndexName())
+                .status(job.status())
+                .results(Collections.emptyList())
+                .build());
+    }
+
+    /**
+     * Start an index computation and stream its results as NDJSON, one line per symbol and timeframe.
+     */
+    @PostMapping(value = "/index/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamForIndex(@RequestBody ZigZagRequests.IndexRequest req) {
+        ResponseEntity<ZigZagResponses.IndexResult> started = computeForIndex(req);
+        if (started.getBody() == null || started.getBody().getStatus() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return streamIndexJob(started.getBody().getStatus().id(), 0);
+    }
+
+    @GetMapping("/index/jobs/{id}")
+    public ResponseEntity<ZigZagResponses.IndexResult> getIndexJob(@PathVariable String id,
+                                                                  @RequestParam(defaultValue = "0") int from) {
+        ZigZagIndexJob job = zigZagIndexService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(ZigZagResponses.IndexResult.builder()
+                .indexName(job.getIndexName())
+                .status(job.status())
+                .results(job.getResults(from))
+                .build());
+    }
 
-        ZigZagResponses.IndexResult response = ZigZagResponses.IndexResult.builder()
-                .indexName(req.getIndexName())
-                .results(results)
-                .build();
-        return ResponseEntity.ok(response);
+    /**
+     * Stream the results of an index job as NDJSON from offset {@code from}, as they complete. The
+     * response ends when the job is done.
+     */
+    @GetMapping(value = "/index/jobs/{id}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamIndexJob(@PathVariable String id,
+                                                                @RequestParam(defaultValue = "0") int from) {
+        ZigZagIndexJob job = zigZagIndexService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> {
+            int next = Math.max(0, from);
+            try {
+                while (true) {
+                    List<ZigZagResponses.StockResult> batch = job.awaitResults(next, STREAM_POLL_MILLIS);
+                    for (ZigZagResponses.StockResult result : batch) {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    out.flush();
+                    next += batch.size();
+                    if (batch.isEmpty() && job.isDone() && next >= job.status().completed()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        return ResponseEntity.ok()
+                .header("X-Job-Id", job.getId())
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     @GetMapping(value = "/plot", produces = MediaType.IMAGE_PNG_VALUE)
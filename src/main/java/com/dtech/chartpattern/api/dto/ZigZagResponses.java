@@ -1,5 +1,6 @@
 package com.dtech.chartpattern.api.dto;
 
+import com.dtech.chartpattern.zigzag.ZigZagIndexJob;
 import com.dtech.chartpattern.zigzag.ZigZagPoint;
 import com.dtech.chartpattern.zigzag.ZigZagParams;
 import lombok.AllArgsConstructor;
@@ -20,6 +21,7 @@ public class ZigZagResponses {
         private String timeframe;
         private ZigZagParams params;
         private List<ZigZagPoint> pivots;
+        private String error;          // set instead of pivots when the symbol could not be computed
     }
 
     @Data
@@ -28,6 +30,7 @@ public class ZigZagResponses {
     @AllArgsConstructor
     public static class IndexResult {
         private String indexName;
+        private ZigZagIndexJob.Status status;
         private List<StockResult> results;
     }
 }
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Entity
@@ -29,10 +30,25 @@ public class ZigZagSnapshot {
     @Column(name = "timeframe", nullable = false)
     private Interval interval;
 
+    // legacy text encoding, only read while pivots_bin is null; new writes store "[]" for NOT NULL schemas
     @Lob
     @Column(name = "pivots_json", nullable = false, columnDefinition = "LONGTEXT")
     private String pivotsJson;
 
+    // ZigZagPivotCodec encoding
+    @Lob
+    @Column(name = "pivots_bin", columnDefinition = "LONGBLOB")
+    private byte[] pivotsBin;
+
+    // ZigZagEngine checkpoint the pivots were produced by; null forces a full replay
+    @Lob
+    @Column(name = "engine_state", columnDefinition = "LONGBLOB")
+    private byte[] engineState;
+
+    // open time of the last bar fed to the engine
+    @Column(name = "last_bar_at")
+    private Instant lastBarAt;
+
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 }
@@ -2,11 +2,33 @@ package com.dtech.chartpattern.persistence;
 
 import com.dtech.algo.series.Interval;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface ZigZagSnapshotRepository extends JpaRepository<ZigZagSnapshot, Long> {
     Optional<ZigZagSnapshot> findByTradingSymbolAndInterval(String tradingSymbol, Interval interval);
+
+    /**
+     * Append encoded pivots to a stored snapshot and overwrite its skip count and engine checkpoint, without
+     * rewriting the pivots already stored. Only applies if the stored pivots still have the expected length.
+     *
+     * @return 1 if appended, 0 if the snapshot changed meanwhile
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE zigzag_snapshot SET pivots_bin = CONCAT(INSERT(pivots_bin, :skipPosition, 4, :skip), :tail), "
+            + "engine_state = :engineState, last_bar_at = :lastBarAt, updated_at = :updatedAt "
+            + "WHERE id = :id AND LENGTH(pivots_bin) = :expectedLength", nativeQuery = true)
+    int appendPivots(@Param("id") Long id, @Param("expectedLength") int expectedLength,
+                     @Param("skipPosition") int skipPosition, @Param("skip") byte[] skip, @Param("tail") byte[] tail,
+                     @Param("engineState") byte[] engineState, @Param("lastBarAt") Instant lastBarAt,
+                     @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,304 @@
+package com.dtech.chartpattern.zigzag;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Incremental ZigZag pivot detector: consumes one closed bar at a time in O(1), keeping Wilder ATR, the
+ * relative volatility EMA and the current leg as running state instead of recomputing them over the series.
+ * Feeding the bars of a series one by one yields exactly the pivots {@link ZigZagService#detect} reports.
+ * <p>
+ * The state can be written with {@link #checkpoint()} and resumed with {@link #restore(ZigZagParams, byte[])},
+ * so a detector survives restarts and only has to be fed the bars closed since its last checkpoint.
+ * Not thread safe; one engine serves one symbol and interval.
+ */
+public class ZigZagEngine {
+
+    /** Pivots older than this many bars are dropped from results */
+    public static final int RETAINED_BARS = 1000;
+
+    private static final int VERSION = 1;
+    // atrLength..mode as written by writeParams
+    private static final int PARAMS_BYTES = 4 + 8 + 8 + 8 + 4 + 1 + 8 + 4 + 1;
+    // barCount..pivotCount plus the retained bar count
+    private static final int STATE_BYTES = 8 + 4 * 8 + 1 + 8 + 3 * 8 + 2 * 8 + 8 + 8 + 4;
+    private static final byte NONE = 0;
+    private static final byte UP = 1;
+    private static final byte DOWN = 2;
+
+    private final ZigZagParams params;
+
+    private long barCount;
+    private double prevClose;
+    private double atr;
+    private double trSum;           // sum of TR over bars 1..atrLength-1, seeds the first full ATR
+    private double rvol;
+
+    private byte dir = NONE;
+    private long lastExtIdx;
+    private double lastExtPrice;
+    private double currExtHigh;
+    private double currExtLow;
+    private long currExtIdx;
+    private long currExtMillis;
+    private double currExtAtr;
+    private long pivotCount;
+
+    // end times of the last RETAINED_BARS bars, to find the retention cutoff
+    private final long[] recentMillis = new long[RETAINED_BARS];
+
+    public ZigZagEngine(ZigZagParams params) {
+        this.params = params;
+    }
+
+    /**
+     * Consume the next closed bar.
+     *
+     * @return The pivot this bar confirmed, or null
+     */
+    public ZigZagPoint onBar(Instant endTime, double high, double low, double close) {
+        long i = barCount;
+        long millis = endTime.toEpochMilli();
+        recentMillis[(int) (i % RETAINED_BARS)] = millis;
+        barCount++;
+
+        double pc = i == 0 ? close : prevClose;
+        double tr = Math.max(high - low, Math.max(Math.abs(high - pc), Math.abs(low - pc)));
+        int atrLength = params.getAtrLength();
+        if (i == 0) {
+            atr = tr;
+        } else if (i < atrLength) {
+            atr = ((atr * i) + tr) / (i + 1);
+            trSum += tr;
+        } else if (i == atrLength) {
+            atr = (trSum + tr) / atrLength;
+        } else {
+            atr = ((atr * (atrLength - 1)) + tr) / atrLength;
+        }
+        double rv = close > 0 ? tr / close : 0.0;
+        if (i == 0) {
+            rvol = rv;
+        } else {
+            double alpha = 2.0 / (params.getRvolWindow() + 1.0);
+            rvol = alpha * rv + (1 - alpha) * rvol;
+        }
+        prevClose = close;
+
+        if (i == 0) {
+            lastExtIdx = 0;
+            lastExtPrice = close;
+            currExtHigh = high;
+            currExtLow = low;
+            markExtreme(0, millis);
+            return null;
+        }
+
+        double effectivePct = params.isDynamicPctEnabled() ? params.getVolMult() * rvol : params.getPctMin();
+        if (dir == NONE) {
+            // Determine initial direction when move exceeds min threshold
+            double move = close - lastExtPrice;
+            double thr = Math.max(effectivePct * lastExtPrice, params.getAtrMult() * atr);
+            if (Math.abs(move) >= thr) {
+                dir = move > 0 ? UP : DOWN;
+                currExtHigh = high;
+                currExtLow = low;
+                markExtreme(i, millis);
+            } else {
+                // Update extremes even before direction established
+                currExtHigh = Math.max(currExtHigh, high);
+                currExtLow = Math.min(currExtLow, low);
+                if (high >= currExtHigh || low <= currExtLow) {
+                    markExtreme(i, millis);
+                }
+            }
+            return null;
+        }
+
+        boolean spaced = (i - lastExtIdx) >= params.getMinBarsBetweenPivots();
+        if (dir == UP) {
+            if (high >= currExtHigh) {
+                currExtHigh = high;
+                markExtreme(i, millis);
+            }
+            double reversalMove = currExtHigh - low;
+            double baseThr = Math.max(effectivePct * currExtHigh, params.getAtrMult() * atr);
+            if (reversalMove >= baseThr * params.getHysteresis() && spaced) {
+                ZigZagPoint pivot = point(ZigZagPoint.Type.HIGH, currExtHigh);
+                lastExtIdx = currExtIdx;
+                lastExtPrice = currExtHigh;
+                dir = DOWN;
+                currExtLow = low;
+                markExtreme(i, millis);
+                pivotCount++;
+                return pivot;
+            }
+        } else {
+            if (low <= currExtLow) {
+                currExtLow = low;
+                markExtreme(i, millis);
+            }
+            double reversalMove = high - currExtLow;
+            double baseThr = Math.max(effectivePct * Math.max(1e-9, currExtLow), params.getAtrMult() * atr);
+            if (reversalMove >= baseThr * params.getHysteresis() && spaced) {
+                ZigZagPoint pivot = point(ZigZagPoint.Type.LOW, currExtLow);
+                lastExtIdx = currExtIdx;
+                lastExtPrice = currExtLow;
+                dir = UP;
+                currExtHigh = high;
+                markExtreme(i, millis);
+                pivotCount++;
+                return pivot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The extreme of the current leg as a not yet confirmed pivot, or null before the first leg
+     */
+    public ZigZagPoint tentative() {
+        if (dir == UP) {
+            return point(ZigZagPoint.Type.HIGH, currExtHigh);
+        } else if (dir == DOWN) {
+            return point(ZigZagPoint.Type.LOW, currExtLow);
+        }
+        return null;
+    }
+
+    public long getBarCount() {
+        return barCount;
+    }
+
+    public long getPivotCount() {
+        return pivotCount;
+    }
+
+    /**
+     * @return End time of the last bar consumed, or null if none
+     */
+    public Instant getLastBarTime() {
+        return barCount == 0 ? null : Instant.ofEpochMilli(recentMillis[(int) ((barCount - 1) % RETAINED_BARS)]);
+    }
+
+    /**
+     * @return Epoch second of the oldest of the last {@link #RETAINED_BARS} bars; older pivots are dropped
+     */
+    public long retentionCutoffEpochSecond() {
+        if (barCount == 0) {
+            return Long.MIN_VALUE;
+        }
+        long oldest = Math.max(0, barCount - RETAINED_BARS);
+        return Math.floorDiv(recentMillis[(int) (oldest % RETAINED_BARS)], 1000L);
+    }
+
+    /**
+     * @return The complete detector state, including the parameters it was built with
+     */
+    public byte[] checkpoint() {
+        int retained = (int) Math.min(barCount, RETAINED_BARS);
+        ByteBuffer out = ByteBuffer.allocate(4 + PARAMS_BYTES + STATE_BYTES + 8 * retained);
+        out.putInt(VERSION);
+        writeParams(out);
+        out.putLong(barCount);
+        out.putDouble(prevClose);
+        out.putDouble(atr);
+        out.putDouble(trSum);
+        out.putDouble(rvol);
+        out.put(dir);
+        out.putLong(lastExtIdx);
+        out.putDouble(lastExtPrice);
+        out.putDouble(currExtHigh);
+        out.putDouble(currExtLow);
+        out.putLong(currExtIdx);
+        out.putLong(currExtMillis);
+        out.putDouble(currExtAtr);
+        out.putLong(pivotCount);
+        out.putInt(retained);
+        for (long k = barCount - retained; k < barCount; k++) {
+            out.putLong(recentMillis[(int) (k % RETAINED_BARS)]);
+        }
+        return out.array();
+    }
+
+    /**
+     * Resume a detector from a checkpoint.
+     *
+     * @return The detector, or null if the checkpoint is unreadable or was taken with different parameters
+     */
+    public static ZigZagEngine restore(ZigZagParams params, byte[] checkpoint) {
+        if (checkpoint == null || checkpoint.length < 4) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(checkpoint);
+            if (in.getInt() != VERSION || !params.equals(readParams(in))) {
+                return null;
+            }
+            ZigZagEngine engine = new ZigZagEngine(params);
+            engine.barCount = in.getLong();
+            engine.prevClose = in.getDouble();
+            engine.atr = in.getDouble();
+            engine.trSum = in.getDouble();
+            engine.rvol = in.getDouble();
+            engine.dir = in.get();
+            engine.lastExtIdx = in.getLong();
+            engine.lastExtPrice = in.getDouble();
+            engine.currExtHigh = in.getDouble();
+            engine.currExtLow = in.getDouble();
+            engine.currExtIdx = in.getLong();
+            engine.currExtMillis = in.getLong();
+            engine.currExtAtr = in.getDouble();
+            engine.pivotCount = in.getLong();
+            int retained = in.getInt();
+            for (long k = engine.barCount - retained; k < engine.barCount; k++) {
+                engine.recentMillis[(int) (k % RETAINED_BARS)] = in.getLong();
+            }
+            return engine;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void markExtreme(long index, long millis) {
+        currExtIdx = index;
+        currExtMillis = millis;
+        currExtAtr = atr;
+    }
+
+    private ZigZagPoint point(ZigZagPoint.Type type, double price) {
+        Instant timestamp = Instant.ofEpochMilli(currExtMillis);
+        return ZigZagPoint.builder()
+                .type(type)
+                .timestamp(timestamp)
+                .sequence(timestamp.getEpochSecond())
+                .value(price)
+                .atrAtPivot(currExtAtr)
+                .build();
+    }
+
+    private void writeParams(ByteBuffer out) {
+        out.putInt(params.getAtrLength());
+        out.putDouble(params.getAtrMult());
+        out.putDouble(params.getPctMin());
+        out.putDouble(params.getHysteresis());
+        out.putInt(params.getMinBarsBetweenPivots());
+        out.put((byte) (params.isDynamicPctEnabled() ? 1 : 0));
+        out.putDouble(params.getVolMult());
+        out.putInt(params.getRvolWindow());
+        out.put((byte) (params.getMode() == null ? -1 : params.getMode().ordinal()));
+    }
+
+    private static ZigZagParams readParams(ByteBuffer in) {
+        int atrLength = in.getInt();
+        double atrMult = in.getDouble();
+        double pctMin = in.getDouble();
+        double hysteresis = in.getDouble();
+        int minBars = in.getInt();
+        boolean dynamic = in.get() != 0;
+        double volMult = in.getDouble();
+        int rvolWindow = in.getInt();
+        byte mode = in.get();
+        return ZigZagParams.ofDefaults(atrLength, atrMult, pctMin, hysteresis, minBars, dynamic, volMult, rvolWindow,
+                mode < 0 ? null : ZigZagParams.Mode.values()[mode]);
+    }
+}
@@ -0,0 +1,83 @@
+package com.dtech.chartpattern.zigzag;
+
+import com.dtech.chartpattern.api.dto.ZigZagResponses;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of one index-wide ZigZag computation. Results are appended in completion order, one per
+ * symbol and timeframe, so clients can poll or stream them from an offset while the job runs.
+ */
+public class ZigZagIndexJob {
+
+    public record Status(String id, String indexName, int total, int completed, int failed, boolean done,
+                         Instant createdAt, Instant finishedAt) {
+    }
+
+    @Getter
+    private final String id;
+    @Getter
+    private final String indexName;
+    @Getter
+    private final int total;
+    private final Instant createdAt = Instant.now();
+
+    // guarded by this
+    private final List<ZigZagResponses.StockResult> results = new ArrayList<>();
+    private int failed;
+    private Instant finishedAt;
+
+    ZigZagIndexJob(String id, String indexName, int total) {
+        this.id = id;
+        this.indexName = indexName;
+        this.total = total;
+        if (total == 0) {
+            finishedAt = createdAt;
+        }
+    }
+
+    synchronized void add(ZigZagResponses.StockResult result) {
+        results.add(result);
+        if (result.getError() != null) {
+            failed++;
+        }
+        if (results.size() >= total) {
+            finishedAt = Instant.now();
+        }
+        notifyAll();
+    }
+
+    public synchronized boolean isDone() {
+        return finishedAt != null;
+    }
+
+    public synchronized Status status() {
+        return new Status(id, indexName, total, results.size(), failed, finishedAt != null, createdAt, finishedAt);
+    }
+
+    /**
+     * @return Results completed so far, starting at {@code from}
+     */
+    public synchronized List<ZigZagResponses.StockResult> getResults(int from) {
+        return from >= results.size() ? List.of() : List.copyOf(results.subList(Math.max(0, from), results.size()));
+    }
+
+    /**
+     * Wait until there are results past {@code from} or the job is done.
+     *
+     * @return Results starting at {@code from}; empty if the job finished or the timeout elapsed first
+     */
+    public synchronized List<ZigZagResponses.StockResult> awaitResults(int from, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (results.size() <= from && finishedAt == null && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return getResults(from);
+    }
+}
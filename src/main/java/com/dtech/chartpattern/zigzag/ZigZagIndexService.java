@@ -0,0 +1,163 @@
+package com.dtech.chartpattern.zigzag;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.chartpattern.api.dto.ZigZagResponses;
+import com.dtech.chartpattern.config.ChartPatternProperties;
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentRepository;
+import com.dtech.kitecon.service.FetchPriority;
+import com.dtech.kitecon.service.HistoricalFetchJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs ZigZag detection for every member of an index as a background {@link ZigZagIndexJob}.
+ * <p>
+ * Each symbol and timeframe is refreshed through the shared historical fetch scheduler, so downloads obey the
+ * broker rate limit and queue behind live requests. As soon as a refresh finishes (or times out) detection of
+ * that pair runs on a separate, CPU-sized pool and its result is appended to the job.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ZigZagIndexService {
+
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final ZigZagService zigZagService;
+    private final InstrumentRepository instrumentRepository;
+    private final ChartPatternProperties properties;
+
+    // 0 = one thread per available processor
+    @Value("${chartpattern.index.detect-threads:0}")
+    private int detectThreads;
+
+    @Value("${data.update.waitTimeoutSeconds:600}")
+    private long refreshTimeoutSeconds;
+
+    private final Map<String, ZigZagIndexJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService detectPool;
+
+    @PostConstruct
+    public void start() {
+        int threads = detectThreads > 0 ? detectThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIds = new AtomicInteger();
+        detectPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "zigzag-detect-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        detectPool.shutdownNow();
+    }
+
+    /**
+     * @return Member symbols of a configured index, empty if unknown
+     */
+    public List<String> getMembers(String indexName) {
+        return properties.getIndexes().getOrDefault(indexName, Collections.emptyList());
+    }
+
+    /**
+     * Start computing every member of an index on the given timeframes. Returns immediately; refreshes are
+     * queued from the detection pool so a large index does not hold up the caller.
+     */
+    public ZigZagIndexJob submit(String indexName, List<Interval> intervals, boolean persist) {
+        pruneFinishedJobs();
+        List<String> symbols = getMembers(indexName);
+        ZigZagIndexJob job = new ZigZagIndexJob(UUID.randomUUID().toString(), indexName,
+                symbols.size() * intervals.size());
+        jobs.put(job.getId(), job);
+        detectPool.execute(() -> {
+            for (String symbol : symbols) {
+                submitSymbol(job, symbol, intervals, persist);
+            }
+        });
+        log.info("ZigZag index job {}: {} symbols x {} timeframes", job.getId(), symbols.size(), intervals.size());
+        return job;
+    }
+
+    public ZigZagIndexJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    private void submitSymbol(ZigZagIndexJob job, String symbol, List<Interval> intervals, boolean persist) {
+        Instrument instrument;
+        try {
+            instrument = instrumentRepository.findByTradingsymbolAndExchangeIn(symbol, new String[]{"NSE"});
+        } catch (Exception e) {
+            log.warn("Instrument lookup failed for {}: {}", symbol, e.getMessage());
+            instrument = null;
+        }
+        for (Interval interval : intervals) {
+            if (instrument == null) {
+                job.add(failure(symbol, interval, "Unknown instrument"));
+                continue;
+            }
+            CompletableFuture<?> refreshed;
+            try {
+                HistoricalFetchJob fetch = zigZagService.refresh(instrument, interval, FetchPriority.BACKFILL);
+                // copy, so the timeout does not complete the fetch job's own future
+                refreshed = fetch.getFuture().copy().completeOnTimeout(fetch, refreshTimeoutSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Data refresh failed for {} {}: {}", symbol, interval, e.getMessage());
+                refreshed = CompletableFuture.completedFuture(null);
+            }
+            Instrument target = instrument;
+            refreshed.whenCompleteAsync((ignored, error) -> detect(job, symbol, target, interval, persist), detectPool);
+        }
+    }
+
+    private void detect(ZigZagIndexJob job, String symbol, Instrument instrument, Interval interval, boolean persist) {
+        try {
+            List<ZigZagPoint> pivots = zigZagService.detectFromStored(symbol, instrument, interval, persist);
+            job.add(ZigZagResponses.StockResult.builder()
+                    .tradingSymbol(symbol)
+                    .timeframe(interval.name())
+                    .params(zigZagService.resolveParams(symbol, interval))
+                    .pivots(pivots)
+                    .build());
+        } catch (Exception e) {
+            log.warn("ZigZag detection failed for {} {}", symbol, interval, e);
+            job.add(failure(symbol, interval, e.getMessage()));
+        }
+    }
+
+    private static ZigZagResponses.StockResult failure(String symbol, Interval interval, String error) {
+        return ZigZagResponses.StockResult.builder()
+                .tradingSymbol(symbol)
+                .timeframe(interval.name())
+                .error(error == null ? "failed" : error)
+                .build();
+    }
+
+    private void pruneFinishedJobs() {
+        if (jobs.size() <= MAX_FINISHED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(ZigZagIndexJob::isDone)
+                .sorted(Comparator.comparing(job -> job.status().createdAt()))
+                .limit(jobs.size() - MAX_FINISHED_JOBS)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+}
@@ -0,0 +1,225 @@
+package com.dtech.chartpattern.zigzag;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary encoding of ZigZag pivots, as stored in {@code zigzag_snapshot.pivots_bin}.
+ * <pre>
+ * header:  version (1 byte) | base epoch second (8) | skipped records (4)
+ * record:  delta epoch seconds from the previous record, or from base for the first (4)
+ *          | flags (1): bit 0 HIGH, bit 1 retracement present, bit 2 extension present
+ *          | value (8) | ATR at pivot (8) | retracement % (8) | extension % (8)
+ * </pre>
+ * Records are fixed width and nothing follows the last one, so new pivots are appended by concatenating
+ * {@link #encodeTail} output, and pivots that left the retention window are dropped by raising the skip count
+ * in place ({@link #encodeSkip}). Skipped records stay in the chain of deltas until the snapshot is rewritten.
+ * Timestamps are kept at second resolution.
+ */
+public final class ZigZagPivotCodec {
+
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 1 + 8 + 4;
+    public static final int RECORD_BYTES = 4 + 1 + 4 * 8;
+    /** Offset of the skipped record count in the header */
+    public static final int SKIP_OFFSET = 1 + 8;
+
+    private static final int HIGH = 1;
+    private static final int HAS_RETRACEMENT = 2;
+    private static final int HAS_EXTENSION = 4;
+
+    private ZigZagPivotCodec() {
+    }
+
+    /**
+     * @return Header and records of a complete snapshot, nothing skipped
+     */
+    public static byte[] encode(List<ZigZagPoint> pivots) {
+        long base = pivots.isEmpty() ? 0 : pivots.getFirst().getSequence();
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + RECORD_BYTES * pivots.size());
+        out.put(VERSION);
+        out.putLong(base);
+        out.putInt(0);
+        putRecords(out, base, pivots);
+        return out.array();
+    }
+
+    /**
+     * @param previousEpochSecond Epoch second of the last record already stored, see {@link Reader#lastEpochSecond()}
+     * @return Records to append to a stored snapshot
+     */
+    public static byte[] encodeTail(long previousEpochSecond, List<ZigZagPoint> tail) {
+        ByteBuffer out = ByteBuffer.allocate(RECORD_BYTES * tail.size());
+        putRecords(out, previousEpochSecond, tail);
+        return out.array();
+    }
+
+    /**
+     * @return Header bytes at {@link #SKIP_OFFSET} for a new skipped record count
+     */
+    public static byte[] encodeSkip(int skipped) {
+        return ByteBuffer.allocate(4).putInt(skipped).array();
+    }
+
+    /**
+     * @return A reader over the encoded bytes; the array is read in place, not copied
+     * @throws IllegalArgumentException if the bytes are not a snapshot of this version
+     */
+    public static Reader read(byte[] data) {
+        if (data == null || data.length < HEADER_BYTES || data[0] != VERSION
+                || (data.length - HEADER_BYTES) % RECORD_BYTES != 0) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " pivot snapshot");
+        }
+        return new Reader(ByteBuffer.wrap(data));
+    }
+
+    private static void putRecords(ByteBuffer out, long previous, List<ZigZagPoint> pivots) {
+        for (ZigZagPoint p : pivots) {
+            long delta = p.getSequence() - previous;
+            if (delta < 0 || delta > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Pivots out of order at " + p.getTimestamp());
+            }
+            previous = p.getSequence();
+            int flags = (p.isHigh() ? HIGH : 0)
+                    | (p.getRetracementPct() != null ? HAS_RETRACEMENT : 0)
+                    | (p.getExtensionPct() != null ? HAS_EXTENSION : 0);
+            out.putInt((int) delta);
+            out.put((byte) flags);
+            out.putDouble(p.getValue());
+            out.putDouble(p.getAtrAtPivot());
+            out.putDouble(p.getRetracementPct() != null ? p.getRetracementPct() : 0.0);
+            out.putDouble(p.getExtensionPct() != null ? p.getExtensionPct() : 0.0);
+        }
+    }
+
+    /**
+     * Random access to the live (not skipped) pivots of an encoded snapshot without materialising them.
+     * Timestamps are resolved by walking the deltas from the nearest earlier position, so sequential access
+     * is O(1) per pivot. Not thread safe.
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer;
+        private final long base;
+        private final int skipped;
+        private final int records;
+
+        private int cursor = -1;
+        private long cursorEpoch;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.base = buffer.getLong(1);
+            this.skipped = buffer.getInt(SKIP_OFFSET);
+            this.records = (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+            if (skipped < 0 || skipped > records) {
+                throw new IllegalArgumentException("Invalid skip count " + skipped + " of " + records);
+            }
+            this.cursorEpoch = base;
+        }
+
+        /**
+         * @return Number of live pivots
+         */
+        public int size() {
+            return records - skipped;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return Size of the encoded snapshot in bytes
+         */
+        public int byteLength() {
+            return buffer.capacity();
+        }
+
+        public long epochSecond(int index) {
+            return recordEpoch(skipped + checkIndex(index));
+        }
+
+        public boolean isHigh(int index) {
+            return (flags(index) & HIGH) != 0;
+        }
+
+        public double value(int index) {
+            return buffer.getDouble(offset(index) + 5);
+        }
+
+        public double atrAtPivot(int index) {
+            return buffer.getDouble(offset(index) + 13);
+        }
+
+        /**
+         * @return Retracement %, or null if it was not computed
+         */
+        public Double retracementPct(int index) {
+            return (flags(index) & HAS_RETRACEMENT) != 0 ? buffer.getDouble(offset(index) + 21) : null;
+        }
+
+        /**
+         * @return Extension %, or null if it was not computed
+         */
+        public Double extensionPct(int index) {
+            return (flags(index) & HAS_EXTENSION) != 0 ? buffer.getDouble(offset(index) + 29) : null;
+        }
+
+        /**
+         * @return Epoch second of the last record, skipped or not, to delta-encode appended pivots against
+         */
+        public long lastEpochSecond() {
+            return records == 0 ? base : recordEpoch(records - 1);
+        }
+
+        public ZigZagPoint get(int index) {
+            Instant timestamp = Instant.ofEpochSecond(epochSecond(index));
+            return ZigZagPoint.builder()
+                    .type(isHigh(index) ? ZigZagPoint.Type.HIGH : ZigZagPoint.Type.LOW)
+                    .timestamp(timestamp)
+                    .sequence(timestamp.getEpochSecond())
+                    .value(value(index))
+                    .atrAtPivot(atrAtPivot(index))
+                    .retracementPct(retracementPct(index))
+                    .extensionPct(extensionPct(index))
+                    .build();
+        }
+
+        public List<ZigZagPoint> toPoints() {
+            List<ZigZagPoint> points = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                points.add(get(i));
+            }
+            return points;
+        }
+
+        private long recordEpoch(int record) {
+            if (record < cursor) {
+                cursor = -1;
+                cursorEpoch = base;
+            }
+            while (cursor < record) {
+                cursor++;
+                cursorEpoch += Integer.toUnsignedLong(buffer.getInt(HEADER_BYTES + cursor * RECORD_BYTES));
+            }
+            return cursorEpoch;
+        }
+
+        private int flags(int index) {
+            return buffer.get(offset(index) + 4);
+        }
+
+        private int offset(int index) {
+            return HEADER_BYTES + (skipped + checkIndex(index)) * RECORD_BYTES;
+        }
+
+        private int checkIndex(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return index;
+        }
+    }
+}
@@ -7,21 +7,22 @@ import com.dtech.chartpattern.persistence.ZigZagConfigRepository;
 import com.dtech.chartpattern.persistence.ZigZagSnapshot;
 import com.dtech.chartpattern.persistence.ZigZagSnapshotRepository;
 import com.dtech.kitecon.data.Instrument;
-import com.dtech.kitecon.repository.CandleRepository;
+import com.dtech.kitecon.repository.CandleStreamReader;
 import com.dtech.kitecon.service.DataFetchService;
-import com.dtech.kitecon.strategy.dataloader.BarsLoader;
+import com.dtech.kitecon.service.FetchPriority;
+import com.dtech.kitecon.service.HistoricalFetchJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeriesBuilder;
 import org.ta4j.core.num.DoubleNumFactory;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -31,9 +32,14 @@ public class ZigZagService {
     private final ZigZagConfigRepository configRepository;
     private final ZigZagSnapshotRepository snapshotRepository;
     private final ChartPatternProperties properties;
-    private final CandleRepository candleRepository;
+    private final CandleStreamReader candleStreamReader;
     private final DataFetchService dataFetchService;
 
+    private static final String EMPTY_JSON = "[]";
+
+    @Value("${data.update.waitTimeoutSeconds:600}")
+    private long refreshTimeoutSeconds;
+
     public ZigZagParams resolveParams(String tradingSymbol, Interval interval) {
         Optional<ZigZagConfig> cfg = configRepository.findByTradingSymbolAndInterval(tradingSymbol, interval);
         ChartPatternProperties.ZigZagDefaults d = properties.getZigzag();
@@ -52,142 +58,30 @@ public class ZigZagService {
 
     public List<ZigZagPoint> detect(BarSeries series, ZigZagParams params) {
         if (series == null || series.isEmpty()) return Collections.emptyList();
-        int n = series.getBarCount();
-        double[] tr = new double[n];
-        double[] atr = new double[n];
-
-        // Compute True Range and Wilder ATR
-        for (int i = 0; i < n; i++) {
-            Bar b = series.getBar(i);
-            double high = b.getHighPrice().doubleValue();
-            double low = b.getLowPrice().doubleValue();
-            double prevClose = (i == 0) ? b.getClosePrice().doubleValue() : series.getBar(i - 1).getClosePrice().doubleValue();
-            double tr1 = high - low;
-            double tr2 = Math.abs(high - prevClose);
-            double tr3 = Math.abs(low - prevClose);
-            tr[i] = Math.max(tr1, Math.max(tr2, tr3));
-            if (i == 0) {
-                atr[i] = tr[i];
-            } else if (i < params.getAtrLength()) {
-                atr[i] = ((atr[i - 1] * i) + tr[i]) / (i + 1);
-            } else if (i == params.getAtrLength()) {
-                double sum = 0.0;
-                for (int k = i - params.getAtrLength() + 1; k <= i; k++) sum += tr[k];
-                atr[i] = sum / params.getAtrLength();
-            } else {
-                atr[i] = ((atr[i - 1] * (params.getAtrLength() - 1)) + tr[i]) / params.getAtrLength();
-            }
-        }
-
-        // Relative volatility (EMA of TR/Close)
-        double[] rvol = computeRvolPct(series, tr, params.getRvolWindow());
-
+        ZigZagEngine engine = new ZigZagEngine(params);
         List<ZigZagPoint> pivots = new ArrayList<>();
-        enum Dir { UP, DOWN, NONE }
-        Dir dir = Dir.NONE;
-
-        int lastExtIdx = 0;
-        double lastExtPrice = series.getBar(0).getClosePrice().doubleValue();
-        double currExtPriceHigh = series.getBar(0).getHighPrice().doubleValue();
-        double currExtPriceLow = series.getBar(0).getLowPrice().doubleValue();
-        int currExtIdx = 0;
-
-        for (int i = 1; i < n; i++) {
+        for (int i = 0; i < series.getBarCount(); i++) {
             Bar b = series.getBar(i);
-            double close = b.getClosePrice().doubleValue();
-            double high = b.getHighPrice().doubleValue();
-            double low = b.getLowPrice().doubleValue();
-
-            if (dir == Dir.NONE) {
-                // Determine initial direction when move exceeds min threshold
-                double move = close - lastExtPrice;
-                double effectivePct = params.isDynamicPctEnabled() ? params.getVolMult() * rvol[i] : params.getPctMin();
-                double thr = Math.max(effectivePct * lastExtPrice, params.getAtrMult() * atr[i]);
-                if (Math.abs(move) >= thr) {
-                    dir = move > 0 ? Dir.UP : Dir.DOWN;
-                    currExtPriceHigh = high;
-                    currExtPriceLow = low;
-                    currExtIdx = i;
-                } else {
-                    // Update extremes even before direction established
-                    currExtPriceHigh = Math.max(currExtPriceHigh, high);
-                    currExtPriceLow = Math.min(currExtPriceLow, low);
-                    currExtIdx = (high >= currExtPriceHigh) ? i : (low <= currExtPriceLow ? i : currExtIdx);
-                }
-                continue;
-            }
-
-            // Extend current leg extremes
-            if (dir == Dir.UP) {
-                if (high >= currExtPriceHigh) {
-                    currExtPriceHigh = high;
-                    currExtIdx = i;
-                }
-                // Check for reversal
-                double reversalMove = currExtPriceHigh - low;
-                double effectivePct = params.isDynamicPctEnabled() ? params.getVolMult() * rvol[i] : params.getPctMin();
-                double baseThr = Math.max(effectivePct * currExtPriceHigh, params.getAtrMult() * atr[i]);
-                double revThr = baseThr * params.getHysteresis();
-                boolean spaced = (i - lastExtIdx) >= params.getMinBarsBetweenPivots();
-                if (reversalMove >= revThr && spaced) {
-                    // Confirm HIGH pivot at currExtIdx
-                    pivots.add(toPoint(series, currExtIdx, currExtPriceHigh, ZigZagPoint.Type.HIGH, atr[currExtIdx]));
-                    lastExtIdx = currExtIdx;
-                    lastExtPrice = currExtPriceHigh;
-                    // Start DOWN leg
-                    dir = Dir.DOWN;
-                    currExtPriceLow = low;
-                    currExtIdx = i;
-                }
-            } else { // DOWN
-                if (low <= currExtPriceLow) {
-                    currExtPriceLow = low;
-                    currExtIdx = i;
-                }
-                double reversalMove = high - currExtPriceLow;
-                double effectivePct = params.isDynamicPctEnabled() ? params.getVolMult() * rvol[i] : params.getPctMin();
-                double baseThr = Math.max(effectivePct * Math.max(1e-9, currExtPriceLow), params.getAtrMult() * atr[i]);
-                double revThr = baseThr * params.getHysteresis();
-                boolean spaced = (i - lastExtIdx) >= params.getMinBarsBetweenPivots();
-                if (reversalMove >= revThr && spaced) {
-                    // Confirm LOW pivot at currExtIdx
-                    pivots.add(toPoint(series, currExtIdx, currExtPriceLow, ZigZagPoint.Type.LOW, atr[currExtIdx]));
-                    lastExtIdx = currExtIdx;
-                    lastExtPrice = currExtPriceLow;
-                    // Start UP leg
-                    dir = Dir.UP;
-                    currExtPriceHigh = high;
-                    currExtIdx = i;
-                }
+            ZigZagPoint pivot = engine.onBar(b.getEndTime(), b.getHighPrice().doubleValue(),
+                    b.getLowPrice().doubleValue(), b.getClosePrice().doubleValue());
+            if (pivot != null) {
+                pivots.add(pivot);
             }
         }
 
         // In BACKTEST, you may optionally finalize the last extremum as pivot if desired
-        if (params.getMode() == ZigZagParams.Mode.BACKTEST && pivots.size() >= 1) {
-            ZigZagPoint last = pivots.get(pivots.size() - 1);
-            if (last.getType() == ZigZagPoint.Type.HIGH) {
-                pivots.add(toPoint(series, currExtIdx, currExtPriceLow, ZigZagPoint.Type.LOW, atr[currExtIdx]));
-            } else {
-                pivots.add(toPoint(series, currExtIdx, currExtPriceHigh, ZigZagPoint.Type.HIGH, atr[currExtIdx]));
-            }
+        if (params.getMode() == ZigZagParams.Mode.BACKTEST && !pivots.isEmpty()) {
+            pivots.add(engine.tentative());
         }
 
         // Keep only pivots within the last N bars using sequence (epoch seconds) cutoff
-        final int MAX_BARS = 1000;
-        int cutoffIdx = Math.max(0, series.getBarCount() - MAX_BARS);
-        long cutoffEpoch = series.getBar(cutoffIdx).getEndTime().getEpochSecond();
-
-        java.util.List<ZigZagPoint> trimmed = new java.util.ArrayList<>();
-        for (ZigZagPoint p : pivots) {
-            if (p.getSequence() >= cutoffEpoch) {
-                trimmed.add(p);
-            }
-        }
+        long cutoffEpoch = engine.retentionCutoffEpochSecond();
+        pivots.removeIf(p -> p.getSequence() < cutoffEpoch);
 
         // Compute retracement and extension percentages on each pivot for pattern analytics
-        computePivotMetrics(trimmed);
+        computePivotMetrics(pivots, 0);
 
-        return trimmed;
+        return pivots;
     }
 
     /**
@@ -200,11 +94,12 @@ public class ZigZagService {
      * - Extension at pivot k compares current swing (k-1->k) to previous same-direction swing (k-3->k-2):
      *   * Up:  (Low(k-1)->High(k)) / (Low(k-3)->High(k-2)) * 100
      *   * Down:(High(k-1)->Low(k))  / (High(k-3)->Low(k-2))  * 100
+     * Pivots before {@code from} already carry their metrics and are only read.
      */
-    private void computePivotMetrics(java.util.List<ZigZagPoint> pivots) {
+    private void computePivotMetrics(java.util.List<ZigZagPoint> pivots, int from) {
         if (pivots == null || pivots.isEmpty()) return;
 
-        for (int k = 0; k < pivots.size(); k++) {
+        for (int k = Math.max(0, from); k < pivots.size(); k++) {
             ZigZagPoint curr = pivots.get(k);
 
             // Retracement requires k >= 2 (pattern X(k-2) -> OPP(k-1) -> X(k))
@@ -252,59 +147,107 @@ public class ZigZagService {
         }
     }
 
-    // Compute EMA of TR/close to get a volatility percentage per bar
-    private double[] computeRvolPct(BarSeries series, double[] tr, int window) {
-        int n = series.getBarCount();
-        double[] rvol = new double[n];
-        if (n == 0) return rvol;
-        double alpha = 2.0 / (window + 1.0);
-        for (int i = 0; i < n; i++) {
-            double close = series.getBar(i).getClosePrice().doubleValue();
-            double rv = close > 0 ? tr[i] / close : 0.0;
-            if (i == 0) {
-                rvol[i] = rv;
-            } else {
-                rvol[i] = alpha * rv + (1 - alpha) * rvol[i - 1];
-            }
+    /**
+     * Refresh the candles of a symbol to the latest bar, then bring its pivots up to date.
+     */
+    public List<ZigZagPoint> detectAndPersist(String tradingSymbol, Instrument instrument, Interval interval, boolean persist) {
+        // Ensure latest candles are available for this symbol/timeframe before calculation
+        try {
+            refresh(instrument, interval, FetchPriority.LIVE).getFuture().get(refreshTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted refreshing " + tradingSymbol + " " + interval, e);
+        } catch (Exception e) {
+            log.warn("Data refresh failed for {} {}: {}", tradingSymbol, interval, e.getMessage());
         }
-        return rvol;
+        return detectFromStored(tradingSymbol, instrument, interval, persist);
     }
 
-    private ZigZagPoint toPoint(BarSeries series, int idx, double price, ZigZagPoint.Type type, double atrAtPivot) {
-        Bar bar = series.getBar(idx);
-        Instant zdt = bar.getEndTime();
-        return ZigZagPoint.builder()
-                .type(type)
-                .timestamp(zdt)
-                .sequence(zdt.getEpochSecond())
-                .value(price)
-                .atrAtPivot(atrAtPivot)
-                .build();
+    /**
+     * Queue a download of the candles newer than the last stored one. Requests go through the shared
+     * historical rate limit; wait on the job's future before detecting.
+     */
+    public HistoricalFetchJob refresh(Instrument instrument, Interval interval, FetchPriority priority) {
+        return dataFetchService.updateInstrument(instrument, interval, false, priority);
     }
 
-    public List<ZigZagPoint> detectAndPersist(String tradingSymbol, Instrument instrument, Interval interval, boolean persist) {
+    /**
+     * Bring the pivots of a symbol up to date from the candles already stored. The detector resumes from the
+     * checkpoint in its snapshot and is fed only the bars closed since then; without a usable checkpoint (none
+     * yet, or the params changed) it replays the whole stored history. The bar still forming is never fed, so
+     * a checkpoint never has to be rolled back.
+     */
+    public List<ZigZagPoint> detectFromStored(String tradingSymbol, Instrument instrument, Interval interval, boolean persist) {
         ZigZagParams params = resolveParams(tradingSymbol, interval);
 
-        // Ensure latest candles are available for this symbol/timeframe before calculation
-        try {
-            dataFetchService.updateInstrumentToLatest(tradingSymbol, interval, new String[]{"NSE"});
-        } catch (Exception e) {
-            log.warn("Data refresh failed for {} {}: {}", tradingSymbol, interval, e.getMessage());
+        Optional<ZigZagSnapshot> snapshot = snapshotRepository.findByTradingSymbolAndInterval(tradingSymbol, interval);
+        ZigZagEngine engine = snapshot.map(snap -> resume(snap, params)).orElse(null);
+        List<ZigZagPoint> pivots = new ArrayList<>();
+        Instant from = Instant.EPOCH;
+        if (engine != null) {
+            try {
+                pivots.addAll(decodePivots(snapshot.get()));
+                from = engine.getLastBarTime().plusMillis(1);
+            } catch (IllegalArgumentException e) {
+                log.warn("Unreadable pivots snapshot for {} {}, replaying full history: {}", tradingSymbol, interval, e.getMessage());
+                engine = null;
+            }
+        }
+        boolean resumed = engine != null;
+        if (!resumed) {
+            engine = new ZigZagEngine(params);
         }
 
-        List<com.dtech.kitecon.data.Candle> candles = candleRepository.findAllByInstrumentAndTimeframe(instrument, interval);
-        candles.sort(Comparator.comparing(com.dtech.kitecon.data.Candle::getTimestamp));
-        BarSeries series = new BaseBarSeriesBuilder().withName(tradingSymbol).build();
-        candles.forEach(c ->
-                series.addBar(BarsLoader.getBar(c.getOpen(), c.getHigh(), c.getLow(), c.getClose(), Optional.ofNullable(c.getVolume()).orElse(0L), c.getTimestamp())));
-        List<ZigZagPoint> pivots = detect(series, params);
+        // Candle timestamps are bar open times; a bar is closed once its whole interval has passed
+        Instant lastClosedOpen = Instant.now().minusSeconds(interval.getOffset());
+        int stored = pivots.size();
+        ZigZagEngine detector = engine;
+        int bars = candleStreamReader.read(instrument.getInstrumentToken(), interval, from, lastClosedOpen,
+                (time, open, high, low, close, volume, oi) -> {
+                    ZigZagPoint pivot = detector.onBar(Instant.ofEpochMilli(time), high, low, close);
+                    if (pivot != null) {
+                        pivots.add(pivot);
+                    }
+                });
+        int added = pivots.size() - stored;
+        long cutoffEpoch = engine.retentionCutoffEpochSecond();
+        pivots.removeIf(p -> p.getSequence() < cutoffEpoch);
+        int trimmed = stored + added - pivots.size();
+        computePivotMetrics(pivots, pivots.size() - Math.min(added, pivots.size()));
+        log.debug("ZigZag {} {}: fed {} bars ({} total), {} new pivots", tradingSymbol, interval, bars,
+                engine.getBarCount(), added);
+
+        if (persist && engine.getBarCount() > 0) {
+            if (resumed && trimmed <= stored && snapshot.get().getPivotsBin() != null) {
+                appendSnapshot(snapshot.get(), pivots, added, trimmed, engine);
+            } else {
+                persistSnapshot(tradingSymbol, interval, pivots, engine);
+            }
+        }
 
-        if (persist) {
-            persistSnapshot(tradingSymbol, interval, pivots);
+        if (params.getMode() == ZigZagParams.Mode.BACKTEST && engine.getPivotCount() > 0) {
+            // the finalized last extremum is reported but not persisted: later bars may still move it
+            List<ZigZagPoint> result = new ArrayList<>(pivots);
+            result.add(engine.tentative());
+            computePivotMetrics(result, result.size() - 1);
+            return result;
         }
         return pivots;
     }
 
+    private ZigZagEngine resume(ZigZagSnapshot snapshot, ZigZagParams params) {
+        if (snapshot.getLastBarAt() == null) {
+            return null;
+        }
+        ZigZagEngine engine = ZigZagEngine.restore(params, snapshot.getEngineState());
+        if (engine == null || engine.getBarCount() == 0) {
+            log.info("ZigZag checkpoint of {} {} unusable, replaying full history",
+                    snapshot.getTradingSymbol(), snapshot.getInterval());
+            return null;
+        }
+        return engine;
+    }
+
     /**
      * Try to load ZigZag pivots from snapshot; if none, compute and persist.
      */
@@ -312,7 +255,7 @@ public class ZigZagService {
         return snapshotRepository.findByTradingSymbolAndInterval(tradingSymbol, interval)
                 .map(snap -> {
                     try {
-                        return fromJson(snap.getPivotsJson());
+                        return decodePivots(snap);
                     } catch (Exception e) {
                         log.warn("Failed to parse pivots snapshot for {} {}, recomputing. Err: {}", tradingSymbol, interval, e.getMessage());
                         return detectAndPersist(tradingSymbol, instrument, interval, true);
@@ -322,16 +265,26 @@ public class ZigZagService {
     }
 
     public void persistSnapshot(String tradingSymbol, Interval interval, List<ZigZagPoint> pivots) {
+        persistSnapshot(tradingSymbol, interval, pivots, null);
+    }
+
+    /**
+     * Persist pivots together with the detector checkpoint they were produced by. Without an engine the
+     * checkpoint is cleared, so the next run replays history instead of resuming from state that no longer
+     * matches the stored pivots.
+     */
+    public void persistSnapshot(String tradingSymbol, Interval interval, List<ZigZagPoint> pivots, ZigZagEngine engine) {
         try {
-            String json = toJson(pivots);
             ZigZagSnapshot snapshot = snapshotRepository.findByTradingSymbolAndInterval(tradingSymbol, interval)
                     .orElseGet(() -> ZigZagSnapshot.builder()
                             .tradingSymbol(tradingSymbol)
                             .interval(interval)
-                            .pivotsJson(json)
                             .updatedAt(LocalDateTime.now())
                             .build());
-            snapshot.setPivotsJson(json);
+            snapshot.setPivotsJson(EMPTY_JSON);
+            snapshot.setPivotsBin(ZigZagPivotCodec.encode(pivots));
+            snapshot.setEngineState(engine == null ? null : engine.checkpoint());
+            snapshot.setLastBarAt(engine == null ? null : engine.getLastBarTime());
             snapshot.setUpdatedAt(LocalDateTime.now());
             snapshotRepository.save(snapshot);
         } catch (Exception e) {
@@ -339,15 +292,44 @@ public class ZigZagService {
         }
     }
 
-    private String toJson(List<ZigZagPoint> pivots) {
-        String items = pivots.stream().map(p -> {
-            String retr = p.getRetracementPct() == null ? "null" : String.format(Locale.US, "%.6f", p.getRetracementPct());
-            String ext  = p.getExtensionPct()   == null ? "null" : String.format(Locale.US, "%.6f", p.getExtensionPct());
-            return String.format(Locale.US,
-                    "{\"type\":\"%s\",\"ts\":\"%s\",\"seq\":%d,\"value\":%.8f,\"atr\":%.8f,\"retr\":%s,\"ext\":%s}",
-                    p.getType().name(), p.getTimestamp(), p.getSequence(), p.getValue(), p.getAtrAtPivot(), retr, ext);
-        }).collect(Collectors.joining(","));
-        return "[" + items + "]";
+    /**
+     * Store only what changed since the snapshot was read: pivots confirmed since then are appended and the
+     * ones that left the retention window are skipped. Falls back to a full rewrite once skipped pivots
+     * outnumber live ones, or if another writer changed the snapshot meanwhile.
+     *
+     * @param pivots  Live pivots after the update, the last {@code added} of them new
+     * @param trimmed Number of previously stored pivots that left the retention window
+     */
+    private void appendSnapshot(ZigZagSnapshot snapshot, List<ZigZagPoint> pivots, int added, int trimmed,
+                                ZigZagEngine engine) {
+        String tradingSymbol = snapshot.getTradingSymbol();
+        Interval interval = snapshot.getInterval();
+        try {
+            ZigZagPivotCodec.Reader storedPivots = ZigZagPivotCodec.read(snapshot.getPivotsBin());
+            int skipped = storedPivots.getSkipped() + trimmed;
+            if (skipped > pivots.size()) {
+                persistSnapshot(tradingSymbol, interval, pivots, engine);
+                return;
+            }
+            byte[] tail = ZigZagPivotCodec.encodeTail(storedPivots.lastEpochSecond(),
+                    pivots.subList(pivots.size() - added, pivots.size()));
+            int updated = snapshotRepository.appendPivots(snapshot.getId(), storedPivots.byteLength(),
+                    ZigZagPivotCodec.SKIP_OFFSET + 1, ZigZagPivotCodec.encodeSkip(skipped), tail,
+                    engine.checkpoint(), engine.getLastBarTime(), LocalDateTime.now());
+            if (updated == 0) {
+                persistSnapshot(tradingSymbol, interval, pivots, engine);
+            }
+        } catch (Exception e) {
+            log.error("Failed to append ZigZag snapshot for {} {}", tradingSymbol, interval, e);
+        }
+    }
+
+    private List<ZigZagPoint> decodePivots(ZigZagSnapshot snapshot) {
+        if (snapshot.getPivotsBin() != null) {
+            return ZigZagPivotCodec.read(snapshot.getPivotsBin()).toPoints();
+        }
+        // snapshots written before the binary encoding
+        return fromJson(snapshot.getPivotsJson());
     }
 
     private List<ZigZagPoint> fromJson(String json) {
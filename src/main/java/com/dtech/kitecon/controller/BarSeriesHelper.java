@@ -3,6 +3,7 @@ package com.dtech.kitecon.controller;
 import com.dtech.algo.exception.StrategyException;
 import com.dtech.algo.runner.candle.DataTick;
 import com.dtech.algo.runner.candle.LatestBarSeriesProvider;
+import com.dtech.algo.runner.candle.TickAggregator;
 import com.dtech.algo.series.Exchange;
 import com.dtech.algo.series.InstrumentType;
 import com.dtech.algo.series.Interval;
@@ -11,16 +12,17 @@ import com.dtech.algo.strategy.config.BarSeriesConfig;
 import com.dtech.kitecon.config.HistoricalDateLimit;
 import com.dtech.kitecon.data.Instrument;
 import com.dtech.kitecon.repository.InstrumentRepository;
-import com.dtech.kitecon.service.DatabaseBatchUpdateService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
-import org.ta4j.core.Bar;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,8 +33,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class BarSeriesHelper {
     private final HistoricalDateLimit historicalDateLimit;
     private final LatestBarSeriesProvider barSeriesLoader;
-    private final DatabaseBatchUpdateService databaseBatchUpdateService;
     private final InstrumentRepository instrumentRepository;
+    private final TickAggregator tickAggregator;
 
     // Cache for registered instrument tokens
     private final Map<Long, String> instrumentTokenToSymbolMap = new ConcurrentHashMap<>();
@@ -77,67 +79,69 @@ public class BarSeriesHelper {
     }
 
     /**
-     * Process a tick update for all intervals
+     * Retrieves the series of many instruments for one timeframe; series that are not cached yet are loaded
+     * together with bulk queries instead of one query per instrument.
+     *
+     * @param stocks The instrument symbols
+     * @param tf The timeframe/interval as string
+     * @return The loaded series by instrument symbol
+     */
+    public Map<String, IntervalBarSeries> getIntervalBarSeries(Collection<String> stocks, String tf) {
+        List<String> symbols = List.copyOf(new LinkedHashSet<>(stocks));
+        List<BarSeriesConfig> configs = new ArrayList<>(symbols.size());
+        for (String stock : symbols) {
+            configs.add(createBarSeriesConfig(stock, tf));
+        }
+        List<IntervalBarSeries> series;
+        try {
+            series = barSeriesLoader.loadAllBarSeries(configs);
+        } catch (StrategyException e) {
+            throw new RuntimeException(e);
+        }
+        Map<String, IntervalBarSeries> bySymbol = new HashMap<>(symbols.size() * 2);
+        for (int i = 0; i < symbols.size(); i++) {
+            bySymbol.put(symbols.get(i), series.get(i));
+        }
+        return bySymbol;
+    }
+
+    /**
+     * Process a tick update for all intervals.
+     * The tick is folded into every interval's open bar in a single pass by the {@link TickAggregator};
+     * the per-interval configs are built only once, the first time a token is seen.
      * 
      * @param tick The market data tick
-     * @return true if processing was successful for at least one interval
+     * @return true if processing was successful
      */
     public boolean processTick(DataTick tick) {
-        boolean anySuccess = false;
-
-        // Process this tick for all intervals
-        for (Interval interval : Interval.values()) {
-            if (processTick(tick, interval)) {
-                anySuccess = true;
-            }
-        }
-
-        return anySuccess;
+        return processTick(tick, tickAggregator);
     }
 
     /**
-     * Process a tick update for a specific interval
-     * 
+     * Process a tick update for all intervals through the given aggregator, e.g. an isolated one for replay
+     *
      * @param tick The market data tick
-     * @param interval The specific interval to process the tick for
+     * @param aggregator The aggregator that owns the bars
      * @return true if processing was successful
      */
-    public boolean processTick(DataTick tick, Interval interval) {
+    public boolean processTick(DataTick tick, TickAggregator aggregator) {
         try {
-            // Get the config for this instrument token with the specified interval
-            BarSeriesConfig config = getConfigForInstrumentToken(tick.getInstrumentToken(), interval);
-            if (config == null) {
-                log.warn("No config found for instrument token: {} with interval {}", tick.getInstrumentToken(), interval);
-                return false;
-            }
-
-            // Load the bar series first
-            IntervalBarSeries barSeries;
-            try {
-                barSeries = barSeriesLoader.loadBarSeries(config);
-                if (barSeries == null) {
-                    log.warn("Failed to load bar series for config: {}", config.getName());
-                    return false;
+            long instrumentToken = tick.getInstrumentToken();
+            if (!aggregator.isRegistered(instrumentToken)) {
+                BarSeriesConfig[] configs = new BarSeriesConfig[Interval.values().length];
+                for (Interval interval : Interval.values()) {
+                    BarSeriesConfig config = getConfigForInstrumentToken(instrumentToken, interval);
+                    if (config == null) {
+                        log.warn("No config found for instrument token: {} with interval {}", instrumentToken, interval);
+                        return false;
+                    }
+                    configs[interval.ordinal()] = config;
                 }
-            } catch (StrategyException e) {
-                log.error("Error loading bar series for config: {}", config.getName(), e);
-                return false;
+                aggregator.register(instrumentToken, configs);
             }
-
-            // Update the bar series with this tick
-            // The method returns the completed bar (previous bar) if a new bar was created, or null otherwise
-            Bar completedBar = barSeriesLoader.updateBarSeries(tick, barSeries);
-
-            // If a completed bar was returned, add it to the batch update queue
-            if (completedBar != null) {
-                log.debug("Completed bar detected for instrument: {}, interval: {}, time: {}, adding to batch queue", 
-                         config.getInstrument(), interval, completedBar.getEndTime());
-                databaseBatchUpdateService.addToQueue(config);
-            }
-
-            return true;
+            return aggregator.onTick(tick);
         } catch (Exception e) {
-            log.error("Error processing tick for instrument token: {} with interval: {}", tick.getInstrumentToken(), interval, e);
+            log.error("Error processing tick for instrument token: {}", tick.getInstrumentToken(), e);
             return false;
         }
     }
@@ -197,15 +201,30 @@ public class BarSeriesHelper {
     public void registerInstrument(String tradingSymbol, long instrumentToken, List<String> intervals) {
         // Store only the instrument token and symbol mapping
         instrumentTokenToSymbolMap.put(instrumentToken, tradingSymbol);
+        barSeriesLoader.pinInstrument(tradingSymbol);
 
         log.info("Registered instrument: {} with token: {}", tradingSymbol, instrumentToken);
     }
 
+    /**
+     * Stop aggregating ticks for an instrument, discarding its open bars, and unpin its cached series
+     *
+     * @param instrumentToken The instrument token from Kite
+     */
+    public void unregisterInstrument(long instrumentToken) {
+        tickAggregator.unregister(instrumentToken);
+        String tradingSymbol = instrumentTokenToSymbolMap.get(instrumentToken);
+        if (tradingSymbol != null) {
+            barSeriesLoader.unpinInstrument(tradingSymbol);
+        }
+    }
+
     /**
      * Clear all registered instruments from the cache
      */
     public void clearRegisteredInstruments() {
         instrumentTokenToSymbolMap.clear();
+        tickAggregator.clear();
         log.info("Cleared all registered instruments");
     }
 
@@ -225,6 +244,23 @@ public class BarSeriesHelper {
         return successCount;
     }
 
+    /**
+     * Process multiple ticks in bulk through the given aggregator
+     *
+     * @param ticks List of market data ticks
+     * @param aggregator The aggregator that owns the bars
+     * @return Number of successfully processed ticks
+     */
+    public int processTicks(List<DataTick> ticks, TickAggregator aggregator) {
+        int successCount = 0;
+        for (DataTick tick : ticks) {
+            if (processTick(tick, aggregator)) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
     public Double getLastPrice(Instrument instrument) throws StrategyException {
         BarSeriesConfig config = createBarSeriesConfig(instrument.getTradingsymbol(),
                 Interval.Day.name());
@@ -2,12 +2,16 @@ package com.dtech.kitecon.controller;
 
 import com.dtech.algo.series.Interval;
 import com.dtech.kitecon.service.DataFetchService;
+import com.dtech.kitecon.service.HistoricalFetchJob;
+import com.dtech.kitecon.service.HistoricalFetchScheduler;
+import com.dtech.kitecon.service.InstrumentSyncService;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,6 +21,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class DataFetchController {
 
   private final DataFetchService dataFetchService;
+  private final HistoricalFetchScheduler historicalFetchScheduler;
 
   @GetMapping("/profile")
   public String getProfile() throws IOException, KiteException {
@@ -42,8 +47,19 @@ public class DataFetchController {
     dataFetchService.updateInstrumentToLatest(instrument, interval, exchangeList);
   }
 
+  @GetMapping("/fetch/jobs")
+  public List<HistoricalFetchJob.Status> getFetchJobs() {
+    return historicalFetchScheduler.getJobs();
+  }
+
+  @GetMapping("/fetch/jobs/{id}")
+  public ResponseEntity<HistoricalFetchJob.Status> getFetchJob(@PathVariable String id) {
+    HistoricalFetchJob job = historicalFetchScheduler.getJob(id);
+    return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.status());
+  }
+
   @GetMapping("/fetch/instruments/all")
-  public void fetchAllInstruments() throws IOException, KiteException {
-    dataFetchService.downloadAllInstruments();
+  public InstrumentSyncService.Report fetchAllInstruments() throws IOException {
+    return dataFetchService.downloadAllInstruments();
   }
 }
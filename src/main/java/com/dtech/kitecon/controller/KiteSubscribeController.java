@@ -1,6 +1,8 @@
 package com.dtech.kitecon.controller;
 
 import com.dtech.algo.runner.candle.KiteTickerService;
+import com.dtech.algo.runner.candle.TickPipelineStats;
+import com.dtech.algo.runner.candle.journal.TickReplayService;
 import com.dtech.algo.series.InstrumentType;
 import com.dtech.kitecon.data.Instrument;
 import com.dtech.kitecon.repository.InstrumentRepository;
@@ -10,6 +12,7 @@ import org.jetbrains.annotations.NotNull;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +28,7 @@ public class KiteSubscribeController {
 
     private final KiteTickerService kiteTickerService;
     private final InstrumentRepository instrumentRepository;
+    private final TickReplayService tickReplayService;
 
     /**
      * Subscribe to a list of instruments by name
@@ -138,4 +142,48 @@ public class KiteSubscribeController {
             ));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Queue depth, throughput and lag of the tick pipeline, per shard
+     *
+     * @return The current pipeline statistics
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<TickPipelineStats> getPipelineStats() {
+        return ResponseEntity.ok(kiteTickerService.getPipelineStats());
+    }
+
+    /**
+     * Replay a day's tick journal through the bar aggregation path
+     *
+     * @param date  Trading day of the journal (yyyy-MM-dd)
+     * @param speed Multiple of wall-clock speed, at most 100
+     * @return Response with status message
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam String date,
+                                                      @RequestParam(defaultValue = "1") double speed) {
+        try {
+            tickReplayService.replayAsync(LocalDate.parse(date), speed);
+            return ResponseEntity.accepted().body(Map.of(
+                "status", "success",
+                "message", "Replay of " + date + " started at " + Math.min(speed, TickReplayService.MAX_SPEED) + "x"
+            ));
+        } catch (Exception e) {
+            log.error("Error starting tick replay for {}", date, e);
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "Failed to start replay: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Progress of the running tick replay, or the result of the last one
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<TickReplayService.ReplayStatus> getReplayStatus() {
+        TickReplayService.ReplayStatus status = tickReplayService.getStatus();
+        return status == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(status);
+    }
+}
@@ -0,0 +1,192 @@
+package com.dtech.kitecon.repository;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.kitecon.data.Candle;
+import com.dtech.kitecon.data.Instrument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes candles with MySQL multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE} on the
+ * {@code (timeframe, timestamp, instrument_instrument_token)} unique key, bypassing the ORM: nothing is read back
+ * and no entity is managed.
+ * <p>
+ * {@link Candle} ids come from the Hibernate emulated sequence table {@code candle_seq}. An upsert reserves its ids
+ * by moving {@code next_val} past them plus one allocation block, so the ids never collide with a block the
+ * Hibernate pooled optimizer may still be handing out. The reservation runs on its own autocommit connection:
+ * on the connection of the surrounding download transaction the {@code candle_seq} row lock would be held until
+ * that download commits, serializing every other fetch worker and Hibernate id allocation behind it.
+ */
+@Repository
+@RequiredArgsConstructor
+@Log4j2
+public class CandleBulkWriter {
+
+    // allocationSize of Candle's @GeneratedValue (JPA default)
+    private static final int SEQUENCE_ALLOCATION = 50;
+    private static final String INSERT = "INSERT INTO candle "
+            + "(id, open, high, low, close, volume, oi, `timestamp`, instrument_instrument_token, timeframe) VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?,?,?,?)";
+    // row alias instead of VALUES(col), which MySQL deprecated in 8.0.20
+    private static final String ON_DUPLICATE = " AS new ON DUPLICATE KEY UPDATE open = new.open, high = new.high, "
+            + "low = new.low, close = new.close, volume = new.volume, oi = new.oi";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @Value("${candles.bulk.batch-size:1000}")
+    private int batchSize;
+
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Insert the candles of one instrument and interval, overwriting prices of candles that already exist.
+     *
+     * @return Number of candles written
+     */
+    public int upsert(Instrument instrument, Interval interval, List<Candle> candles) {
+        if (candles.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int size = Math.max(1, batchSize);
+        long firstId = reserveIds(candles.size());
+        int written = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int rows = 0;
+            for (int from = 0; from < candles.size(); from += size) {
+                List<Candle> batch = candles.subList(from, Math.min(candles.size(), from + size));
+                writeBatch(connection, instrument, interval, batch, firstId + from);
+                rows += batch.size();
+            }
+            return rows;
+        });
+        long nanos = System.nanoTime() - start;
+        totalRows.addAndGet(written);
+        totalNanos.addAndGet(nanos);
+        log.info("Upserted {} {} candles of {} in {} ms ({} rows/s)", written, interval,
+                instrument.getTradingsymbol(), nanos / 1_000_000, rowsPerSecond(written, nanos));
+        return written;
+    }
+
+    /**
+     * Delete all candles of one instrument and interval with a single statement. Use this rather than the
+     * derived JPA delete before an upsert: the JPA delete is only flushed at commit and would remove the rows the
+     * upsert just wrote.
+     *
+     * @return Number of candles deleted
+     */
+    public int deleteSeries(Instrument instrument, Interval interval) {
+        return jdbcTemplate.update("DELETE FROM candle WHERE instrument_instrument_token = ? AND timeframe = ?",
+                instrument.getInstrumentToken(), interval.name());
+    }
+
+    /**
+     * @return Candles written since startup
+     */
+    public long getTotalRows() {
+        return totalRows.get();
+    }
+
+    /**
+     * @return Average write throughput since startup
+     */
+    public long getRowsPerSecond() {
+        return rowsPerSecond(totalRows.get(), totalNanos.get());
+    }
+
+    private void writeBatch(Connection connection, Instrument instrument, Interval interval, List<Candle> batch,
+                            long id) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT.length() + batch.size() * (ROW.length() + 1) + ON_DUPLICATE.length());
+        sql.append(INSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW);
+        }
+        sql.append(ON_DUPLICATE);
+
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (Candle candle : batch) {
+                ps.setLong(p++, id++);
+                setDouble(ps, p++, candle.getOpen());
+                setDouble(ps, p++, candle.getHigh());
+                setDouble(ps, p++, candle.getLow());
+                setDouble(ps, p++, candle.getClose());
+                setLong(ps, p++, candle.getVolume());
+                setLong(ps, p++, candle.getOi());
+                // same binding Hibernate uses for Instant columns (UTC)
+                ps.setTimestamp(p++, Timestamp.from(candle.getTimestamp()), utc);
+                ps.setLong(p++, instrument.getInstrumentToken());
+                ps.setString(p++, interval.name());
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Reserve {@code count} ids from {@code candle_seq} atomically, committed right away on a dedicated connection.
+     *
+     * @return The first reserved id
+     */
+    private long reserveIds(int count) {
+        String sql = "UPDATE candle_seq SET next_val = LAST_INSERT_ID(next_val + ?)";
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            try (PreparedStatement update = connection.prepareStatement(sql)) {
+                update.setLong(1, count + SEQUENCE_ALLOCATION);
+                update.executeUpdate();
+            }
+            // LAST_INSERT_ID is per connection, so it must be read on the one that ran the update
+            try (PreparedStatement select = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+                 ResultSet rs = select.executeQuery()) {
+                rs.next();
+                long nextVal = rs.getLong(1);
+                return nextVal - SEQUENCE_ALLOCATION - count + 1;
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Reserving candle ids", sql, e);
+        }
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private static long rowsPerSecond(long rows, long nanos) {
+        return nanos <= 0 ? 0 : rows * 1_000_000_000L / nanos;
+    }
+}
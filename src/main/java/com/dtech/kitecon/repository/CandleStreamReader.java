@@ -0,0 +1,116 @@
+package com.dtech.kitecon.repository;
+
+import com.dtech.algo.series.Interval;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TimeZone;
+
+/**
+ * Streams candle rows straight from JDBC in timestamp order (served by the {@code idx_candle_inst_tf_ts} index)
+ * through a forward-only, read-only result set, without creating {@code Candle} entities.
+ * <p>
+ * With MySQL a positive fetch size only streams when the connection has {@code useCursorFetch=true};
+ * {@code Integer.MIN_VALUE} streams row by row without it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CandleStreamReader {
+
+    private static final String SELECT = "SELECT `timestamp`, open, high, low, close, volume, oi FROM candle "
+            + "WHERE instrument_instrument_token = ? AND timeframe = ? AND `timestamp` BETWEEN ? AND ? "
+            + "ORDER BY `timestamp`";
+
+    private static final String SELECT_MANY = "SELECT instrument_instrument_token, `timestamp`, open, high, low, close, volume, oi "
+            + "FROM candle WHERE instrument_instrument_token IN (%s) AND timeframe = ? AND `timestamp` BETWEEN ? AND ? "
+            + "ORDER BY instrument_instrument_token, `timestamp`";
+
+    @FunctionalInterface
+    public interface CandleRowHandler {
+        void onCandle(long endEpochMillis, double open, double high, double low, double close, double volume,
+                      double oi);
+    }
+
+    /**
+     * Receives the candles of several instruments, grouped by instrument and oldest first within each.
+     */
+    @FunctionalInterface
+    public interface InstrumentCandleRowHandler {
+        void onCandle(long instrumentToken, long endEpochMillis, double open, double high, double low, double close,
+                      double volume, double oi);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${candles.read.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Read the candles of one instrument and interval between two instants (both inclusive), oldest first.
+     *
+     * @return Number of candles read
+     */
+    public int read(long instrumentToken, Interval interval, Instant from, Instant to, CandleRowHandler handler) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int[] rows = new int[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, instrumentToken);
+            ps.setString(2, interval.name());
+            ps.setTimestamp(3, Timestamp.from(from), utc);
+            ps.setTimestamp(4, Timestamp.from(to), utc);
+            return ps;
+        }, rs -> {
+            // NULL prices or volumes read as 0
+            handler.onCandle(rs.getTimestamp(1, utc).getTime(), rs.getDouble(2), rs.getDouble(3),
+                    rs.getDouble(4), rs.getDouble(5), rs.getLong(6), rs.getLong(7));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    /**
+     * Read the candles of several instruments of one interval between two instants (both inclusive) with a single
+     * query, instrument by instrument and oldest first within each.
+     *
+     * @return Number of candles read
+     */
+    public int readAll(Collection<Long> instrumentTokens, Interval interval, Instant from, Instant to,
+                       InstrumentCandleRowHandler handler) {
+        if (instrumentTokens.isEmpty()) {
+            return 0;
+        }
+        String sql = String.format(SELECT_MANY, String.join(",", Collections.nCopies(instrumentTokens.size(), "?")));
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int[] rows = new int[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            int p = 1;
+            for (Long token : instrumentTokens) {
+                ps.setLong(p++, token);
+            }
+            ps.setString(p++, interval.name());
+            ps.setTimestamp(p++, Timestamp.from(from), utc);
+            ps.setTimestamp(p, Timestamp.from(to), utc);
+            return ps;
+        }, rs -> {
+            handler.onCandle(rs.getLong(1), rs.getTimestamp(2, utc).getTime(), rs.getDouble(3), rs.getDouble(4),
+                    rs.getDouble(5), rs.getDouble(6), rs.getLong(7), rs.getLong(8));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+}
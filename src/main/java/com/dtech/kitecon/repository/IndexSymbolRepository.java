@@ -22,6 +22,12 @@ public interface IndexSymbolRepository extends JpaRepository<IndexSymbol, Long>
   @Query("SELECT s.exchangeSymbol FROM IndexSymbol s WHERE s.indexName = :indexName")
   List<String> findAllSymbolsByIndexName(String indexName);
 
+  /**
+   * Finds every (indexName, exchangeSymbol) membership pair in one query.
+   */
+  @Query("SELECT s.indexName, s.exchangeSymbol FROM IndexSymbol s")
+  List<Object[]> findAllMemberships();
+
   /**
    * Checks if a given index name exists.
    */
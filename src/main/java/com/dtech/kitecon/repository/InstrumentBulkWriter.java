@@ -0,0 +1,136 @@
+package com.dtech.kitecon.repository;
+
+import com.dtech.kitecon.data.Instrument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes the instrument master with plain JDBC for the instrument sync, bypassing the ORM.
+ * <p>
+ * New and changed instruments are written with one MySQL multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}
+ * per batch on the {@code instrument_token} primary key. Instruments are never deleted, since candles reference
+ * them; an instrument that left the dump is retired by setting its expiry instead.
+ */
+@Repository
+@RequiredArgsConstructor
+@Log4j2
+public class InstrumentBulkWriter {
+
+    private static final String COLUMNS = "instrument_token, exchange_token, tradingsymbol, name, last_price, "
+            + "expiry, strike, tick_size, lot_size, instrument_type, segment, exchange";
+    private static final String INSERT = "INSERT INTO instrument (" + COLUMNS + ") VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?,?,?,?,?,?)";
+    // row alias instead of VALUES(col), deprecated since MySQL 8.0.20
+    private static final String ON_DUPLICATE = " AS new ON DUPLICATE KEY UPDATE exchange_token = new.exchange_token, "
+            + "tradingsymbol = new.tradingsymbol, name = new.name, last_price = new.last_price, "
+            + "expiry = new.expiry, strike = new.strike, tick_size = new.tick_size, "
+            + "lot_size = new.lot_size, instrument_type = new.instrument_type, segment = new.segment, "
+            + "exchange = new.exchange";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stream every instrument row to {@code consumer} in token order, as detached instruments that are not
+     * managed by the persistence context.
+     */
+    public void forEach(Consumer<Instrument> consumer) {
+        jdbcTemplate.query("SELECT " + COLUMNS + " FROM instrument ORDER BY instrument_token", rs -> {
+            consumer.accept(Instrument.builder()
+                    .instrumentToken(rs.getLong(1))
+                    .exchangeToken(rs.getObject(2, Long.class))
+                    .tradingsymbol(rs.getString(3))
+                    .name(rs.getString(4))
+                    .lastPrice(rs.getObject(5, Double.class))
+                    .expiry(rs.getObject(6, LocalDateTime.class))
+                    .strike(rs.getString(7))
+                    .tickSize(rs.getObject(8, Double.class))
+                    .lotSize(rs.getObject(9, Integer.class))
+                    .instrumentType(rs.getString(10))
+                    .segment(rs.getString(11))
+                    .exchange(rs.getString(12))
+                    .build());
+        });
+    }
+
+    /**
+     * Insert the instruments, overwriting every column of those that already exist.
+     *
+     * @return Number of instruments written
+     */
+    public int upsert(List<Instrument> instruments) {
+        if (instruments.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + instruments.size() * (ROW.length() + 1)
+                + ON_DUPLICATE.length());
+        sql.append(INSERT);
+        for (int i = 0; i < instruments.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW);
+        }
+        sql.append(ON_DUPLICATE);
+        jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (Instrument instrument : instruments) {
+                    ps.setLong(p++, instrument.getInstrumentToken());
+                    setObject(ps, p++, instrument.getExchangeToken(), Types.BIGINT);
+                    ps.setString(p++, instrument.getTradingsymbol());
+                    ps.setString(p++, instrument.getName());
+                    setObject(ps, p++, instrument.getLastPrice(), Types.DOUBLE);
+                    setObject(ps, p++, instrument.getExpiry(), Types.TIMESTAMP);
+                    ps.setString(p++, instrument.getStrike());
+                    setObject(ps, p++, instrument.getTickSize(), Types.DOUBLE);
+                    setObject(ps, p++, instrument.getLotSize(), Types.INTEGER);
+                    ps.setString(p++, instrument.getInstrumentType());
+                    ps.setString(p++, instrument.getSegment());
+                    ps.setString(p++, instrument.getExchange());
+                }
+                return ps.executeUpdate();
+            }
+        });
+        return instruments.size();
+    }
+
+    /**
+     * Retire instruments by setting their expiry to {@code at}, so they drop out of every active-instrument query.
+     *
+     * @return Number of instruments retired
+     */
+    public int retire(List<Long> tokens, LocalDateTime at) {
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE instrument SET expiry = ? WHERE instrument_token IN (");
+        for (int i = 0; i < tokens.size(); i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(')');
+        Object[] args = new Object[tokens.size() + 1];
+        args[0] = at;
+        for (int i = 0; i < tokens.size(); i++) {
+            args[i + 1] = tokens.get(i);
+        }
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private static void setObject(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+}
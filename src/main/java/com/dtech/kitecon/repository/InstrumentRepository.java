@@ -3,6 +3,7 @@ package com.dtech.kitecon.repository;
 import com.dtech.algo.series.InstrumentType;
 import com.dtech.kitecon.data.Instrument;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -29,9 +30,12 @@ public interface InstrumentRepository extends JpaRepository<Instrument, Long> {
   // Simple prefix query without exchange/expiry constraints used by the symbol search API
   List<Instrument> findAllByTradingsymbolStartingWith(String symbol);
   List<Instrument> findAllByTradingsymbol(String symbol);
+  List<Instrument> findAllByTradingsymbolIn(Collection<String> symbols);
 
     Set<Instrument> findAllByTradingsymbolInAndExpiryBefore(List<String> symbols, LocalDateTime expiryBefore);
 
+  List<Instrument> findAllByInstrumentTypeInAndExpiryAfter(Collection<String> instrumentTypes, LocalDateTime expiryAfter);
+
   List<Instrument> findAllByNameAndInstrumentTypeAndExpiryBetween(String name, String instrumentType,
                                                                    LocalDateTime expiryStart, LocalDateTime expiryEnd);
 }
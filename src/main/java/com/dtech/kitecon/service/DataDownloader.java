@@ -5,9 +5,8 @@ import com.dtech.kitecon.config.KiteConnectConfig;
 import com.dtech.kitecon.data.Candle;
 import com.dtech.kitecon.data.Instrument;
 import com.dtech.kitecon.data.InstrumentLtp;
-import com.dtech.kitecon.repository.CandleRepository;
+import com.dtech.kitecon.repository.CandleBulkWriter;
 import com.dtech.kitecon.repository.InstrumentLtpRepository;
-import com.google.common.util.concurrent.RateLimiter;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.InputException;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import com.zerodhatech.models.HistoricalData;
@@ -22,7 +21,6 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.Temporal;
 import java.time.temporal.TemporalUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -35,6 +33,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * Responsibility of this class is to download the data and insert in the database.
+ * Requests are rate limited and retried by {@link HistoricalFetchScheduler}, which should be the only caller.
  */
 @Component
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
@@ -42,15 +41,13 @@ import org.springframework.stereotype.Component;
 public class DataDownloader {
 
     private final KiteConnectConfig kiteConnectConfig;
-    private final CandleRepository candleRepository;
+    private final CandleBulkWriter candleBulkWriter;
     private final CandleFacade candleFacade;
     private final InstrumentLtpRepository instrumentLtpRepository;
-    private static final RateLimiter ratelimit = RateLimiter.create(3.0);
 
     @Transactional
     public void processDownload(DataDownloadRequest downloadRequest)
             throws KiteException, IOException {
-        ratelimit.acquire();
         log.debug("Download data for {}", downloadRequest);
         Interval interval = downloadRequest.getInterval();
         DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
@@ -69,25 +66,18 @@ public class DataDownloader {
                     Date.from(endDate),
                     String.valueOf(instrument.getInstrumentToken()),
                     interval.getKiteKey(), downloadRequest.isContinuous(), true);
-            Map<Instant, Candle> dataMap = new HashMap<>();
             if(candles.dataArrayList.isEmpty()) {
                 log.error("No data found - {}", downloadRequest);
                 return;
             }
             if(downloadRequest.isClean()) {
-                candleRepository.deleteByInstrumentAndTimeframe(instrument, interval);
-            } else {
-                Instant timeStart = CandleFacade.getInstant(dateFormat, candles.dataArrayList.getFirst()).minus(1, ChronoUnit.SECONDS);
-                Instant timesEnd = CandleFacade.getInstant(dateFormat, candles.dataArrayList.getLast()).plus(1, ChronoUnit.SECONDS);
-                List<Candle> existingData = candleRepository.findAllByInstrumentAndTimeframeAndTimestampBetween(instrument, interval,
-                        timeStart,
-                        timesEnd);
-                dataMap = existingData.stream().collect(Collectors.toMap(candle -> candle.getTimestamp(), candle -> candle));
+                candleBulkWriter.deleteSeries(instrument, interval);
             }
 
-            List<Candle> databaseCandles = candleFacade.buildCandlesFromOLSHStreamFailSafe(
-                    interval, dateFormat, instrument, candles, dataMap);
-            candleRepository.saveAll(databaseCandles);
+            // Existing candles are overwritten by the upsert, no need to load them first
+            List<Candle> databaseCandles = candleFacade.buildCandlesFromOLSHStream(
+                    interval, dateFormat, instrument, candles);
+            candleBulkWriter.upsert(instrument, interval, databaseCandles);
 
             // Update LTP if requested and we have candles
             if (downloadRequest.isUpdateLTP() && !databaseCandles.isEmpty()) {
@@ -95,9 +85,8 @@ public class DataDownloader {
                 upsertLtp(instrument.getTradingsymbol(), latestCandle.getClose());
             }
         } catch (InputException ex) {
+            // Invalid request (e.g. a range the broker has no data for), retrying would not help
             log.error(ex.getMessage());
-        } catch (RuntimeException ex) {
-            log.catching(ex);
         }
 
     }
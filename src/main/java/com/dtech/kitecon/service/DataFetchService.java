@@ -9,7 +9,6 @@ import com.dtech.kitecon.repository.CandleRepository;
 import com.dtech.kitecon.repository.InstrumentRepository;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import com.zerodhatech.models.Profile;
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,15 +18,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
@@ -36,70 +30,46 @@ public class DataFetchService {
 
     private final InstrumentRepository instrumentRepository;
     private final KiteConnectConfig kiteConnectConfig;
-    private final DataDownloader dataDownloader;
     private final HistoricalDateLimit historicalDateLimit;
-
-    private int threadPoolSize = 3;
-
-    private ExecutorService executorService;
-
-    @PostConstruct
-    public void setupExecutor() {
-        this.executorService = Executors.newFixedThreadPool(threadPoolSize);
-    }
-
-
+    private final HistoricalFetchScheduler historicalFetchScheduler;
     private final CandleRepository candleRepository;
+    private final OptionChainIndex optionChainIndex;
+    private final InstrumentCatalog instrumentCatalog;
+    private final InstrumentSyncService instrumentSyncService;
 
     public String getProfile() throws IOException, KiteException {
         Profile profile = kiteConnectConfig.getKiteConnect().getProfile();
         return profile.userName;
     }
 
-    @Transactional
-    public void downloadAllInstruments() throws KiteException, IOException {
-        Map<Long, Instrument> databaseInstruments = instrumentRepository.findAll()
-                .stream()
-                .collect(Collectors.toMap(Instrument::getInstrumentToken, instrument -> instrument));
-        List<com.zerodhatech.models.Instrument> instruments = kiteConnectConfig.getKiteConnect()
-                .getInstruments();
-        List<Instrument> newInstruments = instruments.stream()
-                .filter(instrument -> !databaseInstruments.containsKey(instrument.instrument_token))
-                .map(instrument -> Instrument.builder()
-                        .instrumentToken(instrument.instrument_token)
-                        .instrumentType(instrument.instrument_type)
-                        .strike(instrument.strike)
-                        .exchangeToken(instrument.exchange_token)
-                        .tradingsymbol(instrument.tradingsymbol)
-                        .name(instrument.name)
-                        .lastPrice(instrument.last_price)
-                        .expiry(instrument.getExpiry() == null ? null : dateToLocalDate(instrument))
-                        .tickSize(instrument.tick_size)
-                        .lotSize(instrument.lot_size)
-                        .instrumentType(instrument.instrument_type)
-                        .segment(instrument.segment)
-                        .exchange(instrument.exchange)
-                        .build()).collect(Collectors.toList());
-        instrumentRepository.saveAll(newInstruments);
-    }
-
-    private LocalDateTime dateToLocalDate(com.zerodhatech.models.Instrument instrument) {
-        return LocalDateTime.ofInstant(instrument.expiry.toInstant(),
-                ZoneId.systemDefault());
+    /**
+     * Bring the instrument table in line with the broker's instrument dump, then rebuild the in-memory indexes.
+     * Not transactional: each batch of the sync commits on its own rather than one transaction spanning the
+     * download, every upsert and both rebuilds.
+     */
+    public InstrumentSyncService.Report downloadAllInstruments() throws IOException {
+        InstrumentSyncService.Report report = instrumentSyncService.sync();
+        optionChainIndex.rebuild();
+        instrumentCatalog.rebuild();
+        return report;
     }
 
     @Transactional
-    public void downloadCandleData(String instrumentName, Interval interval, String[] exchanges) {
+    public List<HistoricalFetchJob> downloadCandleData(String instrumentName, Interval interval, String[] exchanges) {
         LocalDateTime startDate = LocalDateTime.now().minus(4, ChronoUnit.MONTHS);
         List<Instrument> primaryInstruments = getInstrumentList(instrumentName, exchanges, startDate);
-        primaryInstruments.forEach(instrument -> this.downloadData(instrument, interval));
+        return primaryInstruments.stream()
+                .map(instrument -> this.downloadData(instrument, interval))
+                .toList();
     }
 
     @Transactional
-    public void updateInstrumentToLatest(String instrumentName, Interval interval, String[] exchanges) {
+    public List<HistoricalFetchJob> updateInstrumentToLatest(String instrumentName, Interval interval, String[] exchanges) {
         LocalDateTime startDate = LocalDateTime.now().minus(4, ChronoUnit.MONTHS);
         List<Instrument> primaryInstruments = getInstrumentList(instrumentName, exchanges, startDate);
-        primaryInstruments.forEach(instrument -> this.updateInstrument(instrument, interval, false));
+        return primaryInstruments.stream()
+                .map(instrument -> this.updateInstrument(instrument, interval, false))
+                .toList();
     }
 
     private List<Instrument> getInstrumentList(String instrumentName, String[] exchanges,
@@ -116,32 +86,57 @@ public class DataFetchService {
     }
 
     @Transactional
-    public void downloadData(Instrument instrument, Interval interval) {
+    public HistoricalFetchJob downloadData(Instrument instrument, Interval interval) {
+        return downloadData(instrument, interval, FetchPriority.BACKFILL);
+    }
+
+    @Transactional
+    public HistoricalFetchJob downloadData(Instrument instrument, Interval interval, FetchPriority priority) {
         Instant endTime = Instant.now();
         int totalAvailableDuration = historicalDateLimit
                 .getTotalAvailableDuration(instrument.getExchange(), interval);
         Instant startTime = endTime.minus(totalAvailableDuration, ChronoUnit.DAYS);
         int sliceSize = historicalDateLimit.getDuration(instrument.getExchange(), interval);
-        fetchDataAndUpdateDatabase(instrument, interval, endTime, sliceSize, startTime, false);
+        return fetchDataAndUpdateDatabase(instrument, interval, endTime, sliceSize, startTime, false, priority);
+    }
+
+    @Transactional
+    public HistoricalFetchJob updateInstrument(Instrument instrument, Interval interval, boolean clean) {
+        return updateInstrument(instrument, interval, clean, FetchPriority.BACKFILL);
     }
 
     @Transactional
-    public void updateInstrument(Instrument instrument, Interval interval, boolean clean) {
+    public HistoricalFetchJob updateInstrument(Instrument instrument, Interval interval, boolean clean,
+                                               FetchPriority priority) {
         Instant endTime = Instant.now();
         Candle latestCandle = candleRepository
                 .findFirstByInstrumentAndTimeframeOrderByTimestampDesc(instrument, interval);
         if (latestCandle == null) {
-            downloadData(instrument, interval);
+            return downloadData(instrument, interval, priority);
         } else {
             Instant latestTimestamp = latestCandle.getTimestamp();
             int sliceSize = historicalDateLimit.getDuration(instrument.getExchange(), interval);
-            fetchDataAndUpdateDatabase(instrument, interval, endTime, sliceSize, latestTimestamp, clean);
+            return fetchDataAndUpdateDatabase(instrument, interval, endTime, sliceSize, latestTimestamp, clean, priority);
         }
     }
 
     @Transactional
-    public void fetchDataAndUpdateDatabase(Instrument instrument, Interval interval,
-                                           Instant endTime, int sliceSize, Instant startDate, boolean clean) {
+    public HistoricalFetchJob fetchDataAndUpdateDatabase(Instrument instrument, Interval interval,
+                                                         Instant endTime, int sliceSize, Instant startDate, boolean clean) {
+        return fetchDataAndUpdateDatabase(instrument, interval, endTime, sliceSize, startDate, clean,
+                FetchPriority.BACKFILL);
+    }
+
+    /**
+     * Split a date range into slices the broker accepts and queue them on the {@link HistoricalFetchScheduler}.
+     *
+     * @param endTime End of the range, or null to fetch up to now and update the LTP
+     * @return The job tracking the download; wait on its future to read the data once it is saved
+     */
+    @Transactional
+    public HistoricalFetchJob fetchDataAndUpdateDatabase(Instrument instrument, Interval interval,
+                                                         Instant endTime, int sliceSize, Instant startDate,
+                                                         boolean clean, FetchPriority priority) {
         boolean updateToLatest = endTime == null;
         if(updateToLatest) {
             endTime = Instant.now();
@@ -152,38 +147,20 @@ public class DataFetchService {
                 .build()
                 .split(sliceSize);
         dateRangeList.sort(Comparator.comparing(DateRange::getStartDate));
-        AtomicInteger count = new AtomicInteger(0);
-        dateRangeList.forEach(dateRange -> {
-            executeSlice(instrument, interval, clean, dateRange, count, updateToLatest);
-        });
-    }
-
-    @Transactional
-    public void executeSlice(Instrument instrument, Interval interval, boolean clean, DateRange dateRange, AtomicInteger count, boolean updateToLatest) {
-        DataDownloadRequest dataDownloadRequest = DataDownloadRequest.builder()
-                .dateRange(dateRange)
-                .instrument(instrument)
-                .interval(interval)
-                .clean(clean && count.getAndAdd(1) <= 0)
-                .updateLTP(updateToLatest)
-                .build();
-        if(dateRange.getEndDate().isBefore(dateRange.getStartDate())) {
-            throw new RuntimeException(String.format("Invalid date range {} ", dataDownloadRequest));
-        }
-        try {
-            executorService.submit(
-                    () -> {
-                        try {
-                            dataDownloader.processDownload(dataDownloadRequest);
-                        } catch (KiteException e) {
-                            throw new RuntimeException(e);
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-            );
-        } catch (Throwable e) {
-            log.catching(e);
+        List<DataDownloadRequest> requests = new ArrayList<>(dateRangeList.size());
+        for (DateRange dateRange : dateRangeList) {
+            DataDownloadRequest dataDownloadRequest = DataDownloadRequest.builder()
+                    .dateRange(dateRange)
+                    .instrument(instrument)
+                    .interval(interval)
+                    .clean(clean && requests.isEmpty())
+                    .updateLTP(updateToLatest)
+                    .build();
+            if(dateRange.getEndDate().isBefore(dateRange.getStartDate())) {
+                throw new RuntimeException(String.format("Invalid date range %s", dataDownloadRequest));
+            }
+            requests.add(dataDownloadRequest);
         }
+        return historicalFetchScheduler.submit(instrument, interval, requests, priority);
     }
 }
@@ -0,0 +1,11 @@
+package com.dtech.kitecon.service;
+
+/**
+ * Order in which queued Kite historical requests are served. Lower ordinal goes first.
+ */
+public enum FetchPriority {
+    /** Data a live subscription is waiting for */
+    LIVE,
+    /** Deep history downloads triggered by users or batch jobs */
+    BACKFILL
+}
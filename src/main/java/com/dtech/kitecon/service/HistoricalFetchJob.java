@@ -0,0 +1,121 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.algo.series.Interval;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one instrument/interval download, split into date range slices by {@link HistoricalFetchScheduler}.
+ * The future completes once every slice has either been saved or has failed all its retries, and completes
+ * exceptionally if a slice hit an {@link Error}.
+ */
+public class HistoricalFetchJob {
+
+    public record Status(String id, String instrument, Interval interval, FetchPriority priority, int totalSlices,
+                         int completedSlices, int failedSlices, int retries, boolean done, Instant createdAt,
+                         Instant finishedAt, String lastError) {
+    }
+
+    @Getter
+    private final String id;
+    @Getter
+    private final String instrument;
+    @Getter
+    private final Interval interval;
+    @Getter
+    private final FetchPriority priority;
+    @Getter
+    private final int totalSlices;
+    private final Instant createdAt = Instant.now();
+    @Getter
+    private final CompletableFuture<HistoricalFetchJob> future = new CompletableFuture<>();
+
+    private final AtomicInteger completedSlices = new AtomicInteger();
+    private final AtomicInteger failedSlices = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+
+    HistoricalFetchJob(String id, String instrument, Interval interval, FetchPriority priority, int totalSlices) {
+        this.id = id;
+        this.instrument = instrument;
+        this.interval = interval;
+        this.priority = priority;
+        this.totalSlices = totalSlices;
+        if (totalSlices == 0) {
+            finish();
+        }
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public int getFailedSlices() {
+        return failedSlices.get();
+    }
+
+    public boolean isSuccessful() {
+        return isDone() && failedSlices.get() == 0;
+    }
+
+    public Status status() {
+        return new Status(id, instrument, interval, priority, totalSlices, completedSlices.get(), failedSlices.get(),
+                retries.get(), isDone(), createdAt, finishedAt, lastError);
+    }
+
+    /**
+     * Wait for a set of jobs, e.g. the downloads a screen needs before it reads candles.
+     *
+     * @return true if all jobs finished within the timeout
+     */
+    public static boolean awaitAll(Collection<HistoricalFetchJob> jobs, Duration timeout) throws InterruptedException {
+        CompletableFuture<?>[] futures = jobs.stream().map(HistoricalFetchJob::getFuture).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    void sliceCompleted() {
+        if (completedSlices.incrementAndGet() + failedSlices.get() == totalSlices) {
+            finish();
+        }
+    }
+
+    void sliceFailed(Throwable error) {
+        lastError = error.getMessage();
+        if (failedSlices.incrementAndGet() + completedSlices.get() == totalSlices) {
+            finish();
+        }
+    }
+
+    /**
+     * Give up on the whole job; slices still queued may run but no longer affect the outcome.
+     */
+    void abort(Throwable error) {
+        lastError = String.valueOf(error);
+        finishedAt = Instant.now();
+        future.completeExceptionally(error);
+    }
+
+    void retried(Throwable error) {
+        lastError = error.getMessage();
+        retries.incrementAndGet();
+    }
+
+    private void finish() {
+        finishedAt = Instant.now();
+        future.complete(this);
+    }
+}
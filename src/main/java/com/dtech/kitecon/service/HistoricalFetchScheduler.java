@@ -0,0 +1,208 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.kitecon.data.Instrument;
+import com.google.common.util.concurrent.RateLimiter;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The only way Kite historical data requests are made. All callers share one token bucket sized to the
+ * broker's limit, and queued slices are served by priority ({@link FetchPriority#LIVE} before
+ * {@link FetchPriority#BACKFILL}), then in submission order. Failed slices are retried with exponential backoff
+ * and jitter; each submission is tracked as a {@link HistoricalFetchJob} whose future callers can wait on.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class HistoricalFetchScheduler {
+
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final int MAX_FINISHED_JOBS = 500;
+
+    private final DataDownloader dataDownloader;
+
+    @Value("${data.update.rateLimitPerSecond:3.0}")
+    private double ratePerSecond;
+
+    @Value("${data.update.fetchRetries:3}")
+    private int maxAttempts;
+
+    @Value("${data.update.workers:3}")
+    private int workers;
+
+    private final PriorityBlockingQueue<Slice> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparing((Slice slice) -> slice.priority).thenComparingLong(slice -> slice.sequence));
+    private final Map<String, HistoricalFetchJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private RateLimiter rateLimiter;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryTimer;
+
+    private static final class Slice {
+        private final HistoricalFetchJob job;
+        private final DataDownloadRequest request;
+        private final FetchPriority priority;
+        private final long sequence;
+        // slices that may only start after this one, e.g. everything after a slice that cleans the series
+        private final List<DataDownloadRequest> followers;
+        private int attempts;
+
+        private Slice(HistoricalFetchJob job, DataDownloadRequest request, long sequence,
+                      List<DataDownloadRequest> followers) {
+            this.job = job;
+            this.request = request;
+            this.priority = job.getPriority();
+            this.sequence = sequence;
+            this.followers = followers;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        rateLimiter = RateLimiter.create(ratePerSecond > 0 ? ratePerSecond : 3.0);
+        AtomicInteger threadIds = new AtomicInteger();
+        int threads = Math.max(1, workers);
+        workerPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "historical-fetch-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threads; i++) {
+            workerPool.execute(this::work);
+        }
+        retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "historical-fetch-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("Historical fetch scheduler: {} workers sharing {} requests/s", threads, rateLimiter.getRate());
+    }
+
+    @PreDestroy
+    public void stop() {
+        workerPool.shutdownNow();
+        retryTimer.shutdownNow();
+    }
+
+    /**
+     * Queue the slices of one instrument/interval download. If the first slice cleans the stored series, the
+     * other slices wait for it so they are not deleted after being written.
+     *
+     * @param requests Date range slices, oldest first
+     * @param priority Queue priority of every slice
+     * @return The job tracking the slices
+     */
+    public HistoricalFetchJob submit(Instrument instrument, Interval interval, List<DataDownloadRequest> requests,
+                                     FetchPriority priority) {
+        pruneFinishedJobs();
+        HistoricalFetchJob job = new HistoricalFetchJob(UUID.randomUUID().toString(), instrument.getTradingsymbol(),
+                interval, priority, requests.size());
+        jobs.put(job.getId(), job);
+        if (requests.isEmpty()) {
+            return job;
+        }
+        if (requests.getFirst().isClean()) {
+            queue.add(new Slice(job, requests.getFirst(), sequence.getAndIncrement(),
+                    requests.subList(1, requests.size())));
+        } else {
+            enqueue(job, requests);
+        }
+        log.debug("Queued {} slices of {} {} at {} priority (job {})", requests.size(),
+                instrument.getTradingsymbol(), interval, priority, job.getId());
+        return job;
+    }
+
+    public HistoricalFetchJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public List<HistoricalFetchJob.Status> getJobs() {
+        return jobs.values().stream()
+                .map(HistoricalFetchJob::status)
+                .sorted(Comparator.comparing(HistoricalFetchJob.Status::createdAt).reversed())
+                .toList();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void enqueue(HistoricalFetchJob job, List<DataDownloadRequest> requests) {
+        for (DataDownloadRequest request : requests) {
+            queue.add(new Slice(job, request, sequence.getAndIncrement(), List.of()));
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Slice slice;
+            try {
+                slice = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            rateLimiter.acquire();
+            slice.attempts++;
+            try {
+                dataDownloader.processDownload(slice.request);
+                slice.job.sliceCompleted();
+                enqueue(slice.job, slice.followers);
+            } catch (Exception | KiteException e) {
+                onFailure(slice, e);
+            } catch (Throwable e) {
+                // Errors are not worth retrying, but the worker must survive them and waiters must be released
+                log.error("Aborting job {} on {}", slice.job.getId(), slice.request, e);
+                slice.job.abort(e);
+            }
+        }
+    }
+
+    private void onFailure(Slice slice, Throwable e) {
+        if (slice.attempts < Math.max(1, maxAttempts)) {
+            slice.job.retried(e);
+            long backoff = BASE_BACKOFF_MILLIS << (slice.attempts - 1);
+            // +-50% jitter so retries of slices that failed together do not hit the API together again
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff + 1);
+            log.warn("Attempt {} for {} failed, retrying in {} ms: {}", slice.attempts, slice.request,
+                    delay, e.getMessage());
+            retryTimer.schedule(() -> queue.add(slice), delay, TimeUnit.MILLISECONDS);
+        } else {
+            log.error("Giving up on {} after {} attempts", slice.request, slice.attempts, e);
+            slice.job.sliceFailed(e);
+            enqueue(slice.job, slice.followers);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        if (jobs.size() <= MAX_FINISHED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(HistoricalFetchJob::isDone)
+                .sorted(Comparator.comparing(job -> job.status().createdAt()))
+                .limit(jobs.size() - MAX_FINISHED_JOBS)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+}
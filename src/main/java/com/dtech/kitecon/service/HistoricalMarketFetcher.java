@@ -3,7 +3,6 @@ package com.dtech.kitecon.service;
 import com.dtech.algo.series.Interval;
 import com.dtech.kitecon.config.HistoricalDateLimit;
 import com.dtech.kitecon.data.Instrument;
-import com.google.common.util.concurrent.RateLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,10 +10,13 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Wrapper around ZerodhaDataFetch that enforces a rate limit (requests per second)
- * and persists (rewrites) candles for an instrument/timeframe.
+ * Fetches and persists (rewrites) candles for a subscribed instrument/timeframe at {@link FetchPriority#LIVE}
+ * priority, and waits until they are saved. Rate limiting and retries are done by {@link HistoricalFetchScheduler}.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,51 +26,35 @@ public class HistoricalMarketFetcher {
   private final DataFetchService dataFetchService;
   private final HistoricalDateLimit historicalDateLimit;
 
-  // rate limiter (permits per second)
-  private final RateLimiter rateLimiter = RateLimiter.create(3.0); // default; can be overwritten in constructor if needed
-
-  @Value("${data.update.rateLimitPerSecond:3.0}")
-  private double configuredRate;
-
-  @Value("${data.update.fetchRetries:3}")
-  private int maxRetries;
+  @Value("${data.update.waitTimeoutSeconds:600}")
+  private long waitTimeoutSeconds;
 
   /**
-   * Acquire permit and fetch candles for given instrument and interval starting from `start` (inclusive).
-   * Returns the latest Instant saved (if any). Retries on transient errors with exponential backoff.
+   * Fetch candles for given instrument and interval starting from `start` (inclusive), or from the latest stored
+   * candle if `start` is null, and wait for them to be saved.
+   * Returns the time the data was saved, or empty if any slice failed all its retries.
    */
   public Optional<Instant> fetchAndPersist(Instrument instrument, Interval interval, Instant start) throws InterruptedException {
-    // Apply configured rate if changed (safe to set every call)
-    if (configuredRate > 0 && configuredRate != rateLimiter.getRate()) {
-      rateLimiter.setRate(configuredRate);
+    HistoricalFetchJob job;
+    if (start == null) {
+      job = dataFetchService.updateInstrument(instrument, interval, true, FetchPriority.LIVE);
+    } else {
+      int sliceSize = historicalDateLimit.getDuration(instrument.getExchange(), interval);
+      job = dataFetchService.fetchDataAndUpdateDatabase(instrument, interval, null, sliceSize, start, false,
+          FetchPriority.LIVE);
     }
 
-    int attempt = 0;
-    while (attempt < maxRetries) {
-      attempt++;
-      // Acquire a single permit before each external call
-      rateLimiter.acquire();
-
-      try {
-          if (start == null) {
-              dataFetchService.updateInstrument(instrument, interval, true);
-          } else {
-              int sliceSize = historicalDateLimit.getDuration(instrument.getExchange(), interval);
-              dataFetchService.fetchDataAndUpdateDatabase(instrument, interval, null, sliceSize, start, false);
-          }
-          return Optional.ofNullable(Instant.now());
-      } catch (Throwable t) {
-        log.warn("Attempt {}: failed to fetch/persist for {} {} : {}", attempt, instrument.getTradingsymbol(), interval, t.getMessage());
-        if (attempt >= maxRetries) {
-          log.error("Max retries reached for {} {}. Giving up for this run.", instrument.getTradingsymbol(), interval, t);
-          return java.util.Optional.empty();
-        } else {
-          // exponential backoff (ms)
-          long backoffMillis = (long) (500L * Math.pow(2, attempt - 1));
-          Thread.sleep(backoffMillis);
-        }
-      }
+    try {
+      job.getFuture().get(waitTimeoutSeconds, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn("Fetch job {} for {} {} did not finish: {}", job.getId(), instrument.getTradingsymbol(), interval, e.toString());
+      return Optional.empty();
+    }
+    if (!job.isSuccessful()) {
+      log.error("Fetch job {} for {} {} failed {} of {} slices: {}", job.getId(), instrument.getTradingsymbol(),
+          interval, job.getFailedSlices(), job.getTotalSlices(), job.status().lastError());
+      return Optional.empty();
     }
-    return java.util.Optional.empty();
+    return Optional.of(Instant.now());
   }
 }
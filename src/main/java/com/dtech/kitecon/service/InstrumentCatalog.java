@@ -0,0 +1,172 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentBulkWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory catalog of the instrument master for symbol search.
+ * <p>
+ * Instruments are kept as compact entries sorted by upper-case trading symbol, so a prefix is one binary search
+ * for the start of its range; the range is filtered by exchange, segment and expiry and the best {@code limit}
+ * matches are kept in a bounded heap. Like {@link OptionChainIndex}, the catalog is built at startup and after
+ * every instrument download into a new snapshot that replaces the old one in one write; builds are serialized,
+ * so the snapshot of a slow build never replaces a later one. Rows are read as plain columns through
+ * {@link InstrumentBulkWriter#forEach}, outside any persistence context. The {@link #version()} of a snapshot is a
+ * hash of its contents, so callers can tag responses with it across restarts and instances.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InstrumentCatalog {
+
+    /**
+     * One instrument as returned by a search.
+     */
+    public record Entry(String tradingsymbol, String name, Double lastPrice, LocalDateTime expiry, String strike,
+                        String instrumentType, String segment, String exchange, Integer lotSize, Double tickSize) {
+    }
+
+    /**
+     * Result order: lot size, name, instrument type, expiry; missing values last.
+     */
+    public static final Comparator<Entry> RANKING = Comparator
+            .comparing(Entry::lotSize, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entry::name, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entry::instrumentType, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entry::expiry, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entry::tradingsymbol);
+
+    private record Snapshot(long version, String[] keys, Entry[] entries, long[] expiryDays) {
+    }
+
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final InstrumentBulkWriter instrumentBulkWriter;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("instrument-catalog").start(() -> {
+            try {
+                snapshot();
+            } catch (Exception e) {
+                log.warn("Failed to build the instrument catalog: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Build a new snapshot from the instrument table and swap it in.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<Instrument> sorted = new ArrayList<>();
+        instrumentBulkWriter.forEach(instrument -> {
+            if (instrument.getTradingsymbol() != null) {
+                sorted.add(instrument);
+            }
+        });
+        // stable, so symbols listed on several exchanges keep token order and the version stays reproducible
+        sorted.sort(Comparator.comparing(i -> i.getTradingsymbol().toUpperCase()));
+
+        String[] keys = new String[sorted.size()];
+        Entry[] entries = new Entry[sorted.size()];
+        long[] expiryDays = new long[sorted.size()];
+        long version = 1125899906842597L;
+        for (int i = 0; i < keys.length; i++) {
+            Instrument inst = sorted.get(i);
+            keys[i] = inst.getTradingsymbol().toUpperCase();
+            entries[i] = new Entry(inst.getTradingsymbol(), inst.getName(), inst.getLastPrice(), inst.getExpiry(),
+                    inst.getStrike(), inst.getInstrumentType(), inst.getSegment(), inst.getExchange(),
+                    inst.getLotSize(), inst.getTickSize());
+            expiryDays[i] = inst.getExpiry() != null ? inst.getExpiry().toLocalDate().toEpochDay() : NO_EXPIRY;
+            version = 31 * version + hash(entries[i]);
+        }
+        snapshot = new Snapshot(version, keys, entries, expiryDays);
+        log.info("Instrument catalog: {} instruments in {} ms", keys.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return Hash of the current snapshot's entries; equal on every instance and restart that holds the same data
+     */
+    public long version() {
+        return snapshot().version();
+    }
+
+    /**
+     * @param prefix     Trading symbol prefix, case-insensitive
+     * @param exchanges  Exchanges to include; all when empty
+     * @param segment    Segment to include; all when null
+     * @param activeOnly Skip instruments whose expiry date is today or earlier
+     * @param limit      Maximum number of results
+     * @return The best matches by {@link #RANKING}
+     */
+    public List<Entry> search(String prefix, Collection<String> exchanges, String segment, boolean activeOnly, int limit) {
+        String key = prefix.trim().toUpperCase();
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot();
+        long today = LocalDate.now().toEpochDay();
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        String[] keys = current.keys();
+        for (int i = firstAtLeast(keys, key); i < keys.length && keys[i].startsWith(key); i++) {
+            Entry entry = current.entries()[i];
+            if (activeOnly && current.expiryDays()[i] <= today) continue;
+            if (!exchanges.isEmpty() && !exchanges.contains(entry.exchange())) continue;
+            if (segment != null && !segment.equals(entry.segment())) continue;
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Entry> result = new ArrayList<>(best);
+        result.sort(RANKING);
+        return result;
+    }
+
+    // field by field rather than Entry.hashCode(), whose record algorithm is unspecified and may differ by JDK
+    private static int hash(Entry e) {
+        return Objects.hash(e.tradingsymbol(), e.name(), e.lastPrice(), e.expiry(), e.strike(), e.instrumentType(),
+                e.segment(), e.exchange(), e.lotSize(), e.tickSize());
+    }
+
+    // symbols repeat across exchanges, so the start of the range is a lower bound rather than any match
+    private static int firstAtLeast(String[] keys, String key) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // a search before the startup build finished builds the catalog on the caller's thread, once
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+}
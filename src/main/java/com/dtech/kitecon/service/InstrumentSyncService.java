@@ -0,0 +1,470 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.kitecon.config.KiteConnectConfig;
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentBulkWriter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Synchronises the instrument table with the Kite instrument dump without loading either into memory.
+ * <p>
+ * The table is first reduced to a snapshot of two sorted primitive arrays, instrument token and a 64-bit
+ * fingerprint of the instrument's columns. The dump is then read line by line: unknown tokens are inserted,
+ * tokens whose fingerprint changed are updated, both in multi-row batches through {@link InstrumentBulkWriter}.
+ * Live instruments the dump no longer lists are retired by setting their expiry to the sync time.
+ * <p>
+ * The last price is left out of the fingerprint: it is the previous close and changes every day for most
+ * contracts, which would otherwise rewrite the whole table on every run.
+ * <p>
+ * A row that cannot be parsed (bad number or date) is skipped and counted rather than failing the whole sync;
+ * skipped rows do not count towards the dump size that guards retiring.
+ * <p>
+ * Every batch is its own statement and is committed on its own when the caller holds no transaction. A read of
+ * the response body that gets no data for {@code instruments.sync.read-timeout-ms} fails the sync, since the
+ * request timeout only covers the wait for the response headers.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class InstrumentSyncService {
+
+    /**
+     * Outcome of one sync.
+     */
+    public record Report(int inserted, int updated, int unchanged, int retired, int skipped, long millis) {
+    }
+
+    // a dump with fewer rows than this share of the live instruments is treated as truncated and retires nothing
+    private static final double MIN_DUMP_SHARE = 0.5;
+
+    private static final String[] HEADER = {"instrument_token", "exchange_token", "tradingsymbol", "name",
+            "last_price", "expiry", "strike", "tick_size", "lot_size", "instrument_type", "segment", "exchange"};
+
+    private final InstrumentBulkWriter instrumentBulkWriter;
+    private final KiteConnectConfig kiteConnectConfig;
+
+    @Value("${instruments.sync.url:https://api.kite.trade/instruments}")
+    private String instrumentsUrl;
+
+    @Value("${instruments.sync.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${instruments.sync.connect-timeout-ms:10000}")
+    private long connectTimeoutMs;
+
+    @Value("${instruments.sync.request-timeout-ms:60000}")
+    private long requestTimeoutMs;
+
+    @Value("${instruments.sync.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Download the instrument dump of all exchanges and apply it to the instrument table.
+     */
+    public Report sync() throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(instrumentsUrl))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("X-Kite-Version", "3")
+                .header("Authorization", "token " + kiteConnectConfig.getApiKey() + ":"
+                        + kiteConnectConfig.getKiteConnect().getAccessToken())
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading instruments", e);
+        }
+        InputStream body = new ReadDeadline(response.body(), Duration.ofMillis(readTimeoutMs));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Instrument download failed with HTTP " + response.statusCode());
+            }
+            return sync(reader);
+        }
+    }
+
+    /**
+     * Fails a read that gets no data within the timeout: a virtual-thread watchdog interrupts the blocked reader
+     * and closes the stream. Time spent between reads, e.g. writing a batch, does not count.
+     */
+    static final class ReadDeadline extends FilterInputStream {
+
+        private final long timeoutNanos;
+        private final Thread watchdog;
+        private volatile Thread reader;
+        private volatile long readingSince;
+        private volatile boolean expired;
+
+        ReadDeadline(InputStream in, Duration timeout) {
+            super(in);
+            this.timeoutNanos = timeout.toNanos();
+            this.watchdog = Thread.ofVirtual().name("instrument-download-deadline").start(this::watch);
+        }
+
+        @Override
+        public int read() throws IOException {
+            begin();
+            try {
+                return in.read();
+            } catch (IOException e) {
+                throw failure(e);
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            begin();
+            try {
+                return in.read(b, off, len);
+            } catch (IOException e) {
+                throw failure(e);
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchdog.interrupt();
+            super.close();
+        }
+
+        private void begin() throws IOException {
+            if (expired) {
+                throw new IOException("Instrument download timed out reading the response");
+            }
+            readingSince = System.nanoTime();
+            reader = Thread.currentThread();
+        }
+
+        // under the lock the watchdog interrupts with, so an interrupt never outlives the read it was meant for
+        private synchronized void end() {
+            reader = null;
+            if (expired) {
+                Thread.interrupted();
+            }
+        }
+
+        private IOException failure(IOException e) {
+            if (!expired) {
+                return e;
+            }
+            Thread.interrupted();
+            return new IOException("Instrument download got no data for "
+                    + Duration.ofNanos(timeoutNanos).toMillis() + " ms", e);
+        }
+
+        private void watch() {
+            long pollMillis = Math.max(1, Duration.ofNanos(timeoutNanos).toMillis() / 4);
+            try {
+                while (true) {
+                    Thread.sleep(pollMillis);
+                    if (reader != null && System.nanoTime() - readingSince > timeoutNanos) {
+                        synchronized (this) {
+                            expired = true;
+                            Thread blocked = reader;
+                            if (blocked != null) {
+                                blocked.interrupt();
+                            }
+                        }
+                        try {
+                            in.close();
+                        } catch (IOException ignored) {
+                            // the read fails either way
+                        }
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stream closed
+            }
+        }
+    }
+
+    /**
+     * Apply an instrument dump in Kite CSV format to the instrument table.
+     */
+    public Report sync(BufferedReader dump) throws IOException {
+        long start = System.nanoTime();
+        Snapshot snapshot = snapshot();
+        String header = dump.readLine();
+        if (header == null) {
+            throw new IOException("Instrument dump is empty");
+        }
+        int[] columns = columns(split(header));
+
+        List<Instrument> pending = new ArrayList<>(Math.max(1, batchSize));
+        int inserted = 0, updated = 0, unchanged = 0, skipped = 0, rows = 0, lineNumber = 1;
+        String line;
+        while ((line = dump.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Instrument instrument;
+            try {
+                instrument = parse(split(line), columns);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                skipped++;
+                log.debug("Skipping malformed instrument row {}: {}", lineNumber, e.getMessage());
+                continue;
+            }
+            rows++;
+            int i = Arrays.binarySearch(snapshot.tokens(), instrument.getInstrumentToken());
+            if (i < 0) {
+                inserted++;
+            } else {
+                snapshot.seen()[i] = true;
+                if (snapshot.fingerprints()[i] == fingerprint(instrument)) {
+                    unchanged++;
+                    continue;
+                }
+                updated++;
+            }
+            pending.add(instrument);
+            if (pending.size() >= batchSize) {
+                instrumentBulkWriter.upsert(pending);
+                pending.clear();
+            }
+        }
+        instrumentBulkWriter.upsert(pending);
+
+        int retired = retire(snapshot, rows);
+        Report report = new Report(inserted, updated, unchanged, retired, skipped,
+                (System.nanoTime() - start) / 1_000_000);
+        if (skipped > 0) {
+            log.warn("Instrument sync skipped {} malformed rows", skipped);
+        }
+        log.info("Instrument sync: {} rows, {} inserted, {} updated, {} unchanged, {} retired, {} skipped in {} ms",
+                rows, inserted, updated, unchanged, retired, skipped, report.millis());
+        return report;
+    }
+
+    /**
+     * @return Fingerprint of the columns the dump carries, except the last price
+     */
+    static long fingerprint(Instrument instrument) {
+        Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+        putLong(hasher, instrument.getExchangeToken());
+        putString(hasher, instrument.getTradingsymbol());
+        putString(hasher, instrument.getName());
+        // day only: the column is a date-time but the dump has dates, and a retired row carries the sync time
+        putLong(hasher, instrument.getExpiry() == null ? null : instrument.getExpiry().toLocalDate().toEpochDay());
+        putString(hasher, instrument.getStrike());
+        putLong(hasher, instrument.getTickSize() == null ? null : Double.doubleToLongBits(instrument.getTickSize()));
+        putLong(hasher, instrument.getLotSize() == null ? null : instrument.getLotSize().longValue());
+        putString(hasher, instrument.getInstrumentType());
+        putString(hasher, instrument.getSegment());
+        putString(hasher, instrument.getExchange());
+        return hasher.hash().asLong();
+    }
+
+    private record Snapshot(long[] tokens, long[] fingerprints, boolean[] live, boolean[] seen) {
+    }
+
+    private Snapshot snapshot() {
+        SnapshotBuilder builder = new SnapshotBuilder(LocalDate.now().toEpochDay());
+        instrumentBulkWriter.forEach(builder);
+        return builder.build();
+    }
+
+    // rows arrive in token order, so the arrays come out sorted for binary search
+    private static final class SnapshotBuilder implements Consumer<Instrument> {
+        private final long today;
+        private long[] tokens = new long[1024];
+        private long[] fingerprints = new long[1024];
+        private boolean[] live = new boolean[1024];
+        private int size;
+
+        SnapshotBuilder(long today) {
+            this.today = today;
+        }
+
+        @Override
+        public void accept(Instrument instrument) {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+                fingerprints = Arrays.copyOf(fingerprints, size * 2);
+                live = Arrays.copyOf(live, size * 2);
+            }
+            tokens[size] = instrument.getInstrumentToken();
+            fingerprints[size] = fingerprint(instrument);
+            live[size] = instrument.getExpiry() == null || instrument.getExpiry().toLocalDate().toEpochDay() > today;
+            size++;
+        }
+
+        Snapshot build() {
+            return new Snapshot(Arrays.copyOf(tokens, size), Arrays.copyOf(fingerprints, size),
+                    Arrays.copyOf(live, size), new boolean[size]);
+        }
+    }
+
+    private int retire(Snapshot snapshot, int rows) {
+        List<Long> gone = new ArrayList<>();
+        int live = 0;
+        for (int i = 0; i < snapshot.tokens().length; i++) {
+            if (snapshot.live()[i]) {
+                live++;
+                if (!snapshot.seen()[i]) {
+                    gone.add(snapshot.tokens()[i]);
+                }
+            }
+        }
+        if (gone.isEmpty()) {
+            return 0;
+        }
+        if (rows < live * MIN_DUMP_SHARE) {
+            log.warn("Instrument dump has {} rows for {} live instruments; not retiring {} missing instruments",
+                    rows, live, gone.size());
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int retired = 0;
+        for (int from = 0; from < gone.size(); from += batchSize) {
+            retired += instrumentBulkWriter.retire(gone.subList(from, Math.min(gone.size(), from + batchSize)), now);
+        }
+        return retired;
+    }
+
+    private static int[] columns(List<String> header) throws IOException {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            positions.put(header.get(i).trim(), i);
+        }
+        int[] columns = new int[HEADER.length];
+        for (int i = 0; i < HEADER.length; i++) {
+            Integer position = positions.get(HEADER[i]);
+            if (position == null) {
+                throw new IOException("Instrument dump has no " + HEADER[i] + " column");
+            }
+            columns[i] = position;
+        }
+        return columns;
+    }
+
+    // NumberFormatException also covers a missing token; DateTimeParseException a bad expiry
+    private static Instrument parse(List<String> fields, int[] columns) {
+        String expiry = field(fields, columns[5]);
+        return Instrument.builder()
+                .instrumentToken(Long.parseLong(field(fields, columns[0])))
+                .exchangeToken(parseLong(field(fields, columns[1])))
+                .tradingsymbol(field(fields, columns[2]))
+                .name(field(fields, columns[3]))
+                .lastPrice(parseDouble(field(fields, columns[4])))
+                .expiry(expiry == null ? null : LocalDate.parse(expiry).atStartOfDay())
+                .strike(field(fields, columns[6]))
+                .tickSize(parseDouble(field(fields, columns[7])))
+                .lotSize(parseInt(field(fields, columns[8])))
+                .instrumentType(field(fields, columns[9]))
+                .segment(field(fields, columns[10]))
+                .exchange(field(fields, columns[11]))
+                .build();
+    }
+
+    // CSV fields; only the name column is quoted in practice, quotes inside a quoted field are doubled
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(HEADER.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Long parseLong(String value) {
+        return value == null ? null : Long.parseLong(value);
+    }
+
+    private static Integer parseInt(String value) {
+        return value == null ? null : Integer.parseInt(value);
+    }
+
+    private static Double parseDouble(String value) {
+        return value == null ? null : Double.parseDouble(value);
+    }
+
+    private static void putLong(Hasher hasher, Long value) {
+        if (value == null) {
+            hasher.putBoolean(false);
+        } else {
+            hasher.putBoolean(true).putLong(value);
+        }
+    }
+
+    // an empty string hashes like null: the dump has no way to tell them apart
+    private static void putString(Hasher hasher, String value) {
+        if (value == null || value.isEmpty()) {
+            hasher.putBoolean(false);
+        } else {
+            hasher.putBoolean(true).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.dtech.kitecon.service;
 
 import com.dtech.algo.exception.StrategyException;
 import com.dtech.algo.runner.candle.LatestBarSeriesProvider;
+import com.dtech.algo.series.InstrumentType;
 import com.dtech.kitecon.controller.BarSeriesHelper;
 import com.dtech.kitecon.data.Instrument;
 import com.dtech.kitecon.market.fetch.DataFetchException;
@@ -28,6 +29,7 @@ public class InstrumentsResolverService {
   private final InstrumentRepository instrumentRepository;
     private final BarSeriesHelper barSeriesHelper;
     private final MarketDataFetch marketDataFetch;
+    private final OptionChainIndex optionChainIndex;
 
     private static final String NFO_EXCHANGE = "NFO";
   private static final String FUT_TYPE = "FUT";
@@ -54,6 +56,9 @@ public class InstrumentsResolverService {
    */
   @SneakyThrows
   public List<Instrument> resolveTopOptions(String underlyingTradingSymbolPrefix, Instrument underlyingCash, int limit) {
+    if (optionChainIndex.coversPrefix(NFO_EXCHANGE, underlyingTradingSymbolPrefix)) {
+      return resolveTopOptionsFromIndex(underlyingTradingSymbolPrefix, underlyingCash, limit);
+    }
     List<Instrument> opts = instrumentRepository
         .findAllByExchangeAndInstrumentTypeAndTradingsymbolStartingWith(NFO_EXCHANGE, "CE", underlyingTradingSymbolPrefix);
       opts.addAll(instrumentRepository
@@ -128,6 +133,66 @@ public class InstrumentsResolverService {
     return sorted;
   }
 
+  /**
+   * Same selection as the query path, from the nearest-expiry chains of the {@link OptionChainIndex}: only the
+   * {@code limit} strikes on either side of ATM are looked at. Only used when the NFO contracts of the prefix
+   * are exactly those of one underlying, so both paths pick from the same contracts.
+   */
+  private List<Instrument> resolveTopOptionsFromIndex(String underlying, Instrument underlyingCash, int limit)
+      throws StrategyException {
+    LocalDateTime now = LocalDateTime.now();
+    List<OptionChainIndex.Chain> chains = new ArrayList<>(2);
+    for (InstrumentType type : List.of(InstrumentType.CE, InstrumentType.PE)) {
+      OptionChainIndex.Chain chain = optionChainIndex.nearestChain(NFO_EXCHANGE, underlying, type, now, LocalDateTime.MAX);
+      if (chain != null && chain.size() > 0) {
+        chains.add(chain);
+      }
+    }
+    if (chains.isEmpty()) return Collections.emptyList();
+    // keep the series of the nearest expiry
+    LocalDateTime expiry = chains.stream().map(OptionChainIndex.Chain::expiry).min(LocalDateTime::compareTo).get();
+    chains.removeIf(chain -> !chain.expiry().equals(expiry));
+
+    double atm = Double.NaN;
+    if (underlyingCash != null) {
+      Double lastPrice = getLastPrice(underlyingCash);
+      if (lastPrice != null) {
+        atm = lastPrice;
+      }
+    } else {
+      // fallback: median strike of the series
+      double[] strikes = chains.stream().flatMapToDouble(chain -> Arrays.stream(chain.strikes())).sorted().toArray();
+      atm = strikes[strikes.length / 2];
+    }
+
+    List<Instrument> candidates = new ArrayList<>();
+    List<Double> distances = new ArrayList<>();
+    for (OptionChainIndex.Chain chain : chains) {
+      double[] strikes = chain.strikes();
+      if (Double.isNaN(atm)) {
+        // no ATM: lowest strikes first
+        for (int i = 0; i < Math.min(limit, chain.size()); i++) {
+          candidates.add(chain.contracts()[i]);
+          distances.add(strikes[i]);
+        }
+        continue;
+      }
+      // walk outwards from ATM, nearest strike first
+      int up = chain.firstAtLeast(atm);
+      int down = up - 1;
+      for (int taken = 0; taken < limit && (down >= 0 || up < chain.size()); taken++) {
+        boolean takeUp = down < 0 || (up < chain.size() && strikes[up] - atm <= atm - strikes[down]);
+        int i = takeUp ? up++ : down--;
+        candidates.add(chain.contracts()[i]);
+        distances.add(Math.abs(strikes[i] - atm));
+      }
+    }
+    Integer[] order = new Integer[candidates.size()];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, Comparator.comparingDouble(distances::get));
+    return Arrays.stream(order).limit(limit).map(candidates::get).collect(Collectors.toList());
+  }
+
     private Double getLastPrice(Instrument instrument) throws StrategyException {
         try {
             return marketDataFetch.getLastPrice(instrument);
@@ -0,0 +1,258 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.algo.series.InstrumentType;
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the live derivative contracts: exchange and underlying name, then expiry, then strikes
+ * sorted into a primitive array next to their instruments. The exchange is part of the key because the same
+ * name trades on several segments (e.g. NFO and BFO, or MCX), and their chains must not be merged.
+ * <p>
+ * Nearest-expiry and ATM&plusmn;N lookups are binary searches over these arrays instead of an instrument query
+ * per nomination. The index is built from one query at startup and after every instrument download, into a new
+ * snapshot that replaces the old one in a single write, so readers never see a half-built index. Builds are
+ * serialized, so a slow build can never replace the snapshot of a later one. Contracts that expire after the
+ * build are skipped at lookup time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OptionChainIndex {
+
+    private static final List<String> TYPES = List.of(InstrumentType.CE.name(), InstrumentType.PE.name(), "FUT");
+
+    /**
+     * Contracts of one underlying, option type and expiry, sorted by strike.
+     */
+    public record Chain(LocalDateTime expiry, double[] strikes, Instrument[] contracts) {
+
+        public int size() {
+            return strikes.length;
+        }
+
+        /**
+         * @return Index of the first strike at or above {@code price}; {@link #size()} if all are below
+         */
+        public int firstAtLeast(double price) {
+            int lo = 0, hi = strikes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (strikes[mid] < price) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private record Underlying(Chain[] calls, Chain[] puts, Instrument[] futures) {
+    }
+
+    /**
+     * Underlyings by {@link #key}, and the sorted underlying names of each exchange for prefix checks.
+     */
+    private record Snapshot(Map<String, Underlying> underlyings, Map<String, NavigableSet<String>> names) {
+    }
+
+    private final InstrumentRepository instrumentRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("option-chain-index").start(() -> {
+            try {
+                snapshot();
+            } catch (Exception e) {
+                log.warn("Failed to build the option chain index: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Build a new snapshot from the instrument table and swap it in.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<Instrument> contracts = instrumentRepository.findAllByInstrumentTypeInAndExpiryAfter(TYPES,
+                LocalDateTime.now().minusDays(1));
+        Map<String, Map<LocalDateTime, List<Instrument>>> calls = new HashMap<>();
+        Map<String, Map<LocalDateTime, List<Instrument>>> puts = new HashMap<>();
+        Map<String, List<Instrument>> futures = new HashMap<>();
+        Map<String, NavigableSet<String>> names = new HashMap<>();
+        for (Instrument contract : contracts) {
+            if (contract.getExchange() == null || contract.getName() == null || contract.getExpiry() == null) {
+                continue;
+            }
+            switch (contract.getInstrumentType()) {
+                case "CE" -> add(calls, contract);
+                case "PE" -> add(puts, contract);
+                default -> futures.computeIfAbsent(key(contract.getExchange(), contract.getName()), k -> new ArrayList<>())
+                        .add(contract);
+            }
+            names.computeIfAbsent(contract.getExchange(), k -> new TreeSet<>()).add(contract.getName());
+        }
+
+        Map<String, Underlying> built = new HashMap<>();
+        for (String key : union(calls.keySet(), puts.keySet(), futures.keySet())) {
+            Instrument[] futs = futures.getOrDefault(key, List.of()).stream()
+                    .sorted(Comparator.comparing(Instrument::getExpiry))
+                    .toArray(Instrument[]::new);
+            built.put(key, new Underlying(chains(calls.get(key)), chains(puts.get(key)), futs));
+        }
+        snapshot = new Snapshot(built, names);
+        log.info("Option chain index: {} underlyings, {} contracts in {} ms", built.size(), contracts.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return Whether the index has contracts of the underlying on the exchange
+     */
+    public boolean contains(String exchange, String underlying) {
+        return snapshot().underlyings().containsKey(key(exchange, underlying));
+    }
+
+    /**
+     * Whether the contracts of the exchange whose trading symbol starts with {@code prefix} are exactly those of
+     * the underlying named {@code prefix}, as trading symbols start with the underlying name. False when another
+     * underlying extends the prefix (e.g. NIFTYNXT50 for NIFTY), since a trading symbol prefix match would
+     * include its contracts too.
+     */
+    public boolean coversPrefix(String exchange, String prefix) {
+        NavigableSet<String> names = snapshot().names().get(exchange);
+        if (names == null || !names.contains(prefix)) {
+            return false;
+        }
+        String next = names.higher(prefix);
+        return next == null || !next.startsWith(prefix);
+    }
+
+    /**
+     * @return The chain of the earliest expiry in {@code [from, until]}, or null if there is none
+     */
+    public Chain nearestChain(String exchange, String underlying, InstrumentType type, LocalDateTime from,
+                              LocalDateTime until) {
+        Underlying u = underlying(exchange, underlying);
+        if (u == null) {
+            return null;
+        }
+        Chain[] chains = type == InstrumentType.CE ? u.calls() : u.puts();
+        int lo = 0, hi = chains.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (chains[mid].expiry().isBefore(from)) lo = mid + 1; else hi = mid;
+        }
+        return lo < chains.length && !chains[lo].expiry().isAfter(until) ? chains[lo] : null;
+    }
+
+    /**
+     * @return The future of the earliest expiry in {@code [from, until]}, or null if there is none
+     */
+    public Instrument nearestFuture(String exchange, String underlying, LocalDateTime from, LocalDateTime until) {
+        Underlying u = underlying(exchange, underlying);
+        if (u == null) {
+            return null;
+        }
+        for (Instrument future : u.futures()) {
+            if (!future.getExpiry().isBefore(from)) {
+                return future.getExpiry().isAfter(until) ? null : future;
+            }
+        }
+        return null;
+    }
+
+    private Underlying underlying(String exchange, String name) {
+        return snapshot().underlyings().get(key(exchange, name));
+    }
+
+    // a lookup before the startup build finished builds the index on the caller's thread, once
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static String key(String exchange, String name) {
+        return exchange + ':' + name;
+    }
+
+    private static void add(Map<String, Map<LocalDateTime, List<Instrument>>> byKey, Instrument contract) {
+        byKey.computeIfAbsent(key(contract.getExchange(), contract.getName()), k -> new TreeMap<>())
+                .computeIfAbsent(contract.getExpiry(), k -> new ArrayList<>())
+                .add(contract);
+    }
+
+    private static Chain[] chains(Map<LocalDateTime, List<Instrument>> byExpiry) {
+        if (byExpiry == null) {
+            return new Chain[0];
+        }
+        List<Chain> chains = new ArrayList<>(byExpiry.size());
+        for (Map.Entry<LocalDateTime, List<Instrument>> e : byExpiry.entrySet()) {
+            List<Instrument> priced = new ArrayList<>(e.getValue().size());
+            List<Double> strikes = new ArrayList<>(e.getValue().size());
+            for (Instrument contract : e.getValue()) {
+                Double strike = parseStrike(contract.getStrike());
+                if (strike != null) {
+                    priced.add(contract);
+                    strikes.add(strike);
+                }
+            }
+            Integer[] order = new Integer[priced.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(strikes::get));
+            double[] sortedStrikes = new double[order.length];
+            Instrument[] sortedContracts = new Instrument[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedStrikes[i] = strikes.get(order[i]);
+                sortedContracts[i] = priced.get(order[i]);
+            }
+            chains.add(new Chain(e.getKey(), sortedStrikes, sortedContracts));
+        }
+        // TreeMap iteration: already in expiry order
+        return chains.toArray(Chain[]::new);
+    }
+
+    @SafeVarargs
+    private static Set<String> union(Set<String>... sets) {
+        Set<String> all = new HashSet<>();
+        for (Set<String> set : sets) {
+            all.addAll(set);
+        }
+        return all;
+    }
+
+    private static Double parseStrike(String strike) {
+        if (strike == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(strike);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
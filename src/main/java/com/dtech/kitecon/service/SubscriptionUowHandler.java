@@ -75,7 +75,9 @@ public class SubscriptionUowHandler {
                 startInstant = Instant.now().minus(Duration.ofDays(days));
             }
 
-            marketFetcher.fetchAndPersist(inst, interval, startInstant);
+            if (marketFetcher.fetchAndPersist(inst, interval, startInstant).isEmpty()) {
+                throw new IllegalStateException("Historical fetch failed for " + symbol + " " + interval);
+            }
             Instant now = Instant.now();
             uow.setLastUpdatedAt(now);
             uow.setNextRunAt(now.plusSeconds(periodFor(interval)));
@@ -1,16 +1,18 @@
 package com.dtech.kitecon.web;
 
-import com.dtech.kitecon.data.Instrument;
-import com.dtech.kitecon.repository.InstrumentRepository;
+import com.dtech.kitecon.service.InstrumentCatalog;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,54 +20,61 @@ import java.util.stream.Collectors;
 @CrossOrigin // adjust origins as needed
 public class SymbolController {
 
-    private final InstrumentRepository instrumentRepository;
+    private static final List<String> DEFAULT_EXCHANGES = List.of("NSE", "NFO");
+
+    private final InstrumentCatalog instrumentCatalog;
+
+    @Value("${symbols.search.default-limit:100}")
+    private int defaultLimit;
 
     /**
-     * Search for symbols that start with the provided query string.
-     * Only returns "active" instruments: expiry == null OR expiry date after today.
+     * Search for symbols that start with the provided query string, from the in-memory {@link InstrumentCatalog}.
+     * By default only returns "active" NSE/NFO instruments: expiry == null OR expiry date after today.
+     * <p>
+     * Responses carry an ETag derived from the catalog version, the day and the parameters; a request with a
+     * matching If-None-Match is answered 304 without searching.
      *
      * Example:
      *   GET /api/symbols?query=HDFCBANK
+     *   GET /api/symbols?query=NIFTY&exchange=NFO&segment=NFO-OPT&limit=20
      */
     @GetMapping("/symbols")
-    public List<SymbolInfo> search(@RequestParam(name = "query") @NotBlank String query) {
-        String q = query.trim();
-        if (q.isEmpty()) return List.of();
-
-        // repository method is case-sensitive depending on DB collation; normalize to uppercase for common symbols
-        String qUpper = q.toUpperCase();
+    public ResponseEntity<List<SymbolInfo>> search(@RequestParam(name = "query") @NotBlank String query,
+                                                   @RequestParam(name = "exchange", required = false) List<String> exchange,
+                                                   @RequestParam(name = "segment", required = false) String segment,
+                                                   @RequestParam(name = "active", defaultValue = "true") boolean active,
+                                                   @RequestParam(name = "limit", required = false) Integer limit,
+                                                   WebRequest request) {
+        String q = query.trim().toUpperCase();
+        if (q.isEmpty()) return ResponseEntity.ok(List.of());
 
-        List<Instrument> found = instrumentRepository
-                .findAllByTradingsymbolStartingWithAndExchangeIn(qUpper,
-                        new String[]{"NSE", "NFO"});
+        List<String> exchanges = exchange == null || exchange.isEmpty() ? DEFAULT_EXCHANGES : exchange;
+        int max = limit != null && limit > 0 ? limit : defaultLimit;
+        // the result only changes with the catalog, the parameters, and the day (expiry filter)
+        String etag = "\"" + Long.toHexString(instrumentCatalog.version()) + "-"
+                + Integer.toHexString(Objects.hash(q, exchanges, segment, active, max, LocalDate.now())) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
 
-        LocalDate today = LocalDate.now();
-        return found.stream()
-                .filter(inst -> isActive(inst, today))
-                .sorted(Comparator.comparing(Instrument::getLotSize)
-                        .thenComparing(Instrument::getName)
-                        .thenComparing(Instrument::getInstrumentType)
-                        .thenComparing(Instrument::getExpiry))
-                .map(inst -> new SymbolInfo(
-                        inst.getTradingsymbol(),
-                        inst.getName(),
-                        inst.getLastPrice(),
-                        inst.getExpiry(),
-                        inst.getStrike(),
-                        inst.getInstrumentType(),
-                        inst.getSegment(),
-                        inst.getExchange(),
-                        inst.getLotSize(),
-                        inst.getTickSize()
+        List<SymbolInfo> result = instrumentCatalog.search(q, exchanges, segment, active, max).stream()
+                .map(e -> new SymbolInfo(
+                        e.tradingsymbol(),
+                        e.name(),
+                        e.lastPrice(),
+                        e.expiry(),
+                        e.strike(),
+                        e.instrumentType(),
+                        e.segment(),
+                        e.exchange(),
+                        e.lotSize(),
+                        e.tickSize()
                 ))
-                .collect(Collectors.toList());
-    }
-
-    private boolean isActive(Instrument inst, LocalDate today) {
-        LocalDateTime exp = inst.getExpiry();
-        if (exp == null) return true;
-        // Active only if expiry date is strictly after today's date
-        return exp.toLocalDate().isAfter(today);
+                .toList();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(result);
     }
 
     public static record SymbolInfo(
@@ -0,0 +1,61 @@
+package com.dtech.algo.screener.script
+
+import kotlin.coroutines.Continuation
+import kotlin.coroutines.EmptyCoroutineContext
+import kotlin.coroutines.startCoroutine
+import kotlin.script.experimental.api.ScriptDiagnostic
+import kotlin.script.experimental.api.valueOr
+import kotlin.script.experimental.host.toScriptSource
+import kotlin.script.experimental.jvm.defaultJvmScriptingHostConfiguration
+import kotlin.script.experimental.jvm.impl.KJvmCompiledModuleInMemory
+import kotlin.script.experimental.jvm.impl.KJvmCompiledScript
+import kotlin.script.experimental.jvmhost.JvmScriptCompiler
+
+/**
+ * Compiles screener scripts against [ScreenerScriptConfig] to plain class files, without evaluating them,
+ * so the bytecode can be cached and loaded by any class loader.
+ */
+object ScreenerScriptCompiler {
+
+    /**
+     * Compiler output of one script.
+     *
+     * @property scriptClassName FQN of the generated script class
+     * @property resultField field holding the value of the script's trailing expression, if any
+     * @property files compiler output by path, e.g. `Screener.class`
+     */
+    class Output(
+        val scriptClassName: String,
+        val resultField: String?,
+        val files: Map<String, ByteArray>
+    )
+
+    private val compiler by lazy { JvmScriptCompiler(defaultJvmScriptingHostConfiguration) }
+
+    /**
+     * @throws IllegalArgumentException with the compiler errors if the script does not compile
+     */
+    @JvmStatic
+    fun compile(code: String, name: String): Output {
+        val result = runBlocking { compiler(code.toScriptSource(name), ScreenerScriptConfig) }
+        val compiled = result.valueOr { failure ->
+            throw IllegalArgumentException(failure.reports
+                .filter { it.severity >= ScriptDiagnostic.Severity.ERROR }
+                .joinToString("; ") { report ->
+                    report.location?.let { "${it.start.line}:${it.start.col} ${report.message}" } ?: report.message
+                })
+        }
+        val script = compiled as? KJvmCompiledScript
+            ?: throw IllegalStateException("Unexpected compiled script type ${compiled.javaClass.name}")
+        val module = script.getCompiledModule() as? KJvmCompiledModuleInMemory
+            ?: throw IllegalStateException("Compiled script $name has no in-memory module")
+        return Output(script.scriptClassFQName, script.resultField?.first, module.compilerOutputFiles)
+    }
+
+    // The JVM compiler never actually suspends, so no coroutine dispatcher is needed
+    private fun <T> runBlocking(block: suspend () -> T): T {
+        var outcome: Result<T>? = null
+        block.startCoroutine(Continuation(EmptyCoroutineContext) { outcome = it })
+        return (outcome ?: throw IllegalStateException("Script compilation suspended")).getOrThrow()
+    }
+}
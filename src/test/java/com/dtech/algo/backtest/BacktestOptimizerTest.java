@@ -0,0 +1,325 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.SeriesType;
+import com.dtech.algo.strategy.TradeStrategy;
+import com.dtech.algo.strategy.builder.StrategyBuilderIfc;
+import com.dtech.algo.strategy.builder.cache.BarSeriesCache;
+import com.dtech.algo.strategy.builder.cache.ConstantsCache;
+import com.dtech.algo.strategy.builder.cache.IndicatorCache;
+import com.dtech.algo.strategy.builder.cache.RuleCache;
+import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.algo.strategy.config.StrategyConfig;
+import com.dtech.kitecon.strategy.TradeDirection;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.AnalysisCriterion;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.rules.AbstractRule;
+import org.ta4j.core.rules.BooleanRule;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BacktestOptimizerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private BarSeriesLoader barSeriesLoader;
+    @Mock
+    private StrategyBuilderIfc strategyBuilder;
+    @Mock
+    private CriterionRegistry criterionRegistry;
+    @Mock
+    private AnalysisCriterion criterion;
+
+    @TempDir
+    Path checkpoints;
+
+    private final List<BacktestOptimizer> optimizers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        optimizers.forEach(BacktestOptimizer::stop);
+    }
+
+    @Test
+    void sweepScoresRanksAndCheckpointsEveryVariant() throws Exception {
+        BacktestOptimizer optimizer = optimizer(2);
+        objective(true);
+        when(barSeriesLoader.loadBarSeries(any())).thenReturn(series(100, 1));
+
+        // the shorter the hold, the more positions fit in 40 bars; hold 4 closes fewer than 9
+        OptimizationJob.Status status = await(optimizer, optimizer.submit(input("base", 9, null)).id());
+
+        assertEquals(OptimizationJob.State.COMPLETED, status.state());
+        assertTrue(status.maximize());
+        assertEquals(List.of("hold"), status.parameters());
+        assertEquals(3, status.completed());
+        assertEquals(2, status.scored());
+        assertEquals(1, status.tooFewTrades());
+        assertEquals(0, status.abandoned());
+        assertEquals(List.of("1", "2"), status.top().stream().map(row -> row.constants().get("hold")).toList());
+
+        List<OptimizationJob.Row> checkpointed = rows(status.id());
+        assertEquals(List.of(0, 1, 2), checkpointed.stream().map(OptimizationJob.Row::variant).sorted().toList());
+        assertEquals(OptimizationJob.Outcome.TOO_FEW_TRADES,
+                checkpointed.stream().filter(row -> row.variant() == 2).findFirst().orElseThrow().outcome());
+        assertTrue(Files.exists(checkpoints.resolve(status.id() + ".json")));
+    }
+
+    @Test
+    void rankingDirectionComesFromBetterThan() throws Exception {
+        BacktestOptimizer optimizer = optimizer(2);
+        objective(false);
+        when(barSeriesLoader.loadBarSeries(any())).thenReturn(series(100, 1));
+
+        OptimizationJob.Status status = await(optimizer, optimizer.submit(input("base", null, null)).id());
+
+        assertFalse(status.maximize());
+        assertEquals(List.of("4", "2", "1"), status.top().stream().map(row -> row.constants().get("hold")).toList());
+    }
+
+    @Test
+    void losingVariantsAreAbandonedEarly() throws Exception {
+        BacktestOptimizer optimizer = optimizer(2);
+        objective(true);
+        when(barSeriesLoader.loadBarSeries(any())).thenReturn(series(200, -2));
+
+        OptimizationJob.Status status = await(optimizer, optimizer.submit(input("base", null, 0.05)).id());
+
+        assertEquals(OptimizationJob.State.COMPLETED, status.state());
+        assertEquals(3, status.abandoned());
+        assertEquals(0, status.scored());
+        assertTrue(status.top().isEmpty());
+        for (OptimizationJob.Row row : rows(status.id())) {
+            assertEquals(OptimizationJob.Outcome.ABANDONED, row.outcome());
+            // stopped long before a full run's positions
+            assertTrue(row.trades() < 8, "trades " + row.trades());
+        }
+        verify(criterionRegistry, never()).evaluate(anyList(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void cancelledSweepStopsAndResumesWithTheRemainingVariants() throws Exception {
+        BacktestOptimizer optimizer = optimizer(1);
+        objective(true);
+        when(barSeriesLoader.loadBarSeries(any())).thenReturn(series(100, 1));
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            building.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return strategy(inv.getArgument(0));
+        }).when(strategyBuilder).buildStrategy(any());
+
+        String id = optimizer.submit(input("base", null, null)).id();
+        assertTrue(building.await(5, TimeUnit.SECONDS));
+        optimizer.cancel(id);
+        release.countDown();
+        OptimizationJob.Status cancelled = await(optimizer, id);
+
+        assertEquals(OptimizationJob.State.CANCELLED, cancelled.state());
+        assertEquals(1, cancelled.completed());
+
+        OptimizationJob.Status resumed = await(optimizer, optimizer.resume(id).id());
+
+        assertEquals(OptimizationJob.State.COMPLETED, resumed.state());
+        assertEquals(3, resumed.completed());
+        verify(strategyBuilder, times(3)).buildStrategy(any());
+    }
+
+    @Test
+    void resumeAfterRestartSkipsCheckpointedVariantsAndATornLine() throws Exception {
+        String id = UUID.randomUUID().toString();
+        objectMapper.writeValue(checkpoints.resolve(id + ".json").toFile(), input("base", null, null));
+        OptimizationJob.Row done = new OptimizationJob.Row(0, OptimizationJob.Outcome.SCORED, Map.of("hold", "1"),
+                99.0, 20, Map.of("score", 99.0), null);
+        Files.writeString(checkpoints.resolve(id + ".rows"),
+                objectMapper.writeValueAsString(done) + "\n{\"variant\":1,\"outco", StandardCharsets.UTF_8);
+        BacktestOptimizer optimizer = optimizer(2);
+        objective(true);
+        when(barSeriesLoader.loadBarSeries(any())).thenReturn(series(100, 1));
+
+        OptimizationJob.Status status = await(optimizer, optimizer.resume(id).id());
+
+        assertEquals(OptimizationJob.State.COMPLETED, status.state());
+        assertEquals(3, status.completed());
+        assertEquals(99.0, status.top().get(0).objective());
+        // variant 0 came from the checkpoint, the torn variant 1 ran again
+        verify(strategyBuilder, times(2)).buildStrategy(any());
+        assertEquals(List.of(0, 1, 2), rows(id).stream().map(OptimizationJob.Row::variant).sorted().toList());
+    }
+
+    @Test
+    void slowSeriesLoadDoesNotHoldUpOtherJobs() throws Exception {
+        BacktestOptimizer optimizer = optimizer(2);
+        objective(true);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IntervalBarSeries series = series(100, 1);
+        when(barSeriesLoader.loadBarSeries(any())).thenAnswer(inv -> {
+            if ("slow".equals(inv.<BarSeriesConfig>getArgument(0).getName())) {
+                loading.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            }
+            return series;
+        });
+
+        Thread slow = Thread.ofVirtual().start(() -> {
+            try {
+                optimizer.submit(input("slow", null, null));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        OptimizationJob.Status fast = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> await(optimizer, optimizer.submit(input("fast", null, null)).id()));
+
+        assertEquals(OptimizationJob.State.COMPLETED, fast.state());
+        release.countDown();
+        slow.join();
+    }
+
+    private BacktestOptimizer optimizer(int parallelism) {
+        BacktestOptimizer optimizer = new BacktestOptimizer(barSeriesLoader, strategyBuilder, criterionRegistry,
+                new BarSeriesCache(), new ConstantsCache(), new IndicatorCache(), new RuleCache(), objectMapper);
+        ReflectionTestUtils.setField(optimizer, "parallelism", parallelism);
+        ReflectionTestUtils.setField(optimizer, "maxVariants", 100);
+        ReflectionTestUtils.setField(optimizer, "defaultMinTrades", 1);
+        // never abandons unless the input asks for it
+        ReflectionTestUtils.setField(optimizer, "defaultAbandonLoss", 1.0);
+        ReflectionTestUtils.setField(optimizer, "checkpointDirectory", checkpoints.toString());
+        optimizer.start();
+        optimizers.add(optimizer);
+        return optimizer;
+    }
+
+    // "score" is the number of closed positions; its direction is whatever betterThan says
+    private void objective(boolean maximize) throws Exception {
+        lenient().when(criterionRegistry.resolve(List.of("score"))).thenReturn(List.of("score"));
+        lenient().when(criterionRegistry.create("score")).thenReturn(criterion);
+        lenient().when(criterion.betterThan(any(), any())).thenReturn(maximize);
+        lenient().when(criterionRegistry.evaluate(anyList(), any(), any(), eq(false))).thenAnswer(inv ->
+                Map.of("score", (double) inv.<TradingRecord>getArgument(2).getPositionCount()));
+        lenient().when(strategyBuilder.buildStrategy(any())).thenAnswer(inv -> strategy(inv.getArgument(0)));
+    }
+
+    private OptimizationJob.Status await(BacktestOptimizer optimizer, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        OptimizationJob.Status status;
+        while ((status = optimizer.status(id, null)).state() == OptimizationJob.State.RUNNING) {
+            assertTrue(System.nanoTime() < deadline, "optimization " + id + " did not finish");
+            Thread.sleep(10);
+        }
+        return status;
+    }
+
+    private List<OptimizationJob.Row> rows(String id) throws Exception {
+        List<OptimizationJob.Row> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(checkpoints.resolve(id + ".rows"))) {
+            if (line.endsWith("}")) {
+                rows.add(objectMapper.readValue(line, OptimizationJob.Row.class));
+            }
+        }
+        return rows;
+    }
+
+    private static OptimizationInput input(String seriesName, Integer minTrades, Double abandonLoss) {
+        return OptimizationInput.builder()
+                .backtest(BacktestInput.builder()
+                        .barSeriesConfigs(List.of(BarSeriesConfig.builder()
+                                .name(seriesName)
+                                .instrument("SBIN")
+                                .interval(Interval.OneMinute)
+                                .build()))
+                        .barSeriesName(seriesName)
+                        .strategyConfig(StrategyConfig.builder()
+                                .strategyName("hold")
+                                .direction(TradeDirection.Buy)
+                                .constants(Map.of("hold", "1|2|4"))
+                                .build())
+                        .build())
+                .objective("score")
+                .minTrades(minTrades)
+                .abandonLoss(abandonLoss)
+                .build();
+    }
+
+    private static IntervalBarSeries series(double first, double step) {
+        ExtendedBarSeries series = new ExtendedBarSeries(new BaseBarSeriesBuilder().build(), Interval.OneMinute,
+                SeriesType.EQUITY, "SBIN");
+        Instant end = Instant.parse("2024-06-12T04:31:00Z");
+        for (int i = 0; i < 40; i++) {
+            Num close = DecimalNum.valueOf(first + i * step);
+            series.addBar(new BaseBar(Duration.ofMinutes(1), end.plusSeconds(60L * i), close, close, close, close,
+                    DecimalNum.valueOf(100), DecimalNum.valueOf(0), 0));
+        }
+        return series;
+    }
+
+    private static TradeStrategy strategy(StrategyConfig config) {
+        return new HoldStrategy(Integer.parseInt(config.getConstants().get("hold")));
+    }
+
+    /**
+     * Enters whenever flat and exits {@code hold} bars after the entry.
+     */
+    private static final class HoldStrategy extends BaseStrategy implements TradeStrategy {
+        private HoldStrategy(int hold) {
+            super(BooleanRule.TRUE, new ExitAfter(hold));
+        }
+
+        @Override
+        public TradeDirection getDirection() {
+            return TradeDirection.Buy;
+        }
+    }
+
+    private static final class ExitAfter extends AbstractRule {
+        private final int bars;
+
+        private ExitAfter(int bars) {
+            this.bars = bars;
+        }
+
+        @Override
+        public boolean isSatisfied(int index, TradingRecord tradingRecord) {
+            return tradingRecord != null && tradingRecord.getCurrentPosition().isOpened()
+                    && index >= tradingRecord.getCurrentPosition().getEntry().getIndex() + bars;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.exception.StrategyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.num.DecimalNum;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CriterionRegistryTest {
+
+    private CriterionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CriterionRegistry();
+        registry.initialize();
+    }
+
+    @Test
+    void resolvesNamesLeniently() throws StrategyException {
+        assertTrue(registry.getAllObjectNames().contains("NumberOfPositionsCriterion"));
+        assertEquals(List.of("NumberOfPositionsCriterion", "NumberOfBarsCriterion"),
+                registry.resolve(List.of("numberOfPositions", "NUMBEROFBARSCRITERION", "NumberOfPositionsCriterion")));
+        assertEquals(List.copyOf(registry.getAllObjectNames()), registry.resolve(null));
+        assertThrows(StrategyException.class, () -> registry.resolve(List.of("noSuchMetric")));
+    }
+
+    @Test
+    void evaluatesTheSelectedCriteriaInOrder() throws StrategyException {
+        TradingRecord record = new BaseTradingRecord();
+        record.enter(1, DecimalNum.valueOf(100), DecimalNum.valueOf(1));
+        record.exit(3, DecimalNum.valueOf(110), DecimalNum.valueOf(1));
+        record.enter(5, DecimalNum.valueOf(105), DecimalNum.valueOf(1));
+        record.exit(6, DecimalNum.valueOf(100), DecimalNum.valueOf(1));
+        List<String> metrics = registry.resolve(List.of("numberOfPositions", "numberOfBars"));
+
+        Map<String, Double> parallel = registry.evaluate(metrics, new BaseBarSeriesBuilder().build(), record, true);
+        Map<String, Double> serial = registry.evaluate(metrics, new BaseBarSeriesBuilder().build(), record, false);
+
+        assertEquals(metrics, List.copyOf(parallel.keySet()));
+        assertEquals(2.0, parallel.get("NumberOfPositionsCriterion"));
+        assertEquals(serial, parallel);
+    }
+}
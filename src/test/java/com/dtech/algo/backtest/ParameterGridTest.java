@@ -0,0 +1,50 @@
+package com.dtech.algo.backtest;
+
+import com.dtech.algo.exception.StrategyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterGridTest {
+
+    @Test
+    void expandsListsAndRangesInNameOrder() throws StrategyException {
+        Map<String, String> constants = new LinkedHashMap<>();
+        constants.put("rsiUpper", "60:80:10");
+        constants.put("emaFast", "9|12");
+        constants.put("multiplier", "0.5:1:0.25");
+        constants.put("period", "14");
+
+        ParameterGrid grid = ParameterGrid.of(constants, 1000);
+
+        assertEquals(2 * 3 * 3, grid.size());
+        assertEquals(List.of("emaFast", "multiplier", "rsiUpper"), grid.varyingNames());
+        assertEquals(Map.of("emaFast", "9", "multiplier", "0.5", "period", "14", "rsiUpper", "60"), grid.variant(0));
+        // the last constant varies fastest
+        assertEquals("70", grid.variant(1).get("rsiUpper"));
+        assertEquals("0.75", grid.variant(3).get("multiplier"));
+        assertEquals(Map.of("emaFast", "12", "multiplier", "1", "period", "14", "rsiUpper", "80"),
+                grid.variant(grid.size() - 1));
+
+        Set<Map<String, String>> distinct = new HashSet<>();
+        for (int i = 0; i < grid.size(); i++) {
+            distinct.add(grid.variant(i));
+        }
+        assertEquals(grid.size(), distinct.size());
+    }
+
+    @Test
+    void rejectsOversizedAndEmptyGrids() throws StrategyException {
+        assertThrows(StrategyException.class, () -> ParameterGrid.of(Map.of("a", "1:100:1", "b", "1:100:1"), 5000));
+        assertThrows(StrategyException.class, () -> ParameterGrid.of(Map.of("a", "10:1:1"), 5000));
+        assertThrows(StrategyException.class, () -> ParameterGrid.of(Map.of("a", "1:10:0"), 5000));
+        assertEquals(1, ParameterGrid.of(Map.of(), 5000).size());
+        assertEquals(1, ParameterGrid.of(Map.of("session", "09:15"), 5000).size());
+    }
+}
@@ -0,0 +1,139 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.SeriesType;
+import com.dtech.algo.strategy.builder.ifc.BarSeriesLoader;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.kitecon.strategy.dataloader.BarsLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.ta4j.core.BaseBarSeriesBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeriesCacheTest {
+
+    @Mock
+    private BarSeriesLoader loader;
+
+    private SeriesCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SeriesCache(loader);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "maxMemoryMb", 1L);
+        ReflectionTestUtils.setField(cache, "refreshAfterMinutes", 60L);
+        ReflectionTestUtils.setField(cache, "refreshThreads", 1);
+        cache.init();
+    }
+
+    @Test
+    void sameKeyIsLoadedOnceWhateverTheDateRange() throws Exception {
+        when(loader.reloadBarSeries(any())).thenAnswer(inv -> series());
+
+        IntervalBarSeries first = cache.get(config("SBIN", 30));
+        IntervalBarSeries second = cache.get(config("SBIN", 10));
+
+        assertSame(first, second);
+        verify(loader, times(1)).reloadBarSeries(any());
+        SeriesCacheStats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.loads());
+    }
+
+    @Test
+    void entryCountIsBounded() throws Exception {
+        when(loader.reloadBarSeries(any())).thenAnswer(inv -> series());
+
+        cache.get(config("SBIN", 30));
+        cache.get(config("INFY", 30));
+        cache.get(config("TCS", 30));
+
+        assertTrue(cache.getStats().cachedSeries() <= 2);
+        assertTrue(cache.getStats().evictions() >= 1);
+    }
+
+    @Test
+    void pinnedSeriesSurviveEviction() throws Exception {
+        when(loader.reloadBarSeries(any())).thenAnswer(inv -> series());
+        IntervalBarSeries sbin = cache.get(config("SBIN", 30));
+        cache.pin("SBIN");
+
+        cache.get(config("INFY", 30));
+        cache.get(config("TCS", 30));
+        cache.get(config("HDFCBANK", 30));
+
+        assertSame(sbin, cache.get(config("SBIN", 30)));
+        assertEquals(1, cache.getStats().pinnedSeries());
+        assertEquals(1, cache.getStats().pinnedHits());
+    }
+
+    @Test
+    void refreshAppendsOnlyCandlesFromLastBarOn() throws Exception {
+        Instant t0 = Instant.parse("2024-06-12T04:00:00Z");
+        IntervalBarSeries cached = series();
+        cached.addBar(BarsLoader.getBar(100, 101, 99, 100, 10, t0));
+        cached.addBar(BarsLoader.getBar(100, 102, 99, 101, 5, t0.plus(15, ChronoUnit.MINUTES)));
+
+        IntervalBarSeries tail = series();
+        tail.addBar(BarsLoader.getBar(100, 103, 99, 102, 20, t0.plus(15, ChronoUnit.MINUTES)));
+        tail.addBar(BarsLoader.getBar(102, 104, 101, 103, 30, t0.plus(30, ChronoUnit.MINUTES)));
+        ArgumentCaptor<BarSeriesConfig> requested = ArgumentCaptor.forClass(BarSeriesConfig.class);
+        when(loader.reloadBarSeries(requested.capture())).thenReturn(tail);
+
+        IntervalBarSeries refreshed = cache.refresh(config("SBIN", 30), cached);
+
+        assertEquals(t0.plus(15, ChronoUnit.MINUTES), requested.getValue().getStartDate());
+        assertEquals(3, refreshed.getBarCount());
+        // the last cached bar was still forming when it was stored, so it is replaced
+        assertEquals(102, refreshed.getBar(1).getClosePrice().doubleValue(), 1e-9);
+        assertEquals(t0.plus(30, ChronoUnit.MINUTES), refreshed.getLastBar().getEndTime());
+        assertSame(cached.getBar(0), refreshed.getBar(0));
+
+        // readers of the cached instance never see it change
+        assertNotSame(cached, refreshed);
+        assertEquals(2, cached.getBarCount());
+        assertEquals(101, cached.getBar(1).getClosePrice().doubleValue(), 1e-9);
+    }
+
+    @Test
+    void refreshOfEmptySeriesReloadsFullLookBack() throws Exception {
+        IntervalBarSeries reloaded = series();
+        when(loader.reloadBarSeries(any())).thenReturn(reloaded);
+
+        assertSame(reloaded, cache.refresh(config("SBIN", 30), series()));
+    }
+
+    private static BarSeriesConfig config(String instrument, int days) {
+        return BarSeriesConfig.builder()
+                .instrument(instrument)
+                .seriesType(SeriesType.EQUITY)
+                .interval(Interval.FifteenMinute)
+                .name(instrument + "_" + days)
+                .startDate(Instant.now().minus(days, ChronoUnit.DAYS))
+                .endDate(Instant.now())
+                .build();
+    }
+
+    private static IntervalBarSeries series() {
+        return ExtendedBarSeries.builder()
+                .delegate(new BaseBarSeriesBuilder().build())
+                .interval(Interval.FifteenMinute)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.LiveBar;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.algo.time.ZoneIdHolder;
+import com.dtech.kitecon.service.DatabaseBatchUpdateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.DecimalNum;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TickAggregatorTest {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    private static final long TOKEN = 738561L;
+
+    @Mock
+    private LatestBarSeriesProvider barSeriesProvider;
+
+    @Mock
+    private DatabaseBatchUpdateService databaseBatchUpdateService;
+
+    private TickAggregator aggregator;
+    private IntervalBarSeries oneMinute;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ZoneIdHolder.set(IST);
+        aggregator = new TickAggregator(barSeriesProvider, databaseBatchUpdateService, new BarTimeCalculator());
+        oneMinute = ExtendedBarSeries.builder()
+                .delegate(new BaseBarSeriesBuilder().withName("RELIANCE_OneMinute").build())
+                .interval(Interval.OneMinute)
+                .instrument("RELIANCE")
+                .build();
+        lenient().when(barSeriesProvider.loadBarSeries(any(BarSeriesConfig.class))).thenReturn(oneMinute);
+
+        BarSeriesConfig[] configs = new BarSeriesConfig[Interval.values().length];
+        configs[Interval.OneMinute.ordinal()] = BarSeriesConfig.builder()
+                .interval(Interval.OneMinute).instrument("RELIANCE").name("RELIANCE_OneMinute").build();
+        aggregator.register(TOKEN, configs);
+    }
+
+    @Test
+    void unregisteredTokenIsIgnored() {
+        assertFalse(aggregator.onTick(tick(1L, at(10, 0, 5), 100, 1000)));
+        assertTrue(aggregator.isRegistered(TOKEN));
+    }
+
+    @Test
+    void formingBarIsUpdatedOnEveryTick() throws Exception {
+        assertTrue(aggregator.onTick(tick(TOKEN, at(10, 0, 5), 100, 1000)));
+        assertEquals(1, oneMinute.getBarCount());
+        assertEquals(100, oneMinute.getLastBar().getClosePrice().doubleValue(), 1e-9);
+
+        assertTrue(aggregator.onTick(tick(TOKEN, at(10, 0, 40), 103, 1500)));
+        assertEquals(1, oneMinute.getBarCount());
+        Bar forming = oneMinute.getLastBar();
+        assertEquals(at(10, 1, 0).toInstant(), forming.getEndTime());
+        assertEquals(103, forming.getHighPrice().doubleValue(), 1e-9);
+        assertEquals(103, forming.getClosePrice().doubleValue(), 1e-9);
+        assertEquals(500, forming.getVolume().doubleValue(), 1e-9);
+
+        verify(barSeriesProvider, times(1)).loadBarSeries(any());
+        verify(databaseBatchUpdateService, never()).addToQueue(any());
+    }
+
+    @Test
+    void closedBarIsAppendedWithVolumeDelta() {
+        aggregator.onTick(tick(TOKEN, at(10, 0, 5), 100, 1000));
+        aggregator.onTick(tick(TOKEN, at(10, 0, 20), 104, 1200));
+        aggregator.onTick(tick(TOKEN, at(10, 0, 40), 98, 1500));
+        aggregator.onTick(tick(TOKEN, at(10, 0, 59), 101, 1600));
+        aggregator.onTick(tick(TOKEN, at(10, 1, 2), 102, 1700));
+
+        assertEquals(2, oneMinute.getBarCount());
+        Bar bar = oneMinute.getBar(0);
+        assertFalse(bar instanceof LiveBar);
+        assertEquals(at(10, 1, 0).toInstant(), bar.getEndTime());
+        assertEquals(100, bar.getOpenPrice().doubleValue(), 1e-9);
+        assertEquals(104, bar.getHighPrice().doubleValue(), 1e-9);
+        assertEquals(98, bar.getLowPrice().doubleValue(), 1e-9);
+        assertEquals(101, bar.getClosePrice().doubleValue(), 1e-9);
+        // cumulative day volume 1000 -> 1600, the first tick of the day only seeds the baseline
+        assertEquals(600, bar.getVolume().doubleValue(), 1e-9);
+
+        Bar forming = oneMinute.getLastBar();
+        assertEquals(at(10, 2, 0).toInstant(), forming.getEndTime());
+        assertEquals(102, forming.getOpenPrice().doubleValue(), 1e-9);
+        assertEquals(100, forming.getVolume().doubleValue(), 1e-9);
+        verify(databaseBatchUpdateService, times(1)).addToQueue(any());
+    }
+
+    @Test
+    void loadedFormingBarIsContinued() {
+        oneMinute.addBar(new BaseBar(Duration.ofMinutes(1), at(10, 1, 0).toInstant(), DecimalNum.valueOf(99),
+                DecimalNum.valueOf(105), DecimalNum.valueOf(97), DecimalNum.valueOf(100), DecimalNum.valueOf(700),
+                DecimalNum.valueOf(0), 0));
+
+        aggregator.onTick(tick(TOKEN, at(10, 0, 30), 101, 1000));
+        aggregator.onTick(tick(TOKEN, at(10, 0, 40), 96, 1100));
+
+        assertEquals(1, oneMinute.getBarCount());
+        Bar forming = oneMinute.getLastBar();
+        assertInstanceOf(LiveBar.class, forming);
+        assertEquals(99, forming.getOpenPrice().doubleValue(), 1e-9);
+        assertEquals(105, forming.getHighPrice().doubleValue(), 1e-9);
+        assertEquals(96, forming.getLowPrice().doubleValue(), 1e-9);
+        assertEquals(96, forming.getClosePrice().doubleValue(), 1e-9);
+        assertEquals(800, forming.getVolume().doubleValue(), 1e-9);
+        verify(databaseBatchUpdateService, never()).addToQueue(any());
+    }
+
+    @Test
+    void unregisterDropsOpenBars() {
+        aggregator.onTick(tick(TOKEN, at(10, 0, 5), 100, 1000));
+        aggregator.unregister(TOKEN);
+
+        assertFalse(aggregator.isRegistered(TOKEN));
+        assertFalse(aggregator.onTick(tick(TOKEN, at(10, 1, 5), 100, 1000)));
+    }
+
+    @Test
+    void barEndOffsetMatchesZonedCalculation() {
+        BarTimeCalculator calculator = new BarTimeCalculator();
+        ZonedDateTime tickTime = at(11, 7, 31);
+        long secondOfDay = tickTime.toLocalTime().toSecondOfDay();
+        int dayOfWeek = tickTime.getDayOfWeek().getValue();
+        long dayStart = tickTime.truncatedTo(java.time.temporal.ChronoUnit.DAYS).toEpochSecond();
+
+        for (Interval interval : new Interval[]{Interval.OneMinute, Interval.ThreeMinute, Interval.FiveMinute,
+                Interval.FifteenMinute, Interval.ThirtyMinute, Interval.OneHour, Interval.Day, Interval.Week}) {
+            long expected = calculator.calculateBarEndTime(tickTime, interval).toEpochSecond();
+            assertEquals(expected, dayStart + calculator.calculateBarEndOffset(secondOfDay, dayOfWeek, interval),
+                    interval.name());
+        }
+    }
+
+    private static ZonedDateTime at(int hour, int minute, int second) {
+        return ZonedDateTime.of(2024, 6, 12, hour, minute, second, 0, IST);
+    }
+
+    private static DataTick tick(long token, ZonedDateTime time, double price, double cumulativeVolume) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(token);
+        tick.setLastTradedPrice(price);
+        tick.setVolumeTradedToday(cumulativeVolume);
+        tick.setTickTimestamp(Date.from(time.toInstant()));
+        return tick;
+    }
+}
@@ -0,0 +1,122 @@
+package com.dtech.algo.runner.candle;
+
+import com.dtech.kitecon.controller.BarSeriesHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TickPipelineTest {
+
+    @Mock
+    private BarSeriesHelper barSeriesHelper;
+
+    private TickPipeline pipeline;
+    private final List<DataTick> processed = new CopyOnWriteArrayList<>();
+    // every tick waits for a permit once it has been taken, so the tests decide when the consumer moves on
+    private final Semaphore release = new Semaphore(0);
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new TickPipeline(barSeriesHelper);
+        ReflectionTestUtils.setField(pipeline, "shardCount", 1);
+        ReflectionTestUtils.setField(pipeline, "capacity", 2);
+        ReflectionTestUtils.setField(pipeline, "backpressurePolicy", TickBackpressurePolicy.COALESCE);
+        ReflectionTestUtils.setField(pipeline, "coalesceDrainInterval", 1);
+        when(barSeriesHelper.processTick(any(DataTick.class))).thenAnswer(invocation -> {
+            processed.add(invocation.getArgument(0));
+            assertTrue(release.tryAcquire(5, TimeUnit.SECONDS));
+            return true;
+        });
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.release(1_000);
+        pipeline.stop();
+    }
+
+    @Test
+    void coalesceKeepsLatestOverflowTickPerTokenInOrder() throws Exception {
+        // park the consumer on the first tick so the ring fills up
+        pipeline.publish(tick(1, 100));
+        awaitProcessed(1);
+
+        pipeline.publish(tick(1, 101));
+        pipeline.publish(tick(2, 200));
+        // ring is full from here on
+        pipeline.publish(tick(1, 102));
+        pipeline.publish(tick(1, 103));
+        pipeline.publish(tick(2, 201));
+
+        TickPipelineStats stats = pipeline.getStats();
+        assertEquals(1, stats.coalesced());
+        assertEquals(4, stats.queueDepth());
+        assertEquals(0, stats.dropped());
+
+        release.release(1_000);
+        awaitProcessed(5);
+
+        assertEquals(List.of(100.0, 101.0, 103.0), prices(1));
+        assertEquals(List.of(200.0, 201.0), prices(2));
+        assertEquals(5, pipeline.getStats().processed());
+    }
+
+    @Test
+    void coalescedTickIsHandedOnWhileTheRingStaysBusy() throws Exception {
+        pipeline.publish(tick(1, 100));
+        awaitProcessed(1);
+        pipeline.publish(tick(1, 101));
+        pipeline.publish(tick(2, 200));
+        // ring is full, token 1 overflows
+        pipeline.publish(tick(1, 102));
+
+        release.release();
+        awaitProcessed(2);
+        // the consumer took 101 off the ring, so token 2 keeps flowing through it
+        pipeline.publish(tick(2, 201));
+        release.release(1_000);
+        awaitProcessed(5);
+
+        // 102 goes out once 101 left the ring, without waiting for the ring to run empty
+        assertEquals(List.of(100.0, 101.0, 200.0, 102.0, 201.0),
+                processed.stream().map(DataTick::getLastTradedPrice).toList());
+        assertEquals(0, pipeline.getStats().coalesced());
+    }
+
+    private void awaitProcessed(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (processed.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, processed.size());
+    }
+
+    private List<Double> prices(long token) {
+        return processed.stream()
+                .filter(t -> t.getInstrumentToken() == token)
+                .map(DataTick::getLastTradedPrice)
+                .toList();
+    }
+
+    private static DataTick tick(long token, double price) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(token);
+        tick.setLastTradedPrice(price);
+        return tick;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dtech.algo.runner.candle;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickRingBufferTest {
+
+    @Test
+    void capacityIsRoundedToPowerOfTwo() {
+        assertEquals(8, new TickRingBuffer(5).capacity());
+        assertEquals(8, new TickRingBuffer(8).capacity());
+    }
+
+    @Test
+    void offerFailsWhenFullAndPollKeepsOrder() {
+        TickRingBuffer ring = new TickRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(tick(i)));
+        }
+        assertFalse(ring.offer(tick(99)));
+        assertEquals(4, ring.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.poll().getInstrumentToken());
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void dropOldestMakesRoomForNewTick() {
+        TickRingBuffer ring = new TickRingBuffer(2);
+        ring.offer(tick(1));
+        ring.offer(tick(2));
+
+        assertTrue(ring.dropOldest());
+        assertTrue(ring.offer(tick(3)));
+
+        assertEquals(2, ring.poll().getInstrumentToken());
+        assertEquals(3, ring.poll().getInstrumentToken());
+        assertFalse(ring.dropOldest());
+    }
+
+    @Test
+    void consumedAndDroppedSlotsAreCleared() {
+        TickRingBuffer ring = new TickRingBuffer(4);
+        ring.offer(tick(1));
+        ring.offer(tick(2));
+        ring.offer(tick(3));
+
+        ring.poll();
+        ring.dropOldest();
+
+        AtomicReferenceArray<?> slots = (AtomicReferenceArray<?>) ReflectionTestUtils.getField(ring, "slots");
+        assertNull(slots.get(0));
+        assertNull(slots.get(1));
+        assertNotNull(slots.get(2));
+    }
+
+    @Test
+    void clearedSlotsAreReusedAfterWrap() {
+        TickRingBuffer ring = new TickRingBuffer(2);
+        ring.offer(tick(1));
+        ring.offer(tick(2));
+        assertEquals(1, ring.poll().getInstrumentToken());
+        assertTrue(ring.offer(tick(3)));
+        assertEquals(2, ring.poll().getInstrumentToken());
+
+        assertEquals(3, ring.poll().getInstrumentToken());
+        assertNull(ring.poll());
+    }
+
+    private static DataTick tick(long token) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(token);
+        return tick;
+    }
+}
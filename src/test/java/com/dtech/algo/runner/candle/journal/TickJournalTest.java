@@ -0,0 +1,108 @@
+package com.dtech.algo.runner.candle.journal;
+
+import com.dtech.algo.runner.candle.DataTick;
+import com.dtech.algo.time.ZoneIdHolder;
+import com.zerodhatech.models.Depth;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ticksRoundTripThroughJournal() throws Exception {
+        TickJournal journal = journal();
+        DataTick withDepth = tick(256265L, 101.5, 1_000);
+        withDepth.setDepth(Map.of("buy", depth(101.4, 50, 3), "sell", depth(101.6, 70, 4)));
+        DataTick plain = tick(738561L, 2500.25, 42_000);
+        plain.setTickTimestamp(null);
+
+        journal.append(withDepth);
+        journal.append(plain);
+        journal.close();
+        assertEquals(2, journal.getAppended());
+
+        try (TickJournalReader reader = new TickJournalReader(journal.fileFor(today()))) {
+            DataTick first = reader.next();
+            assertEquals(256265L, first.getInstrumentToken());
+            assertEquals(101.5, first.getLastTradedPrice());
+            assertEquals(1_000, first.getVolumeTradedToday());
+            assertEquals(withDepth.getTickTimestamp(), first.getTickTimestamp());
+            assertEquals("full", first.getMode());
+            assertTrue(first.isTradable());
+            assertEquals(101.4, first.getDepth().get("buy").get(0).getPrice());
+            assertEquals(70, first.getDepth().get("sell").get(0).getQuantity());
+
+            DataTick second = reader.next();
+            assertEquals(738561L, second.getInstrumentToken());
+            assertNull(second.getTickTimestamp());
+            assertNull(second.getDepth());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void reopenedJournalAppendsAfterExistingRecords() throws Exception {
+        TickJournal journal = journal();
+        journal.append(tick(1L, 10, 1));
+        journal.close();
+
+        TickJournal reopened = journal();
+        reopened.append(tick(2L, 20, 2));
+        reopened.close();
+
+        List<Long> tokens = new ArrayList<>();
+        try (TickJournalReader reader = new TickJournalReader(reopened.fileFor(today()))) {
+            DataTick tick;
+            while ((tick = reader.next()) != null) {
+                tokens.add(tick.getInstrumentToken());
+            }
+        }
+        assertEquals(List.of(1L, 2L), tokens);
+    }
+
+    private TickJournal journal() {
+        TickJournal journal = new TickJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        return journal;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneIdHolder.get());
+    }
+
+    private static DataTick tick(long token, double price, double volume) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(token);
+        tick.setMode("full");
+        tick.setTradable(true);
+        tick.setLastTradedPrice(price);
+        tick.setVolumeTradedToday(volume);
+        tick.setTickTimestamp(new Date(1_718_165_000_000L));
+        return tick;
+    }
+
+    private static ArrayList<Depth> depth(double price, int quantity, int orders) {
+        Depth level = new Depth();
+        level.setPrice(price);
+        level.setQuantity(quantity);
+        level.setOrders(orders);
+        ArrayList<Depth> levels = new ArrayList<>();
+        levels.add(level);
+        return levels;
+    }
+}
@@ -0,0 +1,137 @@
+package com.dtech.algo.screener;
+
+import com.dtech.algo.screener.db.ScreenerEntity;
+import com.dtech.algo.screener.db.ScreenerRepository;
+import com.dtech.algo.screener.db.ScreenerRunBulkWriter;
+import com.dtech.algo.screener.db.ScreenerRunEntity;
+import com.dtech.algo.screener.db.ScreenerRunRepository;
+import com.dtech.algo.screener.dsl.CrossSection;
+import com.dtech.algo.screener.enums.SchedulingStatus;
+import com.dtech.algo.screener.enums.Verdict;
+import com.dtech.algo.screener.kotlinrunner.CompiledScriptCache;
+import com.dtech.algo.screener.kotlinrunner.KotlinScriptExecutor;
+import com.dtech.algo.screener.runtime.IndicatorMemoPool;
+import com.dtech.algo.screener.runtime.ScreenerRunLogService;
+import com.dtech.algo.screener.runtime.ScreenerRunQueue;
+import com.dtech.kitecon.repository.IndexSymbolRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScreenerBatchServiceTest {
+
+    private static final Map<String, Double> MOMENTUM = Map.of("INFY", 3.0, "TCS", 1.0, "SBIN", 2.0);
+
+    // passes only the symbol ranked first across the batch
+    private static final ScreenerScript TOP_MOMENTUM = (ctx, cb) -> {
+        CrossSection cs = ctx.getCrossSection();
+        cs.record("momentum", ctx.getSymbol(), MOMENTUM.get(ctx.getSymbol()));
+        int rank = cs.rank("momentum", ctx.getSymbol());
+        return ScreenerOutput.builder()
+                .passed(rank == 1)
+                .finalVerdict(rank == 1 ? Verdict.BUY : Verdict.WAIT)
+                .debug(Map.of("rank", rank))
+                .build();
+    };
+
+    @Mock
+    private ScreenerRepository screenerRepository;
+    @Mock
+    private CompiledScriptCache compiledScriptCache;
+    @Mock
+    private ScreenerContextLoader loader;
+    @Mock
+    private ScreenerRunLogService runLogService;
+    @Mock
+    private IndexSymbolRepository indexSymbolRepository;
+    @Mock
+    private ScreenerRunBulkWriter screenerRunBulkWriter;
+    @Mock
+    private ScreenerRunRepository screenerRunRepository;
+    @Mock
+    private ScreenerRunQueue screenerRunQueue;
+    @Mock
+    private ScreenerService screenerService;
+
+    private ScreenerBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ScreenerBatchService(screenerRepository, new ObjectMapper(), compiledScriptCache, loader,
+                new KotlinScriptExecutor(runLogService), new IndicatorMemoPool(), indexSymbolRepository,
+                screenerRunBulkWriter, screenerRunRepository, screenerRunQueue, screenerService);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void passingSymbolsContinueWithTheRankedOutput() throws Exception {
+        when(screenerRepository.findById(1L)).thenReturn(Optional.of(ScreenerEntity.builder()
+                .id(1L)
+                .script("screener")
+                .timeframe("Day")
+                .configJson("{\"mapping\":{},\"workflow\":[\"SCRIPT\",\"OPENAI\"]}")
+                .build()));
+        when(compiledScriptCache.get("screener"))
+                .thenReturn(new CompiledScriptCache.LoadedScript("key", null, null, TOP_MOMENTUM));
+        Map<String, ScreenerContext> contexts = new LinkedHashMap<>();
+        for (String symbol : List.of("INFY", "TCS", "SBIN")) {
+            contexts.put(symbol, ScreenerContext.builder().symbol(symbol).timeframe("Day").build());
+        }
+        when(loader.loadAll(any(), any(), eq(0), eq("Day"))).thenReturn(new ScreenerContextLoader.Batch(contexts, Map.of()));
+        when(screenerRunRepository.save(any())).thenAnswer(inv -> {
+            ScreenerRunEntity run = inv.getArgument(0);
+            run.setId(42L);
+            return run;
+        });
+
+        ScreenerBatchService.BatchReport report = service.run(1L, List.of("INFY", "TCS", "SBIN"), null, 0);
+
+        assertTrue(report.crossSectional());
+        assertEquals(1, report.passed());
+
+        ArgumentCaptor<Collection<ScreenerRunBulkWriter.Outcome>> finished = ArgumentCaptor.forClass(Collection.class);
+        verify(screenerRunBulkWriter).recordAll(eq(1L), eq("Day"), finished.capture(), any());
+        assertEquals(List.of("TCS", "SBIN"), finished.getValue().stream().map(ScreenerRunBulkWriter.Outcome::symbol).toList());
+
+        ArgumentCaptor<ScreenerRunEntity> run = ArgumentCaptor.forClass(ScreenerRunEntity.class);
+        verify(screenerRunRepository).save(run.capture());
+        assertEquals("INFY", run.getValue().getSymbol());
+        assertEquals(SchedulingStatus.RUNNING, run.getValue().getSchedulingStatus());
+
+        // the later steps get the output of the ranking pass instead of evaluating the script again
+        ArgumentCaptor<ScreenerContext> ctx = ArgumentCaptor.forClass(ScreenerContext.class);
+        ArgumentCaptor<ScreenerOutput> output = ArgumentCaptor.forClass(ScreenerOutput.class);
+        verify(screenerService, timeout(5000)).continueRun(ctx.capture(), output.capture(), eq(42L));
+        assertEquals("INFY", ctx.getValue().getSymbol());
+        assertTrue(output.getValue().isPassed());
+        assertEquals(Verdict.BUY, output.getValue().getFinalVerdict());
+        assertEquals(1, output.getValue().getDebug().get("rank"));
+        verify(screenerRunQueue, timeout(5000)).finish(42L, SchedulingStatus.COMPLETE);
+        verify(screenerService, never()).run(anyLong(), any(), anyInt(), any(), any(), any());
+        verify(screenerRunBulkWriter, never()).scheduleAll(any(), any());
+    }
+}
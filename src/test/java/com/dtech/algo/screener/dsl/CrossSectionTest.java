@@ -0,0 +1,58 @@
+package com.dtech.algo.screener.dsl;
+
+import com.dtech.algo.screener.ScreenerContext;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossSectionTest {
+
+    @Test
+    void ranksAndPercentilesAfterFreeze() {
+        CrossSection cs = new CrossSection();
+        cs.record("mom", "INFY", 4.0);
+        cs.record("mom", "TCS", 9.0);
+        cs.record("mom", "WIPRO", 4.0);
+        cs.record("mom", "HCLTECH", -2.0);
+        cs.record("mom", "LTIM", Double.NaN);
+
+        // nothing is ranked while collecting
+        assertEquals(0, cs.rank("mom", "TCS"));
+        assertTrue(Double.isNaN(cs.percentile("mom", "TCS")));
+
+        cs.freeze();
+        assertEquals(1, cs.rank("mom", "TCS"));
+        assertEquals(2, cs.rank("mom", "INFY"));
+        assertEquals(2, cs.rank("mom", "WIPRO"));
+        assertEquals(4, cs.rank("mom", "HCLTECH"));
+        assertEquals(0, cs.rank("mom", "LTIM"));
+
+        assertEquals(100.0, cs.percentile("mom", "TCS"));
+        assertEquals(100.0 / 3, cs.percentile("mom", "INFY"), 1e-9);
+        assertEquals(0.0, cs.percentile("mom", "HCLTECH"));
+        assertEquals(4, cs.size("mom"));
+
+        cs.record("mom", "LTIM", 20.0);
+        assertEquals(0, cs.rank("mom", "LTIM"));
+    }
+
+    @Test
+    void dslRecordsForTheContextSymbol() {
+        CrossSection cs = new CrossSection();
+        KDsl infy = KDsl.dsl(ScreenerContext.builder().symbol("INFY").crossSection(cs).build(), null);
+        KDsl tcs = KDsl.dsl(ScreenerContext.builder().symbol("TCS").crossSection(cs).build(), null);
+
+        assertEquals(1.5, infy.metric("mom", 1.5));
+        tcs.metric("mom", 3.0);
+        assertEquals(0, infy.rank("mom"));
+
+        cs.freeze();
+        assertEquals(2, infy.rank("mom"));
+        assertEquals(1, tcs.rank("mom"));
+        assertEquals(2, tcs.universeSize("mom"));
+
+        KDsl single = KDsl.dsl(ScreenerContext.builder().symbol("INFY").build(), null);
+        assertEquals(0, single.rank("mom"));
+        assertTrue(Double.isNaN(single.percentile("mom")));
+    }
+}
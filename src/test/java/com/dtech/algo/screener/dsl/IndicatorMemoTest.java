@@ -0,0 +1,108 @@
+package com.dtech.algo.screener.dsl;
+
+import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.IntervalBarSeries;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BaseBarSeriesBuilder;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicatorMemoTest {
+
+    private static final Instant START = Instant.parse("2024-06-12T03:46:00Z");
+
+    @Test
+    void repeatedRequestsReturnTheSameExpression() {
+        ScreenerContext ctx = context(series("INFY", 60), new IndicatorMemo());
+        KDsl dsl = KDsl.dsl(ctx, null);
+
+        KDsl.SeriesExpr first = dsl.rsi(14);
+        assertSame(first, dsl.rsi(14));
+        assertSame(first, dsl.rsi("base", 14));
+        assertNotSame(first, dsl.rsi(7));
+        assertSame(dsl.macd(12, 26, 9).signal, dsl.macd(12, 26, 9).signal);
+
+        IndicatorMemo memo = ctx.getIndicatorMemo();
+        assertEquals(3, memo.getHits());
+        assertEquals(3, memo.getMisses());
+        assertEquals(0.5, memo.stats().get("hitRate"));
+    }
+
+    @Test
+    void contextsOverTheSameSeriesShareIndicators() {
+        Map<Object, IntToDoubleFunction[]> store = new ConcurrentHashMap<>();
+        IntervalBarSeries series = series("INFY", 60);
+        ScreenerContext first = context(series, new IndicatorMemo(store));
+        // handed the same shared series by another screener run
+        ScreenerContext second = context(series, new IndicatorMemo(store));
+        ScreenerContext updated = context(series("INFY", 61), new IndicatorMemo(store));
+
+        double value = KDsl.dsl(first, null).ema(10).now();
+        assertEquals(value, KDsl.dsl(second, null).ema(10).now());
+        KDsl.dsl(updated, null).ema(10);
+
+        assertEquals(1, first.getIndicatorMemo().getMisses());
+        assertEquals(1, second.getIndicatorMemo().getHits());
+        assertEquals(0, second.getIndicatorMemo().getMisses());
+        assertEquals(1, updated.getIndicatorMemo().getMisses());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void indicatorsAreNotSharedAcrossSeriesObjectsOrLiveUpdates() {
+        Map<Object, IntToDoubleFunction[]> store = new ConcurrentHashMap<>();
+        IntervalBarSeries series = series("INFY", 60);
+        ScreenerContext first = context(series, new IndicatorMemo(store));
+        // same bars, but another series object: the indicator is bound to the first one
+        ScreenerContext copy = context(series("INFY", 60), new IndicatorMemo(store));
+
+        double before = KDsl.dsl(first, null).ema(10).now();
+        KDsl.dsl(copy, null).ema(10);
+        assertEquals(1, copy.getIndicatorMemo().getMisses());
+
+        series.getLastBar().addPrice(series.numFactory().numOf(before + 50));
+        ScreenerContext live = context(series, new IndicatorMemo(store));
+        double after = KDsl.dsl(live, null).ema(10).now();
+
+        assertEquals(1, live.getIndicatorMemo().getMisses());
+        assertTrue(after > before, after + " <= " + before);
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void missingAliasIsNotMemoized() {
+        ScreenerContext ctx = context(series("INFY", 10), new IndicatorMemo());
+
+        assertTrue(Double.isNaN(KDsl.dsl(ctx, null).sma("tide", 5).now()));
+        assertEquals(0, ctx.getIndicatorMemo().getMisses());
+    }
+
+    private static ScreenerContext context(IntervalBarSeries base, IndicatorMemo memo) {
+        return ScreenerContext.builder()
+                .aliases(Map.of("base", base))
+                .nowIndex(0)
+                .symbol(base.getInstrument())
+                .indicatorMemo(memo)
+                .build();
+    }
+
+    private static IntervalBarSeries series(String instrument, int bars) {
+        ExtendedBarSeries series = ExtendedBarSeries.builder()
+                .delegate(new BaseBarSeriesBuilder().withName(instrument).build())
+                .interval(Interval.OneMinute)
+                .instrument(instrument)
+                .build();
+        for (int i = 0; i < bars; i++) {
+            double close = 100 + Math.sin(i / 3.0) * 5;
+            series.addBarWithTimeValidation(START.plusSeconds(60L * i), close, close + 1, close - 1, close, 1000);
+        }
+        return series;
+    }
+}
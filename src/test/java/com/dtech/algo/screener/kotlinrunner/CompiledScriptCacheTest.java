@@ -0,0 +1,128 @@
+package com.dtech.algo.screener.kotlinrunner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledScriptCacheTest {
+
+    private static final String SCRIPT = """
+            import com.dtech.algo.screener.ScreenerOutput
+
+            object ScreenerEntry {
+                fun screener(ctx: ScreenerContext, cb: SignalCallback) = ScreenerOutput.builder().passed(true).build()
+            }
+            ScreenerEntry
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keyDependsOnScriptText() {
+        CompiledScriptCache cache = cache();
+
+        assertEquals(cache.keyOf(SCRIPT), cache.keyOf(SCRIPT));
+        assertNotEquals(cache.keyOf(SCRIPT), cache.keyOf(SCRIPT + " "));
+        assertEquals(64, cache.keyOf(SCRIPT).length());
+    }
+
+    @Test
+    void compilesOnceAndReloadsFromDiskAfterRestart() throws Exception {
+        CompiledScriptCache first = cache();
+        CompiledScriptCache.LoadedScript loaded = first.get(SCRIPT);
+
+        assertSame(loaded, first.get(SCRIPT));
+        assertEquals("ScreenerEntry", loaded.entry().getClass().getSimpleName());
+        Path jar = dir.resolve(loaded.key() + ".jar");
+        assertTrue(Files.isRegularFile(jar));
+        FileTime written = Files.getLastModifiedTime(jar);
+
+        CompiledScriptCache restarted = cache();
+        CompiledScriptCache.LoadedScript reloaded = restarted.get(SCRIPT);
+
+        assertEquals(loaded.key(), reloaded.key());
+        assertEquals("ScreenerEntry", reloaded.entry().getClass().getSimpleName());
+        assertInstanceOf(CompiledScriptCache.ScriptClassLoader.class, reloaded.entry().getClass().getClassLoader());
+        assertNotSame(loaded.entry().getClass(), reloaded.entry().getClass());
+        // loaded, not recompiled and rewritten
+        assertEquals(written, Files.getLastModifiedTime(jar));
+    }
+
+    @Test
+    void compileErrorsAreReportedAndNotCached() {
+        CompiledScriptCache cache = cache();
+
+        assertThrows(IllegalArgumentException.class, () -> cache.get("val x: Int = \"text\""));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void keyCoversEveryDslPackageClass() {
+        Set<String> paths = CompiledScriptCache.dslResources().keySet();
+
+        assertTrue(paths.contains("com/dtech/algo/screener/dsl/KDsl.class"), paths.toString());
+        assertTrue(paths.contains("com/dtech/algo/screener/dsl/averages/Averages.class"), paths.toString());
+        assertTrue(paths.contains("com/dtech/algo/screener/dsl/oscillators/Oscillators.class"), paths.toString());
+        assertTrue(paths.contains("com/dtech/algo/screener/dsl/trend/Trend.class"), paths.toString());
+        assertTrue(paths.contains("com/dtech/algo/screener/dsl/bands/Bands.class"), paths.toString());
+        assertTrue(paths.contains("com/dtech/algo/screener/ScreenerContext.class"), paths.toString());
+    }
+
+    @Test
+    void leastRecentlyUsedScriptsAreEvictedFromMemory() {
+        CompiledScriptCache cache = cache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 1);
+        cache.init();
+
+        CompiledScriptCache.LoadedScript first = cache.get(SCRIPT);
+        cache.get(SCRIPT + "\n// other");
+        assertEquals(1, cache.size());
+
+        // defined again from its jar rather than served from memory
+        CompiledScriptCache.LoadedScript again = cache.get(SCRIPT);
+        assertEquals(first.key(), again.key());
+        assertNotSame(first.entry().getClass(), again.entry().getClass());
+    }
+
+    @Test
+    void pruneKeepsActiveAndRecentJarsOnly() throws Exception {
+        CompiledScriptCache cache = cache();
+        String active = cache.get(SCRIPT).key();
+        Path stale = Files.write(dir.resolve("0".repeat(64) + ".jar"), new byte[0]);
+        Path leftover = Files.write(dir.resolve(active + ".jar123.tmp"), new byte[0]);
+        Path other = Files.write(dir.resolve("notes.txt"), new byte[0]);
+        Instant before = Instant.now().plusSeconds(60);
+        FileTime old = FileTime.from(before.minusSeconds(3600));
+        for (Path file : List.of(dir.resolve(active + ".jar"), stale, leftover, other)) {
+            Files.setLastModifiedTime(file, old);
+        }
+        Path recent = Files.write(dir.resolve("1".repeat(64) + ".jar"), new byte[0]);
+        Files.setLastModifiedTime(recent, FileTime.from(before));
+
+        assertEquals(2, cache.prune(Set.of(active), before));
+
+        assertTrue(Files.exists(dir.resolve(active + ".jar")));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(other));
+        assertFalse(Files.exists(stale));
+        assertFalse(Files.exists(leftover));
+    }
+
+    private CompiledScriptCache cache() {
+        CompiledScriptCache cache = new CompiledScriptCache();
+        ReflectionTestUtils.setField(cache, "cacheDir", dir.toString());
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        cache.init();
+        return cache;
+    }
+}
@@ -0,0 +1,79 @@
+package com.dtech.algo.screener.kotlinrunner;
+
+import com.dtech.algo.screener.ScreenerContext;
+import com.dtech.algo.screener.ScreenerOutput;
+import com.dtech.algo.screener.ScreenerScript;
+import com.dtech.algo.screener.SignalCallback;
+import com.dtech.algo.screener.enums.WorkflowStep;
+import com.dtech.algo.screener.runtime.ScreenerRunLogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KotlinScriptExecutorTest {
+
+    @Mock
+    private ScreenerRunLogService runLogService;
+
+    private KotlinScriptExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new KotlinScriptExecutor(runLogService);
+        ReflectionTestUtils.setField(executor, "captureOutput", true);
+        executor.init();
+    }
+
+    public static class BooleanEntry {
+        public boolean screener(ScreenerContext ctx, SignalCallback cb) {
+            System.out.println("checked " + ctx.getSymbol());
+            return true;
+        }
+    }
+
+    public static class OutputEntry {
+        public ScreenerOutput screener(ScreenerContext ctx, SignalCallback cb) {
+            return ScreenerOutput.builder().passed(false).build();
+        }
+    }
+
+    @Test
+    void bindsScreenerFunctionsToTheTypedInterface() {
+        ScreenerContext ctx = ScreenerContext.builder().symbol("INFY").build();
+
+        assertTrue(ScreenerEntryPoints.bind(new BooleanEntry()).evaluate(ctx, null).isPassed());
+        assertFalse(ScreenerEntryPoints.bind(new OutputEntry()).evaluate(ctx, null).isPassed());
+        ScreenerScript typed = (c, cb) -> null;
+        assertSame(typed, ScreenerEntryPoints.bind(typed));
+        assertNull(ScreenerEntryPoints.bind(new Object()));
+    }
+
+    @Test
+    void logsOutputPrintedByTheScriptOnTheCallingThread() {
+        ScreenerScript script = ScreenerEntryPoints.bind(new BooleanEntry());
+        ScreenerContext ctx = ScreenerContext.builder().symbol("INFY").params(Map.of("screenerRunId", 7L)).build();
+
+        assertTrue(executor.evaluate(script, ctx, null).isPassed());
+
+        verify(runLogService).logLine(7L, WorkflowStep.SCRIPT, "stdout", "checked INFY");
+        verifyNoMoreInteractions(runLogService);
+    }
+
+    @Test
+    void doesNotCaptureWithoutRun() {
+        ScreenerScript script = ScreenerEntryPoints.bind(new BooleanEntry());
+
+        assertTrue(executor.evaluate(script, ScreenerContext.builder().symbol("TCS").build(), null).isPassed());
+
+        verifyNoInteractions(runLogService);
+    }
+}
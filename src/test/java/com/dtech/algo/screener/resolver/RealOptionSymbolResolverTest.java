@@ -0,0 +1,126 @@
+package com.dtech.algo.screener.resolver;
+
+import com.dtech.algo.series.InstrumentType;
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentRepository;
+import com.dtech.kitecon.service.OptionChainIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RealOptionSymbolResolverTest {
+
+    private static final LocalDateTime NEAR = LocalDateTime.now().plusDays(3).withHour(0).withMinute(0).withSecond(0).withNano(0);
+    private static final LocalDateTime FAR = NEAR.plusDays(7);
+
+    @Mock
+    private InstrumentRepository instrumentRepository;
+
+    private OptionChainIndex index;
+    private RealOptionSymbolResolver resolver;
+    private long tokens;
+
+    @BeforeEach
+    void setUp() {
+        List<Instrument> contracts = new ArrayList<>();
+        for (int strike = 1400; strike <= 1600; strike += 50) {
+            contracts.add(option("INFY", "CE", NEAR, strike));
+            contracts.add(option("INFY", "PE", NEAR, strike));
+            contracts.add(option("INFY", "CE", FAR, strike + 5));
+        }
+        contracts.add(option("INFY", "CE", NEAR, Double.NaN));
+        contracts.add(contract("INFY", "FUT", FAR, null, "INFYFAR"));
+        contracts.add(contract("INFY", "FUT", NEAR, null, "INFYNEAR"));
+        when(instrumentRepository.findAllByInstrumentTypeInAndExpiryAfter(any(), any())).thenReturn(contracts);
+        index = new OptionChainIndex(instrumentRepository);
+        resolver = new RealOptionSymbolResolver(index);
+    }
+
+    @Test
+    void resolvesNominationsAroundSpotFromTheNearestExpiry() {
+        assertEquals("INFYCE1550", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, 1), 1510.0));
+        assertEquals("INFYCE1600", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, 2), 1510.0));
+        assertEquals("INFYCE1500", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, -1), 1510.0));
+        assertEquals("INFYPE1450", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.PE, 2), 1510.0));
+        assertEquals("INFYPE1550", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.PE, -1), 1510.0));
+        // a strike equal to spot counts as above
+        assertEquals("INFYCE1500", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, 1), 1500.0));
+
+        assertEquals("INFY_CE3", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, 3), 1510.0));
+        assertEquals("TCS_PE1", resolver.resolveOption("TCS", new OptionNomination(InstrumentType.PE, 1), 3900.0));
+        assertEquals("INFY_CE1", resolver.resolveOption("INFY", new OptionNomination(InstrumentType.CE, 1), null));
+
+        // built once, on first use
+        verify(instrumentRepository, times(1)).findAllByInstrumentTypeInAndExpiryAfter(any(), any());
+    }
+
+    @Test
+    void resolvesTheNearestFutureAndRebuildsAtomically() {
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals("INFYNEAR", index.nearestFuture("NFO", "INFY", now, FAR).getTradingsymbol());
+        assertNull(index.nearestFuture("NFO", "INFY", now, NEAR.minusDays(1)));
+        assertEquals(FAR, index.nearestChain("NFO", "INFY", InstrumentType.CE, NEAR.plusDays(1), FAR).expiry());
+
+        when(instrumentRepository.findAllByInstrumentTypeInAndExpiryAfter(any(), any()))
+                .thenReturn(List.of(option("TCS", "PE", NEAR, 3900)));
+        index.rebuild();
+        assertFalse(index.contains("NFO", "INFY"));
+        assertEquals("TCSPE3900", resolver.resolveOption("TCS", new OptionNomination(InstrumentType.PE, -1), 3850.0));
+    }
+
+    @Test
+    void keepsTheChainsOfEachExchangeApart() {
+        List<Instrument> contracts = new ArrayList<>();
+        contracts.add(option("NIFTY", "CE", NEAR, 24000));
+        contracts.add(option("NIFTYNXT50", "CE", NEAR, 68000));
+        Instrument bse = option("INFY", "CE", NEAR, 1500);
+        bse.setExchange("BFO");
+        bse.setTradingsymbol("INFYBSE1500");
+        contracts.add(bse);
+        contracts.add(option("INFY", "CE", NEAR, 1500));
+        when(instrumentRepository.findAllByInstrumentTypeInAndExpiryAfter(any(), any())).thenReturn(contracts);
+        index.rebuild();
+
+        LocalDateTime now = LocalDateTime.now();
+        OptionChainIndex.Chain nfo = index.nearestChain("NFO", "INFY", InstrumentType.CE, now, FAR);
+        assertEquals(1, nfo.size());
+        assertEquals("INFYCE1500", nfo.contracts()[0].getTradingsymbol());
+        assertEquals("INFYBSE1500", index.nearestChain("BFO", "INFY", InstrumentType.CE, now, FAR).contracts()[0].getTradingsymbol());
+        assertNull(index.nearestChain("MCX", "INFY", InstrumentType.CE, now, FAR));
+
+        assertTrue(index.coversPrefix("NFO", "INFY"));
+        assertTrue(index.coversPrefix("NFO", "NIFTYNXT50"));
+        // a trading symbol prefix match on NIFTY would include NIFTYNXT50 contracts
+        assertFalse(index.coversPrefix("NFO", "NIFTY"));
+        assertFalse(index.coversPrefix("NFO", "INF"));
+        assertFalse(index.coversPrefix("MCX", "INFY"));
+    }
+
+    private Instrument option(String name, String type, LocalDateTime expiry, double strike) {
+        String symbol = name + type + (Double.isNaN(strike) ? "X" : String.valueOf((int) strike)) + (expiry.equals(FAR) ? "F" : "");
+        return contract(name, type, expiry, Double.isNaN(strike) ? "n/a" : String.valueOf(strike), symbol);
+    }
+
+    private Instrument contract(String name, String type, LocalDateTime expiry, String strike, String symbol) {
+        return Instrument.builder()
+                .instrumentToken(++tokens)
+                .name(name)
+                .instrumentType(type)
+                .expiry(expiry)
+                .strike(strike)
+                .tradingsymbol(symbol)
+                .exchange("NFO")
+                .build();
+    }
+}
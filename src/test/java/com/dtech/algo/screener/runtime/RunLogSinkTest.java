@@ -0,0 +1,138 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.db.ScreenerUowBulkWriter;
+import com.dtech.algo.screener.enums.WorkflowStep;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RunLogSinkTest {
+
+    @Mock
+    private ScreenerUowBulkWriter screenerUowBulkWriter;
+
+    private RunLogSink sink;
+
+    @AfterEach
+    void tearDown() {
+        sink.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesLinesPerRunIntoOneRowInOneInsert() {
+        sink = sink(100, RunLogSink.OverflowPolicy.CALLER_RUNS);
+        sink.logLine(1L, WorkflowStep.SCRIPT, "stdout", "a");
+        sink.logStep(1L, WorkflowStep.SCRIPT, Map.of("symbol", "INFY"), Map.of("passed", true), true, null);
+        sink.logLine(2L, WorkflowStep.SCRIPT, "stdout", "x");
+        sink.logLine(1L, WorkflowStep.SCRIPT, "stdout", "b");
+        sink.logLine(1L, WorkflowStep.SCRIPT, "stderr", "oops");
+
+        sink.flush();
+
+        ArgumentCaptor<List<ScreenerUowBulkWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(screenerUowBulkWriter, times(1)).insertAll(rows.capture());
+        List<ScreenerUowBulkWriter.Row> written = rows.getValue();
+        assertEquals(4, written.size());
+        assertEquals("{\"msg\":\"a\\nb\"}", written.get(0).outputJson());
+        assertTrue(written.get(0).inputJson().contains("\"lines\":2"));
+        assertEquals("{\"symbol\":\"INFY\"}", written.get(1).inputJson());
+        assertEquals(2L, written.get(2).runId());
+        assertTrue(written.get(3).inputJson().contains("stderr"));
+        assertEquals(0, sink.getQueued());
+    }
+
+    @Test
+    void dropsNewestWhenFullAndConfiguredTo() {
+        sink = sink(2, RunLogSink.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 5; i++) {
+            sink.logStep(1L, WorkflowStep.SCRIPT, null, Map.of("i", i), true, null);
+        }
+
+        assertEquals(2, sink.getQueued());
+        assertEquals(3, sink.getDropped());
+        verifyNoInteractions(screenerUowBulkWriter);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void callerRunsWritesTheQueueWhenFull() {
+        sink = sink(2, RunLogSink.OverflowPolicy.CALLER_RUNS);
+        for (int i = 0; i < 3; i++) {
+            sink.logStep(1L, WorkflowStep.SCRIPT, null, Map.of("i", i), true, null);
+        }
+
+        ArgumentCaptor<List<ScreenerUowBulkWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(screenerUowBulkWriter).insertAll(rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals(1, sink.getQueued());
+        assertEquals(0, sink.getDropped());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void payloadIsSerializedWhenLoggedAndErrorMessageIsCut() {
+        sink = sink(100, RunLogSink.OverflowPolicy.CALLER_RUNS);
+        Map<String, Object> output = new HashMap<>(Map.of("passed", false));
+        sink.logStep(1L, WorkflowStep.SCRIPT, null, output, false, "x".repeat(10_000));
+        output.put("passed", true);
+
+        sink.flush();
+
+        ArgumentCaptor<List<ScreenerUowBulkWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(screenerUowBulkWriter).insertAll(rows.capture());
+        ScreenerUowBulkWriter.Row row = rows.getValue().getFirst();
+        assertEquals("{\"passed\":false}", row.outputJson());
+        assertEquals(ScreenerUowBulkWriter.ERROR_MESSAGE_LENGTH, row.errorMessage().length());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectedBatchIsRetriedRowByRow() {
+        sink = sink(100, RunLogSink.OverflowPolicy.CALLER_RUNS);
+        when(screenerUowBulkWriter.insertAll(anyList())).thenAnswer(inv -> {
+            List<ScreenerUowBulkWriter.Row> batch = inv.getArgument(0);
+            if (batch.size() > 1 || batch.getFirst().runId() == 2L) {
+                throw new DataIntegrityViolationException("fk_screener_uow_run");
+            }
+            return 1;
+        });
+        sink.logStep(1L, WorkflowStep.SCRIPT, null, Map.of("i", 1), true, null);
+        sink.logStep(2L, WorkflowStep.SCRIPT, null, Map.of("i", 2), true, null);
+        sink.logStep(3L, WorkflowStep.SCRIPT, null, Map.of("i", 3), true, null);
+
+        sink.flush();
+
+        ArgumentCaptor<List<ScreenerUowBulkWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(screenerUowBulkWriter, times(4)).insertAll(rows.capture());
+        assertEquals(3, rows.getAllValues().getFirst().size());
+        assertEquals(List.of(1L, 2L, 3L), rows.getAllValues().subList(1, 4).stream()
+                .map(batch -> batch.getFirst().runId()).toList());
+    }
+
+    private RunLogSink sink(int capacity, RunLogSink.OverflowPolicy policy) {
+        RunLogSink created = new RunLogSink(screenerUowBulkWriter, new ObjectMapper());
+        ReflectionTestUtils.setField(created, "queueCapacity", capacity);
+        ReflectionTestUtils.setField(created, "batchSize", 100);
+        // the background writer stays out of the way; tests flush explicitly
+        ReflectionTestUtils.setField(created, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(created, "overflowPolicy", policy);
+        created.start();
+        return created;
+    }
+}
@@ -0,0 +1,123 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.ScreenerService;
+import com.dtech.algo.screener.db.ScreenerRunEntity;
+import com.dtech.algo.screener.db.ScreenerRunRepository;
+import com.dtech.algo.screener.enums.SchedulingStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScreenerRunnerServiceTest {
+
+    @Mock
+    private ScreenerRunRepository screenerRunRepository;
+    @Mock
+    private ScreenerService screenerService;
+
+    private ScreenerRunQueue queue;
+    private ScreenerRunnerService runner;
+
+    @BeforeEach
+    void setUp() {
+        queue = new ScreenerRunQueue(screenerRunRepository);
+        runner = new ScreenerRunnerService(queue, screenerService);
+        ReflectionTestUtils.setField(runner, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(runner, "maxPerScreener", 2);
+        runner.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.stop();
+    }
+
+    @Test
+    void claimRespectsLimitAndPerScreenerCapacity() {
+        when(screenerRunRepository.lockDueRuns(any(), eq(12))).thenReturn(List.of(
+                run(1, 10), run(2, 10), run(3, 10), run(4, 20), run(5, 30), run(6, 30)));
+        ToIntFunction<Long> capacity = screenerId -> screenerId == 30 ? 0 : 2;
+
+        List<ScreenerRunEntity> claimed = queue.claim(3, capacity);
+
+        assertEquals(List.of(1L, 2L, 4L), claimed.stream().map(ScreenerRunEntity::getId).toList());
+        verify(screenerRunRepository).updateStatus(eq(List.of(1L, 2L, 4L)), eq(SchedulingStatus.RUNNING),
+                eq("running"), any());
+    }
+
+    @Test
+    void claimsNothingWithoutDueRuns() {
+        when(screenerRunRepository.lockDueRuns(any(), anyInt())).thenReturn(List.of());
+
+        assertTrue(queue.claim(5, id -> 1).isEmpty());
+        verify(screenerRunRepository, never()).updateStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void executesClaimedRunsConcurrentlyAndRecordsOutcome() throws Exception {
+        when(screenerRunRepository.lockDueRuns(any(), eq(16))).thenReturn(List.of(run(1, 10), run(2, 20)));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(inv -> {
+            bothStarted.countDown();
+            // only returns once the other run is executing too
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            if ("FAIL".equals(inv.getArgument(1))) {
+                throw new IllegalStateException("boom");
+            }
+            return null;
+        }).when(screenerService).run(anyLong(), anyString(), anyInt(), any(), isNull(), anyLong());
+
+        ScreenerRunnerService.TickReport first = runner.tick();
+        assertEquals(2, first.claimed());
+        assertSame(first, runner.getLastReport());
+
+        verify(screenerRunRepository, timeout(5000)).updateStatus(eq(List.of(1L)), eq(SchedulingStatus.COMPLETE),
+                eq("complete"), any());
+        verify(screenerRunRepository, timeout(5000)).updateStatus(eq(List.of(2L)), eq(SchedulingStatus.FAILED),
+                eq("failed"), any());
+
+        // every finished run shows up in exactly one report, whichever tick it lands in
+        when(screenerRunRepository.lockDueRuns(any(), anyInt())).thenReturn(List.of());
+        long completed = first.completed();
+        long failed = first.failed();
+        ScreenerRunnerService.TickReport last = first;
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((completed + failed < 2 || last.running() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            last = runner.tick();
+            completed += last.completed();
+            failed += last.failed();
+        }
+        assertEquals(1, completed);
+        assertEquals(1, failed);
+        assertEquals(0, last.running());
+        ScreenerRunnerService.TickReport idle = runner.tick();
+        assertEquals(0, idle.completed() + idle.failed());
+    }
+
+    private static ScreenerRunEntity run(long id, long screenerId) {
+        return ScreenerRunEntity.builder()
+                .id(id)
+                .screenerId(screenerId)
+                .symbol(id == 2 ? "FAIL" : "SYM" + id)
+                .timeframe("OneHour")
+                .schedulingStatus(SchedulingStatus.SCHEDULED)
+                .executeAt(Instant.now().minusSeconds(5))
+                .build();
+    }
+}
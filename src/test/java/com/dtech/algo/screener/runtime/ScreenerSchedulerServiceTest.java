@@ -0,0 +1,118 @@
+package com.dtech.algo.screener.runtime;
+
+import com.dtech.algo.screener.db.ScreenerEntity;
+import com.dtech.algo.screener.db.ScreenerRepository;
+import com.dtech.algo.screener.db.ScreenerRunBulkWriter;
+import com.dtech.algo.screener.db.ScreenerRunSchema;
+import com.dtech.algo.screener.model.RunConfig;
+import com.dtech.algo.screener.model.SchedulingConfig;
+import com.dtech.kitecon.repository.IndexSymbolRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScreenerSchedulerServiceTest {
+
+    @Mock
+    private IndexSymbolRepository indexSymbolRepository;
+    @Mock
+    private ScreenerRepository screenerRepository;
+    @Mock
+    private ScreenerRunBulkWriter screenerRunBulkWriter;
+    @Mock
+    private ScreenerRunSchema screenerRunSchema;
+
+    @InjectMocks
+    private ScreenerSchedulerService scheduler;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expandsIndexesOnceAndInsertsDistinctSlotsInOneCall() {
+        ScreenerEntity first = screener(1L,
+                new RunConfig("OneHour", Arrays.asList("INDEX-Nifty50", "INFY", " TCS ", null)),
+                new RunConfig("Day", List.of("INDEX-Nifty50")),
+                new RunConfig(" ", List.of("SBIN")));
+        ScreenerEntity second = screener(2L, new RunConfig("OneHour", List.of("INDEX-NiftyBank", "INDEX-Unknown")));
+        ScreenerEntity unscheduled = screener(3L);
+        when(screenerRepository.findByDeletedFalse()).thenReturn(List.of(first, second, unscheduled));
+        when(screenerRunSchema.isSlotKeyPresent()).thenReturn(true);
+        when(indexSymbolRepository.findAllMemberships()).thenReturn(List.of(
+                new Object[]{"Nifty50", "INFY"}, new Object[]{"Nifty50", "TCS"},
+                new Object[]{"NiftyBank", "HDFCBANK"}));
+        when(screenerRunBulkWriter.scheduleAll(any(), any())).thenReturn(5);
+
+        scheduler.tick();
+
+        ArgumentCaptor<Collection<ScreenerRunBulkWriter.Slot>> slots = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Instant> executeAt = ArgumentCaptor.forClass(Instant.class);
+        verify(screenerRunBulkWriter).scheduleAll(slots.capture(), executeAt.capture());
+        assertEquals(List.of(
+                new ScreenerRunBulkWriter.Slot(1L, "INFY", "OneHour"),
+                new ScreenerRunBulkWriter.Slot(1L, "TCS", "OneHour"),
+                new ScreenerRunBulkWriter.Slot(1L, "INFY", "Day"),
+                new ScreenerRunBulkWriter.Slot(1L, "TCS", "Day"),
+                new ScreenerRunBulkWriter.Slot(2L, "HDFCBANK", "OneHour")), new ArrayList<>(slots.getValue()));
+        assertEquals(executeAt.getValue().truncatedTo(ChronoUnit.MINUTES), executeAt.getValue());
+        verify(indexSymbolRepository, times(1)).findAllMemberships();
+        verifyNoMoreInteractions(indexSymbolRepository);
+    }
+
+    @Test
+    void membershipsAreCachedAcrossTicks() {
+        ReflectionTestUtils.setField(scheduler, "indexMembersTtlMinutes", 60L);
+        when(screenerRepository.findByDeletedFalse())
+                .thenReturn(List.of(screener(1L, new RunConfig("Day", List.of("INDEX-Nifty50")))));
+        when(screenerRunSchema.isSlotKeyPresent()).thenReturn(true);
+        when(indexSymbolRepository.findAllMemberships()).thenReturn(List.<Object[]>of(new Object[]{"Nifty50", "INFY"}));
+
+        scheduler.tick();
+        scheduler.tick();
+
+        verify(indexSymbolRepository, times(1)).findAllMemberships();
+        verify(screenerRunBulkWriter, times(2)).scheduleAll(eq(Set.of(new ScreenerRunBulkWriter.Slot(1L, "INFY", "Day"))), any());
+    }
+
+    @Test
+    void skipsSchedulingWithoutTheSlotKey() {
+        when(screenerRepository.findByDeletedFalse())
+                .thenReturn(List.of(screener(1L, new RunConfig("Day", List.of("INFY")))));
+
+        scheduler.tick();
+
+        verifyNoInteractions(indexSymbolRepository, screenerRunBulkWriter);
+    }
+
+    @Test
+    void doesNothingWithoutScreeners() {
+        when(screenerRepository.findByDeletedFalse()).thenReturn(List.of());
+
+        scheduler.tick();
+
+        verifyNoInteractions(indexSymbolRepository, screenerRunBulkWriter);
+    }
+
+    private static ScreenerEntity screener(Long id, RunConfig... runConfigs) {
+        return ScreenerEntity.builder()
+                .id(id)
+                .schedulingConfig(new SchedulingConfig(new ArrayList<>(List.of(runConfigs))))
+                .build();
+    }
+}
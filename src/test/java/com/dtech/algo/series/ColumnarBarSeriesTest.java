@@ -0,0 +1,149 @@
+package com.dtech.algo.series;
+
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarBarSeriesTest {
+
+    private static final long START = Instant.parse("2024-01-01T03:46:00Z").toEpochMilli();
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void growsPastInitialCapacity() {
+        ColumnarBarSeries series = series(2);
+        for (int i = 0; i < 1000; i++) {
+            series.add(START + i * MINUTE, i, i + 2, i - 1, i + 1, 10 * i, 5);
+        }
+
+        assertEquals(1000, series.getBarCount());
+        assertEquals(0, series.getBeginIndex());
+        assertEquals(999, series.getEndIndex());
+        Bar bar = series.getBar(500);
+        assertEquals(500.0, bar.getOpenPrice().doubleValue());
+        assertEquals(502.0, bar.getHighPrice().doubleValue());
+        assertEquals(499.0, bar.getLowPrice().doubleValue());
+        assertEquals(501.0, bar.getClosePrice().doubleValue());
+        assertEquals(5000.0, bar.getVolume().doubleValue());
+        assertEquals(Instant.ofEpochMilli(START + 500 * MINUTE), bar.getEndTime());
+        assertEquals(5.0, series.openInterest(500));
+    }
+
+    @Test
+    void sameEndTimeReplacesLastBar() {
+        ColumnarBarSeries series = series(4);
+        series.add(START, 1, 2, 0.5, 1.5, 100, 0);
+        series.add(START, 1, 3, 0.5, 2.5, 150, 0);
+
+        assertEquals(1, series.getBarCount());
+        assertEquals(2.5, series.close(0));
+        assertEquals(150.0, series.volume(0));
+    }
+
+    @Test
+    void maximumBarCountDropsOldestBars() {
+        ColumnarBarSeries series = series(4);
+        series.setMaximumBarCount(3);
+        for (int i = 0; i < 10; i++) {
+            series.add(START + i * MINUTE, i, i, i, i, i, 0);
+        }
+
+        assertEquals(3, series.getBarCount());
+        assertEquals(7, series.getRemovedBarsCount());
+        assertEquals(7, series.getBeginIndex());
+        assertEquals(9, series.getEndIndex());
+        assertEquals(9.0, series.getLastBar().getClosePrice().doubleValue());
+        assertEquals(7.0, series.getFirstBar().getClosePrice().doubleValue());
+    }
+
+    @Test
+    void liveTicksUpdateFormingBarInPlace() {
+        ColumnarBarSeries series = series(4);
+        long first = START / 1000;
+        long second = (START + MINUTE) / 1000;
+
+        assertNull(series.updateLiveBar(first, 100, 100, 100, 100, 0));
+        Bar view = series.getLastBar();
+        assertNull(series.updateLiveBar(first, 100, 104, 100, 104, 200));
+        assertNull(series.updateLiveBar(first, 100, 104, 98, 98, 300));
+
+        assertEquals(104.0, view.getHighPrice().doubleValue());
+        assertEquals(98.0, view.getLowPrice().doubleValue());
+        assertEquals(98.0, view.getClosePrice().doubleValue());
+        assertEquals(300.0, view.getVolume().doubleValue());
+
+        Bar completed = series.updateLiveBar(second, 99, 99, 99, 99, 50);
+        assertEquals(Instant.ofEpochMilli(START), completed.getEndTime());
+        assertEquals(2, series.getBarCount());
+        assertEquals(50.0, series.volume(1));
+
+        // updates older than the forming bar are ignored
+        assertNull(series.updateLiveBar(first, 1, 1, 1, 1, 0));
+        assertEquals(98.0, series.low(0));
+    }
+
+    @Test
+    void loadedBarIsNotReportedAsCompleted() {
+        ColumnarBarSeries series = series(4);
+        series.add(START, 100, 101, 99, 100, 300, 0);
+
+        assertNull(series.updateLiveBar((START + MINUTE) / 1000, 102, 102, 102, 102, 10));
+        assertEquals(2, series.getBarCount());
+        // the bar fed live is completed as usual
+        Bar completed = series.updateLiveBar((START + 2 * MINUTE) / 1000, 103, 103, 103, 103, 5);
+        assertEquals(Instant.ofEpochMilli(START + MINUTE), completed.getEndTime());
+    }
+
+    @Test
+    void barViewsAndTheirNumsAreReused() {
+        ColumnarBarSeries series = series(2);
+        for (int i = 0; i < 10; i++) {
+            series.add(START + i * MINUTE, i, i + 2, i - 1, i + 1, 10 * i, 0);
+        }
+
+        Bar bar = series.getBar(5);
+        assertSame(bar, series.getBar(5));
+        assertSame(bar.getClosePrice(), series.getBar(5).getClosePrice());
+
+        // ta4j code paths that add a price to the last bar write through to the columns
+        series.getLastBar().addPrice(series.numFactory().numOf(20));
+        assertEquals(20.0, series.high(9));
+        assertEquals(20.0, series.close(9));
+        assertEquals(20.0, series.getLastBar().getClosePrice().doubleValue());
+    }
+
+    @Test
+    void subSeriesCopiesRange() {
+        ColumnarBarSeries series = series(4);
+        for (int i = 0; i < 6; i++) {
+            series.add(START + i * MINUTE, i, i, i, i, i, 0);
+        }
+
+        BarSeries sub = series.getSubSeries(2, 5);
+        assertEquals(3, sub.getBarCount());
+        assertEquals(2.0, sub.getBar(0).getClosePrice().doubleValue());
+        assertEquals(4.0, sub.getLastBar().getClosePrice().doubleValue());
+        assertSame(series.numFactory(), sub.numFactory());
+    }
+
+    @Test
+    void barsMustMoveForward() {
+        ColumnarBarSeries series = series(4);
+        series.add(START + MINUTE, 1, 1, 1, 1, 1, 0);
+        ColumnarBarSeries other = series(1);
+        Bar earlier = other.getBar(other.add(START, 1, 1, 1, 1, 1, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> series.addBar(earlier));
+    }
+
+    private static ColumnarBarSeries series(int capacity) {
+        return new ColumnarBarSeries("NIFTY", Interval.OneMinute, SeriesType.EQUITY, "NIFTY", capacity);
+    }
+}
@@ -9,10 +9,14 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
 import org.ta4j.core.BaseBarSeries;
 import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.DecimalNum;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -92,4 +96,72 @@ class ExtendedBarSeriesTest {
 //        Assertions.assertEquals(extendedBarSeries.getBar(1).getEndTime(), time.plusMinutes(18));
 //        Mockito.verify(candleSyncExecutor, Mockito.times(1)).submit(Mockito.any());
 //    }
-}
\ No newline at end of file
+
+    @Test
+    void liveBarIsUpdatedInPlace() {
+        ExtendedBarSeries series = new ExtendedBarSeries(new BaseBarSeriesBuilder().build(), Interval.OneMinute, SeriesType.EQUITY, "SBIN");
+        Instant end = Instant.parse("2024-06-12T04:31:00Z");
+
+        Assertions.assertNull(series.updateLiveBar(end.getEpochSecond(), 100, 100, 100, 100, 0));
+        Bar live = series.getLastBar();
+        Assertions.assertNull(series.updateLiveBar(end.getEpochSecond(), 100, 103, 100, 103, 200));
+        Assertions.assertNull(series.updateLiveBar(end.getEpochSecond(), 100, 103, 99, 99, 500));
+
+        Assertions.assertEquals(1, series.getBarCount());
+        Assertions.assertSame(live, series.getLastBar());
+        Assertions.assertEquals(end, live.getEndTime());
+        Assertions.assertEquals(100, live.getOpenPrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(103, live.getHighPrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(99, live.getLowPrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(99, live.getClosePrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(500, live.getVolume().doubleValue(), 1e-9);
+    }
+
+    @Test
+    void liveBarIsFrozenWhenNextBarOpens() {
+        ExtendedBarSeries series = new ExtendedBarSeries(new BaseBarSeriesBuilder().build(), Interval.OneMinute, SeriesType.EQUITY, "SBIN");
+        Instant end = Instant.parse("2024-06-12T04:31:00Z");
+
+        series.updateLiveBar(end.getEpochSecond(), 100, 100, 100, 100, 0);
+        series.updateLiveBar(end.getEpochSecond(), 100, 101, 100, 101, 400);
+        Bar completed = series.updateLiveBar(end.getEpochSecond() + 60, 102, 102, 102, 102, 50);
+
+        Assertions.assertNotNull(completed);
+        Assertions.assertFalse(completed instanceof LiveBar);
+        Assertions.assertEquals(2, series.getBarCount());
+        Assertions.assertSame(completed, series.getBar(0));
+        Assertions.assertEquals(101, completed.getClosePrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(400, completed.getVolume().doubleValue(), 1e-9);
+        Assertions.assertEquals(50, series.getLastBar().getVolume().doubleValue(), 1e-9);
+    }
+
+    @Test
+    void loadedBarIsNotReportedAsCompletedAndLateUpdatesAreDropped() {
+        ExtendedBarSeries series = new ExtendedBarSeries(new BaseBarSeriesBuilder().build(), Interval.OneMinute, SeriesType.EQUITY, "SBIN");
+        Instant end = Instant.parse("2024-06-12T04:31:00Z");
+        series.addBar(new BaseBar(Duration.ofMinutes(1), end, DecimalNum.valueOf(100), DecimalNum.valueOf(101),
+                DecimalNum.valueOf(99), DecimalNum.valueOf(100), DecimalNum.valueOf(300), DecimalNum.valueOf(0), 0));
+
+        Assertions.assertNull(series.updateLiveBar(end.getEpochSecond() + 60, 102, 102, 102, 102, 10));
+        Assertions.assertEquals(2, series.getBarCount());
+
+        Assertions.assertNull(series.updateLiveBar(end.getEpochSecond(), 90, 90, 90, 90, 0));
+        Assertions.assertEquals(2, series.getBarCount());
+        Assertions.assertEquals(102, series.getLastBar().getClosePrice().doubleValue(), 1e-9);
+        Assertions.assertEquals(100, series.getBar(0).getClosePrice().doubleValue(), 1e-9);
+    }
+
+    @Test
+    void liveBarEqualityAndTextFollowTheLivePrices() {
+        Instant end = Instant.parse("2024-06-12T04:31:00Z");
+        LiveBar bar = new LiveBar(Duration.ofMinutes(1), end, 100, 100, 100, 100, 0);
+        LiveBar other = new LiveBar(Duration.ofMinutes(1), end, 100, 100, 100, 100, 0);
+        bar.set(104, 100, 103, 50);
+
+        Assertions.assertNotEquals(other, bar);
+        Assertions.assertTrue(bar.toString().contains("close price: 103.0"));
+        other.set(104, 100, 103, 50);
+        Assertions.assertEquals(other, bar);
+        Assertions.assertEquals(other.hashCode(), bar.hashCode());
+    }
+}
@@ -0,0 +1,180 @@
+package com.dtech.algo.strategy.builder.cache;
+
+import com.dtech.algo.exception.StrategyException;
+import com.dtech.algo.series.ExtendedBarSeries;
+import com.dtech.algo.series.Interval;
+import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.SeriesType;
+import com.dtech.algo.strategy.config.BarSeriesConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BaseBarSeriesBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BarSeriesCacheTest {
+
+    private final BarSeriesCache cache = new BarSeriesCache();
+
+    @BeforeEach
+    void setUp() {
+        cache.init();
+    }
+
+    @Test
+    void seriesIsLoadedOnceAcrossThreads() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<IntervalBarSeries>[] results = new CompletableFuture[4];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        return cache.getOrLoad(config("basebar"), c -> {
+                            loads.incrementAndGet();
+                            return series();
+                        });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, pool);
+            }
+            start.countDown();
+            IntervalBarSeries first = results[0].get();
+            for (CompletableFuture<IntervalBarSeries> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void namesAreBoundPerThread() throws Exception {
+        IntervalBarSeries series = cache.getOrLoad(config("basebar"), c -> series());
+        assertSame(series, cache.get("basebar"));
+
+        IntervalBarSeries other = CompletableFuture.supplyAsync(() -> cache.get("basebar")).get();
+        assertNull(other);
+
+        cache.reset();
+        assertNull(cache.get("basebar"));
+        assertSame(series, cache.getOrLoad(config("basebar"), c -> series()));
+    }
+
+    @Test
+    void updatePublishesNewSnapshot() throws Exception {
+        IntervalBarSeries original = cache.getOrLoad(config("basebar"), c -> series());
+        IntervalBarSeries replacement = series();
+
+        cache.update(config("basebar"), current -> {
+            assertSame(original, current);
+            return replacement;
+        });
+
+        IntervalBarSeries current = cache.getOrLoad(config("basebar"), c -> series());
+        assertSame(replacement, current);
+        assertNotSame(original, current);
+    }
+
+    @Test
+    void rangesInsideTheLoadedSeriesShareIt() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Instant now = Instant.now();
+        IntervalBarSeries first = cache.getOrLoad(config("a", now.minus(30, ChronoUnit.DAYS), now), c -> {
+            loads.incrementAndGet();
+            return series();
+        });
+
+        // a later "now" within the staleness window and a narrower range both hit
+        assertSame(first, cache.getOrLoad(config("b", now.minus(10, ChronoUnit.DAYS), now.plusSeconds(30)), c -> series()));
+        assertSame(first, cache.getOrLoad(config("c", now.minus(20, ChronoUnit.DAYS), now.minus(5, ChronoUnit.DAYS)),
+                c -> series()));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void earlierStartLoadsTheUnionOfBothRanges() throws Exception {
+        Instant jan = Instant.parse("2024-01-01T00:00:00Z");
+        Instant feb = Instant.parse("2024-02-01T00:00:00Z");
+        Instant mar = Instant.parse("2024-03-01T00:00:00Z");
+        IntervalBarSeries first = cache.getOrLoad(config("a", feb, mar), c -> series());
+
+        AtomicReference<BarSeriesConfig> requested = new AtomicReference<>();
+        IntervalBarSeries wider = cache.getOrLoad(config("b", jan, feb), c -> {
+            requested.set(c);
+            return series();
+        });
+
+        assertNotSame(first, wider);
+        assertEquals(jan, requested.get().getStartDate());
+        assertEquals(mar, requested.get().getEndDate());
+        assertSame(wider, cache.getOrLoad(config("c", feb, mar), c -> series()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void failedLoadIsRetriedAndLoaderMayUseTheCache() throws Exception {
+        assertThrows(StrategyException.class, () -> cache.getOrLoad(config("basebar"), c -> {
+            throw new StrategyException("database down");
+        }));
+        assertEquals(0, cache.size());
+
+        BarSeriesConfig other = config("other");
+        other.setInstrument("BANKNIFTY");
+        IntervalBarSeries loaded = cache.getOrLoad(config("basebar"), c -> {
+            cache.getOrLoad(other, o -> series());
+            return series();
+        });
+        assertSame(loaded, cache.get("basebar"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void nameBindingDoesNotKeepAnEvictedSeries() throws Exception {
+        cache.getOrLoad(config("basebar"), c -> series());
+        cache.invalidate(config("basebar"));
+
+        assertNull(cache.get("basebar"));
+    }
+
+    private static BarSeriesConfig config(String name) {
+        return config(name, Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-02-01T00:00:00Z"));
+    }
+
+    private static BarSeriesConfig config(String name, Instant start, Instant end) {
+        return BarSeriesConfig.builder()
+                .instrument("NIFTY")
+                .seriesType(SeriesType.EQUITY)
+                .interval(Interval.OneMinute)
+                .name(name)
+                .startDate(start)
+                .endDate(end)
+                .build();
+    }
+
+    private static IntervalBarSeries series() {
+        return ExtendedBarSeries.builder()
+                .delegate(new BaseBarSeriesBuilder().build())
+                .interval(Interval.OneMinute)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.dtech.chartpattern.zigzag;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZigZagEngineTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T03:45:00Z");
+
+    private final ZigZagParams params = ZigZagParams.ofDefaults(14, 2.0, 0.01, 1.0, 3, false, 1.5, 20,
+            ZigZagParams.Mode.LIVE);
+
+    @Test
+    void detectsAlternatingPivotsOnSwings() {
+        ZigZagEngine engine = new ZigZagEngine(params);
+        List<ZigZagPoint> pivots = feed(engine, 0, 400);
+
+        assertFalse(pivots.isEmpty());
+        for (int i = 1; i < pivots.size(); i++) {
+            assertNotEquals(pivots.get(i - 1).getType(), pivots.get(i).getType());
+            assertTrue(pivots.get(i - 1).getSequence() < pivots.get(i).getSequence());
+        }
+        assertEquals(pivots.size(), engine.getPivotCount());
+        assertNotNull(engine.tentative());
+    }
+
+    @Test
+    void resumesFromCheckpointWithSamePivots() {
+        ZigZagEngine uninterrupted = new ZigZagEngine(params);
+        List<ZigZagPoint> expected = feed(uninterrupted, 0, 1500);
+
+        ZigZagEngine first = new ZigZagEngine(params);
+        List<ZigZagPoint> actual = feed(first, 0, 700);
+        ZigZagEngine resumed = ZigZagEngine.restore(params, first.checkpoint());
+        assertNotNull(resumed);
+        assertEquals(first.getLastBarTime(), resumed.getLastBarTime());
+        actual.addAll(feed(resumed, 700, 1500));
+
+        assertEquals(expected, actual);
+        assertEquals(uninterrupted.tentative(), resumed.tentative());
+        assertEquals(uninterrupted.retentionCutoffEpochSecond(), resumed.retentionCutoffEpochSecond());
+    }
+
+    @Test
+    void retentionCutoffIsOldestOfLastRetainedBars() {
+        ZigZagEngine engine = new ZigZagEngine(params);
+        feed(engine, 0, 10);
+        assertEquals(START.getEpochSecond(), engine.retentionCutoffEpochSecond());
+
+        feed(engine, 10, ZigZagEngine.RETAINED_BARS + 25);
+        assertEquals(barTime(25).getEpochSecond(), engine.retentionCutoffEpochSecond());
+    }
+
+    @Test
+    void rejectsCheckpointOfOtherParams() {
+        ZigZagEngine engine = new ZigZagEngine(params);
+        feed(engine, 0, 50);
+        ZigZagParams other = ZigZagParams.ofDefaults(10, 2.0, 0.01, 1.0, 3, false, 1.5, 20, ZigZagParams.Mode.LIVE);
+
+        assertNull(ZigZagEngine.restore(other, engine.checkpoint()));
+        assertNull(ZigZagEngine.restore(params, new byte[]{1, 2}));
+        assertNull(ZigZagEngine.restore(params, null));
+    }
+
+    private static List<ZigZagPoint> feed(ZigZagEngine engine, int from, int to) {
+        List<ZigZagPoint> pivots = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            // a slow sine swing with some noise, so legs reverse every few dozen bars
+            double mid = 100 + 10 * Math.sin(i / 15.0) + Math.sin(i * 1.7);
+            ZigZagPoint pivot = engine.onBar(barTime(i), mid + 0.5, mid - 0.5, mid);
+            if (pivot != null) {
+                pivots.add(pivot);
+            }
+        }
+        return pivots;
+    }
+
+    private static Instant barTime(int index) {
+        return START.plusSeconds(60L * index);
+    }
+}
@@ -0,0 +1,70 @@
+package com.dtech.chartpattern.zigzag;
+
+import com.dtech.chartpattern.api.dto.ZigZagResponses;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZigZagIndexJobTest {
+
+    @Test
+    void tracksProgressAndFailures() {
+        ZigZagIndexJob job = new ZigZagIndexJob("job", "NIFTY", 3);
+        job.add(result("A", null));
+        job.add(result("B", "Unknown instrument"));
+
+        ZigZagIndexJob.Status status = job.status();
+        assertEquals(2, status.completed());
+        assertEquals(1, status.failed());
+        assertFalse(status.done());
+
+        job.add(result("C", null));
+        assertTrue(job.isDone());
+        assertNotNull(job.status().finishedAt());
+        assertEquals(List.of("B", "C"), symbols(job.getResults(1)));
+        assertTrue(job.getResults(5).isEmpty());
+    }
+
+    @Test
+    void emptyJobIsDoneImmediately() {
+        assertTrue(new ZigZagIndexJob("job", "NIFTY", 0).isDone());
+    }
+
+    @Test
+    void awaitResultsWakesOnNewResult() throws Exception {
+        ZigZagIndexJob job = new ZigZagIndexJob("job", "NIFTY", 2);
+        job.add(result("A", null));
+
+        CompletableFuture<List<ZigZagResponses.StockResult>> waiting =
+                CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return job.awaitResults(1, 10_000);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        job.add(result("B", null));
+
+        assertEquals(List.of("B"), symbols(waiting.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void awaitResultsReturnsEmptyOnTimeout() throws Exception {
+        ZigZagIndexJob job = new ZigZagIndexJob("job", "NIFTY", 2);
+        assertTrue(job.awaitResults(0, 20).isEmpty());
+    }
+
+    private static ZigZagResponses.StockResult result(String symbol, String error) {
+        return ZigZagResponses.StockResult.builder().tradingSymbol(symbol).timeframe("Day").error(error).build();
+    }
+
+    private static List<String> symbols(List<ZigZagResponses.StockResult> results) {
+        return results.stream().map(ZigZagResponses.StockResult::getTradingSymbol).toList();
+    }
+}
@@ -0,0 +1,101 @@
+package com.dtech.chartpattern.zigzag;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZigZagPivotCodecTest {
+
+    private static final long START = Instant.parse("2024-01-01T03:45:00Z").getEpochSecond();
+
+    @Test
+    void roundTripsPivotsWithNullableMetrics() {
+        List<ZigZagPoint> pivots = pivots(0, 5);
+        byte[] data = ZigZagPivotCodec.encode(pivots);
+
+        assertEquals(ZigZagPivotCodec.HEADER_BYTES + 5 * ZigZagPivotCodec.RECORD_BYTES, data.length);
+        ZigZagPivotCodec.Reader reader = ZigZagPivotCodec.read(data);
+        assertEquals(pivots, reader.toPoints());
+        assertNull(reader.retracementPct(0));
+        assertEquals(pivots.get(3).getExtensionPct(), reader.extensionPct(3));
+        assertEquals(pivots.get(4).getSequence(), reader.lastEpochSecond());
+    }
+
+    @Test
+    void randomAccessMatchesSequential() {
+        List<ZigZagPoint> pivots = pivots(0, 8);
+        ZigZagPivotCodec.Reader reader = ZigZagPivotCodec.read(ZigZagPivotCodec.encode(pivots));
+
+        assertEquals(pivots.get(6).getSequence(), reader.epochSecond(6));
+        assertEquals(pivots.get(2).getSequence(), reader.epochSecond(2));
+        assertEquals(pivots.get(7).getSequence(), reader.epochSecond(7));
+        assertTrue(reader.isHigh(1));
+        assertFalse(reader.isHigh(2));
+    }
+
+    @Test
+    void appendedTailAndSkipEqualRewrite() {
+        List<ZigZagPoint> all = pivots(0, 10);
+        byte[] stored = ZigZagPivotCodec.encode(all.subList(0, 6));
+        long last = ZigZagPivotCodec.read(stored).lastEpochSecond();
+
+        byte[] tail = ZigZagPivotCodec.encodeTail(last, all.subList(6, 10));
+        byte[] appended = new byte[stored.length + tail.length];
+        System.arraycopy(stored, 0, appended, 0, stored.length);
+        System.arraycopy(tail, 0, appended, stored.length, tail.length);
+        System.arraycopy(ZigZagPivotCodec.encodeSkip(3), 0, appended, ZigZagPivotCodec.SKIP_OFFSET, 4);
+
+        ZigZagPivotCodec.Reader reader = ZigZagPivotCodec.read(appended);
+        assertEquals(3, reader.getSkipped());
+        assertEquals(all.subList(3, 10), reader.toPoints());
+        assertEquals(all.get(9).getSequence(), reader.lastEpochSecond());
+    }
+
+    @Test
+    void emptySnapshot() {
+        ZigZagPivotCodec.Reader reader = ZigZagPivotCodec.read(ZigZagPivotCodec.encode(List.of()));
+        assertEquals(0, reader.size());
+        assertTrue(reader.toPoints().isEmpty());
+    }
+
+    @Test
+    void rejectsForeignOrTruncatedBytes() {
+        byte[] data = ZigZagPivotCodec.encode(pivots(0, 2));
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        byte[] otherVersion = data.clone();
+        otherVersion[0] = 9;
+
+        assertThrows(IllegalArgumentException.class, () -> ZigZagPivotCodec.read(truncated));
+        assertThrows(IllegalArgumentException.class, () -> ZigZagPivotCodec.read(otherVersion));
+        assertThrows(IllegalArgumentException.class, () -> ZigZagPivotCodec.read("[]".getBytes()));
+    }
+
+    @Test
+    void rejectsOutOfOrderPivots() {
+        List<ZigZagPoint> pivots = new ArrayList<>(pivots(0, 3));
+        pivots.add(pivots.getFirst());
+        assertThrows(IllegalArgumentException.class, () -> ZigZagPivotCodec.encode(pivots));
+    }
+
+    private static List<ZigZagPoint> pivots(int from, int to) {
+        List<ZigZagPoint> pivots = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Instant timestamp = Instant.ofEpochSecond(START + 3600L * i * (i + 1));
+            pivots.add(ZigZagPoint.builder()
+                    .type(i % 2 == 0 ? ZigZagPoint.Type.LOW : ZigZagPoint.Type.HIGH)
+                    .timestamp(timestamp)
+                    .sequence(timestamp.getEpochSecond())
+                    .value(100 + (i % 2 == 0 ? -i : i))
+                    .atrAtPivot(1.5 + i)
+                    .retracementPct(i >= 2 ? 40.0 + i : null)
+                    .extensionPct(i >= 3 ? 120.0 - i : null)
+                    .build());
+        }
+        return pivots;
+    }
+}
@@ -1,13 +1,19 @@
 package com.dtech.kitecon.controller;
 
+import com.dtech.algo.runner.candle.BarTimeCalculator;
 import com.dtech.algo.runner.candle.DataTick;
 import com.dtech.algo.runner.candle.LatestBarSeriesProvider;
+import com.dtech.algo.runner.candle.TickAggregator;
 import com.dtech.algo.series.Exchange;
+import com.dtech.algo.series.ExtendedBarSeries;
 import com.dtech.algo.series.InstrumentType;
 import com.dtech.algo.series.Interval;
 import com.dtech.algo.series.IntervalBarSeries;
+import com.dtech.algo.series.LiveBar;
 import com.dtech.algo.strategy.config.BarSeriesConfig;
+import com.dtech.algo.time.ZoneIdHolder;
 import com.dtech.kitecon.config.HistoricalDateLimit;
+import com.dtech.kitecon.repository.InstrumentRepository;
 import com.dtech.kitecon.service.DatabaseBatchUpdateService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,21 +21,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BaseBarSeriesBuilder;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class BarSeriesHelperTest {
 
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
     @Mock
     private HistoricalDateLimit historicalDateLimit;
 
@@ -39,6 +55,12 @@ public class BarSeriesHelperTest {
     @Mock
     private DatabaseBatchUpdateService databaseBatchUpdateService;
 
+    @Mock
+    private TickAggregator tickAggregator;
+
+    @Mock
+    private InstrumentRepository instrumentRepository;
+
     @Mock
     private IntervalBarSeries mockBarSeries;
 
@@ -97,62 +119,67 @@ public class BarSeriesHelperTest {
     }
 
     @Test
-    void testProcessTick_Success() throws Exception {
-        // Mock the config lookup
-        when(barSeriesHelper.getConfigForInstrumentToken(testTick.getInstrumentToken()))
-                .thenReturn(testConfig);
-
-        // Mock barSeriesLoader update returning null (candle not complete)
-        when(barSeriesLoader.updateBarSeries(eq(testTick), any(IntervalBarSeries.class)))
-                .thenReturn(null);
-
-        boolean result = barSeriesHelper.processTick(testTick);
-
-        assertTrue(result);
-        verify(barSeriesLoader).updateBarSeries(eq(testTick), any(IntervalBarSeries.class));
+    void testProcessTick_FormingBarUpdated() throws Exception {
+        BarSeriesHelper helper = helperWithAggregator();
+        Map<Interval, IntervalBarSeries> series = stubSeries();
+
+        assertTrue(helper.processTick(tick(at(10, 0, 5), 100.5, 1000)));
+        assertTrue(helper.processTick(tick(at(10, 0, 30), 101.5, 1400)));
+
+        IntervalBarSeries oneMinute = series.get(Interval.OneMinute);
+        assertEquals(1, oneMinute.getBarCount());
+        Bar forming = oneMinute.getLastBar();
+        assertInstanceOf(LiveBar.class, forming);
+        assertEquals(at(10, 1, 0).toInstant(), forming.getEndTime());
+        assertEquals(101.5, forming.getClosePrice().doubleValue(), 1e-9);
+        assertEquals(400, forming.getVolume().doubleValue(), 1e-9);
         verify(databaseBatchUpdateService, never()).addToQueue(any());
     }
 
     @Test
     void testProcessTick_CandleComplete() throws Exception {
-        // Mock the config lookup
-        when(barSeriesHelper.getConfigForInstrumentToken(testTick.getInstrumentToken()))
-                .thenReturn(testConfig);
-
-        // Mock barSeriesLoader update returning true (candle complete)
-        when(barSeriesLoader.updateBarSeries(eq(testTick), any(IntervalBarSeries.class)))
-                .thenReturn(null);
-
-        boolean result = barSeriesHelper.processTick(testTick);
-
-        assertTrue(result);
-        verify(barSeriesLoader).updateBarSeries(eq(testTick), any(IntervalBarSeries.class));
-        verify(databaseBatchUpdateService).addToQueue(any());
+        BarSeriesHelper helper = helperWithAggregator();
+        Map<Interval, IntervalBarSeries> series = stubSeries();
+
+        assertTrue(helper.processTick(tick(at(10, 0, 5), 100.5, 1000)));
+        assertTrue(helper.processTick(tick(at(10, 0, 50), 99.5, 1300)));
+        assertTrue(helper.processTick(tick(at(10, 1, 5), 102.0, 1500)));
+
+        IntervalBarSeries oneMinute = series.get(Interval.OneMinute);
+        assertEquals(2, oneMinute.getBarCount());
+        Bar closed = oneMinute.getBar(0);
+        assertFalse(closed instanceof LiveBar);
+        assertEquals(at(10, 1, 0).toInstant(), closed.getEndTime());
+        assertEquals(100.5, closed.getOpenPrice().doubleValue(), 1e-9);
+        assertEquals(99.5, closed.getClosePrice().doubleValue(), 1e-9);
+        assertEquals(300, closed.getVolume().doubleValue(), 1e-9);
+        assertEquals(102.0, oneMinute.getLastBar().getClosePrice().doubleValue(), 1e-9);
+
+        // only the one-minute bar closed; longer intervals keep forming
+        assertEquals(1, series.get(Interval.FiveMinute).getBarCount());
+        verify(databaseBatchUpdateService, times(1)).addToQueue(argThat(c -> c.getInterval() == Interval.OneMinute));
     }
 
     @Test
-    void testProcessTick_ConfigNotFound() {
-        // Mock the config lookup returning null
-        when(barSeriesHelper.getConfigForInstrumentToken(testTick.getInstrumentToken()))
-                .thenReturn(null);
+    void testProcessTick_ConfigNotFound() throws Exception {
+        BarSeriesHelper helper = helperWithAggregator();
+        DataTick unknown = tick(at(10, 0, 5), 100.5, 1000);
+        unknown.setInstrumentToken(67890L);
+        when(instrumentRepository.findById(67890L)).thenReturn(Optional.empty());
 
-        boolean result = barSeriesHelper.processTick(testTick);
+        boolean result = helper.processTick(unknown);
 
         assertFalse(result);
-        verify(barSeriesLoader, never()).updateBarSeries(any(), any());
+        verify(barSeriesLoader, never()).loadBarSeries(any());
     }
 
     @Test
     void testProcessTick_Exception() throws Exception {
-        // Mock the config lookup
-        when(barSeriesHelper.getConfigForInstrumentToken(testTick.getInstrumentToken()))
-                .thenReturn(testConfig);
-
-        // Mock barSeriesLoader throwing exception
-        when(barSeriesLoader.updateBarSeries(any(), any()))
+        BarSeriesHelper helper = helperWithAggregator();
+        when(barSeriesLoader.loadBarSeries(any(BarSeriesConfig.class)))
                 .thenThrow(new RuntimeException("Test exception"));
 
-        boolean result = barSeriesHelper.processTick(testTick);
+        boolean result = helper.processTick(tick(at(10, 0, 5), 100.5, 1000));
 
         assertFalse(result);
         verify(databaseBatchUpdateService, never()).addToQueue(any());
@@ -193,4 +220,39 @@ public class BarSeriesHelperTest {
         assertNotNull(config);
         assertEquals(instrument, config.getInstrument());
     }
+
+    private BarSeriesHelper helperWithAggregator() {
+        ZoneIdHolder.set(IST);
+        TickAggregator aggregator = new TickAggregator(barSeriesLoader, databaseBatchUpdateService, new BarTimeCalculator());
+        BarSeriesHelper helper = new BarSeriesHelper(historicalDateLimit, barSeriesLoader, instrumentRepository,
+                aggregator);
+        helper.registerInstrument("RELIANCE", testTick.getInstrumentToken(), List.of());
+        return helper;
+    }
+
+    private Map<Interval, IntervalBarSeries> stubSeries() throws Exception {
+        Map<Interval, IntervalBarSeries> series = new EnumMap<>(Interval.class);
+        when(barSeriesLoader.loadBarSeries(any(BarSeriesConfig.class))).thenAnswer(invocation -> {
+            BarSeriesConfig config = invocation.getArgument(0);
+            return series.computeIfAbsent(config.getInterval(), interval -> ExtendedBarSeries.builder()
+                    .delegate(new BaseBarSeriesBuilder().withName(config.getName()).build())
+                    .interval(interval)
+                    .instrument(config.getInstrument())
+                    .build());
+        });
+        return series;
+    }
+
+    private DataTick tick(ZonedDateTime time, double price, double cumulativeVolume) {
+        DataTick tick = new DataTick();
+        tick.setInstrumentToken(testTick.getInstrumentToken());
+        tick.setLastTradedPrice(price);
+        tick.setVolumeTradedToday(cumulativeVolume);
+        tick.setTickTimestamp(Date.from(time.toInstant()));
+        return tick;
+    }
+
+    private static ZonedDateTime at(int hour, int minute, int second) {
+        return ZonedDateTime.of(2024, 6, 12, hour, minute, second, 0, IST);
+    }
 }
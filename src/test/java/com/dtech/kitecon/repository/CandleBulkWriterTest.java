@@ -0,0 +1,123 @@
+package com.dtech.kitecon.repository;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.kitecon.data.Candle;
+import com.dtech.kitecon.data.Instrument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CandleBulkWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Connection sequenceConnection;
+    @Mock
+    private PreparedStatement reserve;
+    @Mock
+    private PreparedStatement lastInsertId;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private PreparedStatement insert;
+
+    private CandleBulkWriter writer;
+    private final List<String> inserts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writer = new CandleBulkWriter(jdbcTemplate, dataSource);
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(inv -> inv.<ConnectionCallback<Integer>>getArgument(0).doInConnection(connection));
+        when(dataSource.getConnection()).thenReturn(sequenceConnection);
+        when(sequenceConnection.getAutoCommit()).thenReturn(true);
+        when(sequenceConnection.prepareStatement(anyString())).thenAnswer(inv -> {
+            String sql = inv.getArgument(0);
+            return sql.startsWith("UPDATE candle_seq") ? reserve : lastInsertId;
+        });
+        when(connection.prepareStatement(anyString())).thenAnswer(inv -> {
+            inserts.add(inv.getArgument(0));
+            return insert;
+        });
+        when(lastInsertId.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getLong(1)).thenReturn(1_000L);
+    }
+
+    @Test
+    void upsertUsesRowAliasAndBatches() throws Exception {
+        Instrument instrument = Instrument.builder().instrumentToken(738561L).tradingsymbol("RELIANCE").build();
+        List<Candle> candles = List.of(candle(1), candle(2), candle(3));
+
+        assertEquals(3, writer.upsert(instrument, Interval.FifteenMinute, candles));
+
+        assertEquals(2, inserts.size());
+        String sql = inserts.get(0);
+        assertTrue(sql.contains("VALUES (?,?,?,?,?,?,?,?,?,?),(?,?,?,?,?,?,?,?,?,?) AS new ON DUPLICATE KEY UPDATE"), sql);
+        assertTrue(sql.contains("open = new.open"), sql);
+        assertTrue(sql.contains("oi = new.oi"), sql);
+        assertFalse(sql.contains("VALUES(open)"), sql);
+        assertTrue(inserts.get(1).contains("VALUES (?,?,?,?,?,?,?,?,?,?) AS new"), inserts.get(1));
+        assertEquals(3, writer.getTotalRows());
+        verify(insert, times(2)).executeUpdate();
+        // one reservation for the whole upsert, committed on its own connection
+        verify(reserve).setLong(1, 53L);
+        verify(sequenceConnection).close();
+        verify(connection, never()).prepareStatement(startsWith("UPDATE candle_seq"));
+    }
+
+    @Test
+    void idsComeFromReservedBlockAndNullsAreBoundAsNull() throws Exception {
+        Instrument instrument = Instrument.builder().instrumentToken(738561L).tradingsymbol("RELIANCE").build();
+        Candle candle = candle(1);
+        candle.setOi(null);
+
+        writer.upsert(instrument, Interval.Day, List.of(candle));
+
+        // next_val moved to 1000 = first id + 1 row + allocation block - 1
+        verify(reserve).setLong(1, 51L);
+        ArgumentCaptor<Long> ids = ArgumentCaptor.forClass(Long.class);
+        verify(insert).setLong(eq(1), ids.capture());
+        assertEquals(950L, ids.getValue());
+        verify(insert).setNull(7, Types.BIGINT);
+        verify(insert).setLong(9, 738561L);
+        verify(insert).setString(10, "Day");
+    }
+
+    private static Candle candle(int minute) {
+        Candle candle = new Candle();
+        candle.setOpen(100.0 + minute);
+        candle.setHigh(101.0 + minute);
+        candle.setLow(99.0 + minute);
+        candle.setClose(100.5 + minute);
+        candle.setVolume(1_000L * minute);
+        candle.setOi(0L);
+        candle.setTimestamp(Instant.parse("2024-06-12T04:00:00Z").plusSeconds(60L * minute));
+        return candle;
+    }
+}
@@ -0,0 +1,132 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.algo.series.Interval;
+import com.dtech.kitecon.data.Instrument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoricalFetchSchedulerTest {
+
+    @Mock
+    private DataDownloader dataDownloader;
+
+    private HistoricalFetchScheduler scheduler;
+
+    private final Instrument instrument = Instrument.builder().instrumentToken(256265L).tradingsymbol("NIFTY 50").build();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new HistoricalFetchScheduler(dataDownloader);
+        ReflectionTestUtils.setField(scheduler, "ratePerSecond", 1000.0);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 3);
+        ReflectionTestUtils.setField(scheduler, "workers", 2);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void failedSliceIsRetried() throws Throwable {
+        doThrow(new IOException("connection reset")).doNothing().when(dataDownloader).processDownload(any());
+
+        HistoricalFetchJob job = scheduler.submit(instrument, Interval.OneMinute, requests(1, false), FetchPriority.LIVE);
+        job.getFuture().get(10, TimeUnit.SECONDS);
+
+        assertTrue(job.isSuccessful());
+        assertEquals(1, job.status().retries());
+        assertEquals(1, job.status().completedSlices());
+        verify(dataDownloader, times(2)).processDownload(any());
+    }
+
+    @Test
+    void sliceFailingEveryAttemptFailsTheJob() throws Throwable {
+        doThrow(new IOException("connection reset")).when(dataDownloader).processDownload(any());
+
+        HistoricalFetchJob job = scheduler.submit(instrument, Interval.OneMinute, requests(1, false), FetchPriority.LIVE);
+        job.getFuture().get(10, TimeUnit.SECONDS);
+
+        assertFalse(job.isSuccessful());
+        assertEquals(1, job.getFailedSlices());
+        assertEquals("connection reset", job.status().lastError());
+    }
+
+    @Test
+    void cleaningSliceRunsBeforeTheOthers() throws Throwable {
+        List<DataDownloadRequest> processed = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> processed.add(invocation.getArgument(0)))
+                .when(dataDownloader).processDownload(any());
+
+        HistoricalFetchJob job = scheduler.submit(instrument, Interval.OneMinute, requests(5, true), FetchPriority.BACKFILL);
+        job.getFuture().get(10, TimeUnit.SECONDS);
+
+        assertTrue(job.isSuccessful());
+        assertEquals(5, processed.size());
+        assertTrue(processed.getFirst().isClean());
+        assertEquals(1, processed.stream().filter(DataDownloadRequest::isClean).count());
+    }
+
+    @Test
+    void errorFailsTheJobAndWorkersSurvive() throws Throwable {
+        doThrow(new StackOverflowError()).doThrow(new StackOverflowError()).doNothing()
+                .when(dataDownloader).processDownload(any());
+
+        HistoricalFetchJob first = scheduler.submit(instrument, Interval.OneMinute, requests(1, false), FetchPriority.LIVE);
+        HistoricalFetchJob second = scheduler.submit(instrument, Interval.OneMinute, requests(1, false), FetchPriority.LIVE);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.getFuture().get(10, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, error.getCause());
+        assertThrows(ExecutionException.class, () -> second.getFuture().get(10, TimeUnit.SECONDS));
+        assertTrue(first.isDone());
+        assertFalse(first.isSuccessful());
+
+        // both workers hit an error; the next job is only served if they are still alive
+        HistoricalFetchJob third = scheduler.submit(instrument, Interval.OneMinute, requests(1, false), FetchPriority.LIVE);
+        third.getFuture().get(10, TimeUnit.SECONDS);
+        assertTrue(third.isSuccessful());
+    }
+
+    @Test
+    void emptyJobIsDoneImmediately() {
+        HistoricalFetchJob job = scheduler.submit(instrument, Interval.OneMinute, List.of(), FetchPriority.LIVE);
+        assertTrue(job.isDone());
+        assertEquals(1, scheduler.getJobs().size());
+    }
+
+    private List<DataDownloadRequest> requests(int slices, boolean clean) {
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        List<DataDownloadRequest> requests = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            requests.add(DataDownloadRequest.builder()
+                    .instrument(instrument)
+                    .interval(Interval.OneMinute)
+                    .dateRange(DateRange.builder()
+                            .startDate(start.plus(i, ChronoUnit.DAYS))
+                            .endDate(start.plus(i + 1, ChronoUnit.DAYS))
+                            .build())
+                    .clean(clean && i == 0)
+                    .build());
+        }
+        return requests;
+    }
+}
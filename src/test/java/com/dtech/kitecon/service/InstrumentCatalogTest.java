@@ -0,0 +1,106 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentBulkWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstrumentCatalogTest {
+
+    @Mock
+    private InstrumentBulkWriter instrumentBulkWriter;
+
+    @InjectMocks
+    private InstrumentCatalog catalog;
+
+    private long tokens;
+
+    @Test
+    void searchesPrefixRangeWithFiltersAndTopK() {
+        LocalDateTime nextWeek = LocalDateTime.now().plusDays(7);
+        rows(instrument("INFY", "NSE", "NSE", null, 1),
+                instrument("INFY", "BSE", "BSE", null, 1),
+                instrument("INFY24JUNFUT", "NFO", "NFO-FUT", nextWeek, 400),
+                instrument("INFY24JUN1500CE", "NFO", "NFO-OPT", nextWeek, 400),
+                instrument("INFYEXP", "NFO", "NFO-OPT", LocalDateTime.now(), 400),
+                instrument("INFRATEL", "NSE", "NSE", null, 1),
+                instrument("INF", "NSE", "NSE", null, 1),
+                instrument("TCS", "NSE", "NSE", null, 1));
+
+        assertEquals(List.of("INFY", "INFY24JUN1500CE", "INFY24JUNFUT"),
+                symbols(catalog.search("infy", List.of("NSE", "NFO"), null, true, 10)));
+        assertEquals(List.of("INFY", "INFY"), symbols(catalog.search("INFY", List.of(), null, true, 2)));
+        assertEquals(List.of("INFYEXP", "INFY24JUN1500CE"), symbols(catalog.search("INFY", List.of("NFO"), "NFO-OPT", false, 10)));
+        assertEquals(List.of("INF", "INFY", "INFRATEL"), symbols(catalog.search("INF", List.of("NSE"), null, true, 10)));
+        assertTrue(catalog.search("WIPRO", List.of(), null, true, 10).isEmpty());
+        assertTrue(catalog.search(" ", List.of(), null, true, 10).isEmpty());
+        verify(instrumentBulkWriter, times(1)).forEach(any());
+    }
+
+    @Test
+    void rebuildSwapsInANewVersion() {
+        rows(instrument("INFY", "NSE", "NSE", null, 1));
+        long first = catalog.version();
+
+        rows(instrument("TCS", "NSE", "NSE", null, 1));
+        catalog.rebuild();
+
+        assertNotEquals(first, catalog.version());
+        assertTrue(catalog.search("INFY", List.of(), null, true, 10).isEmpty());
+        assertEquals(List.of("TCS"), symbols(catalog.search("T", List.of(), null, true, 10)));
+    }
+
+    @Test
+    void versionDependsOnlyOnTheContents() {
+        rows(instrument("INFY", "NSE", "NSE", null, 1), instrument("TCS", "NSE", "NSE", null, 1));
+        long first = catalog.version();
+
+        // another instance, or this one after a restart, over the same rows
+        InstrumentCatalog restarted = new InstrumentCatalog(instrumentBulkWriter);
+        assertEquals(first, restarted.version());
+
+        rows(instrument("INFY", "NSE", "NSE", null, 1), instrument("TCS", "NSE", "NSE", null, 25));
+        restarted.rebuild();
+        assertNotEquals(first, restarted.version());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rows(Instrument... instruments) {
+        doAnswer(invocation -> {
+            Consumer<Instrument> consumer = invocation.getArgument(0);
+            for (Instrument instrument : instruments) {
+                consumer.accept(instrument);
+            }
+            return null;
+        }).when(instrumentBulkWriter).forEach(any(Consumer.class));
+    }
+
+    private static List<String> symbols(List<InstrumentCatalog.Entry> entries) {
+        return entries.stream().map(InstrumentCatalog.Entry::tradingsymbol).toList();
+    }
+
+    private Instrument instrument(String symbol, String exchange, String segment, LocalDateTime expiry, int lotSize) {
+        return Instrument.builder()
+                .instrumentToken(++tokens)
+                .tradingsymbol(symbol)
+                .name(symbol.startsWith("INFY") ? "INFOSYS" : symbol)
+                .exchange(exchange)
+                .segment(segment)
+                .expiry(expiry)
+                .lotSize(lotSize)
+                .instrumentType(expiry == null ? "EQ" : symbol.endsWith("FUT") ? "FUT" : "CE")
+                .build();
+    }
+}
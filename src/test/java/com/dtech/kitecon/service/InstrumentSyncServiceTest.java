@@ -0,0 +1,166 @@
+package com.dtech.kitecon.service;
+
+import com.dtech.kitecon.config.KiteConnectConfig;
+import com.dtech.kitecon.data.Instrument;
+import com.dtech.kitecon.repository.InstrumentBulkWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstrumentSyncServiceTest {
+
+    private static final String HEADER = "instrument_token,exchange_token,tradingsymbol,name,last_price,expiry,"
+            + "strike,tick_size,lot_size,instrument_type,segment,exchange";
+
+    @Mock
+    private InstrumentBulkWriter instrumentBulkWriter;
+
+    @Mock
+    private KiteConnectConfig kiteConnectConfig;
+
+    private InstrumentSyncService service;
+    private final List<List<Instrument>> upserts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new InstrumentSyncService(instrumentBulkWriter, kiteConnectConfig);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        // copy: the service clears and refills the same list for every batch
+        lenient().doAnswer(inv -> {
+            upserts.add(List.copyOf(inv.<List<Instrument>>getArgument(0)));
+            return inv.<List<Instrument>>getArgument(0).size();
+        }).when(instrumentBulkWriter).upsert(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insertsUpdatesAndRetiresInBatches() throws Exception {
+        LocalDateTime expiry = LocalDate.now().plusDays(10).atStartOfDay();
+        Instrument infy = equity(408065, "INFY", "INFOSYS");
+        Instrument tcs = equity(2953217, "TCS", "TATA CONSULTANCY");
+        Instrument delisted = equity(1, "GONE", "GONE LTD");
+        Instrument expired = equity(2, "OLDFUT", "OLD");
+        expired.setExpiry(LocalDate.now().minusDays(3).atStartOfDay());
+        doAnswer(inv -> {
+            Consumer<Instrument> consumer = inv.getArgument(0);
+            List.of(delisted, expired, infy, tcs).forEach(consumer);
+            return null;
+        }).when(instrumentBulkWriter).forEach(any(Consumer.class));
+        when(instrumentBulkWriter.retire(anyList(), any())).thenAnswer(inv -> inv.<List<Long>>getArgument(0).size());
+
+        String dump = HEADER + "\n"
+                + "408065,1594,INFY,\"INFOSYS\",1510.5,,0,0.05,1,EQ,NSE,NSE\n"
+                + "2953217,11536,TCS,\"TATA CONSULTANCY, LTD\",3900,,0,0.05,1,EQ,NSE,NSE\n"
+                + "\n"
+                + "13368834,52222,INFY24JUNFUT,\"INFY\",0," + expiry.toLocalDate() + ",0,0.05,400,FUT,NFO-FUT,NFO\n";
+
+        InstrumentSyncService.Report report = service.sync(new BufferedReader(new StringReader(dump)));
+
+        assertEquals(1, report.inserted());
+        assertEquals(1, report.updated());
+        assertEquals(1, report.unchanged());
+        assertEquals(1, report.retired());
+        assertEquals(2, upserts.stream().mapToInt(List::size).sum());
+        assertEquals("TATA CONSULTANCY, LTD", upserts.get(0).get(0).getName());
+        assertEquals(expiry, upserts.get(0).get(1).getExpiry());
+        assertEquals(400, upserts.get(0).get(1).getLotSize());
+
+        // only the live instrument missing from the dump is retired; the expired one is left alone
+        ArgumentCaptor<List<Long>> retired = ArgumentCaptor.forClass(List.class);
+        verify(instrumentBulkWriter).retire(retired.capture(), any());
+        assertEquals(List.of(1L), retired.getValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void truncatedDumpRetiresNothing() throws Exception {
+        doAnswer(inv -> {
+            Consumer<Instrument> consumer = inv.getArgument(0);
+            for (long token = 1; token <= 10; token++) {
+                consumer.accept(equity(token, "S" + token, "S" + token));
+            }
+            return null;
+        }).when(instrumentBulkWriter).forEach(any(Consumer.class));
+
+        InstrumentSyncService.Report report = service.sync(new BufferedReader(new StringReader(
+                HEADER + "\n1,1,S1,S1,0,,0,0.05,1,EQ,NSE,NSE\n")));
+
+        assertEquals(1, report.unchanged());
+        assertEquals(0, report.retired());
+        verify(instrumentBulkWriter, never()).retire(anyList(), any());
+    }
+
+    @Test
+    void malformedRowsAreSkippedAndCounted() throws Exception {
+        InstrumentSyncService.Report report = service.sync(new BufferedReader(new StringReader(HEADER + "\n"
+                + "408065,1594,INFY,INFOSYS,1510.5,,0,0.05,1,EQ,NSE,NSE\n"
+                + ",1594,NOTOKEN,X,0,,0,0.05,1,EQ,NSE,NSE\n"
+                + "5,5,BADLOT,X,0,,0,0.05,one,EQ,NSE,NSE\n"
+                + "6,6,BADEXPIRY,X,0,2024-13-40,0,0.05,1,FUT,NFO-FUT,NFO\n"
+                + "2953217,11536,TCS,TCS,3900,,0,0.05,1,EQ,NSE,NSE\n")));
+
+        assertEquals(2, report.inserted());
+        assertEquals(3, report.skipped());
+        assertEquals(List.of("INFY", "TCS"), upserts.stream().flatMap(List::stream).map(Instrument::getTradingsymbol).toList());
+    }
+
+    @Test
+    void splitsQuotedFields() {
+        assertEquals(List.of("1", "A, \"B\"", "", "x"), InstrumentSyncService.split("1,\"A, \"\"B\"\"\",,x"));
+    }
+
+    @Test
+    void stalledBodyReadFailsAfterTheReadTimeout() throws Exception {
+        PipedOutputStream server = new PipedOutputStream();
+        PipedInputStream stalled = new PipedInputStream(server);
+        server.write((HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try (BufferedReader body = new BufferedReader(new InputStreamReader(
+                new InstrumentSyncService.ReadDeadline(stalled, Duration.ofMillis(100)), StandardCharsets.UTF_8))) {
+            assertEquals(HEADER, body.readLine());
+            IOException e = assertThrows(IOException.class, body::readLine);
+            assertTrue(e.getMessage().contains("no data"), e.getMessage());
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static Instrument equity(long token, String symbol, String name) {
+        return Instrument.builder()
+                .instrumentToken(token)
+                .exchangeToken(token == 408065 ? 1594L : token == 2953217 ? 11536L : token)
+                .tradingsymbol(symbol)
+                .name(name)
+                .lastPrice(0.0)
+                .strike("0")
+                .tickSize(0.05)
+                .lotSize(1)
+                .instrumentType("EQ")
+                .segment("NSE")
+                .exchange("NSE")
+                .build();
+    }
+}